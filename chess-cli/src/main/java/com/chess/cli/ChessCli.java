@@ -0,0 +1,472 @@
+package com.chess.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.chess.core.Game;
+import com.chess.core.GameState;
+import com.chess.core.PGNGame;
+import com.chess.core.PGNReader;
+import com.chess.core.PGNService;
+import com.chess.core.PieceColor;
+import com.chess.core.PositionHash;
+import com.chess.engine.BatchAnalyzer;
+import com.chess.engine.BestMove;
+import com.chess.engine.CachedAnalysis;
+import com.chess.engine.EnginePool;
+import com.chess.engine.SearchLimits;
+
+/**
+ * Command-line entry point for batch work without the UI. Every subcommand
+ * reads from standard input and writes to standard output, so they can be
+ * chained with pipes; progress and errors go to standard error.
+ *
+ * <pre>
+ * java -jar chess-cli.jar perft 5
+ * java -jar chess-cli.jar pgn-validate &lt; games.pgn
+ * java -jar chess-cli.jar pgn-convert --to fen &lt; games.pgn
+ * java -jar chess-cli.jar fen-eval --engine Serendipity.jar --depth 14 &lt; positions.epd
+ * java -jar chess-cli.jar analyse --engine Serendipity.jar &lt; games.pgn &gt; annotated.pgn
+ * java -jar chess-cli.jar bench
+ * </pre>
+ */
+public class ChessCli {
+    static final int OK = 0;
+    static final int FAILED = 1;
+    static final int USAGE = 2;
+
+    private static final String USAGE_TEXT = String.join("\n",
+            "Usage: chess-cli <command> [options]",
+            "",
+            "  perft <depth> [--fen FEN] [--divide]       count leaf nodes of the move tree",
+            "  pgn-convert [--to pgn|uci|fen]             rewrite PGN games read from stdin",
+            "  pgn-validate                               report games with illegal moves",
+            "  fen-eval --engine PATH [engine options]    evaluate FEN/EPD lines read from stdin",
+            "  analyse --engine PATH [engine options]     annotate PGN games with evaluations",
+            "  bench [--engine PATH] [engine options]     time move generation and engine search",
+            "",
+            "Engine options: --engines N, --depth N, --movetime MS, --inprocess");
+
+    /** Standard perft positions with their published node counts. */
+    private static final String[][] BENCH_POSITIONS = {
+            { Game.START_FEN, "4", "197281" },
+            { "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "3", "97862" },
+            { "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "4", "43238" },
+            { "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "3", "9467" },
+            { "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "3", "62379" },
+    };
+
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public ChessCli(InputStream in, PrintStream out, PrintStream err) {
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Runs one subcommand.
+     *
+     * @param args The command name followed by its arguments
+     * @return The process exit code: 0 on success, 1 if the input had errors
+     *         or the work failed, 2 for bad arguments
+     */
+    public int run(String[] args) {
+        if (args.length == 0) {
+            err.println(USAGE_TEXT);
+            return USAGE;
+        }
+        List<String> rest = new ArrayList<>(List.of(args).subList(1, args.length));
+        try {
+            switch (args[0]) {
+                case "perft":
+                    return perft(rest);
+                case "pgn-convert":
+                    return pgnConvert(new Options(rest, "--to"));
+                case "pgn-validate":
+                    return pgnValidate(new Options(rest));
+                case "fen-eval":
+                    return fenEval(engineOptions(rest));
+                case "analyse":
+                    return analyse(engineOptions(rest));
+                case "bench":
+                    return bench(engineOptions(rest));
+                case "help":
+                case "--help":
+                    out.println(USAGE_TEXT);
+                    return OK;
+                default:
+                    err.println("Unknown command: " + args[0]);
+                    err.println(USAGE_TEXT);
+                    return USAGE;
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return USAGE;
+        } catch (IOException e) {
+            err.println("I/O error: " + e.getMessage());
+            return FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FAILED;
+        }
+    }
+
+    private int perft(List<String> args) {
+        Options options = new Options(args, "--fen");
+        if (options.positional.size() != 1) {
+            throw new IllegalArgumentException("Usage: perft <depth> [--fen FEN] [--divide]");
+        }
+        int depth = options.parseInt(options.positional.get(0), "depth");
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1: " + depth);
+        }
+        Game game = new Game();
+        game.loadFromFen(options.get("--fen", Game.START_FEN));
+
+        long start = System.nanoTime();
+        long nodes;
+        if (options.has("--divide")) {
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : Perft.divide(game.getBoard(), game.getCurrentTurn(), depth)
+                    .entrySet()) {
+                out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+            out.println();
+        } else {
+            nodes = Perft.count(game.getBoard(), game.getCurrentTurn(), depth);
+        }
+        out.println("Nodes: " + nodes);
+        err.println(rate(nodes, System.nanoTime() - start, "nodes"));
+        return OK;
+    }
+
+    private int pgnConvert(Options options) throws IOException {
+        String format = options.get("--to", "pgn");
+        if (!format.equals("pgn") && !format.equals("uci") && !format.equals("fen")) {
+            throw new IllegalArgumentException("Unknown format: " + format + " (expected pgn, uci or fen)");
+        }
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        int number = 0;
+        int failed = 0;
+        try (PGNReader reader = new PGNReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            PGNGame pgn;
+            while ((pgn = reader.next()) != null) {
+                number++;
+                Game game;
+                try {
+                    game = pgn.toGame();
+                } catch (IllegalArgumentException e) {
+                    err.println("Game " + number + ": " + e.getMessage());
+                    failed++;
+                    continue;
+                }
+                int played = game.getMoveHistory().size();
+                if (played < pgn.getMoves().size()) {
+                    err.println("Game " + number + ": stopped at illegal move " + pgn.getMoves().get(played));
+                    failed++;
+                }
+                switch (format) {
+                    case "uci":
+                        writer.write(game.getUciPosition() + "\n");
+                        break;
+                    case "fen":
+                        writer.write(game.getFen() + "\n");
+                        break;
+                    default:
+                        PGNService.writeGame(writer, pgn.getTags(), pgn.getMoves().subList(0, played), null,
+                                pgn.getResult());
+                        break;
+                }
+                writer.flush();
+            }
+        }
+        err.println("Converted " + (number - failed) + " of " + number + " games");
+        return failed == 0 ? OK : FAILED;
+    }
+
+    private int pgnValidate(Options options) throws IOException {
+        int number = 0;
+        int invalid = 0;
+        try (PGNReader reader = new PGNReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            PGNGame pgn;
+            while ((pgn = reader.next()) != null) {
+                number++;
+                String problem = validate(pgn);
+                if (problem != null) {
+                    invalid++;
+                    String players = pgn.getTag("White") != null
+                            ? " (" + pgn.getTag("White") + " - " + pgn.getTag("Black") + ")"
+                            : "";
+                    out.println("Game " + number + players + ": " + problem);
+                }
+            }
+        }
+        out.flush();
+        err.println(number + " games, " + invalid + " invalid");
+        return invalid == 0 ? OK : FAILED;
+    }
+
+    /**
+     * Returns what is wrong with a game, or null if all its moves are legal
+     * and its result agrees with the final position.
+     */
+    static String validate(PGNGame pgn) {
+        Game game;
+        try {
+            game = pgn.toGame();
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        int played = game.getMoveHistory().size();
+        if (played < pgn.getMoves().size()) {
+            String moveNumber = game.getFen().substring(game.getFen().lastIndexOf(' ') + 1);
+            return "illegal move " + moveNumber + (game.getCurrentTurn() == PieceColor.WHITE ? ". " : "... ")
+                    + pgn.getMoves().get(played);
+        }
+        GameState state = game.getGameState();
+        String result = pgn.getResult();
+        if (state == GameState.CHECKMATE) {
+            String expected = game.getCurrentTurn() == PieceColor.WHITE ? "0-1" : "1-0";
+            if (!result.equals(expected) && !result.equals("*")) {
+                return "result " + result + " after checkmate, expected " + expected;
+            }
+        } else if (state == GameState.STALEMATE && !result.equals("1/2-1/2") && !result.equals("*")) {
+            return "result " + result + " after stalemate";
+        }
+        return null;
+    }
+
+    private int fenEval(EngineOptions options) throws IOException, InterruptedException {
+        options.requireEngine("fen-eval");
+        try (EnginePool pool = options.startPool()) {
+            // Results are printed in input order, keeping every engine busy
+            Deque<CompletableFuture<String>> pending = new ArrayDeque<>();
+            int window = Math.max(2, pool.getCapacity() * 2);
+            int failed = 0;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                pending.addLast(evaluate(pool, line.trim(), options.limits));
+                if (pending.size() >= window && !print(pending.pollFirst())) {
+                    failed++;
+                }
+            }
+            while (!pending.isEmpty()) {
+                if (!print(pending.pollFirst())) {
+                    failed++;
+                }
+            }
+            return failed == 0 ? OK : FAILED;
+        }
+    }
+
+    private static CompletableFuture<String> evaluate(EnginePool pool, String fen, SearchLimits limits) {
+        Game game = new Game();
+        try {
+            game.loadFromFen(fen);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String position = game.getFen();
+        if (game.getGameState() != GameState.IN_PROGRESS) {
+            return CompletableFuture.completedFuture(position + "\t" + game.getGameState().name().toLowerCase(Locale.ROOT));
+        }
+        return pool.analyse("position fen " + position, PositionHash.of(game), limits)
+                .thenApply(analysis -> position + "\t" + formatScore(analysis) + "\t"
+                        + analysis.toBestMove().getMove());
+    }
+
+    /**
+     * Formats a score from the side to move's point of view, as in UCI.
+     */
+    static String formatScore(CachedAnalysis analysis) {
+        return (analysis.isMateScore() ? "mate " : "cp ") + analysis.getScore();
+    }
+
+    private boolean print(CompletableFuture<String> result) {
+        try {
+            out.println(result.join());
+            return true;
+        } catch (CompletionException e) {
+            err.println(e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    private int analyse(EngineOptions options) throws IOException, InterruptedException {
+        options.requireEngine("analyse");
+        try (EnginePool pool = options.startPool()) {
+            BatchAnalyzer analyzer = new BatchAnalyzer(pool, options.limits);
+            analyzer.setLog(err::println);
+            analyzer.run(new InputStreamReader(in, StandardCharsets.UTF_8),
+                    new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            return OK;
+        }
+    }
+
+    private int bench(EngineOptions options) throws IOException {
+        long totalNodes = 0;
+        long totalNanos = 0;
+        boolean correct = true;
+        for (String[] position : BENCH_POSITIONS) {
+            Game game = new Game();
+            game.loadFromFen(position[0]);
+            int depth = Integer.parseInt(position[1]);
+            long start = System.nanoTime();
+            long nodes = Perft.count(game.getBoard(), game.getCurrentTurn(), depth);
+            long nanos = System.nanoTime() - start;
+            totalNodes += nodes;
+            totalNanos += nanos;
+            boolean match = nodes == Long.parseLong(position[2]);
+            correct &= match;
+            out.println(String.format(Locale.ROOT, "perft %d %-70s %9d %s %7.1f ms", depth, position[0], nodes,
+                    match ? "ok  " : "FAIL", nanos / 1e6));
+        }
+        out.println(rate(totalNodes, totalNanos, "nodes"));
+
+        if (options.enginePath != null) {
+            try (EnginePool pool = options.startPool()) {
+                long start = System.nanoTime();
+                for (String[] position : BENCH_POSITIONS) {
+                    long searchStart = System.nanoTime();
+                    BestMove bestMove = pool.search("position fen " + position[0], options.limits).join();
+                    out.println(String.format(Locale.ROOT, "search %-69s %-6s %7.1f ms", position[0],
+                            bestMove.getMove(), (System.nanoTime() - searchStart) / 1e6));
+                }
+                out.println(String.format(Locale.ROOT, "search total %.1f ms",
+                        (System.nanoTime() - start) / 1e6));
+            } catch (CompletionException e) {
+                err.println("Engine failed: " + e.getCause().getMessage());
+                return FAILED;
+            }
+        }
+        return correct ? OK : FAILED;
+    }
+
+    private static String rate(long nodes, long nanos, String unit) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format(Locale.ROOT, "%d %s in %.3f s (%.0f %s/s)", nodes, unit, seconds, nodes / seconds,
+                unit);
+    }
+
+    private EngineOptions engineOptions(List<String> args) {
+        return new EngineOptions(new Options(args, "--engine", "--engines", "--depth", "--movetime"));
+    }
+
+    /**
+     * The engine settings shared by the subcommands that search.
+     */
+    private static class EngineOptions {
+        final String enginePath;
+        final int engines;
+        final boolean inProcess;
+        final SearchLimits limits;
+
+        EngineOptions(Options options) {
+            enginePath = options.get("--engine", null);
+            engines = options.parseInt(options.get("--engines",
+                    String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() - 1))), "--engines");
+            inProcess = options.has("--inprocess");
+            if (options.has("--movetime")) {
+                limits = new SearchLimits().withMoveTime(options.parseInt(options.get("--movetime", null), "--movetime"));
+            } else {
+                limits = new SearchLimits().withDepth(options.parseInt(options.get("--depth", "12"), "--depth"));
+            }
+        }
+
+        void requireEngine(String command) {
+            if (enginePath == null) {
+                throw new IllegalArgumentException(command + " needs --engine <path to engine jar or executable>");
+            }
+        }
+
+        EnginePool startPool() {
+            EnginePool pool = new EnginePool(enginePath, engines);
+            pool.setInProcess(inProcess);
+            pool.start();
+            return pool;
+        }
+    }
+
+    /**
+     * Command-line arguments split into positional arguments, options with a
+     * value and flags.
+     */
+    private static class Options {
+        private static final List<String> FLAGS = List.of("--divide", "--inprocess");
+
+        final List<String> positional = new ArrayList<>();
+        final Map<String, String> values = new HashMap<>();
+
+        /**
+         * @param args         The arguments after the command name
+         * @param valueOptions The options that take a value
+         * @throws IllegalArgumentException For an unknown option or a missing value
+         */
+        Options(List<String> args, String... valueOptions) {
+            List<String> withValue = List.of(valueOptions);
+            for (int i = 0; i < args.size(); i++) {
+                String arg = args.get(i);
+                if (withValue.contains(arg)) {
+                    if (i + 1 >= args.size()) {
+                        throw new IllegalArgumentException("Missing value for " + arg);
+                    }
+                    values.put(arg, args.get(++i));
+                } else if (FLAGS.contains(arg)) {
+                    values.put(arg, "");
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    positional.add(arg);
+                }
+            }
+        }
+
+        boolean has(String option) {
+            return values.containsKey(option);
+        }
+
+        String get(String option, String defaultValue) {
+            return values.getOrDefault(option, defaultValue);
+        }
+
+        int parseInt(String value, String name) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number for " + name + ": " + value);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        // Engine and library diagnostics go to stderr so stdout carries only results
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        int status = new ChessCli(System.in, stdout, System.err).run(args);
+        stdout.flush();
+        System.exit(status);
+    }
+}
@@ -0,0 +1,71 @@
+package com.chess.cli;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.chess.core.Board;
+import com.chess.core.Move;
+import com.chess.core.MoveValidator;
+import com.chess.core.PieceColor;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. Matching the
+ * published counts for well-known positions is the standard check of a move
+ * generator, and the time taken a measure of its speed.
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the positions reachable in exactly {@code depth} plies.
+     *
+     * @param board The position; restored before returning
+     * @param color The side to move
+     * @param depth The depth in plies, at least 1
+     * @return The number of leaf nodes
+     */
+    public static long count(Board board, PieceColor color, int depth) {
+        return count(board, new MoveValidator(board), color, depth);
+    }
+
+    /**
+     * Counts the leaf nodes below each legal move, as used to find the move
+     * where two generators disagree.
+     *
+     * @param board The position; restored before returning
+     * @param color The side to move
+     * @param depth The depth in plies, at least 1
+     * @return The count per move in UCI notation, in generation order
+     */
+    public static Map<String, Long> divide(Board board, PieceColor color, int depth) {
+        MoveValidator validator = new MoveValidator(board);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Move move : validator.getLegalMoves(color)) {
+            long nodes = 1;
+            if (depth > 1) {
+                board.movePiece(move);
+                nodes = count(board, validator, color.opposite(), depth - 1);
+                board.undoMove(move);
+            }
+            counts.put(move.toUciNotation(), nodes);
+        }
+        return counts;
+    }
+
+    private static long count(Board board, MoveValidator validator, PieceColor color, int depth) {
+        List<Move> moves = validator.getLegalMoves(color);
+        if (depth <= 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (Move move : moves) {
+            board.movePiece(move);
+            nodes += count(board, validator, color.opposite(), depth - 1);
+            board.undoMove(move);
+        }
+        return nodes;
+    }
+}
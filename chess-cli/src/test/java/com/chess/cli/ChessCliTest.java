@@ -0,0 +1,68 @@
+package com.chess.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessCliTest {
+
+    private static final String GAMES = "[White \"A\"]\n"
+            + "[Black \"B\"]\n"
+            + "[Result \"0-1\"]\n"
+            + "\n"
+            + "1. f3 e5 2. g4 Qh4# 0-1\n"
+            + "\n"
+            + "[White \"C\"]\n"
+            + "[Black \"D\"]\n"
+            + "[SetUp \"1\"]\n"
+            + "[FEN \"4k3/8/8/8/8/8/8/4K2R w K - 0 40\"]\n"
+            + "\n"
+            + "40. O-O Kd7 41. Rf7+ Ke6 42. Rf8 Ke7 43. Kg3 *\n";
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(String input, String... args) {
+        ChessCli cli = new ChessCli(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+        return cli.run(args);
+    }
+
+    private String output() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testPerftFromFen() {
+        // Position 3 of the standard perft suite
+        assertEquals(ChessCli.OK, run("", "perft", "3", "--fen", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"));
+        assertTrue(output().contains("Nodes: 2812"), output());
+    }
+
+    @Test
+    void testValidateReportsIllegalMoveWithItsNumber() {
+        assertEquals(ChessCli.FAILED, run(GAMES, "pgn-validate"));
+        assertEquals("Game 2 (C - D): illegal move 43. Kg3", output().trim());
+    }
+
+    @Test
+    void testConvertToFenStartsFromSetUpPosition() {
+        assertEquals(ChessCli.FAILED, run(GAMES, "pgn-convert", "--to", "fen"));
+        String[] lines = output().split("\n");
+        assertEquals("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", lines[0]);
+        assertEquals("5R2/4k3/8/8/8/8/8/6K1 w - - 6 43", lines[1]);
+    }
+
+    @Test
+    void testBadArgumentsAreUsageErrors() {
+        assertEquals(ChessCli.USAGE, run("", "perft", "3", "--depth", "4"));
+        assertEquals(ChessCli.USAGE, run("", "fen-eval"));
+        assertEquals(ChessCli.USAGE, run("", "frobnicate"));
+        assertEquals("", output());
+    }
+}
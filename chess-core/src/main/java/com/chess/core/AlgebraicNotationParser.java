@@ -153,10 +153,9 @@ public class AlgebraicNotationParser {
                 continue;
             }
 
-            // Check promotion
-            if (promotion != null) {
-                move.setPromotion(true);
-                move.setPromotionType(promotion);
+            // Check promotion; without a piece given, the validator's first choice (queen) is taken
+            if (promotion != null && move.getPromotionType() != promotion) {
+                continue;
             }
 
             return move;
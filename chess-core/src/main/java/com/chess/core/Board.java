@@ -1,5 +1,7 @@
 package com.chess.core;
 
+import java.util.List;
+
 public class Board {
     private static final PieceType[] BACK_RANK = {
             PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP, PieceType.QUEEN,
@@ -67,6 +69,12 @@ public class Board {
 
         grid[move.getEndX()][move.getEndY()] = p;
         grid[move.getStartX()][move.getStartY()] = null;
+        if (move.isPromotion() && move.getPromotionType() != null && p != null) {
+            // The pawn is kept in the move, so undoMove puts it back
+            Piece promoted = new Piece(move.getPromotionType(), p.getColor());
+            promoted.setHasMoved(true);
+            grid[move.getEndX()][move.getEndY()] = promoted;
+        }
         if (p != null) {
             p.setHasMoved(true);
         }
@@ -128,6 +136,95 @@ public class Board {
         }
     }
 
+    /**
+     * Replaces all pieces with the placement field of a FEN string, e.g.
+     * "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR". Every piece is marked as
+     * moved; the caller clears the flag on kings and rooks that may still castle.
+     *
+     * @throws IllegalArgumentException If the placement is malformed
+     */
+    public void loadFenPiecePlacement(String placement) {
+        Piece[][] loaded = new Piece[8][8];
+        String[] ranks = placement.split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("Expected 8 ranks: " + placement);
+        }
+        for (int y = 0; y < 8; y++) {
+            int x = 0;
+            for (char c : ranks[y].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    x += c - '0';
+                    continue;
+                }
+                PieceType type = PieceRepresentation.fromNotationSymbol(c);
+                if (type == null || x > 7) {
+                    throw new IllegalArgumentException("Bad rank '" + ranks[y] + "' in " + placement);
+                }
+                Piece piece = new Piece(type, Character.isUpperCase(c) ? PieceColor.WHITE : PieceColor.BLACK);
+                piece.setHasMoved(true);
+                loaded[x++][y] = piece;
+            }
+            if (x != 8) {
+                throw new IllegalArgumentException("Bad rank '" + ranks[y] + "' in " + placement);
+            }
+        }
+        grid = loaded;
+        moveHistory.clear();
+    }
+
+    /**
+     * Records a move as played without changing the pieces. Used when a position
+     * is set up directly, so a double pawn push can still be captured en passant.
+     */
+    void setLastMove(Move move) {
+        moveHistory.clear();
+        moveHistory.push(move);
+    }
+
+    /**
+     * A position saved by {@link #snapshot()}: the piece on each square and
+     * whether it had moved. The pieces themselves are shared with the board, so
+     * moves made before the snapshot still undo correctly after restoring it.
+     */
+    static final class Snapshot {
+        private final Piece[] squares = new Piece[64];
+        private long moved;
+    }
+
+    Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                Piece p = grid[x][y];
+                snapshot.squares[y * 8 + x] = p;
+                if (p != null && p.hasMoved()) {
+                    snapshot.moved |= 1L << (y * 8 + x);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Puts the pieces back as they were when the snapshot was taken.
+     *
+     * @param playedMoves The moves that led to the position, oldest first, as
+     *                    {@link #getLastMove()} and {@link #undoMove} expect them
+     */
+    void restore(Snapshot snapshot, List<Move> playedMoves) {
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                Piece p = snapshot.squares[y * 8 + x];
+                grid[x][y] = p;
+                if (p != null) {
+                    p.setHasMoved((snapshot.moved & (1L << (y * 8 + x))) != 0);
+                }
+            }
+        }
+        moveHistory.clear();
+        moveHistory.addAll(playedMoves);
+    }
+
     public String getFenPiecePlacement() {
         StringBuilder sb = new StringBuilder();
         for (int y = 0; y < 8; y++) {
@@ -0,0 +1,391 @@
+package com.chess.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages chess clock timers for both White and Black players.
+ *
+ * The clock does no work while a player thinks: remaining time is computed
+ * from {@link System#nanoTime()} when asked for, and a single timer is
+ * scheduled for the next moment something visible happens, i.e. the running
+ * clock crossing a whole second or running out. A flag therefore falls within
+ * the timer's wake-up latency of the exact deadline instead of on the next
+ * polled frame. Callbacks are delivered through the executor set with
+ * {@link #setCallbackExecutor(Executor)}, e.g. {@code Platform::runLater}.
+ *
+ * A server hosting many games passes a shared {@link TimingWheel} with
+ * {@link #setTimingWheel(TimingWheel)}, so all clocks share one timer thread
+ * and switching turns is a constant-time reschedule; flags then fall within
+ * one tick of the wheel.
+ */
+public class ChessClock {
+
+    /**
+     * How the increment is credited for each move.
+     */
+    public enum IncrementMode {
+        /** The full increment is added after every move. */
+        FISCHER,
+        /** Time used for a move is given back, up to the increment. */
+        BRONSTEIN,
+        /** The clock starts running only after the increment has passed (US delay). */
+        DELAY
+    }
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "chess-clock");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final long incrementNanos;
+    private final IncrementMode incrementMode;
+
+    // Remaining time at turnStartNanos; the running side's time is only
+    // charged when its turn ends or the clock is paused
+    private long whiteTimeNanos;
+    private long blackTimeNanos;
+    private PieceColor activeClock;
+    private long turnStartNanos;
+    private ScheduledFuture<?> wakeUp;
+    private TimingWheel timingWheel;
+    private TimingWheel.Timeout wheelWakeUp;
+    private long displayedWhiteSeconds = -1;
+    private long displayedBlackSeconds = -1;
+
+    private Runnable onTimeUpdate;
+    private java.util.function.Consumer<PieceColor> onTimeExpired;
+    private Executor callbackExecutor = Runnable::run;
+
+    /**
+     * Creates a new chess clock with the specified time limit for each player.
+     *
+     * @param minutesPerSide Time limit in minutes for each player
+     */
+    public ChessClock(int minutesPerSide) {
+        this(minutesPerSide * 60_000L, 0, IncrementMode.FISCHER);
+    }
+
+    /**
+     * Creates a clock with an increment or delay per move.
+     *
+     * @param millisPerSide   Starting time for each player in milliseconds
+     * @param incrementMillis Increment or delay per move in milliseconds
+     * @param incrementMode   How the increment is credited
+     */
+    public ChessClock(long millisPerSide, long incrementMillis, IncrementMode incrementMode) {
+        this.whiteTimeNanos = TimeUnit.MILLISECONDS.toNanos(millisPerSide);
+        this.blackTimeNanos = whiteTimeNanos;
+        this.incrementNanos = TimeUnit.MILLISECONDS.toNanos(incrementMillis);
+        this.incrementMode = incrementMode;
+    }
+
+    /**
+     * Starts the clock for the specified color.
+     *
+     * @param color The color whose clock should run
+     */
+    public void start(PieceColor color) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            charge(now, false);
+            activeClock = color;
+            turnStartNanos = now;
+            schedule(now);
+        }
+        publishUpdate();
+    }
+
+    /**
+     * Pauses the clock.
+     */
+    public void pause() {
+        synchronized (this) {
+            charge(System.nanoTime(), false);
+            activeClock = null;
+            cancelWakeUp();
+        }
+        publishUpdate();
+    }
+
+    /**
+     * Stops the clock completely.
+     */
+    public void stop() {
+        pause();
+    }
+
+    /**
+     * Ends the running player's turn, crediting the increment, and starts the
+     * opponent's clock.
+     */
+    public void switchTurn() {
+        synchronized (this) {
+            if (activeClock == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            PieceColor next = activeClock.opposite();
+            charge(now, true);
+            activeClock = next;
+            turnStartNanos = now;
+            schedule(now);
+        }
+        publishUpdate();
+    }
+
+    /**
+     * Sets a player's remaining time, e.g. to the time reported by the
+     * opponent's clock in a network game. If that player's clock is running,
+     * it runs on from the new time; in {@link IncrementMode#DELAY} mode the
+     * delay starts over, so call this at the start of a turn.
+     *
+     * @param color  The color whose time to set
+     * @param millis Remaining time in milliseconds
+     */
+    public void setRemainingTimeMillis(PieceColor color, long millis) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            charge(now, false);
+            if (color == PieceColor.WHITE) {
+                whiteTimeNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            } else {
+                blackTimeNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            }
+            schedule(now);
+        }
+        publishUpdate();
+    }
+
+    /**
+     * Gets the remaining time for the specified color in seconds.
+     *
+     * @param color The color to get time for
+     * @return Remaining time in seconds
+     */
+    public double getRemainingTimeSeconds(PieceColor color) {
+        return getRemainingTimeNanos(color) / (double) NANOS_PER_SECOND;
+    }
+
+    /**
+     * Gets the remaining time for the specified color in milliseconds.
+     *
+     * @param color The color to get time for
+     * @return Remaining time in milliseconds
+     */
+    public long getRemainingTimeMillis(PieceColor color) {
+        return TimeUnit.NANOSECONDS.toMillis(getRemainingTimeNanos(color));
+    }
+
+    private synchronized long getRemainingTimeNanos(PieceColor color) {
+        return remaining(color, System.nanoTime());
+    }
+
+    /**
+     * Checks if the specified color has run out of time.
+     *
+     * @param color The color to check
+     * @return true if time has expired
+     */
+    public boolean isExpired(PieceColor color) {
+        return getRemainingTimeNanos(color) <= 0;
+    }
+
+    public long getIncrementMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(incrementNanos);
+    }
+
+    public IncrementMode getIncrementMode() {
+        return incrementMode;
+    }
+
+    /**
+     * Sets the callback to be invoked when the displayed time changes, i.e. once
+     * per second of the running clock and when a turn starts or ends.
+     *
+     * @param callback The callback to invoke
+     */
+    public void setOnTimeUpdate(Runnable callback) {
+        synchronized (this) {
+            this.onTimeUpdate = callback;
+            if (activeClock != null) {
+                schedule(System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * Sets the callback to be invoked when a player's time expires.
+     *
+     * @param callback The callback to invoke with the color that expired
+     */
+    public void setOnTimeExpired(java.util.function.Consumer<PieceColor> callback) {
+        this.onTimeExpired = callback;
+    }
+
+    /**
+     * Sets the executor that runs the callbacks. By default they run on the
+     * clock's timer thread.
+     *
+     * @param executor The executor, e.g. {@code Platform::runLater} for a JavaFX UI
+     */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    /**
+     * Schedules this clock's flag and display updates on a shared timing wheel
+     * instead of the clock's own timer.
+     *
+     * @param wheel The wheel, e.g. {@link TimingWheel#shared()}, or null for
+     *              the clock's own timer
+     */
+    public synchronized void setTimingWheel(TimingWheel wheel) {
+        this.timingWheel = wheel;
+        if (activeClock != null) {
+            schedule(System.nanoTime());
+        }
+    }
+
+    /**
+     * Formats the remaining time as MM:SS.
+     *
+     * @param color The color to format time for
+     * @return Formatted time string
+     */
+    public String formatTime(PieceColor color) {
+        long seconds = getRemainingTimeNanos(color) / NANOS_PER_SECOND;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    /**
+     * Returns the time of the given side at {@code now}. Must hold the lock.
+     */
+    private long remaining(PieceColor color, long now) {
+        long stored = color == PieceColor.WHITE ? whiteTimeNanos : blackTimeNanos;
+        if (color != activeClock) {
+            return stored;
+        }
+        return Math.max(0, stored - charged(now - turnStartNanos));
+    }
+
+    /**
+     * Returns how much of the time spent on a move comes off the clock.
+     */
+    private long charged(long elapsed) {
+        return incrementMode == IncrementMode.DELAY ? Math.max(0, elapsed - incrementNanos) : elapsed;
+    }
+
+    /**
+     * Books the running side's time up to {@code now}, with the increment if its
+     * move is complete. Must hold the lock.
+     */
+    private void charge(long now, boolean moveMade) {
+        if (activeClock == null) {
+            return;
+        }
+        long elapsed = now - turnStartNanos;
+        long left = remaining(activeClock, now);
+        if (moveMade && left > 0) {
+            if (incrementMode == IncrementMode.FISCHER) {
+                left += incrementNanos;
+            } else if (incrementMode == IncrementMode.BRONSTEIN) {
+                left += Math.min(elapsed, incrementNanos);
+            }
+        }
+        if (activeClock == PieceColor.WHITE) {
+            whiteTimeNanos = left;
+        } else {
+            blackTimeNanos = left;
+        }
+        turnStartNanos = now;
+    }
+
+    /**
+     * Schedules the timer for the flag or, if anyone is watching, the next
+     * change of the displayed second, whichever comes first. Must hold the lock.
+     */
+    private void schedule(long now) {
+        cancelWakeUp();
+        if (activeClock == null) {
+            return;
+        }
+        long elapsed = now - turnStartNanos;
+        long delayLeft = incrementMode == IncrementMode.DELAY ? Math.max(0, incrementNanos - elapsed) : 0;
+        long left = remaining(activeClock, now);
+        long wait = left + delayLeft;
+        if (onTimeUpdate != null) {
+            // Just past the next whole second, which is when the display changes
+            long toNextSecond = left % NANOS_PER_SECOND + 1;
+            wait = Math.min(wait, toNextSecond + delayLeft);
+        }
+        if (timingWheel != null) {
+            wheelWakeUp = timingWheel.schedule(this::wake, wait, TimeUnit.NANOSECONDS);
+        } else {
+            wakeUp = TIMER.schedule(this::wake, wait, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void cancelWakeUp() {
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        if (wheelWakeUp != null) {
+            wheelWakeUp.cancel();
+            wheelWakeUp = null;
+        }
+    }
+
+    private void wake() {
+        PieceColor flagged = null;
+        synchronized (this) {
+            if (activeClock == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (remaining(activeClock, now) > 0) {
+                schedule(now);
+            } else {
+                flagged = activeClock;
+                charge(now, false);
+                activeClock = null;
+                wakeUp = null;
+                wheelWakeUp = null;
+            }
+        }
+        if (flagged != null && onTimeExpired != null) {
+            PieceColor color = flagged;
+            java.util.function.Consumer<PieceColor> callback = onTimeExpired;
+            callbackExecutor.execute(() -> callback.accept(color));
+        }
+        publishUpdate();
+    }
+
+    /**
+     * Notifies the listener if the displayed time of either side changed.
+     */
+    private void publishUpdate() {
+        Runnable callback = onTimeUpdate;
+        if (callback == null) {
+            return;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            long white = remaining(PieceColor.WHITE, now) / NANOS_PER_SECOND;
+            long black = remaining(PieceColor.BLACK, now) / NANOS_PER_SECOND;
+            if (white == displayedWhiteSeconds && black == displayedBlackSeconds) {
+                return;
+            }
+            displayedWhiteSeconds = white;
+            displayedBlackSeconds = black;
+        }
+        callbackExecutor.execute(callback);
+    }
+}
@@ -0,0 +1,507 @@
+package com.chess.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Game {
+    /** The standard start position. */
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    /** Plies between the positions kept for {@link #goToPly(int)}. */
+    static final int CHECKPOINT_INTERVAL = 16;
+
+    private final Board board;
+    private final MoveValidator validator;
+    private PieceColor currentTurn;
+    private final List<Move> moveHistory;
+    private int currentMoveIndex; // To support traversing history
+    // The whole history as space-separated UCI moves, kept in step with
+    // moveHistory so engine positions never have to be rebuilt
+    private final StringBuilder uciMoves = new StringBuilder();
+    private final List<Integer> uciMoveEnds = new ArrayList<>();
+    // Set up position, or null for the standard start position
+    private String startFen;
+    private PieceColor startTurn = PieceColor.WHITE;
+    private int startHalfMoveClock;
+    private int startFullMoveNumber = 1;
+    // Moves queued by the side not to move, tried in order once it is their turn
+    private final ArrayDeque<Move> premoves = new ArrayDeque<>();
+    // The position after every CHECKPOINT_INTERVAL plies of the history, from the start
+    private final List<Board.Snapshot> checkpoints = new ArrayList<>();
+    // The move a set up position records for en passant, or null
+    private Move rootMove;
+
+    public Game() {
+        this.board = new Board();
+        this.validator = new MoveValidator(board);
+        this.currentTurn = PieceColor.WHITE;
+        this.moveHistory = new ArrayList<>();
+        this.currentMoveIndex = -1;
+        checkpoints.add(board.snapshot());
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public PieceColor getCurrentTurn() {
+        return currentTurn;
+    }
+
+    public boolean makeMove(Move move) {
+        // Validate move
+        List<Move> legalMoves = validator.getLegalMoves(currentTurn);
+        boolean isLegal = false;
+        for (Move m : legalMoves) {
+            if (m.getStartX() == move.getStartX() && m.getStartY() == move.getStartY() &&
+                    m.getEndX() == move.getEndX() && m.getEndY() == move.getEndY() &&
+                    (!move.isPromotion() || m.getPromotionType() == move.getPromotionType())) {
+                isLegal = true;
+                // Use the legal move object as it might have flags set (though our validator
+                // currently doesn't set flags much)
+                // Actually, we should probably use the move passed in if it's valid,
+                // but the validator generates moves with captured pieces.
+                // Let's match and use the validator's move to ensure captured piece is correct.
+                move = m;
+                break;
+            }
+        }
+
+        if (!isLegal)
+            return false;
+
+        // Execute move
+        board.movePiece(move);
+
+        // Update history
+        // If we are in the middle of history, truncate future
+        if (currentMoveIndex < moveHistory.size() - 1) {
+            moveHistory.subList(currentMoveIndex + 1, moveHistory.size()).clear();
+            uciMoveEnds.subList(currentMoveIndex + 1, uciMoveEnds.size()).clear();
+            uciMoves.setLength(currentMoveIndex >= 0 ? uciMoveEnds.get(currentMoveIndex) : 0);
+            checkpoints.subList((currentMoveIndex + 1) / CHECKPOINT_INTERVAL + 1, checkpoints.size()).clear();
+        }
+        moveHistory.add(move);
+        if (uciMoves.length() > 0) {
+            uciMoves.append(' ');
+        }
+        uciMoves.append(move.toUciNotation());
+        uciMoveEnds.add(uciMoves.length());
+        currentMoveIndex++;
+        if (moveHistory.size() % CHECKPOINT_INTERVAL == 0) {
+            checkpoints.add(board.snapshot());
+        }
+
+        // Switch turn
+        currentTurn = currentTurn.opposite();
+
+        return true;
+    }
+
+    /**
+     * Queues a move for the side not to move, to be played by
+     * {@link #playPremove()} once it is that side's turn. The move is not
+     * checked until then.
+     */
+    public void addPremove(Move move) {
+        premoves.add(move);
+    }
+
+    /**
+     * Returns the queued premoves, first to be played first.
+     */
+    public List<Move> getPremoves() {
+        return Collections.unmodifiableList(new ArrayList<>(premoves));
+    }
+
+    public void clearPremoves() {
+        premoves.clear();
+    }
+
+    /**
+     * Plays the first queued premove, as soon as the opponent has moved. If it
+     * is illegal in the position reached, or the game is not at its latest
+     * position, the whole queue is dropped: the moves after it were planned for
+     * a game that did not happen.
+     *
+     * @return The move played, or null if none was
+     */
+    public Move playPremove() {
+        Move premove = premoves.poll();
+        if (premove == null) {
+            return null;
+        }
+        if (currentMoveIndex != moveHistory.size() - 1 || !makeMove(premove)) {
+            premoves.clear();
+            return null;
+        }
+        return moveHistory.get(currentMoveIndex);
+    }
+
+    /**
+     * Returns all legal moves of the side to move.
+     */
+    public List<Move> getLegalMoves() {
+        return validator.getLegalMoves(currentTurn);
+    }
+
+    public List<Move> getLegalMoves(int x, int y) {
+        Piece p = board.getPiece(x, y);
+        if (p == null || p.getColor() != currentTurn)
+            return new ArrayList<>();
+
+        List<Move> allLegal = validator.getLegalMoves(currentTurn);
+        List<Move> pieceMoves = new ArrayList<>();
+        for (Move m : allLegal) {
+            if (m.getStartX() == x && m.getStartY() == y) {
+                pieceMoves.add(m);
+            }
+        }
+        return pieceMoves;
+    }
+
+    public void reset() {
+        board.resetBoard();
+        currentTurn = PieceColor.WHITE;
+        moveHistory.clear();
+        uciMoves.setLength(0);
+        uciMoveEnds.clear();
+        currentMoveIndex = -1;
+        premoves.clear();
+        checkpoints.clear();
+        checkpoints.add(board.snapshot());
+        rootMove = null;
+        startFen = null;
+        startTurn = PieceColor.WHITE;
+        startHalfMoveClock = 0;
+        startFullMoveNumber = 1;
+    }
+
+    /**
+     * Starts a new game from a position given in Forsyth-Edwards Notation. EPD
+     * lines are accepted too: the move counters may be missing and anything after
+     * the en passant field that is not a number is ignored.
+     *
+     * @param fen e.g. "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1"
+     * @throws IllegalArgumentException If the position cannot be parsed; the game
+     *                                  is unchanged in that case
+     */
+    public void loadFromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("Incomplete FEN: " + fen);
+        }
+        if (!fields[1].equals("w") && !fields[1].equals("b")) {
+            throw new IllegalArgumentException("Bad side to move in " + fen);
+        }
+        int halfMoveClock = fields.length > 4 && fields[4].matches("\\d+") ? Integer.parseInt(fields[4]) : 0;
+        int fullMoveNumber = fields.length > 5 && fields[5].matches("\\d+") ? Integer.parseInt(fields[5]) : 1;
+
+        // Parsed on a scratch board first, so a bad placement leaves the game untouched
+        new Board().loadFenPiecePlacement(fields[0]);
+        reset();
+        board.loadFenPiecePlacement(fields[0]);
+        currentTurn = fields[1].equals("w") ? PieceColor.WHITE : PieceColor.BLACK;
+        for (char c : fields[2].toCharArray()) {
+            int rank = Character.isUpperCase(c) ? 7 : 0;
+            int rookFile = Character.toLowerCase(c) == 'k' ? 7 : Character.toLowerCase(c) == 'q' ? 0 : -1;
+            Piece king = board.getPiece(4, rank);
+            Piece rook = rookFile >= 0 ? board.getPiece(rookFile, rank) : null;
+            if (king != null && king.getType() == PieceType.KING && rook != null && rook.getType() == PieceType.ROOK) {
+                king.setHasMoved(false);
+                rook.setHasMoved(false);
+            }
+        }
+        if (!fields[3].equals("-") && fields[3].length() == 2) {
+            // Replay the double push so the pawn can be taken en passant
+            int x = BoardCoordinates.xFromFile(fields[3].charAt(0));
+            int direction = currentTurn == PieceColor.WHITE ? 1 : -1;
+            int targetY = BoardCoordinates.yFromRankChar(fields[3].charAt(1));
+            Piece pawn = board.getPiece(x, targetY + direction);
+            if (pawn != null && pawn.getType() == PieceType.PAWN) {
+                board.setLastMove(new Move(x, targetY - direction, x, targetY + direction, pawn, null));
+            }
+        }
+        startTurn = currentTurn;
+        startHalfMoveClock = halfMoveClock;
+        startFullMoveNumber = fullMoveNumber;
+        startFen = getFen();
+        rootMove = board.getLastMove();
+        checkpoints.set(0, board.snapshot());
+    }
+
+    // Navigation
+    public void previousMove() {
+        if (currentMoveIndex >= 0) {
+            Move move = moveHistory.get(currentMoveIndex);
+            board.undoMove(move);
+            currentMoveIndex--;
+            currentTurn = currentTurn.opposite();
+        }
+    }
+
+    public void nextMove() {
+        if (currentMoveIndex < moveHistory.size() - 1) {
+            currentMoveIndex++;
+            Move move = moveHistory.get(currentMoveIndex);
+            board.movePiece(move);
+            currentTurn = currentTurn.opposite();
+        }
+    }
+
+    public void goToFirstMove() {
+        goToPly(0);
+    }
+
+    public void goToLastMove() {
+        goToPly(moveHistory.size());
+    }
+
+    /**
+     * Shows the position after the given number of plies of the history.
+     * Restores the nearest checkpoint at or before the ply and replays the
+     * moves after it, at most {@link #CHECKPOINT_INTERVAL} - 1, unless stepping
+     * from the current position is shorter.
+     *
+     * @param ply 0 for the start position, up to the length of the history
+     * @throws IllegalArgumentException If the history has no such ply
+     */
+    public void goToPly(int ply) {
+        if (ply < 0 || ply > moveHistory.size()) {
+            throw new IllegalArgumentException("No ply " + ply + " in a game of " + moveHistory.size());
+        }
+        int checkpointPly = ply - ply % CHECKPOINT_INTERVAL;
+        if (Math.abs(ply - (currentMoveIndex + 1)) > ply - checkpointPly) {
+            List<Move> played = moveHistory.subList(0, checkpointPly);
+            if (rootMove != null) {
+                played = new ArrayList<>(played);
+                played.add(0, rootMove);
+            }
+            board.restore(checkpoints.get(checkpointPly / CHECKPOINT_INTERVAL), played);
+            currentMoveIndex = checkpointPly - 1;
+            currentTurn = checkpointPly % 2 == 0 ? startTurn : startTurn.opposite();
+        }
+        while (currentMoveIndex + 1 < ply) {
+            nextMove();
+        }
+        while (currentMoveIndex + 1 > ply) {
+            previousMove();
+        }
+    }
+
+    /**
+     * Returns the position the game started from, or null for the standard
+     * start position.
+     */
+    public String getStartFen() {
+        return startFen;
+    }
+
+    public List<Move> getMoveHistory() {
+        return moveHistory;
+    }
+
+    public int getCurrentMoveIndex() {
+        return currentMoveIndex;
+    }
+
+    /**
+     * Returns the UCI command for the current position, as the start position
+     * followed by the moves played up to the current move. Unlike a FEN, this
+     * tells the engine how the position was reached, so it can keep its hash
+     * table and detect repetitions.
+     * 
+     * @return e.g. "position startpos moves e2e4 e7e5"
+     */
+    public String getUciPosition() {
+        String root = startFen == null ? "position startpos" : "position fen " + startFen;
+        if (currentMoveIndex < 0) {
+            return root;
+        }
+        return root + " moves " + uciMoves.substring(0, uciMoveEnds.get(currentMoveIndex));
+    }
+
+    /**
+     * Loads and replays a game from a list of algebraic notation moves.
+     * 
+     * @param moves List of moves in algebraic notation (e.g., "e4", "Nf3")
+     * @return true if all moves were successfully loaded, false otherwise
+     */
+    public boolean loadFromPGN(List<String> moves) {
+        // Reset the game to starting position
+        reset();
+
+        // Replay each move
+        for (String moveStr : moves) {
+            Move move = AlgebraicNotationParser.parseMove(moveStr, this);
+            if (move == null) {
+                System.err.println("Failed to parse move: " + moveStr);
+                return false;
+            }
+
+            if (!makeMove(move)) {
+                System.err.println("Failed to make move: " + moveStr);
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public String getFen() {
+        StringBuilder sb = new StringBuilder();
+
+        // 1. Piece placement
+        sb.append(board.getFenPiecePlacement());
+        sb.append(" ");
+
+        // 2. Active color
+        sb.append(currentTurn == PieceColor.WHITE ? "w" : "b");
+        sb.append(" ");
+
+        // 3. Castling availability
+        String castling = getCastlingRights();
+        sb.append(castling);
+        sb.append(" ");
+
+        // 4. En passant target square
+        String enPassant = getEnPassantTarget();
+        sb.append(enPassant);
+        sb.append(" ");
+
+        // 5. Halfmove clock
+        int halfMoveClock = getHalfMoveClock();
+        sb.append(halfMoveClock);
+        sb.append(" ");
+
+        // 6. Fullmove number
+        int fullMoveNumber = startFullMoveNumber + (currentMoveIndex + 1 + (startTurn == PieceColor.BLACK ? 1 : 0)) / 2;
+        sb.append(fullMoveNumber);
+
+        return sb.toString();
+    }
+
+    private String getCastlingRights() {
+        StringBuilder sb = new StringBuilder();
+        appendCastlingRight(PieceColor.WHITE, true, 'K', sb);
+        appendCastlingRight(PieceColor.WHITE, false, 'Q', sb);
+        appendCastlingRight(PieceColor.BLACK, true, 'k', sb);
+        appendCastlingRight(PieceColor.BLACK, false, 'q', sb);
+        return sb.length() > 0 ? sb.toString() : "-";
+    }
+
+    private void appendCastlingRight(PieceColor color, boolean kingside, char symbol, StringBuilder sb) {
+        if (hasCastlingRight(color, kingside)) {
+            sb.append(symbol);
+        }
+    }
+
+    /**
+     * Returns whether the given side still has the right to castle, i.e. its king
+     * and the relevant rook are unmoved on their starting squares.
+     */
+    boolean hasCastlingRight(PieceColor color, boolean kingside) {
+        int rank = color == PieceColor.WHITE ? 7 : 0;
+        Piece king = board.getPiece(4, rank);
+        Piece rook = board.getPiece(kingside ? 7 : 0, rank);
+        return isUnmoved(king, PieceType.KING, color) && isUnmoved(rook, PieceType.ROOK, color);
+    }
+
+    private boolean isUnmoved(Piece piece, PieceType type, PieceColor color) {
+        return piece != null && piece.getType() == type && piece.getColor() == color && !piece.hasMoved();
+    }
+
+    private String getEnPassantTarget() {
+        Move lastMove = board.getLastMove();
+        if (lastMove != null) {
+            Piece p = lastMove.getMovedPiece();
+            if (p.getType() == PieceType.PAWN) {
+                int startY = lastMove.getStartY();
+                int endY = lastMove.getEndY();
+                if (Math.abs(startY - endY) == 2) {
+                    // It was a double push
+                    int targetY = (startY + endY) / 2;
+                    int targetX = lastMove.getStartX(); // x is same
+                    return BoardCoordinates.toAlgebraic(targetX, targetY);
+                }
+            }
+        }
+        return "-";
+    }
+
+    /**
+     * Returns the number of half moves since the last capture or pawn move, as
+     * used by the fifty-move rule, in the position currently shown.
+     */
+    public int getHalfMoveClock() {
+        int halfMoves = 0;
+        for (int i = currentMoveIndex; i >= 0; i--) {
+            Move m = moveHistory.get(i);
+            if (m.getMovedPiece().getType() == PieceType.PAWN || m.getCapturedPiece() != null) {
+                return halfMoves;
+            }
+            halfMoves++;
+        }
+        return startHalfMoveClock + halfMoves;
+    }
+
+    public boolean makeMoveFromUCI(String uci) {
+        if (uci == null || uci.length() < 4)
+            return false;
+
+        int startX = BoardCoordinates.xFromFile(uci.charAt(0));
+        int startY = BoardCoordinates.yFromRankChar(uci.charAt(1));
+        int endX = BoardCoordinates.xFromFile(uci.charAt(2));
+        int endY = BoardCoordinates.yFromRankChar(uci.charAt(3));
+
+        PieceType promotion = null;
+        if (uci.length() == 5) {
+            switch (uci.charAt(4)) {
+                case 'q':
+                    promotion = PieceType.QUEEN;
+                    break;
+                case 'r':
+                    promotion = PieceType.ROOK;
+                    break;
+                case 'b':
+                    promotion = PieceType.BISHOP;
+                    break;
+                case 'n':
+                    promotion = PieceType.KNIGHT;
+                    break;
+            }
+        }
+
+        List<Move> legalMoves = validator.getLegalMoves(currentTurn);
+        for (Move m : legalMoves) {
+            if (m.getStartX() == startX && m.getStartY() == startY &&
+                    m.getEndX() == endX && m.getEndY() == endY) {
+
+                if (promotion != null) {
+                    if (m.isPromotion() && m.getPromotionType() == promotion) {
+                        return makeMove(m);
+                    }
+                } else {
+                    if (!m.isPromotion()) {
+                        return makeMove(m);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public GameState getGameState() {
+        List<Move> legalMoves = validator.getLegalMoves(currentTurn);
+        if (legalMoves.isEmpty()) {
+            if (validator.isKingInCheck(currentTurn)) {
+                return GameState.CHECKMATE;
+            } else {
+                return GameState.STALEMATE;
+            }
+        }
+        return GameState.IN_PROGRESS;
+    }
+
+}
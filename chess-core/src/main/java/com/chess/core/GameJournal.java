@@ -0,0 +1,565 @@
+package com.chess.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only log of the games in progress, so that they survive a crash.
+ *
+ * Recording a move only copies 27 bytes into a buffer; a background thread
+ * writes whatever has gathered and forces it to disk with one fsync, then
+ * picks up the records that arrived in the meantime. However many games are
+ * recorded at once, each record is on disk about one fsync after it was made,
+ * and the caller never waits for the disk unless it calls {@link #sync()}.
+ *
+ * Opening a journal replays it into a {@link Game} per unfinished game, see
+ * {@link #getRecoveredGames()}, and rewrites the file without the finished
+ * ones. A record cut short by a crash is checksummed and dropped, along with
+ * anything after it. Numbers are big-endian; every record is
+ *
+ * <pre>
+ * length u16 | crc32c i32 | type u8 | game i64 | body       (length and crc cover type onwards)
+ *
+ * start  1 | white i32 | black i32 | fen length u16 | fen   (no fen for the standard start)
+ *          | engine u8 | level length u8 | level | base i32 | increment i32 | mode u8
+ * move   2 | ply u16 | move u16 | white i32 | black i32
+ * end    3
+ * </pre>
+ *
+ * Clocks are the time left after the record, in milliseconds, or -1 if
+ * untimed. The second line of a start record is the game's {@link Setup}:
+ * engine is 0 for none, 1 if it plays White and 2 if Black; base is -1 if
+ * untimed; mode is the {@link ChessClock.IncrementMode} ordinal. Start records
+ * without it are read as two-player, untimed games. A move carries the ply it
+ * makes, so a move after a takeback replaces the moves it undid. Thread-safe.
+ */
+public class GameJournal implements Closeable {
+    static final byte START = 1;
+    static final byte MOVE = 2;
+    static final byte END = 3;
+
+    private static final int HEADER_LENGTH = 6;
+    private static final int INITIAL_BUFFER_BYTES = 8192;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<RecoveredGame> recovered;
+    private final Thread writer;
+    private final CRC32C crc = new CRC32C();
+
+    // Guarded by this
+    private long nextGameId;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long recorded;
+    private long durable;
+    private long syncs;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * How a game is played, recorded with its start so that a recovered game
+     * continues the same way.
+     */
+    public static class Setup {
+        /** Two players at one board, without a clock. */
+        public static final Setup TWO_PLAYERS_UNTIMED = new Setup(null, null, -1, 0, ChessClock.IncrementMode.FISCHER);
+
+        private final PieceColor engineColor;
+        private final String engineLevel;
+        private final long baseMillis;
+        private final long incrementMillis;
+        private final ChessClock.IncrementMode incrementMode;
+
+        /**
+         * @param engineColor     The side the engine plays, or null for none
+         * @param engineLevel     The engine's strength setting, or null
+         * @param baseMillis      Each side's starting time, or -1 if untimed
+         * @param incrementMillis Time credited per move
+         * @param incrementMode   How the increment is credited
+         */
+        public Setup(PieceColor engineColor, String engineLevel, long baseMillis, long incrementMillis,
+                ChessClock.IncrementMode incrementMode) {
+            this.engineColor = engineColor;
+            this.engineLevel = engineLevel;
+            this.baseMillis = baseMillis;
+            this.incrementMillis = incrementMillis;
+            this.incrementMode = incrementMode;
+        }
+
+        public PieceColor getEngineColor() {
+            return engineColor;
+        }
+
+        public String getEngineLevel() {
+            return engineLevel;
+        }
+
+        public boolean isTimed() {
+            return baseMillis >= 0;
+        }
+
+        public long getBaseMillis() {
+            return baseMillis;
+        }
+
+        public long getIncrementMillis() {
+            return incrementMillis;
+        }
+
+        public ChessClock.IncrementMode getIncrementMode() {
+            return incrementMode;
+        }
+    }
+
+    /**
+     * A game found unfinished when the journal was opened.
+     */
+    public static class RecoveredGame {
+        private final long id;
+        private final String startFen;
+        private final Setup setup;
+        private final Game game = new Game();
+        private long whiteMillis;
+        private long blackMillis;
+
+        private RecoveredGame(long id, String startFen, Setup setup, long whiteMillis, long blackMillis) {
+            this.id = id;
+            this.startFen = startFen;
+            this.setup = setup;
+            this.whiteMillis = whiteMillis;
+            this.blackMillis = blackMillis;
+            if (startFen != null) {
+                game.loadFromFen(startFen);
+            }
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Returns how the game was being played.
+         */
+        public Setup getSetup() {
+            return setup;
+        }
+
+        /**
+         * Returns the position the game started from, or null for the
+         * standard start position.
+         */
+        public String getStartFen() {
+            return startFen;
+        }
+
+        /**
+         * Returns the game with every recorded move played.
+         */
+        public Game getGame() {
+            return game;
+        }
+
+        /**
+         * Returns White's time after the last record, or -1 if untimed.
+         */
+        public long getWhiteMillis() {
+            return whiteMillis;
+        }
+
+        /**
+         * Returns Black's time after the last record, or -1 if untimed.
+         */
+        public long getBlackMillis() {
+            return blackMillis;
+        }
+    }
+
+    /**
+     * Opens a journal, creating the file if needed, and recovers the games it
+     * holds.
+     *
+     * @param file The journal file
+     * @throws IOException If the file cannot be read or rewritten
+     */
+    public GameJournal(Path file) throws IOException {
+        this.file = file;
+        Map<Long, RecoveredGame> games = new LinkedHashMap<>();
+        long validLength = 0;
+        long maxId = 0;
+        boolean finishedGames = false;
+        if (Files.exists(file)) {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            ByteBuffer record;
+            while ((record = nextRecord(data)) != null) {
+                validLength = data.position();
+                maxId = Math.max(maxId, record.getLong(1));
+                finishedGames |= replay(record, games);
+            }
+        }
+        this.recovered = Collections.unmodifiableList(new ArrayList<>(games.values()));
+        this.nextGameId = maxId + 1;
+
+        if (finishedGames || (Files.exists(file) && validLength < Files.size(file))) {
+            compact();
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        writer = new Thread(this::writeRecords, "game-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the unfinished games found on opening, oldest first.
+     */
+    public List<RecoveredGame> getRecoveredGames() {
+        return recovered;
+    }
+
+    /**
+     * Records the start of a two-player game.
+     *
+     * @param fen         The start position, or null for the standard one
+     * @param whiteMillis White's time, or -1 if untimed
+     * @param blackMillis Black's time, or -1 if untimed
+     * @return The id to record the game's moves under
+     */
+    public long startGame(String fen, long whiteMillis, long blackMillis) {
+        return startGame(fen, Setup.TWO_PLAYERS_UNTIMED, whiteMillis, blackMillis);
+    }
+
+    /**
+     * Records the start of a game.
+     *
+     * @param fen         The start position, or null for the standard one
+     * @param setup       How the game is played
+     * @param whiteMillis White's time, or -1 if untimed
+     * @param blackMillis Black's time, or -1 if untimed
+     * @return The id to record the game's moves under
+     */
+    public synchronized long startGame(String fen, Setup setup, long whiteMillis, long blackMillis) {
+        long id = nextGameId++;
+        putStart(id, fen, setup, whiteMillis, blackMillis);
+        return id;
+    }
+
+    /**
+     * Records a move.
+     *
+     * @param gameId      The id from {@link #startGame}
+     * @param ply         The ply the move makes, 1 for the first move
+     * @param packedMove  The move, see {@link PackedMove}
+     * @param whiteMillis White's time after the move, or -1 if untimed
+     * @param blackMillis Black's time after the move, or -1 if untimed
+     */
+    public synchronized void recordMove(long gameId, int ply, int packedMove, long whiteMillis, long blackMillis) {
+        int start = beginRecord(MOVE, gameId, 12);
+        pending.putShort((short) ply);
+        pending.putShort((short) packedMove);
+        pending.putInt(clamp(whiteMillis));
+        pending.putInt(clamp(blackMillis));
+        endRecord(start);
+    }
+
+    /**
+     * Records that a game is over; it will not be recovered.
+     */
+    public synchronized void endGame(long gameId) {
+        endRecord(beginRecord(END, gameId, 0));
+    }
+
+    /**
+     * Waits until everything recorded so far is on disk.
+     *
+     * @throws IOException If writing the journal failed
+     */
+    public synchronized void sync() throws IOException {
+        long target = recorded;
+        boolean interrupted = false;
+        while (durable < target && failure == null && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Returns the number of fsyncs so far; with many games recording at once
+     * it is well below the number of records.
+     */
+    public synchronized long getSyncCount() {
+        return syncs;
+    }
+
+    /**
+     * Writes what is left and closes the file. The games stay unfinished in the
+     * journal unless {@link #endGame} was called.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void writeRecords() {
+        while (true) {
+            long batchEnd;
+            ByteBuffer batch;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Only close() stops the writer
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                // Records made from now on gather in the other buffer
+                batch = pending;
+                pending = writing;
+                writing = batch;
+                batchEnd = recorded;
+            }
+            batch.flip();
+            try {
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    closed = true;
+                    notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+            synchronized (this) {
+                durable = batchEnd;
+                syncs++;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Starts a record in the pending buffer, growing it if needed.
+     *
+     * @return Where the record starts
+     */
+    private int beginRecord(byte type, long gameId, int bodyLength) {
+        if (closed) {
+            throw new IllegalStateException(failure != null ? "Journal failed: " + failure.getMessage()
+                    : "Journal closed");
+        }
+        // Type and game id come before the body
+        int needed = HEADER_LENGTH + 9 + bodyLength;
+        if (pending.remaining() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        int start = pending.position();
+        pending.position(start + HEADER_LENGTH);
+        pending.put(type);
+        pending.putLong(gameId);
+        return start;
+    }
+
+    /**
+     * Fills in the length and checksum of the record begun at start and hands
+     * it to the writer.
+     */
+    private void endRecord(int start) {
+        int bodyStart = start + HEADER_LENGTH;
+        int length = pending.position() - bodyStart;
+        crc.reset();
+        crc.update(pending.array(), bodyStart, length);
+        pending.putShort(start, (short) length);
+        pending.putInt(start + 2, (int) crc.getValue());
+        recorded++;
+        notifyAll();
+    }
+
+    private void putStart(long id, String fen, Setup setup, long whiteMillis, long blackMillis) {
+        byte[] fenBytes = fen != null ? fen.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        byte[] levelBytes = setup.engineLevel != null ? setup.engineLevel.getBytes(StandardCharsets.UTF_8)
+                : new byte[0];
+        int levelLength = Math.min(levelBytes.length, 255);
+        int start = beginRecord(START, id, 10 + fenBytes.length + 11 + levelLength);
+        pending.putInt(clamp(whiteMillis));
+        pending.putInt(clamp(blackMillis));
+        pending.putShort((short) fenBytes.length);
+        pending.put(fenBytes);
+        pending.put((byte) (setup.engineColor == null ? 0 : setup.engineColor == PieceColor.WHITE ? 1 : 2));
+        pending.put((byte) levelLength);
+        pending.put(levelBytes, 0, levelLength);
+        pending.putInt(clamp(setup.baseMillis));
+        pending.putInt(clamp(setup.incrementMillis));
+        pending.put((byte) setup.incrementMode.ordinal());
+        endRecord(start);
+    }
+
+    /**
+     * Rewrites the file with only the recovered games, replacing it in one
+     * step so a crash leaves either the old or the new journal.
+     */
+    private synchronized void compact() throws IOException {
+        for (RecoveredGame game : recovered) {
+            putStart(game.id, game.startFen, game.setup, game.whiteMillis, game.blackMillis);
+            List<Move> moves = game.game.getMoveHistory();
+            for (int i = 0; i < moves.size(); i++) {
+                recordMove(game.id, i + 1, PackedMove.of(moves.get(i)), game.whiteMillis, game.blackMillis);
+            }
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            pending.flip();
+            while (pending.hasRemaining()) {
+                out.write(pending);
+            }
+            out.force(false);
+        }
+        pending.clear();
+        recorded = 0;
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The record from its type onwards, or null at the end of the data
+     *         or at a record that is cut short or damaged
+     */
+    private ByteBuffer nextRecord(ByteBuffer data) {
+        if (data.remaining() < HEADER_LENGTH) {
+            return null;
+        }
+        int start = data.position();
+        int length = Short.toUnsignedInt(data.getShort(start));
+        int checksum = data.getInt(start + 2);
+        if (length < 9 || data.remaining() < HEADER_LENGTH + length) {
+            return null;
+        }
+        crc.reset();
+        crc.update(data.array(), start + HEADER_LENGTH, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        data.position(start + HEADER_LENGTH + length);
+        return ByteBuffer.wrap(data.array(), start + HEADER_LENGTH, length).slice();
+    }
+
+    /**
+     * Applies one record to the games being recovered.
+     *
+     * @return Whether the record ends a game
+     */
+    private static boolean replay(ByteBuffer record, Map<Long, RecoveredGame> games) {
+        byte type = record.get();
+        long id = record.getLong();
+        switch (type) {
+            case START: {
+                long white = record.getInt();
+                long black = record.getInt();
+                byte[] fen = new byte[Short.toUnsignedInt(record.getShort())];
+                record.get(fen);
+                Setup setup = record.hasRemaining() ? readSetup(record) : Setup.TWO_PLAYERS_UNTIMED;
+                try {
+                    games.put(id, new RecoveredGame(id, fen.length > 0 ? new String(fen, StandardCharsets.US_ASCII)
+                            : null, setup, white, black));
+                } catch (IllegalArgumentException e) {
+                    // A position that does not load cannot be recovered
+                }
+                return false;
+            }
+            case MOVE: {
+                RecoveredGame recoveredGame = games.get(id);
+                if (recoveredGame == null) {
+                    return false;
+                }
+                int ply = Short.toUnsignedInt(record.getShort());
+                int packedMove = Short.toUnsignedInt(record.getShort());
+                Game game = recoveredGame.game;
+                // A move after a takeback replaces the moves taken back
+                if (ply >= 1 && ply - 1 <= game.getMoveHistory().size()) {
+                    game.goToPly(ply - 1);
+                }
+                if (game.getCurrentMoveIndex() == ply - 2
+                        && game.makeMove(PackedMove.toMove(packedMove, game.getBoard()))) {
+                    recoveredGame.whiteMillis = record.getInt();
+                    recoveredGame.blackMillis = record.getInt();
+                } else {
+                    game.goToLastMove();
+                }
+                return false;
+            }
+            case END:
+                games.remove(id);
+                return true;
+            default:
+                // Written by a later version; skipped
+                return false;
+        }
+    }
+
+    private static Setup readSetup(ByteBuffer record) {
+        int engine = record.get();
+        byte[] level = new byte[Byte.toUnsignedInt(record.get())];
+        record.get(level);
+        long base = record.getInt();
+        long increment = record.getInt();
+        ChessClock.IncrementMode[] modes = ChessClock.IncrementMode.values();
+        int mode = record.get();
+        return new Setup(engine == 1 ? PieceColor.WHITE : engine == 2 ? PieceColor.BLACK : null,
+                level.length > 0 ? new String(level, StandardCharsets.UTF_8) : null, base, increment,
+                mode >= 0 && mode < modes.length ? modes[mode] : ChessClock.IncrementMode.FISCHER);
+    }
+
+    private static int clamp(long millis) {
+        return (int) Math.max(-1, Math.min(Integer.MAX_VALUE, millis));
+    }
+}
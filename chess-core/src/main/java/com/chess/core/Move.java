@@ -98,6 +98,23 @@ public class Move {
                 .toString();
     }
 
+    /**
+     * Converts this move to UCI long algebraic notation (e.g. "e2e4", "e7e8q").
+     * 
+     * @return The UCI move string
+     */
+    public String toUciNotation() {
+        StringBuilder sb = new StringBuilder(5)
+                .append(BoardCoordinates.fileFromX(startX))
+                .append(BoardCoordinates.rankFromY(startY))
+                .append(BoardCoordinates.fileFromX(endX))
+                .append(BoardCoordinates.rankFromY(endY));
+        if (isPromotion && promotionType != null) {
+            sb.append(Character.toLowerCase(PieceRepresentation.toNotationSymbol(promotionType)));
+        }
+        return sb.toString();
+    }
+
     /**
      * Converts this move to standard algebraic notation for PGN export.
      * 
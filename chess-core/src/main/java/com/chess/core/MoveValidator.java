@@ -11,6 +11,11 @@ public class MoveValidator {
     private static final int[][] QUEEN_DIRECTIONS = {
             { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 },
             { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+    private static final int[][] KNIGHT_OFFSETS = {
+            { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 }, { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 } };
+    // Queen first, so callers matching a move by its squares alone promote to a queen
+    private static final PieceType[] PROMOTION_TYPES = {
+            PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT };
 
     public MoveValidator(Board board) {
         this.board = board;
@@ -69,7 +74,7 @@ public class MoveValidator {
         // Move forward 1
         int nextY = y + direction;
         if (BoardCoordinates.isValid(x, nextY) && board.getPiece(x, nextY) == null) {
-            moves.add(new Move(x, y, x, nextY, p, null));
+            addPawnMove(new Move(x, y, x, nextY, p, null), moves);
 
             // Move forward 2
             int nextY2 = y + (direction * 2);
@@ -85,7 +90,7 @@ public class MoveValidator {
             if (BoardCoordinates.isValid(captureX, nextY)) {
                 Piece target = board.getPiece(captureX, nextY);
                 if (target != null && target.getColor() != p.getColor()) {
-                    moves.add(new Move(x, y, captureX, nextY, p, target));
+                    addPawnMove(new Move(x, y, captureX, nextY, p, target), moves);
                 }
             }
         }
@@ -93,6 +98,24 @@ public class MoveValidator {
         addEnPassantMoves(x, y, p, moves);
     }
 
+    /**
+     * Adds a pawn move, expanded into one move per promotion piece if it reaches
+     * the last rank.
+     */
+    private void addPawnMove(Move move, List<Move> moves) {
+        if (move.getEndY() != 0 && move.getEndY() != 7) {
+            moves.add(move);
+            return;
+        }
+        for (PieceType type : PROMOTION_TYPES) {
+            Move promotion = new Move(move.getStartX(), move.getStartY(), move.getEndX(), move.getEndY(),
+                    move.getMovedPiece(), move.getCapturedPiece());
+            promotion.setPromotion(true);
+            promotion.setPromotionType(type);
+            moves.add(promotion);
+        }
+    }
+
     private void addEnPassantMoves(int x, int y, Piece p, List<Move> moves) {
         // 1. Rank requirement: White on rank 5 (index 3), Black on rank 4 (index 4)
         int requiredRank = p.getColor() == PieceColor.WHITE ? 3 : 4;
@@ -151,8 +174,7 @@ public class MoveValidator {
     }
 
     private void addKnightMoves(int x, int y, Piece p, List<Move> moves) {
-        int[][] offsets = { { 1, 2 }, { 1, -2 }, { -1, 2 }, { -1, -2 }, { 2, 1 }, { 2, -1 }, { -2, 1 }, { -2, -1 } };
-        for (int[] o : offsets) {
+        for (int[] o : KNIGHT_OFFSETS) {
             int nx = x + o[0];
             int ny = y + o[1];
             if (BoardCoordinates.isValid(nx, ny)) {
@@ -270,23 +292,62 @@ public class MoveValidator {
         return isSquareAttacked(kx, ky, color);
     }
 
+    /**
+     * Checks whether the given square is attacked by the opponent of
+     * {@code friendlyColor}. Rather than generating every opponent move, this
+     * scans outward from the target square along knight, king, pawn and sliding
+     * rays, so the cost is bounded by the rays leaving one square.
+     */
     public boolean isSquareAttacked(int targetX, int targetY, PieceColor friendlyColor) {
         PieceColor opponent = friendlyColor.opposite();
-        for (int x = 0; x < 8; x++) {
-            for (int y = 0; y < 8; y++) {
-                Piece p = board.getPiece(x, y);
-                if (p != null && p.getColor() == opponent) {
-                    // Get pseudo moves for this piece, excluding castling to avoid recursion
-                    List<Move> attacks = getPseudoLegalMoves(x, y, p, false);
-                    for (Move m : attacks) {
-                        if (m.getEndX() == targetX && m.getEndY() == targetY) {
-                            return true;
-                        }
+
+        // Opponent pawns attack diagonally towards us: white pawns sit one rank
+        // below the target (higher y), black pawns one rank above.
+        int pawnY = opponent == PieceColor.WHITE ? targetY + 1 : targetY - 1;
+        if (isPieceAt(targetX - 1, pawnY, PieceType.PAWN, opponent)
+                || isPieceAt(targetX + 1, pawnY, PieceType.PAWN, opponent)) {
+            return true;
+        }
+
+        for (int[] o : KNIGHT_OFFSETS) {
+            if (isPieceAt(targetX + o[0], targetY + o[1], PieceType.KNIGHT, opponent)) {
+                return true;
+            }
+        }
+
+        for (int[] dir : QUEEN_DIRECTIONS) {
+            if (isPieceAt(targetX + dir[0], targetY + dir[1], PieceType.KING, opponent)) {
+                return true;
+            }
+        }
+
+        return isAttackedAlongRays(targetX, targetY, opponent, ORTHOGONAL_DIRECTIONS, PieceType.ROOK)
+                || isAttackedAlongRays(targetX, targetY, opponent, DIAGONAL_DIRECTIONS, PieceType.BISHOP);
+    }
+
+    private boolean isAttackedAlongRays(int x, int y, PieceColor opponent, int[][] directions, PieceType slider) {
+        for (int[] dir : directions) {
+            int nx = x + dir[0];
+            int ny = y + dir[1];
+            while (BoardCoordinates.isValid(nx, ny)) {
+                Piece p = board.getPiece(nx, ny);
+                if (p != null) {
+                    if (p.getColor() == opponent
+                            && (p.getType() == slider || p.getType() == PieceType.QUEEN)) {
+                        return true;
                     }
+                    break;
                 }
+                nx += dir[0];
+                ny += dir[1];
             }
         }
         return false;
     }
 
+    private boolean isPieceAt(int x, int y, PieceType type, PieceColor color) {
+        Piece p = board.getPiece(x, y);
+        return p != null && p.getType() == type && p.getColor() == color;
+    }
+
 }
@@ -0,0 +1,66 @@
+package com.chess.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One game read from a PGN file: its tag pairs, its moves in algebraic
+ * notation and its result. Comments, variations and annotations of the source
+ * are not kept.
+ */
+public class PGNGame {
+    private final Map<String, String> tags = new LinkedHashMap<>();
+    private final List<String> moves = new ArrayList<>();
+    private String result = "*";
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    /**
+     * Returns the moves in algebraic notation, e.g. "e4", "Nf3", "O-O".
+     */
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the game result: "1-0", "0-1", "1/2-1/2" or "*".
+     */
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /**
+     * Replays the moves into a new game, starting from the position of the
+     * {@code FEN} tag if there is one.
+     *
+     * @return The game after the last move that could be played; compare its
+     *         history size with {@link #getMoves()} to detect unparsable moves
+     * @throws IllegalArgumentException If the {@code FEN} tag is not a valid FEN
+     */
+    public Game toGame() {
+        Game game = new Game();
+        String fen = getTag("FEN");
+        if (fen != null) {
+            game.loadFromFen(fen);
+        }
+        for (String san : moves) {
+            Move move = AlgebraicNotationParser.parseMove(san, game);
+            if (move == null || !game.makeMove(move)) {
+                break;
+            }
+        }
+        return game;
+    }
+}
@@ -0,0 +1,158 @@
+package com.chess.core;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the games of a PGN file one at a time, so files with thousands of
+ * games never have to be held in memory. Comments, recursive variations, NAGs
+ * and move numbers are skipped.
+ */
+public class PGNReader implements Closeable {
+    private final BufferedReader reader;
+    private String pendingLine;
+
+    public PGNReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Reads the next game.
+     *
+     * @return The game, or null at the end of the input
+     * @throws IOException If reading fails
+     */
+    public PGNGame next() throws IOException {
+        PGNGame game = new PGNGame();
+        boolean inMoves = false;
+        boolean any = false;
+        boolean finished = false;
+        int commentDepth = 0;
+        int variationDepth = 0;
+
+        String line;
+        while ((line = nextLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("%")) {
+                continue;
+            }
+            if (trimmed.startsWith("[") && commentDepth == 0) {
+                if (inMoves) {
+                    // Tag section of the next game
+                    pendingLine = line;
+                    break;
+                }
+                parseTag(trimmed, game);
+                any = true;
+                continue;
+            }
+            inMoves = true;
+            any = true;
+
+            // Tokenize the movetext, tracking comments and variations across lines
+            int i = 0;
+            int length = trimmed.length();
+            while (i < length) {
+                char c = trimmed.charAt(i);
+                if (commentDepth > 0) {
+                    if (c == '}') {
+                        commentDepth = 0;
+                    }
+                    i++;
+                } else if (c == '{') {
+                    commentDepth = 1;
+                    i++;
+                } else if (c == ';') {
+                    break; // Rest-of-line comment
+                } else if (c == '(') {
+                    variationDepth++;
+                    i++;
+                } else if (c == ')') {
+                    variationDepth = Math.max(0, variationDepth - 1);
+                    i++;
+                } else if (Character.isWhitespace(c)) {
+                    i++;
+                } else {
+                    int end = i;
+                    while (end < length && " \t{}();".indexOf(trimmed.charAt(end)) < 0) {
+                        end++;
+                    }
+                    if (variationDepth == 0) {
+                        finished |= addToken(trimmed.substring(i, end), game);
+                    }
+                    i = end;
+                }
+            }
+            if (finished) {
+                break;
+            }
+        }
+        return any ? game : null;
+    }
+
+    private String nextLine() throws IOException {
+        if (pendingLine != null) {
+            String line = pendingLine;
+            pendingLine = null;
+            return line;
+        }
+        return reader.readLine();
+    }
+
+    private static void parseTag(String line, PGNGame game) {
+        int space = line.indexOf(' ');
+        int open = line.indexOf('"');
+        int close = line.lastIndexOf('"');
+        if (space > 1 && open > space && close > open) {
+            game.getTags().put(line.substring(1, space), line.substring(open + 1, close).replace("\\\"", "\""));
+        }
+    }
+
+    /**
+     * Adds a movetext token to the game.
+     *
+     * @return true if the token is the game result, which ends the game
+     */
+    private static boolean addToken(String token, PGNGame game) {
+        if (isResult(token)) {
+            game.setResult(token);
+            return true;
+        }
+        if (token.startsWith("$")) {
+            return false; // NAG
+        }
+        // Strip a leading move number such as "12." or "12..."
+        int i = 0;
+        while (i < token.length() && Character.isDigit(token.charAt(i))) {
+            i++;
+        }
+        if (i > 0 && i < token.length() && token.charAt(i) == '.') {
+            while (i < token.length() && token.charAt(i) == '.') {
+                i++;
+            }
+            token = token.substring(i);
+        } else if (i == token.length()) {
+            return false; // Bare number
+        }
+        // Strip annotation suffixes such as "!?" or "??"
+        int end = token.length();
+        while (end > 0 && (token.charAt(end - 1) == '!' || token.charAt(end - 1) == '?')) {
+            end--;
+        }
+        if (end > 0) {
+            game.getMoves().add(token.substring(0, end));
+        }
+        return false;
+    }
+
+    private static boolean isResult(String token) {
+        return token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*");
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
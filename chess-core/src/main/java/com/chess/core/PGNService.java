@@ -5,8 +5,10 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class PGNService {
 
@@ -47,6 +49,68 @@ public class PGNService {
         }
     }
 
+    /**
+     * Writes one game in export format, with an optional comment after each move.
+     * Lines are wrapped at 80 characters. Move numbers start from the FEN tag, if
+     * any.
+     *
+     * @param writer   The destination
+     * @param tags     The tag pairs, in order
+     * @param moves    The moves in algebraic notation
+     * @param comments Comment text per move (without braces), null entries or a
+     *                 shorter list for moves without comment; may be null
+     * @param result   The game result
+     * @throws IOException If writing fails
+     */
+    public static void writeGame(Writer writer, Map<String, String> tags, List<String> moves,
+            List<String> comments, String result) throws IOException {
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            writer.write("[" + tag.getKey() + " \"" + tag.getValue().replace("\"", "\\\"") + "\"]\n");
+        }
+        writer.write("\n");
+
+        // Plies played before the first move, e.g. 1 for a FEN with Black to move
+        int firstPly = 0;
+        String fen = tags.get("FEN");
+        if (fen != null) {
+            String[] fields = fen.trim().split("\\s+");
+            int fullMoveNumber = fields.length > 5 && fields[5].matches("\\d+") ? Integer.parseInt(fields[5]) : 1;
+            firstPly = 2 * (fullMoveNumber - 1) + (fields.length > 1 && fields[1].equals("b") ? 1 : 0);
+        }
+
+        StringBuilder line = new StringBuilder();
+        boolean afterComment = false;
+        for (int i = 0; i < moves.size(); i++) {
+            int ply = firstPly + i;
+            if (ply % 2 == 0) {
+                appendToken(writer, line, (ply / 2 + 1) + ".");
+            } else if (afterComment || i == 0) {
+                appendToken(writer, line, (ply / 2 + 1) + "...");
+            }
+            appendToken(writer, line, moves.get(i));
+            String comment = comments != null && i < comments.size() ? comments.get(i) : null;
+            if (comment != null) {
+                appendToken(writer, line, "{" + comment + "}");
+            }
+            afterComment = comment != null;
+        }
+        appendToken(writer, line, result);
+        writer.write(line.toString());
+        writer.write("\n\n");
+    }
+
+    private static void appendToken(Writer writer, StringBuilder line, String token) throws IOException {
+        if (line.length() > 0 && line.length() + 1 + token.length() > 80) {
+            writer.write(line.toString());
+            writer.write("\n");
+            line.setLength(0);
+        }
+        if (line.length() > 0) {
+            line.append(' ');
+        }
+        line.append(token);
+    }
+
     public static List<String> loadGame(File file) throws IOException {
         // This is a very basic PGN parser. It assumes standard formatting.
         // Returns a list of move strings (e.g. "e2e4", "e7e5") or algebraic.
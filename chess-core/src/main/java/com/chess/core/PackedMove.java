@@ -0,0 +1,139 @@
+package com.chess.core;
+
+/**
+ * Compact 16-bit encoding of moves for storage and transmission.
+ * Bits 0-5 hold the start square, bits 6-11 the end square and bits 12-14 the
+ * promotion piece (0 none, 1 knight, 2 bishop, 3 rook, 4 queen). Squares are
+ * numbered {@code y * 8 + x} in board coordinates, so a8 is 0 and h1 is 63.
+ */
+public final class PackedMove {
+    /** Returned when a move cannot be encoded. */
+    public static final int NONE = -1;
+
+    private static final String PROMOTION_CHARS = " nbrq";
+
+    private PackedMove() {
+        // Utility class
+    }
+
+    public static int pack(int startX, int startY, int endX, int endY, PieceType promotion) {
+        return (startY * 8 + startX) | ((endY * 8 + endX) << 6) | (promotionCode(promotion) << 12);
+    }
+
+    public static int of(Move move) {
+        PieceType promotion = move.isPromotion() ? move.getPromotionType() : null;
+        return pack(move.getStartX(), move.getStartY(), move.getEndX(), move.getEndY(), promotion);
+    }
+
+    /**
+     * Encodes a UCI move string without allocating.
+     *
+     * @param uci   Text containing the move
+     * @param start Index of the first character of the move
+     * @param end   Index after the last character of the move
+     * @return The packed move, or {@link #NONE} if the text is not a UCI move
+     */
+    public static int fromUci(CharSequence uci, int start, int end) {
+        int length = end - start;
+        if (length != 4 && length != 5) {
+            return NONE;
+        }
+        int startX = uci.charAt(start) - 'a';
+        int startY = '8' - uci.charAt(start + 1);
+        int endX = uci.charAt(start + 2) - 'a';
+        int endY = '8' - uci.charAt(start + 3);
+        if (!BoardCoordinates.isValid(startX, startY) || !BoardCoordinates.isValid(endX, endY)) {
+            return NONE;
+        }
+        int promotion = 0;
+        if (length == 5) {
+            promotion = PROMOTION_CHARS.indexOf(Character.toLowerCase(uci.charAt(start + 4)));
+            if (promotion <= 0) {
+                return NONE;
+            }
+        }
+        return (startY * 8 + startX) | ((endY * 8 + endX) << 6) | (promotion << 12);
+    }
+
+    public static int fromUci(CharSequence uci) {
+        return fromUci(uci, 0, uci.length());
+    }
+
+    public static String toUci(int packed) {
+        StringBuilder sb = new StringBuilder(5)
+                .append(BoardCoordinates.toAlgebraic(startX(packed), startY(packed)))
+                .append(BoardCoordinates.toAlgebraic(endX(packed), endY(packed)));
+        int promotion = (packed >> 12) & 7;
+        if (promotion > 0) {
+            sb.append(PROMOTION_CHARS.charAt(promotion));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Turns a packed move into a move on the given board, as accepted by
+     * {@link Game#makeMove(Move)}.
+     */
+    public static Move toMove(int packed, Board board) {
+        int startX = startX(packed);
+        int startY = startY(packed);
+        int endX = endX(packed);
+        int endY = endY(packed);
+        Move move = new Move(startX, startY, endX, endY, board.getPiece(startX, startY), board.getPiece(endX, endY));
+        PieceType promotion = promotionType(packed);
+        if (promotion != null) {
+            move.setPromotion(true);
+            move.setPromotionType(promotion);
+        }
+        return move;
+    }
+
+    public static int startX(int packed) {
+        return packed & 7;
+    }
+
+    public static int startY(int packed) {
+        return (packed >> 3) & 7;
+    }
+
+    public static int endX(int packed) {
+        return (packed >> 6) & 7;
+    }
+
+    public static int endY(int packed) {
+        return (packed >> 9) & 7;
+    }
+
+    public static PieceType promotionType(int packed) {
+        switch ((packed >> 12) & 7) {
+            case 1:
+                return PieceType.KNIGHT;
+            case 2:
+                return PieceType.BISHOP;
+            case 3:
+                return PieceType.ROOK;
+            case 4:
+                return PieceType.QUEEN;
+            default:
+                return null;
+        }
+    }
+
+    private static int promotionCode(PieceType type) {
+        if (type == null) {
+            return 0;
+        }
+        switch (type) {
+            case KNIGHT:
+                return 1;
+            case BISHOP:
+                return 2;
+            case ROOK:
+                return 3;
+            case QUEEN:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+}
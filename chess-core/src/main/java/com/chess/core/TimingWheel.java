@@ -0,0 +1,313 @@
+package com.chess.core;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hierarchical timing wheel: one thread keeps the deadlines of any number of
+ * timers, such as the flags of thousands of {@link ChessClock}s in one JVM.
+ *
+ * Timers are kept in doubly linked lists hanging off the slots of
+ * {@link #LEVELS} wheels. The first wheel has one slot per tick; each further
+ * wheel has slots as wide as the whole wheel below it, and its slots are
+ * spread over the lower wheels as time reaches them. Scheduling and cancelling
+ * are therefore constant time regardless of how many timers are pending, so a
+ * clock switching turns costs the same with ten thousand games as with one.
+ * Deadlines are rounded up to whole ticks, so timers fire up to one tick late
+ * and never early.
+ *
+ * Expired tasks run on the dispatcher given to the constructor, never on the
+ * ticking thread, so a slow task cannot delay other timers.
+ */
+public class TimingWheel implements Closeable {
+    /** Number of wheels; with 256 slots each they span 2^32 ticks. */
+    static final int LEVELS = 4;
+
+    private static TimingWheel shared;
+
+    private final long tickNanos;
+    private final int bits;
+    private final int mask;
+    private final Timeout[][] slots;
+    private final ExecutorService dispatcher;
+    private final boolean ownsDispatcher;
+    private final long startNanos;
+    private final Thread ticker;
+
+    // Guarded by this
+    private long currentTick;
+    private int pending;
+    private boolean closed;
+
+    /**
+     * A scheduled task. Cancelling it before it expires is constant time.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout previous;
+        private Timeout next;
+        private int level = -1;
+        private int slot;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Prevents the task from running.
+         *
+         * @return false if it already expired or was cancelled
+         */
+        public boolean cancel() {
+            synchronized (TimingWheel.this) {
+                if (level < 0) {
+                    return false;
+                }
+                unlink(this);
+                pending--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Creates a wheel with 256 slots per level and a small dispatcher pool of
+     * its own.
+     *
+     * @param tick The resolution
+     * @param unit The unit of {@code tick}
+     */
+    public TimingWheel(long tick, TimeUnit unit) {
+        this(unit.toNanos(tick), 256, newDispatcher(), true);
+    }
+
+    /**
+     * @param tickNanos      The resolution in nanoseconds
+     * @param wheelSize      Slots per level, a power of two
+     * @param dispatcher     Runs expired tasks
+     * @param ownsDispatcher Whether {@link #close()} shuts the dispatcher down
+     */
+    TimingWheel(long tickNanos, int wheelSize, ExecutorService dispatcher, boolean ownsDispatcher) {
+        if (tickNanos <= 0 || Integer.bitCount(wheelSize) != 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("Bad tick " + tickNanos + " ns or wheel size " + wheelSize);
+        }
+        this.tickNanos = tickNanos;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.slots = new Timeout[LEVELS][wheelSize];
+        this.dispatcher = dispatcher;
+        this.ownsDispatcher = ownsDispatcher;
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::run, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Returns the wheel shared by everything in this JVM, with a resolution of
+     * one millisecond.
+     */
+    public static synchronized TimingWheel shared() {
+        if (shared == null || shared.isClosed()) {
+            shared = new TimingWheel(1, TimeUnit.MILLISECONDS);
+        }
+        return shared;
+    }
+
+    private static ExecutorService newDispatcher() {
+        AtomicInteger count = new AtomicInteger();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 4);
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "timing-wheel-dispatch-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Runs a task once the delay has passed.
+     *
+     * @param task  The task, run on the dispatcher
+     * @param delay The delay; zero or less runs the task on the next tick
+     * @param unit  The unit of {@code delay}
+     * @return A handle to cancel the task
+     * @throws IllegalStateException If the wheel is closed
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long deadline = System.nanoTime() + Math.max(0, unit.toNanos(delay)) - startNanos;
+        // Rounded up, so tasks never run early
+        Timeout timeout = new Timeout(task, (deadline + tickNanos - 1) / tickNanos);
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Timing wheel is closed");
+            }
+            if (pending == 0) {
+                // The ticker may have slept; nothing pending means nothing to catch up on
+                currentTick = Math.max(currentTick, (System.nanoTime() - startNanos) / tickNanos);
+                notifyAll();
+            }
+            insert(timeout);
+            pending++;
+        }
+        return timeout;
+    }
+
+    /**
+     * Returns the number of scheduled tasks that have not expired or been cancelled.
+     */
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops the wheel. Pending tasks never run.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        ticker.interrupt();
+        if (ownsDispatcher) {
+            dispatcher.shutdown();
+        }
+    }
+
+    /**
+     * Puts a timer into the slot of the lowest wheel that reaches its deadline.
+     * Must hold the lock.
+     */
+    private void insert(Timeout timeout) {
+        long deadline = Math.max(timeout.deadlineTick, currentTick + 1);
+        long delta = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        if (level == LEVELS - 1) {
+            // Beyond the top wheel: park at its far end and re-sort when reached
+            deadline = Math.min(deadline, currentTick + (1L << (bits * LEVELS)) - 1);
+        }
+        int slot = (int) ((deadline >>> (bits * level)) & mask);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = slots[level][slot];
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        slots[level][slot] = timeout;
+    }
+
+    /**
+     * Removes a timer from its slot. Must hold the lock.
+     */
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    /**
+     * Takes all timers out of a slot. Must hold the lock.
+     */
+    private Timeout drain(int level, int slot) {
+        Timeout head = slots[level][slot];
+        slots[level][slot] = null;
+        return head;
+    }
+
+    private void run() {
+        List<Runnable> expired = new ArrayList<>();
+        while (true) {
+            long nextTickNanos;
+            synchronized (this) {
+                while (pending == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Woken by close
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+                while (currentTick < nowTick) {
+                    advance(expired);
+                }
+                nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            }
+            for (Runnable task : expired) {
+                try {
+                    dispatcher.execute(task);
+                } catch (RuntimeException e) {
+                    // Dispatcher shut down by close
+                    return;
+                }
+            }
+            expired.clear();
+            long sleep = nextTickNanos - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+        }
+    }
+
+    /**
+     * Moves time forward by one tick, cascading higher wheels whenever the
+     * wheel below them wraps. Must hold the lock.
+     */
+    private void advance(List<Runnable> expired) {
+        currentTick++;
+        if ((currentTick & mask) == 0) {
+            for (int level = 1; level < LEVELS; level++) {
+                int slot = (int) ((currentTick >>> (bits * level)) & mask);
+                Timeout timeout = drain(level, slot);
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    insert(timeout);
+                    timeout = next;
+                }
+                if (slot != 0) {
+                    break;
+                }
+            }
+        }
+        Timeout timeout = drain(0, (int) (currentTick & mask));
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.deadlineTick > currentTick) {
+                insert(timeout);
+            } else {
+                timeout.level = -1;
+                timeout.previous = null;
+                timeout.next = null;
+                pending--;
+                expired.add(timeout.task);
+            }
+            timeout = next;
+        }
+    }
+}
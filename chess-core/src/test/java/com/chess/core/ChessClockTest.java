@@ -0,0 +1,79 @@
+package com.chess.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChessClockTest {
+
+    @Test
+    void testFischerIncrementIsAddedAfterTheMove() throws InterruptedException {
+        ChessClock clock = new ChessClock(60_000, 2_000, ChessClock.IncrementMode.FISCHER);
+        clock.start(PieceColor.WHITE);
+        Thread.sleep(50);
+        clock.switchTurn();
+        clock.stop();
+
+        long white = clock.getRemainingTimeMillis(PieceColor.WHITE);
+        assertTrue(white > 61_000 && white <= 61_950, "White has " + white);
+        // Black ran only between the switch and the stop
+        assertTrue(clock.getRemainingTimeMillis(PieceColor.BLACK) > 59_900);
+    }
+
+    @Test
+    void testDelayAndBronsteinDoNotChargeQuickMoves() throws InterruptedException {
+        for (ChessClock.IncrementMode mode : new ChessClock.IncrementMode[] {
+                ChessClock.IncrementMode.DELAY, ChessClock.IncrementMode.BRONSTEIN }) {
+            ChessClock clock = new ChessClock(60_000, 1_000, mode);
+            clock.start(PieceColor.WHITE);
+            Thread.sleep(50);
+            clock.switchTurn();
+            clock.stop();
+            assertEquals(60_000, clock.getRemainingTimeMillis(PieceColor.WHITE), mode.name());
+        }
+    }
+
+    @Test
+    void testDelayHoldsTheClockWhileBronsteinDoesNot() throws InterruptedException {
+        ChessClock delay = new ChessClock(60_000, 1_000, ChessClock.IncrementMode.DELAY);
+        ChessClock bronstein = new ChessClock(60_000, 1_000, ChessClock.IncrementMode.BRONSTEIN);
+        delay.start(PieceColor.BLACK);
+        bronstein.start(PieceColor.BLACK);
+        Thread.sleep(50);
+
+        assertEquals(60_000, delay.getRemainingTimeMillis(PieceColor.BLACK));
+        assertTrue(bronstein.getRemainingTimeMillis(PieceColor.BLACK) < 60_000);
+        delay.stop();
+        bronstein.stop();
+    }
+
+    @Test
+    void testFlagFallsOnTimeAndUpdatesOnlyOnVisibleSeconds() throws InterruptedException {
+        ChessClock clock = new ChessClock(1_100, 0, ChessClock.IncrementMode.FISCHER);
+        AtomicInteger updates = new AtomicInteger();
+        AtomicLong flaggedAt = new AtomicLong();
+        CountDownLatch expired = new CountDownLatch(1);
+        clock.setOnTimeUpdate(updates::incrementAndGet);
+        clock.setOnTimeExpired(color -> {
+            flaggedAt.set(System.nanoTime());
+            assertEquals(PieceColor.WHITE, color);
+            expired.countDown();
+        });
+
+        long start = System.nanoTime();
+        clock.start(PieceColor.WHITE);
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+
+        long lateMillis = TimeUnit.NANOSECONDS.toMillis(flaggedAt.get() - start) - 1_100;
+        assertTrue(lateMillis >= 0 && lateMillis < 50, "Flagged " + lateMillis + " ms late");
+        assertTrue(clock.isExpired(PieceColor.WHITE));
+        assertFalse(clock.isExpired(PieceColor.BLACK));
+        // Shown at 0:01 on start, then 0:00 once; the flag changes nothing visible
+        assertEquals(2, updates.get());
+    }
+}
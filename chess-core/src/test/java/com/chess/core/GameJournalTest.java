@@ -0,0 +1,147 @@
+package com.chess.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testUnfinishedGamesAreRecoveredAfterACrash() throws Exception {
+        Path file = dir.resolve("games.journal");
+        GameJournal journal = new GameJournal(file);
+        assertTrue(journal.getRecoveredGames().isEmpty());
+
+        long finished = journal.startGame(null, -1, -1);
+        journal.recordMove(finished, 1, PackedMove.fromUci("f2f3"), -1, -1);
+        journal.endGame(finished);
+        long open = journal.startGame(null, 60_000, 60_000);
+        journal.recordMove(open, 1, PackedMove.fromUci("e2e4"), 61_000, 60_000);
+        journal.recordMove(open, 2, PackedMove.fromUci("e7e5"), 61_000, 58_000);
+        // Taken back and replayed differently
+        journal.recordMove(open, 2, PackedMove.fromUci("c7c5"), 61_000, 57_500);
+        String fen = "8/8/8/4k3/8/8/4P3/4K3 w - - 0 1";
+        long endgame = journal.startGame(fen, -1, -1);
+        journal.recordMove(endgame, 1, PackedMove.fromUci("e2e4"), -1, -1);
+        journal.sync();
+        // No close: the process dies here
+
+        try (GameJournal reopened = new GameJournal(file)) {
+            List<GameJournal.RecoveredGame> games = reopened.getRecoveredGames();
+            assertEquals(2, games.size());
+            GameJournal.RecoveredGame sicilian = games.get(0);
+            assertEquals(open, sicilian.getId());
+            assertNull(sicilian.getStartFen());
+            assertEquals("position startpos moves e2e4 c7c5", sicilian.getGame().getUciPosition());
+            assertEquals(61_000, sicilian.getWhiteMillis());
+            assertEquals(57_500, sicilian.getBlackMillis());
+            assertEquals(fen, games.get(1).getStartFen());
+            assertEquals("8/8/8/4k3/4P3/8/8/4K3 b - e3 0 1", games.get(1).getGame().getFen());
+
+            // Ids are never reused
+            assertTrue(reopened.startGame(null, -1, -1) > endgame);
+        }
+        journal.close();
+    }
+
+    @Test
+    public void testSetupIsRecovered() throws Exception {
+        Path file = dir.resolve("games.journal");
+        GameJournal.Setup setup = new GameJournal.Setup(PieceColor.WHITE, "Hard", 300_000, 2_000,
+                ChessClock.IncrementMode.BRONSTEIN);
+        try (GameJournal journal = new GameJournal(file)) {
+            journal.endGame(journal.startGame(null, -1, -1));
+            long id = journal.startGame(null, setup, 300_000, 300_000);
+            journal.recordMove(id, 1, PackedMove.fromUci("d2d4"), 299_000, 300_000);
+        }
+        // Opened twice: the first open compacts the journal, rewriting the start record
+        new GameJournal(file).close();
+
+        try (GameJournal journal = new GameJournal(file)) {
+            GameJournal.Setup recovered = journal.getRecoveredGames().get(0).getSetup();
+            assertEquals(PieceColor.WHITE, recovered.getEngineColor());
+            assertEquals("Hard", recovered.getEngineLevel());
+            assertTrue(recovered.isTimed());
+            assertEquals(300_000, recovered.getBaseMillis());
+            assertEquals(2_000, recovered.getIncrementMillis());
+            assertEquals(ChessClock.IncrementMode.BRONSTEIN, recovered.getIncrementMode());
+
+            long twoPlayers = journal.startGame(null, -1, -1);
+            journal.recordMove(twoPlayers, 1, PackedMove.fromUci("e2e4"), -1, -1);
+        }
+        try (GameJournal journal = new GameJournal(file)) {
+            GameJournal.Setup twoPlayers = journal.getRecoveredGames().get(1).getSetup();
+            assertNull(twoPlayers.getEngineColor());
+            assertFalse(twoPlayers.isTimed());
+        }
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws Exception {
+        Path file = dir.resolve("games.journal");
+        long id;
+        try (GameJournal journal = new GameJournal(file)) {
+            id = journal.startGame(null, -1, -1);
+            journal.recordMove(id, 1, PackedMove.fromUci("d2d4"), -1, -1);
+        }
+        long length = Files.size(file);
+        // Half of a move record, as a crash during the write would leave it
+        Files.write(file, new byte[] { 0, 21, 1, 2, 3, 4, 2, 0, 0 }, StandardOpenOption.APPEND);
+
+        try (GameJournal journal = new GameJournal(file)) {
+            assertEquals(length, Files.size(file));
+            assertEquals("position startpos moves d2d4", journal.getRecoveredGames().get(0).getGame().getUciPosition());
+            journal.recordMove(id, 2, PackedMove.fromUci("d7d5"), -1, -1);
+        }
+        try (GameJournal journal = new GameJournal(file)) {
+            assertEquals("position startpos moves d2d4 d7d5",
+                    journal.getRecoveredGames().get(0).getGame().getUciPosition());
+        }
+    }
+
+    @Test
+    public void testConcurrentGamesShareFsyncs() throws Exception {
+        Path file = dir.resolve("games.journal");
+        int games = 8;
+        String[] moves = { "g1f3", "g8f6", "f3g1", "f6g8" };
+        int plies = 400;
+        try (GameJournal journal = new GameJournal(file)) {
+            Thread[] players = new Thread[games];
+            for (int g = 0; g < games; g++) {
+                long id = journal.startGame(null, -1, -1);
+                players[g] = new Thread(() -> {
+                    for (int ply = 1; ply <= plies; ply++) {
+                        journal.recordMove(id, ply, PackedMove.fromUci(moves[(ply - 1) % 4]), -1, -1);
+                    }
+                });
+                players[g].start();
+            }
+            for (Thread player : players) {
+                player.join();
+            }
+            journal.sync();
+            assertTrue(journal.getSyncCount() < games * plies,
+                    journal.getSyncCount() + " fsyncs for " + games * plies + " moves");
+        }
+
+        long start = System.nanoTime();
+        try (GameJournal journal = new GameJournal(file)) {
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            assertEquals(games, journal.getRecoveredGames().size());
+            for (GameJournal.RecoveredGame game : journal.getRecoveredGames()) {
+                assertEquals(plies, game.getGame().getMoveHistory().size());
+                assertEquals(Game.START_FEN.substring(0, 40), game.getGame().getFen().substring(0, 40));
+            }
+            System.out.println("Recovered " + games * plies + " moves in " + millis + " ms");
+        }
+    }
+}
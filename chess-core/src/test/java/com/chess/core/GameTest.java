@@ -0,0 +1,147 @@
+package com.chess.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameTest {
+
+    @Test
+    public void testUciPositionFollowsMoves() {
+        Game game = new Game();
+        assertEquals("position startpos", game.getUciPosition());
+
+        assertTrue(game.makeMoveFromUCI("e2e4"));
+        assertTrue(game.makeMoveFromUCI("e7e5"));
+        assertEquals("position startpos moves e2e4 e7e5", game.getUciPosition());
+    }
+
+    @Test
+    public void testUciPositionFollowsNavigationAndNewBranches() {
+        Game game = new Game();
+        game.makeMoveFromUCI("e2e4");
+        game.makeMoveFromUCI("e7e5");
+        game.makeMoveFromUCI("g1f3");
+
+        game.previousMove();
+        assertEquals("position startpos moves e2e4 e7e5", game.getUciPosition());
+        game.goToFirstMove();
+        assertEquals("position startpos", game.getUciPosition());
+
+        // A different move from the middle of the history replaces the rest
+        game.nextMove();
+        assertTrue(game.makeMoveFromUCI("c7c5"));
+        assertEquals("position startpos moves e2e4 c7c5", game.getUciPosition());
+        game.goToLastMove();
+        assertEquals("position startpos moves e2e4 c7c5", game.getUciPosition());
+
+        game.reset();
+        assertEquals("position startpos", game.getUciPosition());
+    }
+
+    @Test
+    public void testLoadFromFen() {
+        Game game = new Game();
+        String fen = "r3k2r/pppq1ppp/8/3pP3/8/8/PPP2PPP/R3K2R w Kq d6 4 12";
+        game.loadFromFen(fen);
+
+        assertEquals(fen, game.getFen());
+        assertEquals(PieceColor.WHITE, game.getCurrentTurn());
+        assertEquals("position fen " + fen, game.getUciPosition());
+
+        // En passant on d6 and castling only where the FEN allows it
+        assertTrue(game.makeMoveFromUCI("e5d6"));
+        assertNull(game.getBoard().getPiece(3, 3));
+        assertEquals("position fen " + fen + " moves e5d6", game.getUciPosition());
+        assertFalse(game.makeMoveFromUCI("e8g8"));
+        assertTrue(game.makeMoveFromUCI("e8c8"));
+        assertEquals("2kr3r/pppq1ppp/3P4/8/8/8/PPP2PPP/R3K2R w K - 1 13", game.getFen());
+    }
+
+    @Test
+    public void testBadFenLeavesGameUnchanged() {
+        Game game = new Game();
+        game.makeMoveFromUCI("e2e4");
+        assertThrows(IllegalArgumentException.class, () -> game.loadFromFen("rnbqkbnr/pppppppp/9/8 w - -"));
+        assertEquals("position startpos moves e2e4", game.getUciPosition());
+    }
+
+    @Test
+    public void testPromotion() {
+        Game game = new Game();
+        game.loadFromFen("8/1P5k/8/8/8/8/8/K7 w - - 0 1");
+
+        assertEquals(4, game.getLegalMoves(1, 1).size());
+        assertTrue(game.makeMoveFromUCI("b7b8n"));
+        assertEquals(PieceType.KNIGHT, game.getBoard().getPiece(1, 0).getType());
+
+        game.previousMove();
+        assertEquals(PieceType.PAWN, game.getBoard().getPiece(1, 1).getType());
+        assertNull(game.getBoard().getPiece(1, 0));
+    }
+
+    @Test
+    public void testPremovesPlayInOrderAfterTheOpponent() {
+        Game game = new Game();
+        Board board = game.getBoard();
+        game.addPremove(new Move(4, 1, 4, 3, board.getPiece(4, 1), null));
+        assertNull(game.playPremove(), "Not Black's turn");
+        assertTrue(game.getPremoves().isEmpty());
+
+        // Black queues two moves while White is to move
+        game.addPremove(new Move(4, 1, 4, 3, board.getPiece(4, 1), null));
+        game.addPremove(new Move(6, 0, 5, 2, board.getPiece(6, 0), null));
+        game.makeMoveFromUCI("e2e4");
+        assertEquals("e7e5", game.playPremove().toUciNotation());
+        assertEquals(1, game.getPremoves().size());
+        game.makeMoveFromUCI("d2d4");
+        assertEquals("g8f6", game.playPremove().toUciNotation());
+        assertEquals("position startpos moves e2e4 e7e5 d2d4 g8f6", game.getUciPosition());
+
+        // exd4 is gone once White takes on e5, and so is the move planned after it
+        game.addPremove(new Move(4, 3, 3, 4, board.getPiece(4, 3), null));
+        game.addPremove(new Move(5, 2, 4, 4, board.getPiece(5, 2), null));
+        game.makeMoveFromUCI("d4e5");
+        assertNull(game.playPremove());
+        assertTrue(game.getPremoves().isEmpty());
+        assertEquals(PieceColor.BLACK, game.getCurrentTurn());
+    }
+
+    @Test
+    public void testGoToPlyMatchesSteppingThroughTheGame() {
+        // Starts with an en passant capture available, so the root move matters too
+        Game game = new Game();
+        game.loadFromFen("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3");
+        Random random = new Random(7);
+        List<String> positions = new ArrayList<>();
+        positions.add(game.getFen());
+        for (int ply = 0; ply < 150 && game.getGameState() == GameState.IN_PROGRESS; ply++) {
+            List<Move> moves = game.getLegalMoves();
+            assertTrue(game.makeMove(moves.get(random.nextInt(moves.size()))));
+            positions.add(game.getFen());
+        }
+        int length = game.getMoveHistory().size();
+        assertTrue(length > 3 * Game.CHECKPOINT_INTERVAL);
+
+        for (int i = 0; i < 200; i++) {
+            int ply = random.nextInt(length + 1);
+            game.goToPly(ply);
+            assertEquals(ply - 1, game.getCurrentMoveIndex());
+            assertEquals(positions.get(ply), game.getFen(), "ply " + ply);
+        }
+        // Stepping on from a restored checkpoint, in both directions
+        game.goToPly(2 * Game.CHECKPOINT_INTERVAL);
+        game.previousMove();
+        assertEquals(positions.get(2 * Game.CHECKPOINT_INTERVAL - 1), game.getFen());
+        game.goToPly(0);
+        assertEquals(positions.get(0), game.getFen());
+        assertTrue(game.makeMoveFromUCI("e5f6"));
+        game.goToLastMove();
+        assertEquals(1, game.getMoveHistory().size());
+        assertThrows(IllegalArgumentException.class, () -> game.goToPly(2));
+    }
+}
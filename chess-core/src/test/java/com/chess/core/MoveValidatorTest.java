@@ -0,0 +1,78 @@
+package com.chess.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveValidatorTest {
+
+    private static void clear(Board board) {
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board.setPiece(x, y, null);
+            }
+        }
+    }
+
+    private static long perft(Board board, MoveValidator validator, PieceColor color, int depth) {
+        List<Move> moves = validator.getLegalMoves(color);
+        if (depth == 1) {
+            return moves.size();
+        }
+        long nodes = 0;
+        for (Move m : moves) {
+            board.movePiece(m);
+            nodes += perft(board, validator, color.opposite(), depth - 1);
+            board.undoMove(m);
+        }
+        return nodes;
+    }
+
+    @Test
+    void testPerftFromStartingPosition() {
+        Board board = new Board();
+        MoveValidator validator = new MoveValidator(board);
+
+        assertEquals(20, perft(board, validator, PieceColor.WHITE, 1));
+        assertEquals(400, perft(board, validator, PieceColor.WHITE, 2));
+        assertEquals(8902, perft(board, validator, PieceColor.WHITE, 3));
+    }
+
+    @Test
+    void testPawnAttacksEmptySquares() {
+        Board board = new Board();
+        clear(board);
+        board.setPiece(4, 4, new Piece(PieceType.PAWN, PieceColor.WHITE)); // e4
+        board.setPiece(3, 1, new Piece(PieceType.PAWN, PieceColor.BLACK)); // d7
+
+        MoveValidator validator = new MoveValidator(board);
+
+        // White pawn on e4 attacks d5 and f5, but not e5
+        assertTrue(validator.isSquareAttacked(3, 3, PieceColor.BLACK));
+        assertTrue(validator.isSquareAttacked(5, 3, PieceColor.BLACK));
+        assertFalse(validator.isSquareAttacked(4, 3, PieceColor.BLACK));
+
+        // Black pawn on d7 attacks c6 and e6, but not d6
+        assertTrue(validator.isSquareAttacked(2, 2, PieceColor.WHITE));
+        assertTrue(validator.isSquareAttacked(4, 2, PieceColor.WHITE));
+        assertFalse(validator.isSquareAttacked(3, 2, PieceColor.WHITE));
+    }
+
+    @Test
+    void testSlidingAttacksAreBlocked() {
+        Board board = new Board();
+        clear(board);
+        board.setPiece(0, 7, new Piece(PieceType.ROOK, PieceColor.BLACK)); // a1
+        board.setPiece(7, 0, new Piece(PieceType.QUEEN, PieceColor.BLACK)); // h8
+        board.setPiece(3, 7, new Piece(PieceType.KNIGHT, PieceColor.WHITE)); // d1
+
+        MoveValidator validator = new MoveValidator(board);
+
+        assertTrue(validator.isSquareAttacked(2, 7, PieceColor.WHITE), "c1 is on the rook's open rank");
+        assertFalse(validator.isSquareAttacked(4, 7, PieceColor.WHITE), "e1 is shielded by the knight on d1");
+        assertTrue(validator.isSquareAttacked(1, 6, PieceColor.WHITE), "b2 is on the queen's long diagonal");
+        assertFalse(validator.isSquareAttacked(2, 7, PieceColor.BLACK), "Own pieces do not count as attackers");
+    }
+}
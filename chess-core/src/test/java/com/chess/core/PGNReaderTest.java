@@ -0,0 +1,62 @@
+package com.chess.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PGNReaderTest {
+
+    private static final String TWO_GAMES = "[Event \"First\"]\n"
+            + "[White \"A\"]\n"
+            + "\n"
+            + "1. e4 {best by test} e5 2. Nf3 (2. f4 exf4) Nc6!? 3. Bb5 $1 a6\n"
+            + "1-0\n"
+            + "\n"
+            + "[Event \"Second\"]\n"
+            + "\n"
+            + "1. d4 d5 2. c4 ; queen's gambit\n"
+            + "2... e6 *\n";
+
+    @Test
+    void testReadsGamesOneByOne() throws IOException {
+        try (PGNReader reader = new PGNReader(new StringReader(TWO_GAMES))) {
+            PGNGame first = reader.next();
+            assertEquals("First", first.getTag("Event"));
+            assertEquals("A", first.getTag("White"));
+            assertEquals(Arrays.asList("e4", "e5", "Nf3", "Nc6", "Bb5", "a6"), first.getMoves());
+            assertEquals("1-0", first.getResult());
+
+            PGNGame second = reader.next();
+            assertEquals("Second", second.getTag("Event"));
+            assertEquals(Arrays.asList("d4", "d5", "c4", "e6"), second.getMoves());
+            assertEquals("*", second.getResult());
+            assertEquals(4, second.toGame().getMoveHistory().size());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testWrittenGameReadsBack() throws IOException {
+        PGNGame game = new PGNGame();
+        game.getTags().put("Event", "Round \"1\"");
+        List<String> moves = Arrays.asList("e4", "e5", "Nf3");
+        StringWriter out = new StringWriter();
+
+        PGNService.writeGame(out, game.getTags(), moves, Arrays.asList("[%eval 0.30]", null), "1/2-1/2");
+        assertTrue(out.toString().contains("1. e4 {[%eval 0.30]} 1... e5 2. Nf3 1/2-1/2"), out.toString());
+
+        try (PGNReader reader = new PGNReader(new StringReader(out.toString()))) {
+            PGNGame read = reader.next();
+            assertEquals("Round \"1\"", read.getTag("Event"));
+            assertEquals(moves, read.getMoves());
+            assertEquals("1/2-1/2", read.getResult());
+        }
+    }
+}
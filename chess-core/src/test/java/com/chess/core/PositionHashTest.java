@@ -0,0 +1,33 @@
+package com.chess.core;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionHashTest {
+
+    /**
+     * Plays the moves and returns the key of the position reached.
+     */
+    private static long keyAfter(String... moves) {
+        Game game = new Game();
+        for (String move : moves) {
+            assertTrue(game.makeMoveFromUCI(move), move);
+        }
+        return PositionHash.of(game);
+    }
+
+    @Test
+    public void testPublishedPolyglotKeys() {
+        // The examples from the Polyglot book format specification
+        assertEquals(0x463b96181691fc9cL, keyAfter());
+        assertEquals(0x823c9b50fd114196L, keyAfter("e2e4"));
+        assertEquals(0x0756b94461c50fb0L, keyAfter("e2e4", "d7d5"));
+        assertEquals(0x662fafb965db29d4L, keyAfter("e2e4", "d7d5", "e4e5"));
+        // En passant is possible, so the file counts
+        assertEquals(0x22a48b5a8e47ff78L, keyAfter("e2e4", "d7d5", "e4e5", "f7f5"));
+        assertEquals(0x652a607ca3f242c1L, keyAfter("e2e4", "d7d5", "e4e5", "f7f5", "e1e2"));
+        assertEquals(0x00fdd303c946bdd9L, keyAfter("e2e4", "d7d5", "e4e5", "f7f5", "e1e2", "e8f7"));
+        assertEquals(0x3c8123ea7b067637L, keyAfter("a2a4", "b7b5", "h2h4", "b5b4", "c2c4"));
+        assertEquals(0x5c3f9b829b279560L, keyAfter("a2a4", "b7b5", "h2h4", "b5b4", "c2c4", "b4c3", "a1a3"));
+    }
+}
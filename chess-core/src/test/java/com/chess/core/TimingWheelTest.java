@@ -0,0 +1,86 @@
+package com.chess.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testTimersOnEveryLevelFireOnTimeAndNeverEarly() throws InterruptedException {
+        ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+        // Four slots per level: 1 ms, 4 ms, 16 ms and 64 ms wide, 256 ms in total
+        try (TimingWheel wheel = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(1), 4, dispatcher, true)) {
+            long[] delays = { 0, 3, 10, 50, 130, 400 };
+            CountDownLatch done = new CountDownLatch(delays.length);
+            ConcurrentLinkedQueue<String> problems = new ConcurrentLinkedQueue<>();
+            for (long delay : delays) {
+                long start = System.nanoTime();
+                wheel.schedule(() -> {
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (elapsed < delay || elapsed > delay + 30) {
+                        problems.add(delay + " ms timer fired after " + elapsed + " ms");
+                    }
+                    done.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(problems.isEmpty(), problems.toString());
+            assertEquals(0, wheel.getPending());
+        }
+    }
+
+    @Test
+    void testCancelledTimersDoNotFire() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS)) {
+            AtomicInteger fired = new AtomicInteger();
+            CountDownLatch kept = new CountDownLatch(1);
+            TimingWheel.Timeout cancelled = wheel.schedule(fired::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+            wheel.schedule(kept::countDown, 40, TimeUnit.MILLISECONDS);
+
+            assertTrue(cancelled.cancel());
+            assertFalse(cancelled.cancel());
+            assertEquals(1, wheel.getPending());
+            assertTrue(kept.await(5, TimeUnit.SECONDS));
+            assertEquals(0, fired.get());
+        }
+    }
+
+    @Test
+    void testTenThousandClocksShareOneWheel() throws InterruptedException {
+        try (TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS)) {
+            int games = 10_000;
+            CountDownLatch flagged = new CountDownLatch(games);
+            Random random = new Random(7);
+            ChessClock[] clocks = new ChessClock[games];
+            for (int i = 0; i < games; i++) {
+                clocks[i] = new ChessClock(100 + random.nextInt(200), 0, ChessClock.IncrementMode.FISCHER);
+                clocks[i].setTimingWheel(wheel);
+                clocks[i].setOnTimeExpired(color -> flagged.countDown());
+                // Only Black is short of time, so no White clock flags before its move
+                clocks[i].setRemainingTimeMillis(PieceColor.WHITE, 60_000);
+            }
+            // Every game moves once; each switch is a reschedule on the wheel
+            for (ChessClock clock : clocks) {
+                clock.start(PieceColor.WHITE);
+                clock.switchTurn();
+            }
+            assertEquals(games, wheel.getPending());
+
+            assertTrue(flagged.await(10, TimeUnit.SECONDS));
+            for (ChessClock clock : clocks) {
+                assertTrue(clock.isExpired(PieceColor.BLACK));
+                assertFalse(clock.isExpired(PieceColor.WHITE));
+            }
+            assertEquals(0, wheel.getPending());
+        }
+    }
+}
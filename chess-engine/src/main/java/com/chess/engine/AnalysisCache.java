@@ -0,0 +1,177 @@
+package com.chess.engine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent store of search results, keyed by {@link com.chess.core.PositionHash}
+ * position key. The file is memory-mapped and only ever appended to: a header
+ * holding the record count, followed by fixed-size records. An in-memory index
+ * maps each key to its deepest record, so a lookup costs one hash probe and one
+ * read from the mapping.
+ *
+ * Record layout, big-endian, {@value #RECORD_SIZE} bytes: key (8), depth (2),
+ * flags (1), PV length (1), score (4), best move (2), PV moves (2 each). Moves
+ * are {@link com.chess.core.PackedMove} values.
+ */
+public class AnalysisCache implements Closeable {
+    static final long MAGIC = 0x4348455353414E41L; // "CHESSANA"
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 64;
+    static final int MAX_PV_LENGTH = (RECORD_SIZE - 18) / 2;
+    private static final int COUNT_OFFSET = 8;
+    private static final int FLAG_MATE = 1;
+    /** The file grows in steps of this many records. */
+    private static final int GROWTH_RECORDS = 16 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private int count;
+    private final Map<Long, Integer> index = new HashMap<>();
+
+    private AnalysisCache(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a cache file, creating it if it does not exist.
+     *
+     * @param file The cache file
+     * @return The opened cache
+     * @throws IOException If the file cannot be opened or is not a cache file
+     */
+    public static AnalysisCache open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            AnalysisCache cache = new AnalysisCache(channel);
+            cache.load();
+            return cache;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) GROWTH_RECORDS * RECORD_SIZE);
+            map.putLong(0, MAGIC);
+            map.putInt(COUNT_OFFSET, 0);
+            return;
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (size < HEADER_SIZE || map.getLong(0) != MAGIC) {
+            throw new IOException("Not an analysis cache file");
+        }
+        // Records past the stored count were not completely written
+        count = Math.min(map.getInt(COUNT_OFFSET), (int) ((size - HEADER_SIZE) / RECORD_SIZE));
+        for (int i = 0; i < count; i++) {
+            index(map.getLong(offset(i)), i);
+        }
+    }
+
+    private void index(long key, int record) {
+        Integer previous = index.get(key);
+        if (previous == null || depthAt(previous) <= depthAt(record)) {
+            index.put(key, record);
+        }
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key      The position key
+     * @param minDepth The depth the result must at least have
+     * @return The deepest stored analysis, or null if there is none deep enough
+     */
+    public synchronized CachedAnalysis lookup(long key, int minDepth) {
+        Integer record = index.get(key);
+        if (record == null || depthAt(record) < minDepth) {
+            return null;
+        }
+        int offset = offset(record);
+        int flags = map.get(offset + 10);
+        int pvLength = map.get(offset + 11);
+        int[] pv = new int[pvLength];
+        for (int i = 0; i < pvLength; i++) {
+            pv[i] = map.getShort(offset + 18 + 2 * i);
+        }
+        return new CachedAnalysis(depthAt(record), map.getInt(offset + 12), (flags & FLAG_MATE) != 0,
+                map.getShort(offset + 16), pv);
+    }
+
+    /**
+     * Stores an analysis unless a deeper one is already known.
+     *
+     * @param key      The position key
+     * @param analysis The analysis to store
+     * @throws IOException If the file cannot grow
+     */
+    public synchronized void store(long key, CachedAnalysis analysis) throws IOException {
+        Integer existing = index.get(key);
+        if (existing != null && depthAt(existing) >= analysis.getDepth()) {
+            return;
+        }
+        ensureCapacity(count + 1);
+
+        int offset = offset(count);
+        int[] pv = analysis.getPv();
+        int pvLength = Math.min(pv.length, MAX_PV_LENGTH);
+        map.putLong(offset, key);
+        map.putShort(offset + 8, (short) Math.min(analysis.getDepth(), Short.MAX_VALUE));
+        map.put(offset + 10, (byte) (analysis.isMateScore() ? FLAG_MATE : 0));
+        map.put(offset + 11, (byte) pvLength);
+        map.putInt(offset + 12, analysis.getScore());
+        map.putShort(offset + 16, (short) analysis.getBestMove());
+        for (int i = 0; i < pvLength; i++) {
+            map.putShort(offset + 18 + 2 * i, (short) pv[i]);
+        }
+        // Publish the record only after it is complete
+        map.putInt(COUNT_OFFSET, count + 1);
+        index.put(key, count);
+        count++;
+    }
+
+    /**
+     * Returns the number of positions with a stored analysis.
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private void ensureCapacity(int records) throws IOException {
+        long needed = HEADER_SIZE + (long) records * RECORD_SIZE;
+        if (needed <= map.capacity()) {
+            return;
+        }
+        map.force();
+        // Mapping beyond the end of the file extends it
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_SIZE + (long) (records + GROWTH_RECORDS) * RECORD_SIZE);
+    }
+
+    private int depthAt(int record) {
+        return map.getShort(offset(record) + 8);
+    }
+
+    private static int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    /**
+     * Writes outstanding changes to disk and closes the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,443 @@
+package com.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands positions to {@link AnalysisWorker}s on other machines over TCP, see
+ * {@link AnalysisProtocol}. Workers connect, advertise how many positions they
+ * analyse at once and pull jobs as their engines free up, so throughput grows
+ * with every worker that joins and no machine is handed more than it can take.
+ *
+ * Jobs of a worker that disconnects or falls silent are queued again, as are
+ * jobs it reports as failed or does not finish in time. A job is given up
+ * after {@link #MAX_ATTEMPTS} attempts. Jobs wait in memory until a worker
+ * takes them; no external queue is involved.
+ *
+ * Typical use, with {@code AnalysisWorker} started on each machine:
+ *
+ * <pre>
+ * try (AnalysisCoordinator coordinator = new AnalysisCoordinator(9090)) {
+ *     coordinator.start();
+ *     new BatchAnalyzer(coordinator, new SearchLimits().withDepth(16)).run(in, out, checkpoint);
+ * }
+ * </pre>
+ */
+public class AnalysisCoordinator implements PositionAnalyser, Closeable {
+    /** Attempts per job before it fails. */
+    static final int MAX_ATTEMPTS = 3;
+    /** Silence after which a worker is considered lost; workers ping more often. */
+    static final int WORKER_TIMEOUT_MILLIS = 10_000;
+
+    /** Queued after a worker's last line; its writer then closes the connection. */
+    private static final String END_OF_LINES = new String("end of lines");
+
+    private final int requestedPort;
+    private ServerSocket server;
+    private ScheduledExecutorService timer;
+    private long jobTimeoutMillis = 300_000;
+
+    private final Deque<Job> queue = new ArrayDeque<>();
+    private final List<WorkerConnection> workers = new ArrayList<>();
+    private long nextJobId = 1;
+    private int nextWorkerId = 1;
+    private boolean closed;
+
+    private static class Job {
+        final long id;
+        final String position;
+        final long positionKey;
+        final SearchLimits limits;
+        final CompletableFuture<CachedAnalysis> result = new CompletableFuture<>();
+        int attempts;
+        WorkerConnection worker;
+        ScheduledFuture<?> timeout;
+
+        Job(long id, String position, long positionKey, SearchLimits limits) {
+            this.id = id;
+            this.position = position;
+            this.positionKey = positionKey;
+            this.limits = limits;
+        }
+    }
+
+    /**
+     * @param port The TCP port to listen on, or 0 for any free port
+     */
+    public AnalysisCoordinator(int port) {
+        this.requestedPort = port;
+    }
+
+    /**
+     * Sets how long a worker may take for one job before it is handed to
+     * another worker.
+     */
+    public void setJobTimeoutMillis(long millis) {
+        this.jobTimeoutMillis = millis;
+    }
+
+    /**
+     * Starts accepting workers.
+     *
+     * @throws IOException If the port cannot be opened
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = new ServerSocket(requestedPort);
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "coordinator-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        Thread acceptor = new Thread(this::acceptWorkers, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port workers connect to.
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getLocalPort() : requestedPort;
+    }
+
+    public synchronized int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * Returns the combined capacity of all connected workers.
+     */
+    @Override
+    public synchronized int getCapacity() {
+        int capacity = 0;
+        for (WorkerConnection worker : workers) {
+            capacity += worker.capacity;
+        }
+        return capacity;
+    }
+
+    /**
+     * Queues a position for the next worker with free capacity.
+     */
+    @Override
+    public CompletableFuture<CachedAnalysis> analyse(String position, long positionKey, SearchLimits limits) {
+        synchronized (this) {
+            if (closed) {
+                CompletableFuture<CachedAnalysis> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IllegalStateException("Coordinator is closed"));
+                return failed;
+            }
+            Job job = new Job(nextJobId++, position, positionKey, limits);
+            queue.addLast(job);
+            dispatch();
+            return job.result;
+        }
+    }
+
+    /**
+     * Disconnects all workers. Queued and running jobs fail.
+     */
+    @Override
+    public void close() {
+        List<WorkerConnection> connected;
+        List<Job> pending = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connected = new ArrayList<>(workers);
+            workers.clear();
+            pending.addAll(queue);
+            queue.clear();
+            for (WorkerConnection worker : connected) {
+                pending.addAll(worker.jobs.values());
+                worker.jobs.clear();
+            }
+            if (timer != null) {
+                timer.shutdownNow();
+            }
+        }
+        closeQuietly(server);
+        for (WorkerConnection worker : connected) {
+            worker.send(AnalysisProtocol.BYE);
+            worker.finish();
+        }
+        for (Job job : pending) {
+            job.result.completeExceptionally(new IllegalStateException("Coordinator is closed"));
+        }
+    }
+
+    private void acceptWorkers() {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                // Closed
+                return;
+            }
+            try {
+                socket.setSoTimeout(WORKER_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                WorkerConnection worker;
+                synchronized (this) {
+                    if (closed) {
+                        socket.close();
+                        return;
+                    }
+                    worker = new WorkerConnection(socket, "worker-" + nextWorkerId++);
+                }
+                Thread reader = new Thread(worker::read, "coordinator-" + worker.name);
+                reader.setDaemon(true);
+                reader.start();
+                Thread writer = new Thread(worker::write, "coordinator-" + worker.name + "-writer");
+                writer.setDaemon(true);
+                writer.start();
+            } catch (IOException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * Sends queued jobs to workers with credit, one job per worker in turn so
+     * work spreads evenly. Must hold the lock.
+     */
+    private void dispatch() {
+        boolean sent = true;
+        while (sent && !queue.isEmpty()) {
+            sent = false;
+            for (WorkerConnection worker : workers) {
+                if (worker.credit <= 0) {
+                    continue;
+                }
+                Job job = queue.pollFirst();
+                while (job != null && job.result.isDone()) {
+                    // Cancelled by the caller while waiting
+                    job = queue.pollFirst();
+                }
+                if (job == null) {
+                    return;
+                }
+                assign(job, worker);
+                sent = true;
+            }
+        }
+    }
+
+    private void assign(Job job, WorkerConnection worker) {
+        worker.credit--;
+        worker.jobs.put(job.id, job);
+        job.worker = worker;
+        job.timeout = timer.schedule(() -> timedOut(job, worker), jobTimeoutMillis, TimeUnit.MILLISECONDS);
+        worker.send(AnalysisProtocol.job(job.id, job.positionKey, job.limits, job.position));
+    }
+
+    private synchronized void timedOut(Job job, WorkerConnection worker) {
+        if (worker.jobs.remove(job.id) == job) {
+            // A late result from this worker is ignored
+            retry(job, worker.name + " took longer than " + jobTimeoutMillis + " ms");
+        }
+    }
+
+    /**
+     * Queues a job again at the front, or fails it after too many attempts.
+     * Must hold the lock.
+     */
+    private void retry(Job job, String reason) {
+        if (job.timeout != null) {
+            job.timeout.cancel(false);
+        }
+        job.worker = null;
+        job.attempts++;
+        if (job.attempts >= MAX_ATTEMPTS) {
+            job.result.completeExceptionally(
+                    new IOException("Giving up on " + job.position + " after " + job.attempts + " attempts: " + reason));
+            return;
+        }
+        queue.addFirst(job);
+        dispatch();
+    }
+
+    private synchronized void completed(WorkerConnection worker, long id, CachedAnalysis analysis) {
+        Job job = worker.jobs.remove(id);
+        if (job == null) {
+            return;
+        }
+        job.timeout.cancel(false);
+        job.result.complete(analysis);
+    }
+
+    private synchronized void failed(WorkerConnection worker, long id, String reason) {
+        Job job = worker.jobs.remove(id);
+        if (job != null) {
+            retry(job, worker.name + ": " + reason);
+        }
+    }
+
+    private synchronized void lost(WorkerConnection worker, String reason) {
+        if (!workers.remove(worker)) {
+            return;
+        }
+        System.err.println("Lost " + worker.name + ": " + reason);
+        List<Job> orphans = new ArrayList<>(worker.jobs.values());
+        worker.jobs.clear();
+        for (Job job : orphans) {
+            retry(job, "lost " + worker.name);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * One connected worker. Its fields are guarded by the coordinator's lock.
+     * Lines to the worker are only queued under the lock and written by the
+     * worker's own thread, so a worker that stops reading holds up no one else.
+     */
+    private class WorkerConnection {
+        final Socket socket;
+        final String name;
+        final Writer out;
+        final BlockingQueue<String> outbox = new LinkedBlockingQueue<>();
+        final Map<Long, Job> jobs = new HashMap<>();
+        int capacity;
+        int credit;
+
+        WorkerConnection(Socket socket, String name) throws IOException {
+            this.socket = socket;
+            this.name = name;
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        void send(String line) {
+            outbox.add(line);
+        }
+
+        /**
+         * Closes the connection once the lines queued so far are written.
+         */
+        void finish() {
+            outbox.add(END_OF_LINES);
+        }
+
+        void write() {
+            try {
+                String line;
+                while ((line = outbox.take()) != END_OF_LINES) {
+                    out.write(line);
+                    out.write('\n');
+                    if (outbox.isEmpty()) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            } catch (IOException | InterruptedException e) {
+                // The reader notices the broken connection and requeues the jobs
+            } finally {
+                closeQuietly(socket);
+            }
+        }
+
+        void read() {
+            String reason = "disconnected";
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    handle(line);
+                }
+            } catch (SocketException e) {
+                reason = e.getMessage();
+            } catch (IOException | RuntimeException e) {
+                reason = e.toString();
+            } finally {
+                closeQuietly(socket);
+                finish();
+                lost(this, reason);
+            }
+        }
+
+        private void handle(String line) {
+            String[] tokens = line.trim().split("\\s+");
+            switch (tokens[0]) {
+                case AnalysisProtocol.HELLO:
+                    synchronized (AnalysisCoordinator.this) {
+                        capacity = Integer.parseInt(tokens[1]);
+                        if (!closed) {
+                            workers.add(this);
+                        }
+                    }
+                    break;
+                case AnalysisProtocol.PULL:
+                    synchronized (AnalysisCoordinator.this) {
+                        credit += Integer.parseInt(tokens[1]);
+                        dispatch();
+                    }
+                    break;
+                case AnalysisProtocol.RESULT:
+                    completed(this, Long.parseLong(tokens[1]), AnalysisProtocol.parseResult(tokens));
+                    break;
+                case AnalysisProtocol.ERROR:
+                    String[] parts = line.trim().split("\\s+", 3);
+                    failed(this, Long.parseLong(tokens[1]), parts.length > 2 ? parts[2] : "failed");
+                    break;
+                default:
+                    // ping, or a message from a newer worker
+                    break;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: AnalysisCoordinator <port> <games.pgn> <output.pgn> [depth]");
+            System.exit(2);
+        }
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(Integer.parseInt(args[0]))) {
+            coordinator.start();
+            System.out.println("Waiting for workers on port " + coordinator.getPort());
+            while (coordinator.getWorkerCount() == 0) {
+                Thread.sleep(100);
+            }
+            BatchAnalyzer analyzer = new BatchAnalyzer(coordinator, new SearchLimits().withDepth(depth));
+            analyzer.run(new File(args[1]), new File(args[2]), new File(args[2] + ".checkpoint"));
+        }
+    }
+}
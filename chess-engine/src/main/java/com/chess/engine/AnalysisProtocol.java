@@ -0,0 +1,90 @@
+package com.chess.engine;
+
+import com.chess.core.PackedMove;
+
+/**
+ * The line-based protocol between an {@link AnalysisCoordinator} and its
+ * {@link AnalysisWorker}s, in the spirit of UCI. One line per message.
+ *
+ * Worker to coordinator:
+ * <pre>
+ * hello &lt;capacity&gt;                 first message: positions analysed at once
+ * pull &lt;n&gt;                         ready for n more jobs
+ * result &lt;id&gt; &lt;depth&gt; cp|mate &lt;score&gt; &lt;bestmove&gt; [pv moves...]
+ * error &lt;id&gt; &lt;message&gt;             the job failed on this worker
+ * ping                             sent regularly, so silence means loss
+ * </pre>
+ *
+ * Coordinator to worker:
+ * <pre>
+ * job &lt;id&gt; &lt;key&gt; go ... position ...   one position to analyse
+ * bye                              the coordinator is shutting down
+ * </pre>
+ *
+ * Jobs are only sent against pulled credit, so a worker never holds more
+ * than it asked for. Keys are hexadecimal {@link com.chess.core.PositionHash}
+ * values; moves are in UCI notation.
+ */
+final class AnalysisProtocol {
+    static final String HELLO = "hello";
+    static final String PULL = "pull";
+    static final String RESULT = "result";
+    static final String ERROR = "error";
+    static final String PING = "ping";
+    static final String JOB = "job";
+    static final String BYE = "bye";
+
+    private static final String POSITION = "position ";
+
+    private AnalysisProtocol() {
+        // Utility class
+    }
+
+    static String job(long id, long positionKey, SearchLimits limits, String position) {
+        // The position command keeps its own "position" keyword
+        return JOB + " " + id + " " + Long.toHexString(positionKey) + " " + limits.toGoCommand() + " " + position;
+    }
+
+    /**
+     * Splits a job line into id, key, go command and position command.
+     *
+     * @throws IllegalArgumentException If the line is malformed
+     */
+    static String[] parseJob(String line) {
+        String[] head = line.split(" ", 4);
+        int position = head.length == 4 ? head[3].indexOf(POSITION) : -1;
+        if (head.length < 4 || !head[0].equals(JOB) || position < 0) {
+            throw new IllegalArgumentException("Bad job: " + line);
+        }
+        return new String[] { head[1], head[2], head[3].substring(0, position).trim(),
+                head[3].substring(position) };
+    }
+
+    static String result(long id, CachedAnalysis analysis) {
+        StringBuilder sb = new StringBuilder(RESULT).append(' ').append(id)
+                .append(' ').append(analysis.getDepth())
+                .append(analysis.isMateScore() ? " mate " : " cp ").append(analysis.getScore())
+                .append(' ').append(PackedMove.toUci(analysis.getBestMove()));
+        for (int move : analysis.getPv()) {
+            sb.append(' ').append(PackedMove.toUci(move));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses the analysis of a result line.
+     *
+     * @throws IllegalArgumentException If the line is malformed
+     */
+    static CachedAnalysis parseResult(String[] tokens) {
+        if (tokens.length < 6 || !(tokens[3].equals("cp") || tokens[3].equals("mate"))) {
+            throw new IllegalArgumentException("Bad result: " + String.join(" ", tokens));
+        }
+        int[] pv = new int[tokens.length - 6];
+        for (int i = 0; i < pv.length; i++) {
+            pv[i] = PackedMove.fromUci(tokens[6 + i]);
+        }
+        return new CachedAnalysis(Integer.parseInt(tokens[2]), Integer.parseInt(tokens[4]), tokens[3].equals("mate"),
+                PackedMove.fromUci(tokens[5]), pv);
+    }
+}
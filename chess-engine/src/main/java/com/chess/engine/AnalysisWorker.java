@@ -0,0 +1,169 @@
+package com.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyses positions for a remote {@link AnalysisCoordinator} with local
+ * engines. The worker asks for twice as many jobs as it has engines, so the
+ * next position is already on hand when a search finishes, and streams each
+ * result back as soon as it is ready. See {@link AnalysisProtocol}.
+ */
+public class AnalysisWorker implements Closeable {
+    /** How often the worker proves it is alive; well below the coordinator's timeout. */
+    static final long PING_INTERVAL_MILLIS = 2_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+
+    private final String host;
+    private final int port;
+    private final PositionAnalyser engines;
+    private volatile Socket socket;
+    private Writer out;
+    private volatile boolean closed;
+
+    /**
+     * @param host    The coordinator's host
+     * @param port    The coordinator's port
+     * @param engines The local engines; must be started
+     */
+    public AnalysisWorker(String host, int port, PositionAnalyser engines) {
+        this.host = host;
+        this.port = port;
+        this.engines = engines;
+    }
+
+    /**
+     * Connects to the coordinator and works until it says goodbye or the
+     * connection breaks.
+     *
+     * @throws IOException If the connection cannot be made or breaks
+     */
+    public void run() throws IOException {
+        Socket connected = new Socket(host, port);
+        connected.setTcpNoDelay(true);
+        socket = connected;
+        if (closed) {
+            connected.close();
+            return;
+        }
+        out = new BufferedWriter(new OutputStreamWriter(connected.getOutputStream(), StandardCharsets.UTF_8));
+        ScheduledExecutorService pinger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "worker-ping");
+            t.setDaemon(true);
+            return t;
+        });
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(connected.getInputStream(), StandardCharsets.UTF_8))) {
+            int capacity = Math.max(1, engines.getCapacity() * 2);
+            send(AnalysisProtocol.HELLO + " " + capacity);
+            send(AnalysisProtocol.PULL + " " + capacity);
+            pinger.scheduleWithFixedDelay(() -> send(AnalysisProtocol.PING), PING_INTERVAL_MILLIS,
+                    PING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(AnalysisProtocol.JOB + " ")) {
+                    startJob(line);
+                } else if (line.equals(AnalysisProtocol.BYE)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                throw e;
+            }
+        } finally {
+            pinger.shutdownNow();
+            connected.close();
+        }
+    }
+
+    private void startJob(String line) {
+        String[] job;
+        long id;
+        try {
+            job = AnalysisProtocol.parseJob(line);
+            id = Long.parseLong(job[0]);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        try {
+            long key = Long.parseUnsignedLong(job[1], 16);
+            engines.analyse(job[3], key, SearchLimits.fromGoCommand(job[2]))
+                    .whenComplete((analysis, error) -> finish(id, analysis, error));
+        } catch (IllegalArgumentException e) {
+            finish(id, null, e);
+        }
+    }
+
+    private void finish(long id, CachedAnalysis analysis, Throwable error) {
+        if (error != null) {
+            String message = String.valueOf(error.getMessage()).replace('\n', ' ');
+            send(AnalysisProtocol.ERROR + " " + id + " " + message);
+        } else {
+            send(AnalysisProtocol.result(id, analysis));
+        }
+        send(AnalysisProtocol.PULL + " 1");
+    }
+
+    private void send(String line) {
+        try {
+            synchronized (this) {
+                out.write(line);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The read loop ends with the same failure
+            close();
+        }
+    }
+
+    /**
+     * Disconnects from the coordinator; {@link #run()} returns.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: AnalysisWorker <host> <port> <engine.jar> [engines]");
+            System.exit(2);
+        }
+        int size = args.length > 3 ? Integer.parseInt(args[3])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        try (EnginePool pool = new EnginePool(args[2], size)) {
+            pool.start();
+            while (true) {
+                try {
+                    new AnalysisWorker(args[0], Integer.parseInt(args[1]), pool).run();
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Connection to coordinator failed: " + e.getMessage() + "; retrying");
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.chess.engine;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.chess.core.AlgebraicNotationParser;
+import com.chess.core.Game;
+import com.chess.core.GameState;
+import com.chess.core.Move;
+import com.chess.core.PGNGame;
+import com.chess.core.PGNReader;
+import com.chess.core.PGNService;
+import com.chess.core.PieceColor;
+import com.chess.core.PositionHash;
+
+/**
+ * Headless analysis of every position of every game in a PGN file.
+ * Games are read one at a time and their positions submitted to a
+ * {@link PositionAnalyser}, such as a local {@link EnginePool} or remote
+ * workers behind an {@link AnalysisCoordinator}, so all engines stay busy. At most
+ * {@link #setMaxGamesInFlight(int)} games are in progress; reading blocks until
+ * the oldest one is finished. Games are written in input order as annotated
+ * PGN with {@code [%eval]} comments, and moves that lose a lot are marked "?"
+ * or "??".
+ *
+ * After every written game a checkpoint records how many games and output
+ * bytes are complete. A run with an existing checkpoint resumes from there. If
+ * a position still fails after retries, the run stops before writing its game,
+ * so resuming analyses that game again.
+ */
+public class BatchAnalyzer {
+    /** Loss in centipawns, from the mover's point of view, marked "??". */
+    static final int BLUNDER_CP = 200;
+    /** Loss in centipawns, from the mover's point of view, marked "?". */
+    static final int MISTAKE_CP = 100;
+    private static final int MATE_CP = 10_000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final PositionAnalyser analyser;
+    private final SearchLimits limits;
+    private int maxGamesInFlight;
+    private long reportIntervalMillis = 5_000;
+    private Consumer<String> log = System.out::println;
+
+    private final AtomicLong positionsDone = new AtomicLong();
+
+    /**
+     * Summary of a finished run.
+     */
+    public static class Summary {
+        private final int games;
+        private final long positions;
+        private final long elapsedMillis;
+
+        Summary(int games, long positions, long elapsedMillis) {
+            this.games = games;
+            this.positions = positions;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** Games written in this run, excluding games done before a resume. */
+        public int getGames() {
+            return games;
+        }
+
+        public long getPositions() {
+            return positions;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getPositionsPerSecond() {
+            return elapsedMillis > 0 ? positions * 1000.0 / elapsedMillis : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d games, %d positions in %.1f s (%.1f positions/s)", games,
+                    positions, elapsedMillis / 1000.0, getPositionsPerSecond());
+        }
+    }
+
+    /**
+     * One game being analysed: the evaluation of the start position and of the
+     * position after each playable move.
+     */
+    private static class GameJob {
+        final PGNGame game;
+        final List<CompletableFuture<CachedAnalysis>> evaluations = new ArrayList<>();
+        // Side to move in each evaluated position, to turn scores into White's view
+        final List<PieceColor> sidesToMove = new ArrayList<>();
+
+        GameJob(PGNGame game) {
+            this.game = game;
+        }
+    }
+
+    /**
+     * @param analyser The engines to analyse with; must be started
+     * @param limits   The limits for each position, usually a fixed depth
+     */
+    public BatchAnalyzer(PositionAnalyser analyser, SearchLimits limits) {
+        this.analyser = analyser;
+        this.limits = limits;
+    }
+
+    /**
+     * Sets how many games may be analysed at the same time. More games keep
+     * engines busy across game boundaries at the cost of memory. Defaults to
+     * twice the analyser's capacity when the run starts.
+     */
+    public void setMaxGamesInFlight(int games) {
+        this.maxGamesInFlight = Math.max(1, games);
+    }
+
+    /**
+     * Sets how often throughput is reported, or 0 to report only at the end.
+     */
+    public void setReportIntervalMillis(long millis) {
+        this.reportIntervalMillis = millis;
+    }
+
+    /**
+     * Sets the destination of progress messages.
+     */
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * Analyses all games of a PGN file.
+     *
+     * @param input      The games to analyse
+     * @param output     The annotated games; appended to when resuming
+     * @param checkpoint The checkpoint file; deleted once the run completes
+     * @return A summary of this run
+     * @throws IOException          If reading, writing or the checkpoint fails,
+     *                              or a position could not be analysed
+     * @throws InterruptedException If interrupted while waiting for results
+     */
+    public Summary run(File input, File output, File checkpoint) throws IOException, InterruptedException {
+        Properties state = loadCheckpoint(checkpoint);
+        int skip = Integer.parseInt(state.getProperty("games", "0"));
+        long outputBytes = Long.parseLong(state.getProperty("outputBytes", "0"));
+        if (skip > 0) {
+            log.accept("Resuming after " + skip + " games");
+        }
+
+        Summary summary;
+        try (PGNReader reader = new PGNReader(
+                new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8));
+                FileOutputStream out = new FileOutputStream(output, skip > 0)) {
+            FileChannel channel = out.getChannel();
+            // Drop anything written after the last checkpoint
+            channel.truncate(skip > 0 ? outputBytes : 0);
+            channel.position(channel.size());
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+
+            for (int i = 0; i < skip && reader.next() != null; i++) {
+                // Already analysed
+            }
+            summary = pipeline(reader, writer, written -> saveCheckpoint(checkpoint, skip + written, channel.size()));
+        }
+
+        Files.deleteIfExists(checkpoint.toPath());
+        return summary;
+    }
+
+    /**
+     * Analyses all games read from a stream, without checkpoints, e.g. from
+     * standard input to standard output.
+     *
+     * @param input  The games to analyse
+     * @param output The annotated games; flushed after every game
+     * @return A summary of this run
+     * @throws IOException          If reading or writing fails, or a position
+     *                              could not be analysed
+     * @throws InterruptedException If interrupted while waiting for results
+     */
+    public Summary run(Reader input, Writer output) throws IOException, InterruptedException {
+        PGNReader reader = new PGNReader(input);
+        return pipeline(reader, output, written -> {
+            // Nothing to record
+        });
+    }
+
+    /**
+     * Called by the writer thread after each game is flushed.
+     */
+    private interface WriteListener {
+        void written(int games) throws IOException;
+    }
+
+    private Summary pipeline(PGNReader reader, Writer writer, WriteListener listener)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        positionsDone.set(0);
+        ScheduledExecutorService reporter = startReporter(start);
+        int gamesInFlight = maxGamesInFlight > 0 ? maxGamesInFlight : Math.max(2, analyser.getCapacity() * 2);
+        BlockingQueue<GameJob> inFlight = new ArrayBlockingQueue<>(gamesInFlight);
+        GameJob end = new GameJob(null);
+        int[] written = new int[1];
+        IOException[] writeFailure = new IOException[1];
+
+        try {
+            Thread writerThread = new Thread(() -> {
+                try {
+                    GameJob job;
+                    while ((job = inFlight.take()) != end) {
+                        writeGame(writer, job);
+                        writer.flush();
+                        written[0]++;
+                        listener.written(written[0]);
+                    }
+                } catch (IOException e) {
+                    writeFailure[0] = e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "batch-writer");
+            writerThread.start();
+
+            try {
+                PGNGame game;
+                while ((game = reader.next()) != null && hand(inFlight, submit(game), writerThread)) {
+                    // Reading waits while maxGamesInFlight games are unwritten
+                }
+                hand(inFlight, end, writerThread);
+                writerThread.join();
+            } finally {
+                writerThread.interrupt();
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+        if (writeFailure[0] != null) {
+            throw writeFailure[0];
+        }
+
+        Summary summary = new Summary(written[0], positionsDone.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.accept("Done: " + summary);
+        return summary;
+    }
+
+    /**
+     * Passes a job to the writer, waiting for room in the queue.
+     *
+     * @return false if the writer has stopped, e.g. after a write error
+     */
+    private static boolean hand(BlockingQueue<GameJob> queue, GameJob job, Thread writer)
+            throws InterruptedException {
+        while (!queue.offer(job, 100, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private GameJob submit(PGNGame pgn) {
+        GameJob job = new GameJob(pgn);
+        Game game = new Game();
+        String fen = pgn.getTag("FEN");
+        if (fen != null) {
+            try {
+                game.loadFromFen(fen);
+            } catch (IllegalArgumentException e) {
+                log.accept("Not analysing game with bad FEN: " + e.getMessage());
+                job.sidesToMove.add(game.getCurrentTurn());
+                job.evaluations.add(CompletableFuture.completedFuture(null));
+                return job;
+            }
+        }
+        queuePosition(job, game);
+        for (String san : pgn.getMoves()) {
+            Move move = AlgebraicNotationParser.parseMove(san, game);
+            if (move == null || !game.makeMove(move)) {
+                log.accept("Stopping analysis of game at unplayable move " + san);
+                break;
+            }
+            queuePosition(job, game);
+        }
+        return job;
+    }
+
+    private void queuePosition(GameJob job, Game game) {
+        job.sidesToMove.add(game.getCurrentTurn());
+        if (game.getGameState() != GameState.IN_PROGRESS) {
+            // Nothing to search after mate or stalemate
+            job.evaluations.add(CompletableFuture.completedFuture(null));
+            return;
+        }
+        job.evaluations.add(analyse(game.getUciPosition(), PositionHash.of(game), 1));
+    }
+
+    private CompletableFuture<CachedAnalysis> analyse(String position, long key, int attempt) {
+        return analyser.analyse(position, key, limits)
+                .handle((analysis, error) -> {
+                    if (error == null) {
+                        positionsDone.incrementAndGet();
+                        return CompletableFuture.completedFuture(analysis);
+                    }
+                    if (attempt < MAX_ATTEMPTS) {
+                        // The engine may have crashed and been replaced since
+                        return analyse(position, key, attempt + 1);
+                    }
+                    return CompletableFuture.<CachedAnalysis>failedFuture(new IOException(
+                            "Analysis failed " + MAX_ATTEMPTS + " times for " + position, error));
+                })
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * Writes an analysed game, waiting for its evaluations.
+     *
+     * @throws IOException If writing fails, or a position could not be analysed;
+     *                     the game is then not written, so a resumed run retries it
+     */
+    private void writeGame(Writer writer, GameJob job) throws IOException {
+        try {
+            CompletableFuture.allOf(job.evaluations.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        List<String> moves = new ArrayList<>(job.game.getMoves());
+        List<String> comments = new ArrayList<>();
+        Integer previous = whiteCentipawns(job, 0);
+        for (int ply = 1; ply < job.evaluations.size(); ply++) {
+            CachedAnalysis analysis = job.evaluations.get(ply).join();
+            Integer current = whiteCentipawns(job, ply);
+            comments.add(analysis != null ? "[%eval " + formatEval(analysis, job.sidesToMove.get(ply)) + "]" : null);
+
+            if (previous != null && current != null) {
+                // The mover is the side not to move after the move
+                int loss = job.sidesToMove.get(ply) == PieceColor.BLACK ? previous - current : current - previous;
+                if (loss >= BLUNDER_CP) {
+                    moves.set(ply - 1, moves.get(ply - 1) + "??");
+                } else if (loss >= MISTAKE_CP) {
+                    moves.set(ply - 1, moves.get(ply - 1) + "?");
+                }
+            }
+            previous = current;
+        }
+        PGNService.writeGame(writer, job.game.getTags(), moves, comments, job.game.getResult());
+    }
+
+    /**
+     * Returns the evaluation after the given ply in centipawns from White's
+     * point of view, with mates mapped to large values, or null if unknown.
+     */
+    private static Integer whiteCentipawns(GameJob job, int ply) {
+        CachedAnalysis analysis = job.evaluations.get(ply).join();
+        if (analysis == null) {
+            return null;
+        }
+        int score = analysis.isMateScore()
+                ? Integer.signum(analysis.getScore()) * (MATE_CP - Math.abs(analysis.getScore()))
+                : analysis.getScore();
+        return job.sidesToMove.get(ply) == PieceColor.WHITE ? score : -score;
+    }
+
+    /**
+     * Formats a score as used by {@code [%eval]}: pawns from White's point of
+     * view, or "#n" for a mate in n moves.
+     */
+    static String formatEval(CachedAnalysis analysis, PieceColor sideToMove) {
+        int sign = sideToMove == PieceColor.WHITE ? 1 : -1;
+        if (analysis.isMateScore()) {
+            return "#" + sign * analysis.getScore();
+        }
+        return String.format(Locale.ROOT, "%.2f", sign * analysis.getScore() / 100.0);
+    }
+
+    private ScheduledExecutorService startReporter(long startNanos) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        if (reportIntervalMillis > 0) {
+            reporter.scheduleAtFixedRate(() -> {
+                long positions = positionsDone.get();
+                double seconds = (System.nanoTime() - startNanos) / 1e9;
+                log.accept(String.format(Locale.ROOT, "%d positions, %.1f positions/s", positions,
+                        positions / seconds));
+            }, reportIntervalMillis, reportIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return reporter;
+    }
+
+    private static Properties loadCheckpoint(File checkpoint) throws IOException {
+        Properties state = new Properties();
+        if (checkpoint.isFile()) {
+            try (FileInputStream in = new FileInputStream(checkpoint)) {
+                state.load(in);
+            }
+        }
+        return state;
+    }
+
+    private static void saveCheckpoint(File checkpoint, int games, long outputBytes) throws IOException {
+        Properties state = new Properties();
+        state.setProperty("games", String.valueOf(games));
+        state.setProperty("outputBytes", String.valueOf(outputBytes));
+        Path temp = new File(checkpoint.getPath() + ".tmp").toPath();
+        try (FileOutputStream out = new FileOutputStream(temp.toFile())) {
+            state.store(out, "Batch analysis progress");
+        }
+        Files.move(temp, checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Usage: {@code BatchAnalyzer <engine.jar> <games.pgn> <output.pgn> [engines] [depth]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: BatchAnalyzer <engine.jar> <games.pgn> <output.pgn> [engines] [depth]");
+            System.exit(2);
+        }
+        int engines = args.length > 3 ? Integer.parseInt(args[3])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int depth = args.length > 4 ? Integer.parseInt(args[4]) : 12;
+
+        try (EnginePool pool = new EnginePool(args[0], engines)) {
+            pool.start();
+            BatchAnalyzer analyzer = new BatchAnalyzer(pool, new SearchLimits().withDepth(depth));
+            File output = new File(args[2]);
+            analyzer.run(new File(args[1]), output, new File(args[2] + ".checkpoint"));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.chess.engine;
+
+/**
+ * The result of an engine search: the move to play and, if the engine sent
+ * one, the reply it expects (used for pondering).
+ */
+public class BestMove {
+    private final String move;
+    private final String ponderMove;
+
+    public BestMove(String move, String ponderMove) {
+        this.move = move;
+        this.ponderMove = ponderMove;
+    }
+
+    /**
+     * Parses a UCI {@code bestmove} line.
+     *
+     * @param line The line, e.g. "bestmove e2e4 ponder e7e5"
+     * @return The parsed result, or null if the line carries no move
+     */
+    public static BestMove parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length < 2 || !"bestmove".equals(parts[0])) {
+            return null;
+        }
+        String ponder = parts.length >= 4 && "ponder".equals(parts[2]) ? parts[3] : null;
+        return new BestMove(parts[1], ponder);
+    }
+
+    public String getMove() {
+        return move;
+    }
+
+    public String getPonderMove() {
+        return ponderMove;
+    }
+
+    @Override
+    public String toString() {
+        return ponderMove != null ? move + " (ponder " + ponderMove + ")" : move;
+    }
+}
@@ -0,0 +1,84 @@
+package com.chess.engine;
+
+import com.chess.core.PackedMove;
+
+/**
+ * A stored search result: the deepest completed search of one position, with
+ * its score, best move and principal variation.
+ */
+public class CachedAnalysis {
+    private final int depth;
+    private final int score;
+    private final boolean mateScore;
+    private final int bestMove;
+    private final int[] pv;
+
+    /**
+     * @param depth     The search depth reached
+     * @param score     Centipawns, or moves to mate if {@code mateScore}
+     * @param mateScore Whether the score is a mate distance
+     * @param bestMove  The best move as a {@link PackedMove}
+     * @param pv        The principal variation as packed moves
+     */
+    public CachedAnalysis(int depth, int score, boolean mateScore, int bestMove, int[] pv) {
+        this.depth = depth;
+        this.score = score;
+        this.mateScore = mateScore;
+        this.bestMove = bestMove;
+        this.pv = pv;
+    }
+
+    /**
+     * Combines the last info of a search with its result.
+     *
+     * @param info     The last info line with a score
+     * @param bestMove The engine's answer
+     * @return The analysis, or null if either part is unusable
+     */
+    public static CachedAnalysis of(EngineInfo info, BestMove bestMove) {
+        int move = PackedMove.fromUci(bestMove.getMove());
+        if (info == null || !info.hasScore() || info.getDepth() <= 0 || move == PackedMove.NONE) {
+            return null;
+        }
+        return new CachedAnalysis(info.getDepth(), info.getScore(), info.isMateScore(), move, info.getPv());
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isMateScore() {
+        return mateScore;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns the principal variation as packed moves. The array must not be
+     * modified.
+     */
+    public int[] getPv() {
+        return pv;
+    }
+
+    /**
+     * Returns the result as if the engine had just answered, with the second
+     * move of the principal variation as ponder move if it follows the best move.
+     */
+    public BestMove toBestMove() {
+        String ponder = pv.length > 1 && pv[0] == bestMove ? PackedMove.toUci(pv[1]) : null;
+        return new BestMove(PackedMove.toUci(bestMove), ponder);
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + (mateScore ? " mate " : " cp ") + score + " bestmove "
+                + PackedMove.toUci(bestMove);
+    }
+}
@@ -0,0 +1,78 @@
+package com.chess.engine;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How to start one engine: its path, whether to load it in-process and the UCI
+ * options to set. Used to start several identical engines, e.g. one per
+ * concurrent game of a {@link MatchRunner}.
+ */
+public class EngineConfig {
+    private final String name;
+    private final String path;
+    private boolean inProcess;
+    private final Map<String, String> options = new LinkedHashMap<>();
+
+    /**
+     * @param name Display name, e.g. for PGN tags
+     * @param path Path to the engine jar or a native UCI executable
+     */
+    public EngineConfig(String name, String path) {
+        this.name = name;
+        this.path = path;
+    }
+
+    public EngineConfig withOption(String option, String value) {
+        options.put(option, value);
+        return this;
+    }
+
+    /**
+     * See {@link EngineService#setPreferInProcess(boolean)}.
+     */
+    public EngineConfig withInProcess(boolean inProcess) {
+        this.inProcess = inProcess;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isInProcess() {
+        return inProcess;
+    }
+
+    public Map<String, String> getOptions() {
+        return Collections.unmodifiableMap(options);
+    }
+
+    /**
+     * Starts a new engine with this configuration. Its console echo is off.
+     *
+     * @return The started engine; the handshake may still be in progress
+     * @throws IOException If the engine cannot be started
+     */
+    public EngineService start() throws IOException {
+        EngineService engine = new EngineService();
+        engine.setEcho(false);
+        engine.setPreferInProcess(inProcess);
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            engine.setOption(option.getKey(), option.getValue());
+        }
+        engine.startEngine(path);
+        return engine;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,216 @@
+package com.chess.engine;
+
+import java.util.Arrays;
+
+import com.chess.core.PackedMove;
+
+/**
+ * A parsed UCI {@code info} line. Fields the engine did not send are reported
+ * as -1 (or an empty principal variation). The principal variation is kept as
+ * {@link PackedMove} values.
+ */
+public class EngineInfo {
+    private static final int[] NO_MOVES = new int[0];
+
+    private int depth = -1;
+    private int selDepth = -1;
+    private int multiPv = 1;
+    private long nodes = -1;
+    private long nps = -1;
+    private int hashFull = -1;
+    private long timeMillis = -1;
+    private boolean hasScore;
+    private boolean mateScore;
+    private int score;
+    private int[] pv = NO_MOVES;
+
+    private EngineInfo() {
+    }
+
+    /**
+     * Parses an info line in a single pass, without splitting it into strings.
+     *
+     * @param line The line as sent by the engine, starting with "info"
+     * @return The parsed info
+     */
+    public static EngineInfo parse(CharSequence line) {
+        EngineInfo info = new EngineInfo();
+        int length = line.length();
+        int pos = skipSpaces(line, tokenEnd(line, skipSpaces(line, 0))); // skip "info"
+
+        while (pos < length) {
+            int keyStart = pos;
+            int keyEnd = tokenEnd(line, keyStart);
+            int valueStart = skipSpaces(line, keyEnd);
+            int valueEnd = tokenEnd(line, valueStart);
+            int next = skipSpaces(line, valueEnd);
+
+            if (is(line, keyStart, keyEnd, "pv")) {
+                info.pv = parseMoves(line, valueStart);
+                break;
+            } else if (is(line, keyStart, keyEnd, "string")) {
+                break;
+            } else if (is(line, keyStart, keyEnd, "score")) {
+                int numberStart = next;
+                int numberEnd = tokenEnd(line, numberStart);
+                long value = numberOr(line, numberStart, numberEnd, Long.MIN_VALUE);
+                boolean mate = is(line, valueStart, valueEnd, "mate");
+                if (value != Long.MIN_VALUE && (mate || is(line, valueStart, valueEnd, "cp"))) {
+                    info.hasScore = true;
+                    info.mateScore = mate;
+                    info.score = (int) value;
+                }
+                next = skipSpaces(line, numberEnd);
+            } else if (is(line, keyStart, keyEnd, "depth")) {
+                info.depth = (int) numberOr(line, valueStart, valueEnd, -1);
+            } else if (is(line, keyStart, keyEnd, "seldepth")) {
+                info.selDepth = (int) numberOr(line, valueStart, valueEnd, -1);
+            } else if (is(line, keyStart, keyEnd, "multipv")) {
+                info.multiPv = (int) numberOr(line, valueStart, valueEnd, 1);
+            } else if (is(line, keyStart, keyEnd, "nodes")) {
+                info.nodes = numberOr(line, valueStart, valueEnd, -1);
+            } else if (is(line, keyStart, keyEnd, "nps")) {
+                info.nps = numberOr(line, valueStart, valueEnd, -1);
+            } else if (is(line, keyStart, keyEnd, "hashfull")) {
+                info.hashFull = (int) numberOr(line, valueStart, valueEnd, -1);
+            } else if (is(line, keyStart, keyEnd, "time")) {
+                info.timeMillis = numberOr(line, valueStart, valueEnd, -1);
+            } else {
+                // Unknown or uninteresting key: only skip the key itself, since we
+                // cannot know how many values it takes
+                next = valueStart;
+            }
+            pos = next;
+        }
+        return info;
+    }
+
+    private static int[] parseMoves(CharSequence line, int start) {
+        int count = 0;
+        for (int pos = start; pos < line.length(); pos = skipSpaces(line, tokenEnd(line, pos))) {
+            count++;
+        }
+        int[] moves = new int[count];
+        int n = 0;
+        for (int pos = start; pos < line.length(); pos = skipSpaces(line, tokenEnd(line, pos))) {
+            int move = PackedMove.fromUci(line, pos, tokenEnd(line, pos));
+            if (move == PackedMove.NONE) {
+                break;
+            }
+            moves[n++] = move;
+        }
+        return n == count ? moves : Arrays.copyOf(moves, n);
+    }
+
+    private static int skipSpaces(CharSequence line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int tokenEnd(CharSequence line, int pos) {
+        while (pos < line.length() && !Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean is(CharSequence line, int start, int end, String keyword) {
+        if (end - start != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (line.charAt(start + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long numberOr(CharSequence line, int start, int end, long fallback) {
+        if (start >= end) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(line, start, end, 10);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSelDepth() {
+        return selDepth;
+    }
+
+    public int getMultiPv() {
+        return multiPv;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNps() {
+        return nps;
+    }
+
+    public int getHashFull() {
+        return hashFull;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public boolean hasScore() {
+        return hasScore;
+    }
+
+    public boolean isMateScore() {
+        return mateScore;
+    }
+
+    /**
+     * Returns the score in centipawns, or the number of moves to mate if
+     * {@link #isMateScore()}; both from the side to move's point of view.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the principal variation as packed moves. The array must not be
+     * modified.
+     */
+    public int[] getPv() {
+        return pv;
+    }
+
+    /**
+     * Returns the first move of the principal variation, or
+     * {@link PackedMove#NONE}.
+     */
+    public int getBestMove() {
+        return pv.length > 0 ? pv[0] : PackedMove.NONE;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("depth ").append(depth);
+        if (hasScore) {
+            sb.append(mateScore ? " mate " : " cp ").append(score);
+        }
+        if (pv.length > 0) {
+            sb.append(" pv");
+            for (int move : pv) {
+                sb.append(' ').append(PackedMove.toUci(move));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,312 @@
+package com.chess.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Drives the standard streams of any number of engines from two threads,
+ * however many engines there are. Process pipes cannot be registered with a
+ * NIO selector, so the loop polls {@link InputStream#available()} and only
+ * reads what is already buffered, which never blocks. A write blocks while the
+ * engine is not reading its input, so commands are queued by the caller and
+ * written by a writer thread shared by all connections, which sleeps while no
+ * command is pending; neither the calling (e.g. UI) thread nor the loop ever
+ * waits for an engine. An engine that stops reading holds up the commands of
+ * the others only once it has left a pipe buffer of its own unread.
+ *
+ * Input is read through one buffer shared by all connections and split into
+ * lines byte by byte. Line callbacks run on the loop thread and must not block.
+ * Without connections the loop sleeps until one is registered; while no engine
+ * has output it backs off to one poll every 10 ms, and sending a command,
+ * which usually gets an answer, makes it poll quickly again.
+ */
+public class EngineIoLoop implements Closeable {
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    /** Longest the loop sleeps when no engine has anything to say. */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static EngineIoLoop shared;
+
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    // Connections with commands to write, each at most once
+    private final BlockingQueue<Connection> pendingWrites = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Set by send(); the loop then polls quickly for the answer
+    private volatile boolean commandSent;
+
+    /**
+     * Receives the output of one engine.
+     */
+    public interface LineHandler {
+        /** Called for every complete line, without the line terminator. */
+        void onLine(String line);
+
+        /** Called once when the engine's output ends or its streams fail. */
+        void onClosed();
+    }
+
+    public EngineIoLoop() {
+        thread = new Thread(this::run, "engine-io");
+        thread.setDaemon(true);
+        thread.start();
+        writer = new Thread(this::write, "engine-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Returns the loop shared by all engines of this application.
+     */
+    public static synchronized EngineIoLoop shared() {
+        if (shared == null) {
+            shared = new EngineIoLoop();
+        }
+        return shared;
+    }
+
+    /**
+     * Starts serving an engine's streams.
+     *
+     * @param in      The engine's output
+     * @param out     The engine's input
+     * @param alive   Whether the engine is still running; once it returns false
+     *                the remaining output is drained and the connection closed
+     * @param handler Receives the engine's output lines
+     * @return The connection, used to send commands
+     */
+    public Connection register(InputStream in, OutputStream out, BooleanSupplier alive, LineHandler handler) {
+        Connection connection = new Connection(in, out, alive, handler);
+        connections.add(connection);
+        LockSupport.unpark(thread);
+        return connection;
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stops the loop. Connections are closed without notifying their handlers.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        writer.interrupt();
+        for (Connection connection : connections) {
+            connection.closeStreams();
+        }
+        connections.clear();
+    }
+
+    private void run() {
+        long parkNanos = 0;
+        while (running) {
+            if (connections.isEmpty()) {
+                // register() wakes the loop
+                parkNanos = 0;
+                LockSupport.park(this);
+                continue;
+            }
+            if (commandSent) {
+                commandSent = false;
+                parkNanos = 0;
+            }
+            boolean busy = false;
+            for (Connection connection : connections) {
+                busy |= connection.pump(readBuffer);
+            }
+            if (busy) {
+                parkNanos = 0;
+            } else {
+                // Back off gradually so a burst of output is picked up quickly
+                parkNanos = Math.min(MAX_IDLE_PARK_NANOS, Math.max(10_000, parkNanos * 2));
+                LockSupport.parkNanos(this, parkNanos);
+            }
+        }
+    }
+
+    /**
+     * Writes the commands of one connection after another as they are sent.
+     * Runs on the writer thread.
+     */
+    private void write() {
+        try {
+            while (running) {
+                pendingWrites.take().writeQueued();
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * One engine's pair of streams.
+     */
+    public class Connection {
+        private final InputStream in;
+        private final OutputStream out;
+        private final BooleanSupplier alive;
+        private final LineHandler handler;
+        private final Queue<byte[]> outgoing = new ConcurrentLinkedQueue<>();
+        // Set while the connection waits in pendingWrites
+        private final AtomicBoolean writePending = new AtomicBoolean();
+        private byte[] line = new byte[256];
+        private int lineLength;
+        private volatile boolean closed;
+        // Set once the engine stopped accepting input; its output is still read
+        private volatile boolean writeFailed;
+
+        Connection(InputStream in, OutputStream out, BooleanSupplier alive, LineHandler handler) {
+            this.in = in;
+            this.out = out;
+            this.alive = alive;
+            this.handler = handler;
+        }
+
+        /**
+         * Queues a command for the engine. Returns immediately; the line
+         * terminator is added here.
+         */
+        public void send(String command) {
+            if (closed || writeFailed) {
+                return;
+            }
+            outgoing.add((command + "\n").getBytes(StandardCharsets.UTF_8));
+            if (writePending.compareAndSet(false, true)) {
+                pendingWrites.add(this);
+            }
+            commandSent = true;
+            LockSupport.unpark(thread);
+        }
+
+        /**
+         * Closes the streams and stops serving them. The handler is not notified.
+         */
+        public void close() {
+            connections.remove(this);
+            closeStreams();
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Reads whatever output is available.
+         *
+         * @return true if any data was read
+         */
+        boolean pump(ByteBuffer buffer) {
+            if (closed) {
+                return false;
+            }
+            try {
+                int available = in.available();
+                if (available <= 0) {
+                    if (alive.getAsBoolean()) {
+                        return false;
+                    }
+                    // The engine is gone: the next read returns what is left or EOF
+                    available = buffer.capacity();
+                }
+                buffer.clear();
+                int n = in.read(buffer.array(), 0, Math.min(available, buffer.capacity()));
+                if (n < 0) {
+                    finish();
+                    return false;
+                }
+                frame(buffer.array(), n);
+                return true;
+            } catch (IOException e) {
+                if (!closed) {
+                    finish();
+                }
+                return false;
+            }
+        }
+
+        /**
+         * Writes the queued commands and flushes them once. Runs on the writer
+         * thread.
+         */
+        private void writeQueued() {
+            // Cleared first, so a command sent from now on queues the connection again
+            writePending.set(false);
+            if (closed || writeFailed) {
+                return;
+            }
+            try {
+                byte[] bytes;
+                while ((bytes = outgoing.poll()) != null) {
+                    out.write(bytes);
+                }
+                out.flush();
+            } catch (IOException e) {
+                // The engine exited; the loop still drains its output and reports the close
+                writeFailed = true;
+                outgoing.clear();
+            }
+        }
+
+        private void frame(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+                    lineLength = 0;
+                    handler.onLine(text);
+                } else if (b != '\r') {
+                    if (lineLength == line.length) {
+                        byte[] grown = new byte[line.length * 2];
+                        System.arraycopy(line, 0, grown, 0, lineLength);
+                        line = grown;
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+        }
+
+        private void finish() {
+            if (lineLength > 0) {
+                String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+                lineLength = 0;
+                handler.onLine(text);
+            }
+            close();
+            handler.onClosed();
+        }
+
+        void closeStreams() {
+            closed = true;
+            outgoing.clear();
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+}
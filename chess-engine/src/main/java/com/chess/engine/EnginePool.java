@@ -0,0 +1,427 @@
+package com.chess.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed number of pre-started engine processes, handed out one request at a
+ * time. Engines are started and brought to {@code readyok} before they are
+ * offered, so callers never wait for a cold JVM. Requests for a position go
+ * preferably to the engine that last searched an earlier position of the same
+ * game, whose hash table is still warm; an engine switching games is reset with
+ * {@code ucinewgame}. Engines that crash or stop answering are replaced. If
+ * engines keep failing to start, e.g. because the jar does not exist, the pool
+ * gives up and fails waiting requests with the cause.
+ *
+ * Typical use:
+ * 
+ * <pre>
+ * EnginePool pool = new EnginePool("Serendipity.jar", 4);
+ * pool.setThreadsPerEngine(1);
+ * pool.start();
+ * pool.search("position startpos", new SearchLimits().withDepth(12))
+ *         .thenAccept(bestMove -> ...);
+ * </pre>
+ */
+public class EnginePool implements PositionAnalyser, Closeable {
+    /** Time an engine gets to answer {@code isready} before it is replaced. */
+    static final long READY_TIMEOUT_MILLIS = 10_000;
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = 5_000;
+    private static final long RESTART_DELAY_MILLIS = 1_000;
+    /** Engines in a row that may fail to start before the pool gives up. */
+    static final int MAX_START_FAILURES = 3;
+
+    private final String jarPath;
+    private final int size;
+    private int threadsPerEngine = 1;
+    private int hashMegabytes = 16;
+    private AnalysisCache analysisCache;
+    private boolean inProcess;
+
+    private final List<EngineService> engines = new ArrayList<>();
+    private final Deque<EngineService> idle = new ArrayDeque<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private ScheduledExecutorService maintenance;
+    private boolean started;
+    private boolean closed;
+    // Consecutive engines that did not reach readyok, and why the last one failed
+    private int startFailures;
+    private IOException startError;
+
+    private static class Waiter {
+        final String position;
+        final CompletableFuture<EngineService> future = new CompletableFuture<>();
+
+        Waiter(String position) {
+            this.position = position;
+        }
+    }
+
+    /**
+     * @param jarPath Path to the engine jar
+     * @param size    Number of engine processes to keep running
+     */
+    public EnginePool(String jarPath, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1: " + size);
+        }
+        this.jarPath = jarPath;
+        this.size = size;
+    }
+
+    /**
+     * Sets the UCI {@code Threads} option of each engine. With one thread per
+     * engine, throughput scales with the number of engines.
+     */
+    public void setThreadsPerEngine(int threads) {
+        this.threadsPerEngine = threads;
+    }
+
+    /**
+     * Sets the UCI {@code Hash} option of each engine, in megabytes.
+     */
+    public void setHashMegabytes(int megabytes) {
+        this.hashMegabytes = megabytes;
+    }
+
+    /**
+     * Sets a cache shared by all engines started after this call, so positions
+     * already analysed by any engine are not searched again.
+     */
+    public void setAnalysisCache(AnalysisCache cache) {
+        this.analysisCache = cache;
+    }
+
+    /**
+     * Runs the engines inside this JVM where possible; see
+     * {@link EngineService#setPreferInProcess(boolean)}. Unsafe for engines that
+     * call {@code System.exit}.
+     */
+    public void setInProcess(boolean inProcess) {
+        this.inProcess = inProcess;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the pool size: each engine searches one position at a time.
+     */
+    @Override
+    public int getCapacity() {
+        return size;
+    }
+
+    /**
+     * Returns the number of ready engines not currently handed out.
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Starts all engines in the background and begins health checks. Engines
+     * become available as soon as each one answers {@code readyok}.
+     */
+    public synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "engine-pool");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < size; i++) {
+            maintenance.execute(this::spawn);
+        }
+        maintenance.scheduleWithFixedDelay(this::checkHealth, HEALTH_CHECK_INTERVAL_MILLIS,
+                HEALTH_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes an engine from the pool. The future completes immediately if an
+     * engine is idle, otherwise as soon as one is released. Every acquired engine
+     * must be handed back with {@link #release(EngineService)}.
+     *
+     * @return A future completed with a ready engine
+     */
+    public CompletableFuture<EngineService> acquire() {
+        return acquire(null);
+    }
+
+    /**
+     * Takes an engine for searching the given position, preferring the idle
+     * engine that shares the most moves with it. If the engine last searched a
+     * different game, it is sent {@code ucinewgame} first.
+     *
+     * @param position The "position ..." command the engine will search, or
+     *                 null if unknown
+     * @return A future completed with a ready engine
+     */
+    public synchronized CompletableFuture<EngineService> acquire(String position) {
+        if (closed) {
+            CompletableFuture<EngineService> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("Engine pool is closed"));
+            return failed;
+        }
+        for (EngineService engine : new ArrayList<>(idle)) {
+            if (!engine.isAlive()) {
+                replace(engine, "Engine exited");
+            }
+        }
+        if (engines.isEmpty() && startError != null) {
+            CompletableFuture<EngineService> failed = new CompletableFuture<>();
+            failed.completeExceptionally(startError);
+            return failed;
+        }
+        EngineService best = null;
+        int bestShared = Integer.MIN_VALUE;
+        for (EngineService engine : idle) {
+            int shared = engine.sharedMoves(position);
+            if (shared > bestShared) {
+                best = engine;
+                bestShared = shared;
+            }
+        }
+        if (best != null) {
+            idle.remove(best);
+            prepare(best, position);
+            return CompletableFuture.completedFuture(best);
+        }
+        Waiter waiter = new Waiter(position);
+        waiters.addLast(waiter);
+        return waiter.future;
+    }
+
+    /**
+     * Hands an engine back. Any running search is cancelled; the engine becomes
+     * available again once it answers {@code readyok}, or is replaced if it does
+     * not. Its hash table is kept for later positions of the same game.
+     *
+     * @param engine An engine obtained from {@link #acquire()}
+     */
+    public void release(EngineService engine) {
+        if (!engine.isAlive()) {
+            synchronized (this) {
+                replace(engine, "Engine exited");
+            }
+            return;
+        }
+        engine.cancelSearch();
+        awaitReady(engine, false);
+    }
+
+    /**
+     * Runs one search on the best available engine and returns the engine to the
+     * pool afterwards.
+     *
+     * @param position The "position ..." command to send
+     * @param limits   The search limits
+     * @return A future completed with the engine's best move
+     */
+    public CompletableFuture<BestMove> search(String position, SearchLimits limits) {
+        return acquire(position).thenCompose(engine -> engine.search(position, limits)
+                .whenComplete((bestMove, error) -> release(engine)));
+    }
+
+    /**
+     * Evaluates one position on the best available engine and returns the engine
+     * to the pool afterwards.
+     *
+     * @param position    The "position ..." command to send
+     * @param positionKey The position's {@link com.chess.core.PositionHash} key
+     * @param limits      The search limits
+     * @return A future completed with the analysis
+     * @see EngineService#analyse(String, long, SearchLimits)
+     */
+    @Override
+    public CompletableFuture<CachedAnalysis> analyse(String position, long positionKey, SearchLimits limits) {
+        return acquire(position).thenCompose(engine -> engine.analyse(position, positionKey, limits)
+                .whenComplete((analysis, error) -> release(engine)));
+    }
+
+    private static void prepare(EngineService engine, String position) {
+        if (engine.getLastPosition() != null && engine.sharedMoves(position) <= 0) {
+            engine.newGame();
+        }
+    }
+
+    /**
+     * Stops all engines. Pending {@link #acquire()} calls fail.
+     */
+    @Override
+    public void close() {
+        List<EngineService> running;
+        List<Waiter> pending;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (maintenance != null) {
+                maintenance.shutdownNow();
+            }
+            running = new ArrayList<>(engines);
+            pending = new ArrayList<>(waiters);
+            engines.clear();
+            idle.clear();
+            waiters.clear();
+        }
+        for (Waiter waiter : pending) {
+            waiter.future.completeExceptionally(new IllegalStateException("Engine pool is closed"));
+        }
+        for (EngineService engine : running) {
+            engine.stopEngine();
+        }
+    }
+
+    private void spawn() {
+        EngineService engine = new EngineService();
+        engine.setOption("Threads", String.valueOf(threadsPerEngine));
+        engine.setOption("Hash", String.valueOf(hashMegabytes));
+        engine.setAnalysisCache(analysisCache);
+        engine.setPreferInProcess(inProcess);
+        engine.setEcho(false);
+        synchronized (this) {
+            if (closed || startError != null) {
+                return;
+            }
+            engines.add(engine);
+        }
+        try {
+            engine.startEngine(jarPath);
+        } catch (IOException e) {
+            synchronized (this) {
+                startFailed(engine, e);
+            }
+            return;
+        }
+        awaitReady(engine, true);
+    }
+
+    /**
+     * Offers the engine once it answers {@code readyok}. An engine that does not
+     * is replaced, or counted as a failed start if it was just started.
+     */
+    private void awaitReady(EngineService engine, boolean starting) {
+        engine.isReady()
+                .orTimeout(READY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .whenComplete((ok, error) -> {
+                    synchronized (this) {
+                        if (error == null && engine.isAlive()) {
+                            if (starting) {
+                                startFailures = 0;
+                            }
+                            offer(engine);
+                        } else if (starting) {
+                            String message = engine.getLastMessage();
+                            startFailed(engine, new IOException(message != null ? message
+                                    : engine.isAlive() ? "No readyok within " + READY_TIMEOUT_MILLIS + " ms"
+                                            : "Engine exited during startup"));
+                        } else {
+                            replace(engine, engine.isAlive() ? "Engine stopped answering" : "Engine exited");
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Discards an engine that could not be started and tries again, unless too
+     * many starts failed in a row; then waiting requests fail once no engine is
+     * left. Must hold the lock.
+     */
+    private void startFailed(EngineService engine, IOException cause) {
+        if (!engines.remove(engine)) {
+            return;
+        }
+        engine.stopEngine();
+        if (closed) {
+            return;
+        }
+        System.err.println("Could not start engine " + jarPath + ": " + cause.getMessage());
+        startFailures++;
+        if (startFailures < MAX_START_FAILURES) {
+            maintenance.schedule(this::spawn, RESTART_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            return;
+        }
+        startError = cause;
+        if (engines.isEmpty()) {
+            System.err.println("Giving up after " + startFailures + " failed engine starts");
+            List<Waiter> pending = new ArrayList<>(waiters);
+            waiters.clear();
+            for (Waiter waiter : pending) {
+                waiter.future.completeExceptionally(cause);
+            }
+        }
+    }
+
+    /**
+     * Gives a ready engine to the oldest waiter, or parks it. Must hold the lock.
+     */
+    private void offer(EngineService engine) {
+        if (closed) {
+            return;
+        }
+        Waiter waiter;
+        while ((waiter = waiters.pollFirst()) != null) {
+            if (!waiter.future.isDone()) {
+                prepare(engine, waiter.position);
+                if (waiter.future.complete(engine)) {
+                    return;
+                }
+            }
+        }
+        idle.addLast(engine);
+    }
+
+    /**
+     * Discards a dead or unresponsive engine and starts a new one in its place.
+     * Must hold the lock.
+     *
+     * @param reason What went wrong, for the log
+     */
+    private void replace(EngineService engine, String reason) {
+        if (!engines.remove(engine)) {
+            return;
+        }
+        idle.remove(engine);
+        engine.stopEngine();
+        if (!closed) {
+            System.err.println(reason + "; replacing it");
+            maintenance.schedule(this::spawn, RESTART_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Replaces idle engines that exited, and pings the others with
+     * {@code isready} so a hung engine is replaced before it is handed out.
+     */
+    private synchronized void checkHealth() {
+        for (EngineService engine : new ArrayList<>(idle)) {
+            if (!engine.isAlive()) {
+                replace(engine, "Engine exited");
+                continue;
+            }
+            engine.isReady()
+                    .orTimeout(READY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    .whenComplete((ok, error) -> {
+                        if (error != null) {
+                            synchronized (this) {
+                                replace(engine, "Engine stopped answering");
+                            }
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,845 @@
+package com.chess.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import com.chess.core.Game;
+import com.chess.core.PackedMove;
+import com.chess.core.PositionHash;
+
+public class EngineService {
+
+    private Process process;
+    private InProcessEngine inProcessEngine;
+    private boolean preferInProcess;
+    // Whether the UCI conversation is echoed to the console
+    private volatile boolean echo = true;
+    // Engine I/O runs on the shared loop; commands are queued, never blocking
+    private EngineIoLoop.Connection connection;
+    private volatile boolean isRunning = false;
+
+    private Consumer<BestMove> onBestMove;
+    private Consumer<EngineInfo> onInfo;
+    private volatile Executor callbackExecutor = Runnable::run;
+
+    // Latest info per multipv line not yet delivered to the callback executor. At most
+    // one delivery is queued at a time, so a fast engine cannot flood the UI.
+    private final Map<Integer, EngineInfo> pendingInfo = new TreeMap<>();
+    private boolean infoDeliveryQueued;
+
+    // UCI options, re-sent after the handshake whenever the engine is started
+    private final Map<String, String> options = new LinkedHashMap<>();
+
+    // Search timing, used to enforce budgets and measure move overhead
+    private final TimeManager timeManager = new TimeManager();
+    private ScheduledExecutorService watchdog;
+    private ScheduledFuture<?> budgetCheck;
+    private volatile long searchStartNanos;
+    private volatile boolean trackOverhead;
+    private volatile long lastReportedTimeMillis;
+    private volatile long lastReportedNanos;
+    private volatile int currentBestMove;
+    private volatile long bestMoveChangedNanos;
+
+    // Search requests. Only one search runs in the engine at a time; the next
+    // queued request is sent as soon as the running one answers with bestmove.
+    private final Object searchLock = new Object();
+    private final Deque<SearchRequest> queuedSearches = new ArrayDeque<>();
+    private SearchRequest activeSearch;
+    private long nextSearchId = 1;
+    private static final String MOVES = " moves ";
+    // The last position sent, so callers can pick the engine whose hash table
+    // already holds the game
+    private volatile String lastPosition;
+
+    // Results of finished searches, consulted before searching a game position
+    private volatile AnalysisCache analysisCache;
+    // Last scored main line of the running search, stored in the cache with its result
+    private volatile EngineInfo lastScoredInfo;
+
+    // Last line that was not part of the UCI conversation, e.g. an error from the JVM
+    private volatile String lastMessage;
+
+    // Callers waiting for "readyok", oldest first
+    private final Deque<CompletableFuture<Void>> readyWaiters = new ArrayDeque<>();
+
+    /**
+     * One search request. A cancelled request that is already running still
+     * receives a bestmove from the engine, which is then discarded.
+     */
+    private static class SearchRequest {
+        final long id;
+        final String position;
+        final SearchLimits limits;
+        final String expectedReply;
+        final CompletableFuture<BestMove> result = new CompletableFuture<>();
+        // Position key for the analysis cache, if the result should be stored
+        boolean hasKey;
+        long positionKey;
+        // Score and main line of the finished search, set before result completes
+        volatile CachedAnalysis analysis;
+        boolean pondering;
+        boolean cancelled;
+
+        SearchRequest(long id, String position, SearchLimits limits, String expectedReply) {
+            this.id = id;
+            this.position = position;
+            this.limits = limits;
+            this.expectedReply = expectedReply;
+            this.pondering = limits.isPonder();
+        }
+    }
+
+    /**
+     * Chooses whether to load the engine jar into this JVM instead of starting a
+     * separate process. In-process engines start almost instantly and share the
+     * warmed-up JIT. Takes effect on the next start, and falls back to a process
+     * if this JVM cannot host the engine (see {@link InProcessEngine#isSupported()}).
+     * Off by default: only enable it for engines known not to call
+     * {@code System.exit}, which would end this application.
+     * 
+     * @param inProcess true to run the engine in-process when possible
+     */
+    public void setPreferInProcess(boolean inProcess) {
+        this.preferInProcess = inProcess;
+    }
+
+    /**
+     * Chooses whether commands and replies are printed to the console. Useful to
+     * turn off when many engines run unattended.
+     */
+    public void setEcho(boolean echo) {
+        this.echo = echo;
+    }
+
+    public boolean isInProcess() {
+        return inProcessEngine != null;
+    }
+
+    /**
+     * Starts the engine and begins the UCI handshake. A path ending in ".jar" is
+     * run on a new JVM, or in-process if preferred; anything else is started as a
+     * native UCI executable.
+     * 
+     * @param enginePath Path to the engine jar or executable
+     * @throws IOException If the engine cannot be started
+     */
+    public void startEngine(String enginePath) throws IOException {
+        if (isRunning) {
+            return;
+        }
+
+        boolean jar = enginePath.endsWith(".jar");
+        InputStream engineOutput;
+        OutputStream engineInput;
+        BooleanSupplier alive;
+        if (jar && preferInProcess && InProcessEngine.isSupported()) {
+            InProcessEngine engine = InProcessEngine.start(enginePath);
+            inProcessEngine = engine;
+            engineOutput = engine.getInputStream();
+            engineInput = engine.getOutputStream();
+            alive = engine::isAlive;
+        } else {
+            ProcessBuilder pb = jar
+                    ? new ProcessBuilder("java", "--add-modules", "jdk.incubator.vector", "-jar", enginePath)
+                    : new ProcessBuilder(enginePath);
+            pb.redirectErrorStream(true);
+            Process started = pb.start();
+            process = started;
+            engineOutput = started.getInputStream();
+            engineInput = started.getOutputStream();
+            alive = started::isAlive;
+        }
+
+        isRunning = true;
+        connection = EngineIoLoop.shared().register(engineOutput, engineInput, alive,
+                new EngineIoLoop.LineHandler() {
+                    @Override
+                    public void onLine(String line) {
+                        // Info lines can arrive thousands of times per second; don't echo them
+                        if (echo && !line.startsWith("info")) {
+                            System.out.println("<< " + line);
+                        }
+                        processLine(line);
+                    }
+
+                    @Override
+                    public void onClosed() {
+                        handleEngineExit();
+                    }
+                });
+
+        sendCommand("uci");
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            sendSetOption(option.getKey(), option.getValue());
+        }
+        sendCommand("ucinewgame");
+        isReady();
+    }
+
+    /**
+     * Tells the engine the next search belongs to a different game, so it
+     * clears its hash table and history.
+     */
+    public void newGame() {
+        lastPosition = null;
+        sendCommand("ucinewgame");
+    }
+
+    /**
+     * Returns the last "position ..." command sent to the engine since the last
+     * {@link #newGame()}, or null.
+     */
+    public String getLastPosition() {
+        return lastPosition;
+    }
+
+    /**
+     * Counts how many moves a position shares with the one the engine searched
+     * last. Positions that continue the last one keep most of the engine's hash
+     * table useful.
+     * 
+     * @param position A "position ..." command
+     * @return The number of shared moves, or -1 if the positions have different
+     *         roots or the engine has not seen a position yet
+     */
+    public int sharedMoves(String position) {
+        return sharedMoves(lastPosition, position);
+    }
+
+    static int sharedMoves(String a, String b) {
+        if (a == null || b == null) {
+            return -1;
+        }
+        int rootA = rootLength(a);
+        int rootB = rootLength(b);
+        if (rootA != rootB || !a.regionMatches(0, b, 0, rootA)) {
+            return -1;
+        }
+        // Walk both move lists while the tokens agree
+        int shared = 0;
+        int i = rootA + MOVES.length();
+        while (i < a.length() && i < b.length()) {
+            int endA = a.indexOf(' ', i);
+            int endB = b.indexOf(' ', i);
+            endA = endA < 0 ? a.length() : endA;
+            endB = endB < 0 ? b.length() : endB;
+            if (endA != endB || !a.regionMatches(i, b, i, endA - i)) {
+                break;
+            }
+            shared++;
+            i = endA + 1;
+        }
+        return shared;
+    }
+
+    private static int rootLength(String position) {
+        int moves = position.indexOf(MOVES);
+        return moves < 0 ? position.length() : moves;
+    }
+
+    public void stopEngine() {
+        isRunning = false;
+        cancelBudgetCheck();
+        failOutstanding();
+        shutdownWatchdog();
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+        if (process != null) {
+            process.destroy();
+            process = null;
+        }
+        if (inProcessEngine != null) {
+            inProcessEngine.stop();
+            inProcessEngine = null;
+        }
+    }
+
+    /**
+     * Queues a command for the engine. Never blocks; the command is written by
+     * the I/O loop.
+     * 
+     * @param command The UCI command, without line terminator
+     */
+    public void sendCommand(String command) {
+        EngineIoLoop.Connection target = connection;
+        if (!isRunning || target == null)
+            return;
+        target.send(command);
+        if (echo) {
+            System.out.println(">> " + command);
+        }
+    }
+
+    /**
+     * Sets a UCI option. The option is sent immediately if the engine is running
+     * and again after the handshake each time the engine is started.
+     * 
+     * @param name  The option name, e.g. "SyzygyPath"
+     * @param value The option value
+     */
+    public void setOption(String name, String value) {
+        options.put(name, value);
+        sendSetOption(name, value);
+    }
+
+    private void sendSetOption(String name, String value) {
+        sendCommand("setoption name " + name + " value " + value);
+    }
+
+    /**
+     * Sends {@code isready}. The returned future completes when the engine
+     * answers {@code readyok}, i.e. once it has processed everything sent before.
+     * 
+     * @return A future completed on readyok
+     */
+    public CompletableFuture<Void> isReady() {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        if (!isRunning) {
+            ready.completeExceptionally(new IllegalStateException("Engine is not running"));
+            return ready;
+        }
+        synchronized (readyWaiters) {
+            readyWaiters.addLast(ready);
+            sendCommand("isready");
+        }
+        return ready;
+    }
+
+    /**
+     * Searches a position. Requests are queued and run one at a time; the next
+     * request is sent the moment the previous one completes, so back-to-back
+     * searches leave the engine no idle time. Cancelling the returned future
+     * stops the search and its result is discarded.
+     * 
+     * If the limits carry a soft/hard budget, the search is stopped with
+     * {@code stop} once the budget runs out: at the soft limit unless the best
+     * move changed recently, at the hard limit unconditionally.
+     * 
+     * @param position The "position ..." command to send
+     * @param limits   The search limits
+     * @return A future completed with the engine's best move
+     */
+    public CompletableFuture<BestMove> search(String position, SearchLimits limits) {
+        return submit(position, limits, null, 0).result;
+    }
+
+    /**
+     * Like {@link #search(String, SearchLimits)}, but fails with a
+     * {@link TimeoutException} and stops the search if no best move arrives in
+     * time.
+     * 
+     * @param position      The "position ..." command to send
+     * @param limits        The search limits
+     * @param timeoutMillis Maximum time to wait for the result, counted from now
+     * @return A future completed with the engine's best move
+     */
+    public CompletableFuture<BestMove> search(String position, SearchLimits limits, long timeoutMillis) {
+        return withTimeout(search(position, limits), timeoutMillis);
+    }
+
+    /**
+     * Searches the current position of a game. With an analysis cache set,
+     * depth-limited searches are answered from the cache when it holds a result
+     * at least that deep, without contacting the engine; every completed search
+     * is added to the cache.
+     * 
+     * @param game   The game whose current position should be searched
+     * @param limits The search limits
+     * @return A future completed with the engine's best move
+     */
+    public CompletableFuture<BestMove> search(Game game, SearchLimits limits) {
+        return search(game.getUciPosition(), PositionHash.of(game), limits);
+    }
+
+    /**
+     * Like {@link #search(Game, SearchLimits)}, for a position captured earlier.
+     * 
+     * @param position    The "position ..." command to send
+     * @param positionKey The {@link PositionHash} key of the position
+     * @param limits      The search limits
+     * @return A future completed with the engine's best move
+     */
+    public CompletableFuture<BestMove> search(String position, long positionKey, SearchLimits limits) {
+        AnalysisCache cache = analysisCache;
+        if (cache != null && limits.getDepth() > 0 && !limits.isPonder()) {
+            CachedAnalysis cached = cache.lookup(positionKey, limits.getDepth());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached.toBestMove());
+            }
+        }
+        return submit(position, limits, null, positionKey).result;
+    }
+
+    /**
+     * Evaluates a position: like {@link #search(String, long, SearchLimits)}, but
+     * the result carries the score and principal variation of the engine's last
+     * completed iteration. Cached results are returned without searching.
+     * 
+     * @param position    The "position ..." command to send
+     * @param positionKey The {@link PositionHash} key of the position
+     * @param limits      The search limits
+     * @return A future completed with the analysis; it fails with
+     *         {@link IllegalStateException} if the engine sent no score
+     */
+    public CompletableFuture<CachedAnalysis> analyse(String position, long positionKey, SearchLimits limits) {
+        AnalysisCache cache = analysisCache;
+        if (cache != null && limits.getDepth() > 0) {
+            CachedAnalysis cached = cache.lookup(positionKey, limits.getDepth());
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        SearchRequest request = submit(position, limits, null, positionKey);
+        return request.result.thenApply(bestMove -> {
+            if (request.analysis == null) {
+                throw new IllegalStateException("No score for " + position);
+            }
+            return request.analysis;
+        });
+    }
+
+    /**
+     * Like {@link #search(Game, SearchLimits)}, with a timeout as in
+     * {@link #search(String, SearchLimits, long)}.
+     */
+    public CompletableFuture<BestMove> search(Game game, SearchLimits limits, long timeoutMillis) {
+        return withTimeout(search(game, limits), timeoutMillis);
+    }
+
+    private CompletableFuture<BestMove> withTimeout(CompletableFuture<BestMove> result, long timeoutMillis) {
+        if (!result.isDone()) {
+            ScheduledFuture<?> timeout = scheduler().schedule(() -> result.completeExceptionally(
+                    new TimeoutException("No bestmove within " + timeoutMillis + " ms")),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            // Don't keep finished searches in the scheduler's queue until the timeout
+            result.whenComplete((move, error) -> timeout.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * Sets the cache used by {@link #search(Game, SearchLimits)}, or null for
+     * none. The cache is not closed by this service.
+     */
+    public void setAnalysisCache(AnalysisCache cache) {
+        this.analysisCache = cache;
+    }
+
+    /**
+     * Starts pondering: searches the position after the expected reply while the
+     * opponent is thinking. Follow up with {@link #ponderHit()} if the opponent
+     * plays the expected move, or cancel the returned future otherwise.
+     * 
+     * @param position      The "position ..." command including the expected
+     *                      reply as its last move
+     * @param expectedReply The opponent move being pondered on, in UCI notation
+     * @param limits        The limits to use once the ponder search becomes a
+     *                      real search
+     * @return A future completed with the best move after a ponder hit
+     */
+    public CompletableFuture<BestMove> ponder(String position, String expectedReply, SearchLimits limits) {
+        return submit(position, limits.withPonder(true), expectedReply, 0).result;
+    }
+
+    private SearchRequest submit(String position, SearchLimits limits, String expectedReply, long positionKey) {
+        SearchRequest request;
+        synchronized (searchLock) {
+            request = new SearchRequest(nextSearchId++, position, limits, expectedReply);
+            request.hasKey = positionKey != 0;
+            request.positionKey = positionKey;
+            queuedSearches.addLast(request);
+            if (activeSearch == null) {
+                dispatchNext();
+            }
+        }
+        // Cancellation and timeouts both complete the future exceptionally
+        request.result.whenComplete((move, error) -> {
+            if (error != null) {
+                abandon(request);
+            }
+        });
+        return request;
+    }
+
+    /**
+     * Sends the next queued request to the engine. The caller must hold
+     * searchLock and the engine must not be searching.
+     */
+    private void dispatchNext() {
+        SearchRequest next = queuedSearches.pollFirst();
+        while (next != null && next.result.isDone()) {
+            next = queuedSearches.pollFirst();
+        }
+        activeSearch = next;
+        if (next == null) {
+            return;
+        }
+        if (!isRunning) {
+            activeSearch = null;
+            next.result.completeExceptionally(new IllegalStateException("Engine is not running"));
+            return;
+        }
+
+        searchStartNanos = System.nanoTime();
+        // Ponder time is not attributable to the move, so skip overhead tracking
+        trackOverhead = !next.pondering;
+        lastReportedTimeMillis = -1;
+        currentBestMove = PackedMove.NONE;
+        lastScoredInfo = null;
+        bestMoveChangedNanos = searchStartNanos;
+        sendCommand(next.position);
+        lastPosition = next.position;
+        sendCommand(next.limits.toGoCommand());
+
+        if (!next.pondering && next.limits.getHardLimitMillis() > 0) {
+            scheduleBudgetCheck(next.limits.getSoftLimitMillis(), next);
+        }
+    }
+
+    private void abandon(SearchRequest request) {
+        synchronized (searchLock) {
+            if (request == activeSearch) {
+                if (!request.cancelled) {
+                    request.cancelled = true;
+                    cancelBudgetCheck();
+                    sendCommand("stop");
+                }
+            } else {
+                queuedSearches.remove(request);
+            }
+        }
+    }
+
+    /**
+     * Returns the move the engine is currently pondering on, or null if it is
+     * not pondering.
+     */
+    public String getPonderMove() {
+        synchronized (searchLock) {
+            return isPondering() ? activeSearch.expectedReply : null;
+        }
+    }
+
+    private boolean isPondering() {
+        return activeSearch != null && activeSearch.pondering && !activeSearch.cancelled;
+    }
+
+    /**
+     * Tells the engine the opponent played the expected move. The ponder search
+     * continues as a normal search under its time budget.
+     * 
+     * @return true if a ponder search was converted, false if none was active
+     */
+    public boolean ponderHit() {
+        synchronized (searchLock) {
+            if (!isPondering()) {
+                return false;
+            }
+            SearchRequest request = activeSearch;
+            request.pondering = false;
+            long now = System.nanoTime();
+            bestMoveChangedNanos = now;
+            sendCommand("ponderhit");
+            if (request.limits.getHardLimitMillis() > 0) {
+                // The move's clock starts running at ponderhit
+                searchStartNanos = now;
+                scheduleBudgetCheck(request.limits.getSoftLimitMillis(), request);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Cancels the running search, including ponder searches, and all queued
+     * requests. The engine is told to stop, and the bestmove it sends in response
+     * is discarded so that a stale move can never be delivered.
+     */
+    public void cancelSearch() {
+        for (SearchRequest request : outstandingSearches()) {
+            request.result.cancel(false);
+        }
+    }
+
+    private List<SearchRequest> outstandingSearches() {
+        synchronized (searchLock) {
+            List<SearchRequest> requests = new ArrayList<>(queuedSearches);
+            if (activeSearch != null) {
+                requests.add(activeSearch);
+            }
+            return requests;
+        }
+    }
+
+    private void failOutstanding() {
+        List<SearchRequest> requests = outstandingSearches();
+        synchronized (searchLock) {
+            queuedSearches.clear();
+            activeSearch = null;
+        }
+        for (SearchRequest request : requests) {
+            request.result.cancel(false);
+        }
+        List<CompletableFuture<Void>> waiters;
+        synchronized (readyWaiters) {
+            waiters = new ArrayList<>(readyWaiters);
+            readyWaiters.clear();
+        }
+        for (CompletableFuture<Void> ready : waiters) {
+            ready.cancel(false);
+        }
+    }
+
+    public TimeManager getTimeManager() {
+        return timeManager;
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (watchdog == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "engine-watchdog");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            watchdog = executor;
+        }
+        return watchdog;
+    }
+
+    private synchronized void shutdownWatchdog() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+    }
+
+    private synchronized void scheduleBudgetCheck(long delayMillis, SearchRequest request) {
+        budgetCheck = scheduler().schedule(() -> checkBudget(request), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelBudgetCheck() {
+        if (budgetCheck != null) {
+            budgetCheck.cancel(false);
+            budgetCheck = null;
+        }
+    }
+
+    private void checkBudget(SearchRequest request) {
+        SearchLimits limits = request.limits;
+        synchronized (searchLock) {
+            if (request != activeSearch || request.cancelled) {
+                return;
+            }
+            long now = System.nanoTime();
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(now - searchStartNanos);
+            long sinceChange = TimeUnit.NANOSECONDS.toMillis(now - bestMoveChangedNanos);
+            long remainingHard = limits.getHardLimitMillis() - elapsed;
+
+            // An unstable best move earns more time, up to the hard limit
+            if (remainingHard > 0 && sinceChange < limits.getSoftLimitMillis() / 4) {
+                scheduleBudgetCheck(Math.min(remainingHard, Math.max(1, limits.getSoftLimitMillis() / 4)),
+                        request);
+                return;
+            }
+            sendCommand("stop");
+        }
+    }
+
+    /**
+     * Sets the callback for best moves of searches started with a raw
+     * {@code go} through {@link #sendCommand(String)}. Results of
+     * {@link #search(String, SearchLimits)} are delivered through its future.
+     * 
+     * @param callback The callback to invoke on the callback executor
+     */
+    public void setOnBestMove(Consumer<BestMove> callback) {
+        this.onBestMove = callback;
+    }
+
+    /**
+     * Sets the callback for search progress. Updates are coalesced: the callback
+     * runs on the callback executor with the latest info for each multipv line,
+     * at most once per queued delivery.
+     * 
+     * @param callback The callback to invoke
+     */
+    public void setOnInfo(Consumer<EngineInfo> callback) {
+        this.onInfo = callback;
+    }
+
+    /**
+     * Sets the executor that runs the {@link #setOnBestMove(Consumer)} and
+     * {@link #setOnInfo(Consumer)} callbacks. By default they run on the thread
+     * reading the engine's output; a UI passes its own dispatch, e.g.
+     * {@code Platform::runLater}.
+     * 
+     * @param executor The executor for callbacks
+     */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    private void handleEngineExit() {
+        if (isRunning) {
+            // The engine closed its output without being stopped, i.e. it crashed
+            System.err.println("Engine exited unexpectedly");
+            isRunning = false;
+            failOutstanding();
+        }
+    }
+
+    private void processLine(String line) {
+        if (line.startsWith("bestmove")) {
+            handleBestMove(line);
+        } else if (line.startsWith("info")) {
+            EngineInfo info = EngineInfo.parse(line);
+            trackSearchProgress(info);
+            if (onInfo != null && (info.hasScore() || info.getPv().length > 0)) {
+                publishInfo(info);
+            }
+        } else if (line.startsWith("readyok")) {
+            CompletableFuture<Void> ready;
+            synchronized (readyWaiters) {
+                ready = readyWaiters.pollFirst();
+            }
+            if (ready != null) {
+                ready.complete(null);
+            }
+        } else if (!line.startsWith("id ") && !line.startsWith("option ") && !line.equals("uciok")) {
+            lastMessage = line;
+        }
+    }
+
+    private void handleBestMove(String line) {
+        BestMove bestMove = BestMove.parse(line);
+        SearchRequest finished;
+        EngineInfo finalInfo = lastScoredInfo;
+        synchronized (searchLock) {
+            finished = activeSearch;
+            if (finished != null) {
+                cancelBudgetCheck();
+                if (trackOverhead && !finished.cancelled) {
+                    long now = System.nanoTime();
+                    timeManager.recordSearch(TimeUnit.NANOSECONDS.toMillis(now - searchStartNanos),
+                            lastReportedTimeMillis, TimeUnit.NANOSECONDS.toMillis(now - lastReportedNanos));
+                }
+                trackOverhead = false;
+                // Start the next search right away so the engine is never idle
+                dispatchNext();
+            }
+        }
+
+        if (finished == null) {
+            if (bestMove != null && onBestMove != null) {
+                callbackExecutor.execute(() -> onBestMove.accept(bestMove));
+            }
+        } else if (finished.cancelled || bestMove == null) {
+            if (echo) {
+                System.out.println("Discarding stale result of search " + finished.id + ": " + line);
+            }
+            finished.result.cancel(false);
+        } else {
+            finished.analysis = CachedAnalysis.of(finalInfo, bestMove);
+            if (finished.hasKey) {
+                storeAnalysis(finished.positionKey, finished.analysis);
+            }
+            finished.result.complete(bestMove);
+        }
+    }
+
+    private void storeAnalysis(long key, CachedAnalysis analysis) {
+        AnalysisCache cache = analysisCache;
+        if (cache == null || analysis == null) {
+            return;
+        }
+        try {
+            cache.store(key, analysis);
+        } catch (IOException e) {
+            System.err.println("Could not store analysis: " + e.getMessage());
+        }
+    }
+
+    private void trackSearchProgress(EngineInfo info) {
+        if (info.getTimeMillis() >= 0) {
+            lastReportedTimeMillis = info.getTimeMillis();
+            lastReportedNanos = System.nanoTime();
+        }
+        if (info.getMultiPv() == 1 && info.hasScore() && info.getDepth() > 0) {
+            lastScoredInfo = info;
+        }
+        int bestMove = info.getBestMove();
+        if (info.getMultiPv() == 1 && bestMove != PackedMove.NONE && bestMove != currentBestMove) {
+            currentBestMove = bestMove;
+            bestMoveChangedNanos = System.nanoTime();
+        }
+    }
+
+    private void publishInfo(EngineInfo info) {
+        synchronized (pendingInfo) {
+            pendingInfo.put(info.getMultiPv(), info);
+            if (infoDeliveryQueued) {
+                return;
+            }
+            infoDeliveryQueued = true;
+        }
+        callbackExecutor.execute(this::deliverInfo);
+    }
+
+    private void deliverInfo() {
+        List<EngineInfo> snapshot;
+        synchronized (pendingInfo) {
+            snapshot = new ArrayList<>(pendingInfo.values());
+            pendingInfo.clear();
+            infoDeliveryQueued = false;
+        }
+        Consumer<EngineInfo> callback = onInfo;
+        if (callback != null) {
+            for (EngineInfo info : snapshot) {
+                callback.accept(info);
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Returns the last line the engine printed outside the UCI protocol, such as
+     * the error of a jar that could not be run, or null if there was none.
+     */
+    public String getLastMessage() {
+        return lastMessage;
+    }
+
+    /**
+     * Returns whether the engine was started and its process has not exited,
+     * e.g. after a crash.
+     */
+    public boolean isAlive() {
+        if (!isRunning) {
+            return false;
+        }
+        return inProcessEngine != null ? inProcessEngine.isAlive() : process != null && process.isAlive();
+    }
+}
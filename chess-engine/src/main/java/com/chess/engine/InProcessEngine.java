@@ -0,0 +1,367 @@
+package com.chess.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+/**
+ * Runs a Java UCI engine inside this JVM instead of spawning a new one. The
+ * engine jar is loaded by its own class loader and its main method runs on a
+ * thread in a dedicated thread group. {@code System.in} and {@code System.out}
+ * are replaced once by streams that look up the calling thread's group, so the
+ * engine and every thread it starts talk to in-memory pipes while the rest of
+ * the application keeps the real console.
+ *
+ * The engine must not receive {@code quit}: engines typically answer it with
+ * {@code System.exit}, which would end the whole application. Closing the
+ * engine's input ends its read loop instead. Nothing stops an engine that calls
+ * {@code System.exit} for other reasons, e.g. on an internal error, so running
+ * in-process is opt-in and only safe for engines known not to do that.
+ */
+public class InProcessEngine {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final int PIPE_SIZE = 64 * 1024;
+    /** Time the engine's threads get to end before its classes are unloaded. */
+    private static final long STOP_TIMEOUT_MILLIS = 2_000;
+
+    private static boolean streamsInstalled;
+
+    private final EngineThreadGroup group;
+    private final URLClassLoader loader;
+    private final Pipe input = new Pipe(PIPE_SIZE);
+    private final Pipe output = new Pipe(PIPE_SIZE);
+    private final PrintStream engineOut = new PrintStream(output.sink, true);
+    private volatile boolean mainReturned;
+
+    private InProcessEngine(String name, URLClassLoader loader) {
+        this.group = new EngineThreadGroup("engine-" + name, this);
+        this.loader = loader;
+    }
+
+    /**
+     * Returns whether engines can run in this JVM. Engines are built against the
+     * incubating Vector API, which is only available if this JVM was started
+     * with {@code --add-modules jdk.incubator.vector}.
+     */
+    public static boolean isSupported() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Loads the engine jar and starts its main class.
+     *
+     * @param jarPath Path to an executable engine jar
+     * @return The running engine
+     * @throws IOException If the jar cannot be read or has no usable main class
+     */
+    public static InProcessEngine start(String jarPath) throws IOException {
+        File jar = new File(jarPath);
+        String mainClassName;
+        try (JarFile jarFile = new JarFile(jar)) {
+            mainClassName = jarFile.getManifest() != null
+                    ? jarFile.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS)
+                    : null;
+        }
+        if (mainClassName == null) {
+            throw new IOException("No Main-Class in " + jarPath);
+        }
+
+        // Installed before the engine's classes are initialized, in case they keep
+        // a reference to System.out
+        installStreams();
+
+        // Parent is the platform loader: the engine sees the JDK, not our classes
+        URLClassLoader loader = new URLClassLoader(new URL[] { jar.toURI().toURL() },
+                ClassLoader.getPlatformClassLoader());
+        Method main;
+        try {
+            main = Class.forName(mainClassName, true, loader).getMethod("main", String[].class);
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            loader.close();
+            throw new IOException("Cannot load " + mainClassName + " from " + jarPath, e);
+        }
+
+        InProcessEngine engine = new InProcessEngine(jar.getName(), loader);
+        Thread thread = new Thread(engine.group, () -> engine.runMain(main), "engine-main");
+        thread.setContextClassLoader(loader);
+        thread.setDaemon(true);
+        thread.start();
+        return engine;
+    }
+
+    private void runMain(Method main) {
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace(engineOut);
+        } catch (IllegalAccessException e) {
+            e.printStackTrace(engineOut);
+        } finally {
+            // Engines may return from main and keep running on their own threads
+            mainReturned = true;
+        }
+    }
+
+    /**
+     * The engine's output, to be read by the application.
+     */
+    public InputStream getInputStream() {
+        return output.source;
+    }
+
+    /**
+     * The engine's input, to be written by the application.
+     */
+    public OutputStream getOutputStream() {
+        return input.sink;
+    }
+
+    /**
+     * Returns whether the engine is still running, i.e. its main method or any
+     * thread it started has not finished. Once it has ended, its output is closed
+     * so that readers see the end of the stream.
+     */
+    public boolean isAlive() {
+        if (!mainReturned || group.activeCount() > 0) {
+            return true;
+        }
+        output.closeSink();
+        return false;
+    }
+
+    /**
+     * Stops the engine: closes its input and interrupts its threads. The class
+     * loader is released in the background once the threads have ended, since
+     * closing it earlier makes threads still unwinding fail to load classes. If
+     * they do not end in time, the loader is left open.
+     */
+    public void stop() {
+        input.closeSink();
+        group.interrupt();
+        Thread reaper = new Thread(this::releaseLoader, "engine-stop");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    private void releaseLoader() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_TIMEOUT_MILLIS);
+        Thread[] threads = new Thread[group.activeCount() + 16];
+        int count = group.enumerate(threads);
+        try {
+            for (int i = 0; i < count; i++) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining > 0) {
+                    threads[i].join(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            return;
+        }
+        if (group.activeCount() > 0) {
+            System.err.println("Engine threads still running; not unloading " + group.getName());
+            return;
+        }
+        try {
+            loader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static InProcessEngine current() {
+        for (ThreadGroup g = Thread.currentThread().getThreadGroup(); g != null; g = g.getParent()) {
+            if (g instanceof EngineThreadGroup) {
+                return ((EngineThreadGroup) g).engine;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the threads of one engine. Threads the engine starts join its group,
+     * so they are routed to the same streams, even after the engine is stopped.
+     */
+    private static class EngineThreadGroup extends ThreadGroup {
+        final InProcessEngine engine;
+
+        EngineThreadGroup(String name, InProcessEngine engine) {
+            super(name);
+            this.engine = engine;
+        }
+    }
+
+    private static synchronized void installStreams() {
+        if (streamsInstalled) {
+            return;
+        }
+        streamsInstalled = true;
+        InputStream consoleIn = System.in;
+        PrintStream consoleOut = System.out;
+
+        System.setIn(new InputStream() {
+            private InputStream target() {
+                InProcessEngine engine = current();
+                return engine != null ? engine.input.source : consoleIn;
+            }
+
+            @Override
+            public int read() throws IOException {
+                return target().read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return target().read(b, off, len);
+            }
+
+            @Override
+            public int available() throws IOException {
+                return target().available();
+            }
+        });
+        System.setOut(new PrintStream(new OutputStream() {
+            private OutputStream target() {
+                InProcessEngine engine = current();
+                return engine != null ? engine.engineOut : consoleOut;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                target().write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                target().write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                target().flush();
+            }
+        }, true));
+    }
+
+    /**
+     * A bounded byte pipe. Unlike {@link java.io.PipedInputStream} it does not
+     * tie either end to the thread that first used it, since engines write from
+     * whichever search thread finishes.
+     */
+    private static class Pipe {
+        private final byte[] buffer;
+        private int readPos;
+        private int count;
+        private boolean sinkClosed;
+
+        final InputStream source = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return take(b, off, len);
+            }
+
+            @Override
+            public int available() {
+                synchronized (Pipe.this) {
+                    return count;
+                }
+            }
+
+            @Override
+            public void close() {
+                closeSink();
+            }
+        };
+
+        final OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                put(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                put(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                closeSink();
+            }
+        };
+
+        Pipe(int size) {
+            buffer = new byte[size];
+        }
+
+        synchronized void closeSink() {
+            sinkClosed = true;
+            notifyAll();
+        }
+
+        private synchronized int take(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (count == 0) {
+                if (sinkClosed) {
+                    return -1;
+                }
+                await();
+            }
+            int n = Math.min(len, count);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = buffer[(readPos + i) % buffer.length];
+            }
+            readPos = (readPos + n) % buffer.length;
+            count -= n;
+            notifyAll();
+            return n;
+        }
+
+        private synchronized void put(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (sinkClosed) {
+                    throw new IOException("Pipe closed");
+                }
+                if (count == buffer.length) {
+                    await();
+                    continue;
+                }
+                int n = Math.min(len, buffer.length - count);
+                int writePos = (readPos + count) % buffer.length;
+                for (int i = 0; i < n; i++) {
+                    buffer[(writePos + i) % buffer.length] = b[off + i];
+                }
+                count += n;
+                off += n;
+                len -= n;
+                notifyAll();
+            }
+        }
+
+        private void await() throws InterruptedIOException {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package com.chess.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.chess.core.AlgebraicNotationParser;
+import com.chess.core.BoardCoordinates;
+import com.chess.core.Game;
+import com.chess.core.GameState;
+import com.chess.core.Move;
+import com.chess.core.PGNService;
+import com.chess.core.Piece;
+import com.chess.core.PieceColor;
+import com.chess.core.PieceType;
+import com.chess.core.PositionHash;
+
+/**
+ * Plays a headless match between two engine configurations to measure their
+ * Elo difference. Several games run at once, each with its own pair of
+ * engines; since only one engine of a game searches at a time, one game per
+ * core keeps every core busy with single-threaded engines.
+ *
+ * Every opening is played twice with colors reversed, under a Fischer clock.
+ * Games end by checkmate or stalemate as reported by
+ * {@link Game#getGameState()}, by the fifty-move rule, threefold repetition or
+ * insufficient material, or when an engine runs out of time, plays an illegal
+ * move or dies. With an {@link Sprt} set, the match stops as soon as the test
+ * accepts either hypothesis; games still running are abandoned.
+ */
+public class MatchRunner {
+
+    private final EngineConfig first;
+    private final EngineConfig second;
+    private final List<String> openings;
+    private long baseTimeMillis = 10_000;
+    private long incrementMillis = 100;
+    private long timeMarginMillis = 50;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private int maxGames = 1_000;
+    private Sprt sprt;
+    private File pgnOutput;
+    private Consumer<String> log = System.out::println;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private volatile boolean stopped;
+    private int wins;
+    private int draws;
+    private int losses;
+    private Sprt.Decision decision;
+    private IOException failure;
+    private Writer pgnWriter;
+
+    /**
+     * Result of a finished match.
+     */
+    public static class Result {
+        private final MatchScore score;
+        private final Sprt.Decision decision;
+        private final long elapsedMillis;
+
+        Result(MatchScore score, Sprt.Decision decision, long elapsedMillis) {
+            this.score = score;
+            this.decision = decision;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /** Results from the first engine's point of view. */
+        public MatchScore getScore() {
+            return score;
+        }
+
+        /** The SPRT outcome, or null if the match ran without one. */
+        public Sprt.Decision getDecision() {
+            return decision;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    /**
+     * How a game ended.
+     */
+    private static class Outcome {
+        final String result;
+        final String reason;
+
+        Outcome(String result, String reason) {
+            this.result = result;
+            this.reason = reason;
+        }
+
+        static Outcome win(PieceColor winner, String reason) {
+            return new Outcome(winner == PieceColor.WHITE ? "1-0" : "0-1", reason);
+        }
+
+        static Outcome draw(String reason) {
+            return new Outcome("1/2-1/2", reason);
+        }
+    }
+
+    /**
+     * @param first    The engine whose strength is measured
+     * @param second   The reference engine
+     * @param openings Start positions as FEN or EPD, or empty for the standard
+     *                 start position
+     * @throws IllegalArgumentException If an opening cannot be parsed
+     */
+    public MatchRunner(EngineConfig first, EngineConfig second, List<String> openings) {
+        this.first = first;
+        this.second = second;
+        this.openings = openings.isEmpty() ? Collections.singletonList(Game.START_FEN) : new ArrayList<>(openings);
+        for (String opening : this.openings) {
+            new Game().loadFromFen(opening);
+        }
+    }
+
+    /**
+     * Sets the Fischer time control: each side starts with the base time and
+     * gains the increment after each of its moves.
+     */
+    public void setTimeControl(long baseMillis, long incrementMillis) {
+        this.baseTimeMillis = baseMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    /**
+     * Sets how far an engine may overrun its clock before losing on time, to
+     * absorb the latency of talking to the engine.
+     */
+    public void setTimeMarginMillis(long marginMillis) {
+        this.timeMarginMillis = marginMillis;
+    }
+
+    /**
+     * Sets the number of games played at the same time. Defaults to the number
+     * of cores.
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Sets the number of games after which the match ends if the SPRT, if any,
+     * has not stopped it before.
+     */
+    public void setMaxGames(int maxGames) {
+        this.maxGames = maxGames;
+    }
+
+    /**
+     * Sets the test that ends the match early, or null to play all games.
+     */
+    public void setSprt(Sprt sprt) {
+        this.sprt = sprt;
+    }
+
+    /**
+     * Sets a file to which finished games are appended as PGN, or null for none.
+     */
+    public void setPgnOutput(File file) {
+        this.pgnOutput = file;
+    }
+
+    /**
+     * Sets where results and progress are reported. Defaults to standard output.
+     */
+    public void setLog(Consumer<String> log) {
+        this.log = log;
+    }
+
+    /**
+     * Reads start positions from a FEN or EPD file, one per line. Blank lines and
+     * lines starting with '#' are skipped.
+     */
+    public static List<String> readOpenings(File file) throws IOException {
+        List<String> openings = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                openings.add(trimmed);
+            }
+        }
+        return openings;
+    }
+
+    /**
+     * Plays the match and blocks until it ends.
+     *
+     * @return The final score
+     * @throws IOException If an engine cannot be started or the PGN cannot be
+     *                     written
+     */
+    public Result run() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        if (pgnOutput != null) {
+            pgnWriter = new OutputStreamWriter(new FileOutputStream(pgnOutput, true), StandardCharsets.UTF_8);
+        }
+        int workers = Math.min(concurrency, maxGames);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "match-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for (int i = 0; i < workers; i++) {
+                executor.execute(this::playGames);
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Wait for the running games
+            }
+        } finally {
+            stopped = true;
+            executor.shutdownNow();
+            if (pgnWriter != null) {
+                pgnWriter.close();
+            }
+        }
+
+        MatchScore score;
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+            score = new MatchScore(wins, draws, losses);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.accept("Finished: " + first + " vs " + second + ": " + score
+                + (sprt != null ? ", " + sprt.describe(score) + ", " + decision : ""));
+        return new Result(score, decision, elapsedMillis);
+    }
+
+    /**
+     * Plays games on one pair of engines until the match ends.
+     */
+    private void playGames() {
+        EngineService[] engines = new EngineService[2];
+        try {
+            int index;
+            while (!stopped && (index = nextGame.getAndIncrement()) < maxGames) {
+                for (int i = 0; i < engines.length; i++) {
+                    if (engines[i] == null || !engines[i].isAlive()) {
+                        engines[i] = restart(engines[i], i == 0 ? first : second);
+                    }
+                }
+                playGame(index, engines[0], engines[1]);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            // Would otherwise vanish in the executor and silently shorten the match
+            fail(new IOException("Match worker failed", e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (EngineService engine : engines) {
+                if (engine != null) {
+                    engine.stopEngine();
+                }
+            }
+        }
+    }
+
+    private static EngineService restart(EngineService old, EngineConfig config)
+            throws IOException, InterruptedException {
+        if (old != null) {
+            old.stopEngine();
+        }
+        EngineService engine = config.start();
+        try {
+            engine.isReady().get(EnginePool.READY_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            engine.stopEngine();
+            throw new IOException("Engine " + config + " did not become ready", e);
+        }
+        return engine;
+    }
+
+    private void playGame(int index, EngineService firstEngine, EngineService secondEngine)
+            throws IOException, InterruptedException {
+        boolean firstIsWhite = index % 2 == 0;
+        EngineService white = firstIsWhite ? firstEngine : secondEngine;
+        EngineService black = firstIsWhite ? secondEngine : firstEngine;
+        Game game = new Game();
+        game.loadFromFen(openings.get(index / 2 % openings.size()));
+        String startFen = game.getFen();
+        white.newGame();
+        black.newGame();
+
+        long whiteTime = baseTimeMillis;
+        long blackTime = baseTimeMillis;
+        Map<Long, Integer> seen = new HashMap<>();
+        seen.put(PositionHash.of(game), 1);
+        List<String> moves = new ArrayList<>();
+        Outcome outcome = adjudicate(game, seen);
+        while (outcome == null) {
+            if (stopped) {
+                return;
+            }
+            PieceColor turn = game.getCurrentTurn();
+            EngineService engine = turn == PieceColor.WHITE ? white : black;
+            long remaining = turn == PieceColor.WHITE ? whiteTime : blackTime;
+            SearchLimits limits = new SearchLimits().withClock(whiteTime, blackTime, incrementMillis,
+                    incrementMillis);
+
+            long searchStart = System.nanoTime();
+            BestMove bestMove;
+            try {
+                bestMove = engine.search(game.getUciPosition(), limits, Math.max(0, remaining) + timeMarginMillis)
+                        .get();
+            } catch (ExecutionException e) {
+                outcome = Outcome.win(turn.opposite(), e.getCause() instanceof TimeoutException
+                        ? colorName(turn) + " loses on time"
+                        : colorName(turn) + " disconnects");
+                break;
+            }
+            remaining -= TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - searchStart);
+            if (remaining < -timeMarginMillis) {
+                outcome = Outcome.win(turn.opposite(), colorName(turn) + " loses on time");
+                break;
+            }
+            remaining += incrementMillis;
+            if (turn == PieceColor.WHITE) {
+                whiteTime = remaining;
+            } else {
+                blackTime = remaining;
+            }
+
+            Move move = findMove(game, bestMove.getMove());
+            if (move == null) {
+                outcome = Outcome.win(turn.opposite(), colorName(turn) + " makes an illegal move: "
+                        + bestMove.getMove());
+                break;
+            }
+            moves.add(AlgebraicNotationParser.toAlgebraicNotation(move, game.getBoard(), turn));
+            game.makeMove(move);
+            seen.merge(PositionHash.of(game), 1, Integer::sum);
+            outcome = adjudicate(game, seen);
+        }
+        record(index, startFen, firstIsWhite, moves, outcome);
+    }
+
+    /**
+     * Returns the legal move given in UCI notation, or null if it is not legal.
+     */
+    static Move findMove(Game game, String uci) {
+        // Also rejects the null move "0000" that some engines send when lost
+        if (uci == null || !uci.matches("[a-h][1-8][a-h][1-8][nbrq]?")) {
+            return null;
+        }
+        int startX = BoardCoordinates.xFromFile(uci.charAt(0));
+        int startY = BoardCoordinates.yFromRankChar(uci.charAt(1));
+        for (Move move : game.getLegalMoves(startX, startY)) {
+            if (move.toUciNotation().equals(uci)) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns how the game ended, or null if it goes on.
+     */
+    private static Outcome adjudicate(Game game, Map<Long, Integer> seen) {
+        GameState state = game.getGameState();
+        if (state == GameState.CHECKMATE) {
+            PieceColor winner = game.getCurrentTurn().opposite();
+            return Outcome.win(winner, colorName(winner) + " mates");
+        }
+        if (state == GameState.STALEMATE) {
+            return Outcome.draw("Stalemate");
+        }
+        if (game.getHalfMoveClock() >= 100) {
+            return Outcome.draw("Fifty-move rule");
+        }
+        if (seen.getOrDefault(PositionHash.of(game), 0) >= 3) {
+            return Outcome.draw("Threefold repetition");
+        }
+        if (isInsufficientMaterial(game)) {
+            return Outcome.draw("Insufficient material");
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether neither side can mate: bare kings, or a single minor
+     * piece left.
+     */
+    static boolean isInsufficientMaterial(Game game) {
+        int minors = 0;
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                Piece piece = game.getBoard().getPiece(x, y);
+                if (piece == null || piece.getType() == PieceType.KING) {
+                    continue;
+                }
+                if (piece.getType() != PieceType.BISHOP && piece.getType() != PieceType.KNIGHT) {
+                    return false;
+                }
+                minors++;
+            }
+        }
+        return minors <= 1;
+    }
+
+    private static String colorName(PieceColor color) {
+        return color == PieceColor.WHITE ? "White" : "Black";
+    }
+
+    private void record(int index, String startFen, boolean firstIsWhite, List<String> moves, Outcome outcome)
+            throws IOException {
+        EngineConfig white = firstIsWhite ? first : second;
+        EngineConfig black = firstIsWhite ? second : first;
+        synchronized (this) {
+            if (stopped && decision != null) {
+                // The match was decided while this game was running
+                return;
+            }
+            if (outcome.result.equals("1/2-1/2")) {
+                draws++;
+            } else if (outcome.result.equals("1-0") == firstIsWhite) {
+                wins++;
+            } else {
+                losses++;
+            }
+            MatchScore score = new MatchScore(wins, draws, losses);
+            log.accept("Game " + (index + 1) + " (" + white + " vs " + black + "): " + outcome.result + " {"
+                    + outcome.reason + "}");
+            log.accept("Score of " + first + " vs " + second + ": " + score
+                    + (sprt != null ? ", " + sprt.describe(score) : ""));
+            if (sprt != null) {
+                Sprt.Decision current = sprt.decide(score);
+                if (current != Sprt.Decision.CONTINUE) {
+                    decision = current;
+                    stopped = true;
+                }
+            }
+
+            if (pgnWriter != null) {
+                Map<String, String> tags = new LinkedHashMap<>();
+                tags.put("Event", first + " vs " + second);
+                tags.put("Round", String.valueOf(index + 1));
+                tags.put("White", white.getName());
+                tags.put("Black", black.getName());
+                tags.put("Result", outcome.result);
+                if (!startFen.equals(Game.START_FEN)) {
+                    tags.put("SetUp", "1");
+                    tags.put("FEN", startFen);
+                }
+                List<String> comments = new ArrayList<>(Collections.nCopies(moves.size(), (String) null));
+                if (!moves.isEmpty()) {
+                    comments.set(moves.size() - 1, outcome.reason);
+                }
+                PGNService.writeGame(pgnWriter, tags, moves, comments, outcome.result);
+                pgnWriter.flush();
+            }
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        stopped = true;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: MatchRunner <engine1> <engine2> [--openings file.epd] [--games n]"
+                    + " [--concurrency n] [--tc seconds+increment] [--sprt elo0,elo1] [--pgn file] [--inprocess]");
+            System.exit(2);
+        }
+        EngineConfig first = new EngineConfig(new File(args[0]).getName(), args[0]);
+        EngineConfig second = new EngineConfig(new File(args[1]).getName(), args[1]);
+        if (first.getName().equals(second.getName())) {
+            first = new EngineConfig(first.getName() + " (1)", args[0]);
+            second = new EngineConfig(second.getName() + " (2)", args[1]);
+        }
+        List<String> openings = new ArrayList<>();
+        String tc = null;
+        String sprtBounds = null;
+        String games = null;
+        String concurrency = null;
+        String pgn = null;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--openings":
+                    openings = readOpenings(new File(args[++i]));
+                    break;
+                case "--games":
+                    games = args[++i];
+                    break;
+                case "--concurrency":
+                    concurrency = args[++i];
+                    break;
+                case "--tc":
+                    tc = args[++i];
+                    break;
+                case "--sprt":
+                    sprtBounds = args[++i];
+                    break;
+                case "--pgn":
+                    pgn = args[++i];
+                    break;
+                case "--inprocess":
+                    first.withInProcess(true);
+                    second.withInProcess(true);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        MatchRunner runner = new MatchRunner(first, second, openings);
+        if (tc != null) {
+            String[] parts = tc.split("\\+");
+            runner.setTimeControl((long) (Double.parseDouble(parts[0]) * 1000),
+                    parts.length > 1 ? (long) (Double.parseDouble(parts[1]) * 1000) : 0);
+        }
+        if (games != null) {
+            runner.setMaxGames(Integer.parseInt(games));
+        }
+        if (concurrency != null) {
+            runner.setConcurrency(Integer.parseInt(concurrency));
+        }
+        if (sprtBounds != null) {
+            String[] bounds = sprtBounds.split(",");
+            runner.setSprt(new Sprt(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]), 0.05, 0.05));
+        }
+        if (pgn != null) {
+            runner.setPgnOutput(new File(pgn));
+        }
+        runner.run();
+    }
+}
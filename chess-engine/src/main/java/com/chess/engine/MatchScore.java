@@ -0,0 +1,109 @@
+package com.chess.engine;
+
+import java.util.Locale;
+
+/**
+ * Wins, draws and losses of the first engine of a match, with the Elo
+ * difference they imply. Error bars use the normal approximation of the mean
+ * game score, as is usual for engine testing.
+ */
+public class MatchScore {
+    /** Two-sided 95% quantile of the normal distribution. */
+    private static final double Z_95 = 1.959964;
+
+    private final int wins;
+    private final int draws;
+    private final int losses;
+
+    public MatchScore(int wins, int draws, int losses) {
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    public int getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * Returns the mean score per game, between 0 and 1, or 0.5 before any game.
+     */
+    public double getScore() {
+        int games = getGames();
+        return games == 0 ? 0.5 : (wins + 0.5 * draws) / games;
+    }
+
+    /**
+     * Returns the variance of a single game's score.
+     */
+    double getVariance() {
+        int games = getGames();
+        if (games == 0) {
+            return 0;
+        }
+        double s = getScore();
+        return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s) + losses * s * s) / games;
+    }
+
+    /**
+     * Returns the Elo difference of the first engine over the second; infinite
+     * if one side scored everything.
+     */
+    public double getElo() {
+        return eloFromScore(getScore());
+    }
+
+    /**
+     * Returns the half width of the 95% confidence interval of
+     * {@link #getElo()}, or infinity if it cannot be estimated yet.
+     */
+    public double getEloError() {
+        int games = getGames();
+        if (games == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double margin = Z_95 * Math.sqrt(getVariance() / games);
+        double s = getScore();
+        double width = eloFromScore(Math.min(1, s + margin)) - eloFromScore(Math.max(0, s - margin));
+        // A one-sided score has an infinite Elo, and no meaningful interval
+        return Double.isNaN(width) ? Double.POSITIVE_INFINITY : width / 2;
+    }
+
+    /**
+     * Converts an expected score into an Elo difference with the logistic model.
+     */
+    public static double eloFromScore(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * Converts an Elo difference into the expected score of the stronger side.
+     */
+    public static double scoreFromElo(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d - %d - %d [%.3f] %d, Elo %.1f +/- %.1f", wins, losses, draws,
+                getScore(), getGames(), getElo(), getEloError());
+    }
+}
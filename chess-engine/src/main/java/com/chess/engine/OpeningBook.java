@@ -0,0 +1,165 @@
+package com.chess.engine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.chess.core.BoardCoordinates;
+import com.chess.core.Game;
+import com.chess.core.Piece;
+import com.chess.core.PieceType;
+import com.chess.core.PositionHash;
+
+/**
+ * Read-only opening book in the Polyglot {@code .bin} layout.
+ * The file is memory-mapped and looked up by binary search on the position
+ * key, so a probe costs a handful of memory reads instead of an engine search.
+ * Entries are 16 bytes, big-endian: key (8), move (2), weight (2), learn (4),
+ * sorted by key. Keys are computed with {@link PositionHash}.
+ */
+public class OpeningBook implements Closeable {
+    static final int ENTRY_SIZE = 16;
+
+    /** Default number of plies after which the book is no longer consulted. */
+    public static final int DEFAULT_MAX_PLY = 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer entries;
+    private final int entryCount;
+    private final Random random = new Random();
+    private int maxPly = DEFAULT_MAX_PLY;
+
+    private OpeningBook(FileChannel channel, ByteBuffer entries) {
+        this.channel = channel;
+        this.entries = entries;
+        this.entryCount = entries.capacity() / ENTRY_SIZE;
+    }
+
+    /**
+     * Opens and memory-maps a book file.
+     *
+     * @param file The book file
+     * @return The opened book
+     * @throws IOException If the file cannot be read
+     */
+    public static OpeningBook open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long usable = channel.size() - channel.size() % ENTRY_SIZE;
+            return new OpeningBook(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, usable));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    /**
+     * Sets how deep into the game the book is consulted.
+     *
+     * @param maxPly Number of plies (half-moves) from the start of the game
+     */
+    public void setMaxPly(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Picks a book move for the current position, weighted by the entry weights.
+     *
+     * @param game The game to look up
+     * @return The move in UCI notation, or null if the position is out of book
+     */
+    public String pickMove(Game game) {
+        if (game.getCurrentMoveIndex() + 1 >= maxPly) {
+            return null;
+        }
+        List<int[]> candidates = findEntries(PositionHash.of(game));
+        int total = 0;
+        for (int[] entry : candidates) {
+            total += entry[1];
+        }
+        if (total == 0) {
+            return null;
+        }
+        int pick = random.nextInt(total);
+        for (int[] entry : candidates) {
+            pick -= entry[1];
+            if (pick < 0) {
+                return decodeMove(entry[0], game);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all entries for a key as {move, weight} pairs.
+     */
+    List<int[]> findEntries(long key) {
+        List<int[]> result = new ArrayList<>();
+        int lo = 0;
+        int hi = entryCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(keyAt(mid), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < entryCount && keyAt(i) == key; i++) {
+            int offset = i * ENTRY_SIZE;
+            int move = entries.getShort(offset + 8) & 0xFFFF;
+            int weight = entries.getShort(offset + 10) & 0xFFFF;
+            result.add(new int[] { move, weight });
+        }
+        return result;
+    }
+
+    private long keyAt(int index) {
+        return entries.getLong(index * ENTRY_SIZE);
+    }
+
+    /**
+     * Decodes a Polyglot move. Castling is stored as "king captures own rook"
+     * (e1h1) and is translated to the king's destination square (e1g1).
+     */
+    static String decodeMove(int move, Game game) {
+        int toFile = move & 7;
+        int toRow = (move >> 3) & 7;
+        int fromFile = (move >> 6) & 7;
+        int fromRow = (move >> 9) & 7;
+        int promotion = (move >> 12) & 7;
+
+        int fromY = 7 - fromRow;
+        Piece moved = game.getBoard().getPiece(fromFile, fromY);
+        if (moved != null && moved.getType() == PieceType.KING && fromFile == 4 && fromRow == toRow) {
+            if (toFile == 7) {
+                toFile = 6;
+            } else if (toFile == 0) {
+                toFile = 2;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(5)
+                .append(BoardCoordinates.toAlgebraic(fromFile, fromY))
+                .append(BoardCoordinates.toAlgebraic(toFile, 7 - toRow));
+        if (promotion > 0) {
+            sb.append(" nbrq".charAt(promotion));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
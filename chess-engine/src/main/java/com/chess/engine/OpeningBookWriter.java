@@ -0,0 +1,104 @@
+package com.chess.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.chess.core.Game;
+import com.chess.core.Move;
+import com.chess.core.PieceType;
+import com.chess.core.PositionHash;
+
+/**
+ * Builds an {@link OpeningBook} file from played games. Each move played in
+ * the first {@code maxPly} plies of a game adds one to the weight of that move
+ * in that position.
+ */
+public class OpeningBookWriter {
+    private static final int MAX_WEIGHT = 0xFFFF;
+
+    private final int maxPly;
+    private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+
+    public OpeningBookWriter(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    /**
+     * Adds the moves of a game to the book.
+     *
+     * @param game The game to add; its move history is replayed from the start
+     */
+    public void addGame(Game game) {
+        Game replay = new Game();
+        List<Move> history = game.getMoveHistory();
+        int plies = Math.min(maxPly, history.size());
+        for (int i = 0; i < plies; i++) {
+            Move move = history.get(i);
+            long key = PositionHash.of(replay);
+            int encoded = encodeMove(move);
+            if (!replay.makeMoveFromUCI(move.toUciNotation())) {
+                return;
+            }
+            weights.computeIfAbsent(key, k -> new HashMap<>()).merge(encoded, 1,
+                    (a, b) -> Math.min(MAX_WEIGHT, a + b));
+        }
+    }
+
+    /**
+     * Writes the book, sorted by key as required for binary search.
+     *
+     * @param file The destination file
+     * @throws IOException If the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        List<Long> keys = new ArrayList<>(weights.keySet());
+        keys.sort(Long::compareUnsigned);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            for (long key : keys) {
+                for (Map.Entry<Integer, Integer> entry : weights.get(key).entrySet()) {
+                    out.writeLong(key);
+                    out.writeShort(entry.getKey());
+                    out.writeShort(entry.getValue());
+                    out.writeInt(0);
+                }
+            }
+        }
+    }
+
+    static int encodeMove(Move move) {
+        int fromFile = move.getStartX();
+        int fromRow = 7 - move.getStartY();
+        int toFile = move.getEndX();
+        int toRow = 7 - move.getEndY();
+        if (move.isCastling()) {
+            toFile = toFile > fromFile ? 7 : 0;
+        }
+        int promotion = 0;
+        if (move.isPromotion() && move.getPromotionType() != null) {
+            promotion = promotionCode(move.getPromotionType());
+        }
+        return toFile | (toRow << 3) | (fromFile << 6) | (fromRow << 9) | (promotion << 12);
+    }
+
+    private static int promotionCode(PieceType type) {
+        switch (type) {
+            case KNIGHT:
+                return 1;
+            case BISHOP:
+                return 2;
+            case ROOK:
+                return 3;
+            case QUEEN:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+}
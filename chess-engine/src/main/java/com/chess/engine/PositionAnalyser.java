@@ -0,0 +1,26 @@
+package com.chess.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Something that evaluates positions asynchronously: a local
+ * {@link EnginePool} or a farm of remote workers behind an
+ * {@link AnalysisCoordinator}.
+ */
+public interface PositionAnalyser {
+
+    /**
+     * Evaluates one position.
+     *
+     * @param position    The "position ..." command to search
+     * @param positionKey The position's {@link com.chess.core.PositionHash} key
+     * @param limits      The search limits
+     * @return A future completed with the analysis
+     */
+    CompletableFuture<CachedAnalysis> analyse(String position, long positionKey, SearchLimits limits);
+
+    /**
+     * Returns how many positions are currently analysed in parallel at most.
+     */
+    int getCapacity();
+}
@@ -0,0 +1,181 @@
+package com.chess.engine;
+
+/**
+ * Limits for a single engine search, translated into a UCI {@code go} command.
+ * Unset values are omitted from the command. The soft and hard budgets are
+ * enforced on our side by {@link EngineService} and are not sent to the engine.
+ */
+public class SearchLimits {
+    private int depth;
+    private long moveTimeMillis;
+    private long whiteTimeMillis = -1;
+    private long blackTimeMillis = -1;
+    private long whiteIncrementMillis;
+    private long blackIncrementMillis;
+    private int movesToGo;
+    private boolean infinite;
+    private boolean ponder;
+    private long softLimitMillis;
+    private long hardLimitMillis;
+
+    public SearchLimits withDepth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    public SearchLimits withMoveTime(long millis) {
+        this.moveTimeMillis = millis;
+        return this;
+    }
+
+    /**
+     * Sets the remaining clock times and increments for both sides.
+     */
+    public SearchLimits withClock(long whiteTimeMillis, long blackTimeMillis, long whiteIncrementMillis,
+            long blackIncrementMillis) {
+        this.whiteTimeMillis = whiteTimeMillis;
+        this.blackTimeMillis = blackTimeMillis;
+        this.whiteIncrementMillis = whiteIncrementMillis;
+        this.blackIncrementMillis = blackIncrementMillis;
+        return this;
+    }
+
+    /**
+     * Sets the number of moves until the next time control. Leave unset for
+     * sudden death.
+     */
+    public SearchLimits withMovesToGo(int movesToGo) {
+        this.movesToGo = movesToGo;
+        return this;
+    }
+
+    public SearchLimits withInfinite(boolean infinite) {
+        this.infinite = infinite;
+        return this;
+    }
+
+    /**
+     * Marks the search as a ponder search on the expected reply. The engine
+     * keeps searching until {@code ponderhit} or {@code stop}.
+     */
+    public SearchLimits withPonder(boolean ponder) {
+        this.ponder = ponder;
+        return this;
+    }
+
+    /**
+     * Sets the client-side time budget. At the soft limit the search is stopped
+     * unless the best move is still changing; at the hard limit it is always
+     * stopped.
+     */
+    public SearchLimits withBudget(long softLimitMillis, long hardLimitMillis) {
+        this.softLimitMillis = softLimitMillis;
+        this.hardLimitMillis = hardLimitMillis;
+        return this;
+    }
+
+    public boolean isPonder() {
+        return ponder;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public boolean hasClock() {
+        return whiteTimeMillis >= 0 && blackTimeMillis >= 0;
+    }
+
+    public long getSoftLimitMillis() {
+        return softLimitMillis;
+    }
+
+    public long getHardLimitMillis() {
+        return hardLimitMillis;
+    }
+
+    public String toGoCommand() {
+        StringBuilder sb = new StringBuilder("go");
+        if (ponder) {
+            sb.append(" ponder");
+        }
+        if (infinite) {
+            sb.append(" infinite");
+        }
+        if (hasClock()) {
+            sb.append(" wtime ").append(whiteTimeMillis)
+                    .append(" btime ").append(blackTimeMillis)
+                    .append(" winc ").append(whiteIncrementMillis)
+                    .append(" binc ").append(blackIncrementMillis);
+            if (movesToGo > 0) {
+                sb.append(" movestogo ").append(movesToGo);
+            }
+        }
+        if (depth > 0) {
+            sb.append(" depth ").append(depth);
+        }
+        if (moveTimeMillis > 0) {
+            sb.append(" movetime ").append(moveTimeMillis);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses the output of {@link #toGoCommand()}. Unknown tokens are ignored.
+     * 
+     * @param command e.g. "go wtime 60000 btime 60000 winc 0 binc 0"
+     * @return The limits
+     * @throws IllegalArgumentException If a value is not a number
+     */
+    public static SearchLimits fromGoCommand(String command) {
+        SearchLimits limits = new SearchLimits();
+        String[] tokens = command.trim().split("\\s+");
+        try {
+            for (int i = 0; i < tokens.length; i++) {
+                switch (tokens[i]) {
+                    case "ponder":
+                        limits.ponder = true;
+                        break;
+                    case "infinite":
+                        limits.infinite = true;
+                        break;
+                    case "wtime":
+                        limits.whiteTimeMillis = Long.parseLong(tokens[++i]);
+                        break;
+                    case "btime":
+                        limits.blackTimeMillis = Long.parseLong(tokens[++i]);
+                        break;
+                    case "winc":
+                        limits.whiteIncrementMillis = Long.parseLong(tokens[++i]);
+                        break;
+                    case "binc":
+                        limits.blackIncrementMillis = Long.parseLong(tokens[++i]);
+                        break;
+                    case "movestogo":
+                        limits.movesToGo = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "depth":
+                        limits.depth = Integer.parseInt(tokens[++i]);
+                        break;
+                    case "movetime":
+                        limits.moveTimeMillis = Long.parseLong(tokens[++i]);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Bad go command: " + command, e);
+        }
+        return limits;
+    }
+
+    @Override
+    public String toString() {
+        return toGoCommand();
+    }
+}
@@ -0,0 +1,132 @@
+package com.chess.engine;
+
+import java.util.Locale;
+
+/**
+ * Sequential probability ratio test between two Elo hypotheses, H0 "the
+ * difference is elo0" and H1 "the difference is elo1". After each game the log
+ * likelihood ratio is compared with bounds derived from the error rates; the
+ * match can stop as soon as either bound is crossed, typically long before a
+ * fixed-length match would be conclusive.
+ *
+ * This is the generalized SPRT for win/draw/loss results: the likelihood of
+ * each hypothesis is that of the most likely result distribution whose mean
+ * score matches its Elo difference.
+ */
+public class Sprt {
+    /** Score of a loss, a draw and a win. */
+    private static final double[] SCORES = { 0, 0.5, 1 };
+    /** Stand-in for empty result classes, whose probability could not be estimated. */
+    private static final double EMPTY_COUNT = 1e-3;
+
+    public enum Decision {
+        /** Neither bound reached; keep playing. */
+        CONTINUE,
+        /** Lower bound reached: the difference is not above elo0. */
+        ACCEPT_H0,
+        /** Upper bound reached: the difference is at least elo1. */
+        ACCEPT_H1
+    }
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    /**
+     * @param elo0  Elo difference under H0
+     * @param elo1  Elo difference under H1, greater than elo0
+     * @param alpha Probability of accepting H1 when H0 holds
+     * @param beta  Probability of accepting H0 when H1 holds
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) {
+            throw new IllegalArgumentException("elo1 must be greater than elo0: " + elo0 + ", " + elo1);
+        }
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1) {
+            throw new IllegalArgumentException("Error rates must be between 0 and 1: " + alpha + ", " + beta);
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.lowerBound = Math.log(beta / (1 - alpha));
+        this.upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public double getLowerBound() {
+        return lowerBound;
+    }
+
+    public double getUpperBound() {
+        return upperBound;
+    }
+
+    /**
+     * Returns the log likelihood ratio of H1 over H0 for the given results.
+     */
+    public double llr(MatchScore score) {
+        if (score.getGames() == 0) {
+            return 0;
+        }
+        double[] counts = {
+                Math.max(score.getLosses(), EMPTY_COUNT),
+                Math.max(score.getDraws(), EMPTY_COUNT),
+                Math.max(score.getWins(), EMPTY_COUNT) };
+        double s0 = MatchScore.scoreFromElo(elo0);
+        double s1 = MatchScore.scoreFromElo(elo1);
+        double theta0 = lagrangeMultiplier(counts, s0);
+        double theta1 = lagrangeMultiplier(counts, s1);
+        double llr = 0;
+        for (int i = 0; i < counts.length; i++) {
+            llr += counts[i] * (Math.log(1 + theta0 * (SCORES[i] - s0)) - Math.log(1 + theta1 * (SCORES[i] - s1)));
+        }
+        return llr;
+    }
+
+    /**
+     * Finds the multiplier theta for which the distribution
+     * {@code p[i] = f[i] / (1 + theta * (score[i] - s))} has mean score s; this
+     * is the most likely distribution of results given that expectation. The
+     * mean of that distribution falls as theta grows, so bisection finds it.
+     */
+    private static double lagrangeMultiplier(double[] counts, double s) {
+        // Every probability must stay positive
+        double low = -1 / (1 - s);
+        double high = 1 / s;
+        for (int iteration = 0; iteration < 100; iteration++) {
+            double theta = (low + high) / 2;
+            double gradient = 0;
+            for (int i = 0; i < counts.length; i++) {
+                gradient += counts[i] * (SCORES[i] - s) / (1 + theta * (SCORES[i] - s));
+            }
+            if (gradient > 0) {
+                low = theta;
+            } else {
+                high = theta;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    public Decision decide(MatchScore score) {
+        double llr = llr(score);
+        if (llr >= upperBound) {
+            return Decision.ACCEPT_H1;
+        }
+        if (llr <= lowerBound) {
+            return Decision.ACCEPT_H0;
+        }
+        return Decision.CONTINUE;
+    }
+
+    /**
+     * Describes the test state, e.g. "LLR 1.23 (-2.94, 2.94) [0, 5]".
+     */
+    public String describe(MatchScore score) {
+        return String.format(Locale.ROOT, "LLR %.2f (%.2f, %.2f) [%s, %s]", llr(score), lowerBound, upperBound,
+                format(elo0), format(elo1));
+    }
+
+    private static String format(double elo) {
+        return elo == Math.rint(elo) ? String.valueOf((long) elo) : String.valueOf(elo);
+    }
+}
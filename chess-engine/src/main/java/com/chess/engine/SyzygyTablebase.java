@@ -0,0 +1,1165 @@
+package com.chess.engine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.chess.core.Board;
+import com.chess.core.Game;
+import com.chess.core.Move;
+import com.chess.core.MoveValidator;
+import com.chess.core.Piece;
+import com.chess.core.PieceColor;
+import com.chess.core.PieceType;
+
+/**
+ * Read-only Syzygy endgame tablebases: WDL ({@code .rtbw}) and DTZ
+ * ({@code .rtbz}) tables in the layout written by the Syzygy generator and read
+ * by Stockfish's {@code tbprobe}, which this class follows.
+ * <p>
+ * Opening a directory only lists the tables. A table's header is read the
+ * first time a position needs it, and its file is memory-mapped in regions of
+ * {@link #DEFAULT_REGION_SIZE} bytes as they are read. At most
+ * {@link #DEFAULT_MAX_REGIONS} regions are kept across all tables, the least
+ * recently used being dropped first; a dropped region is unmapped once it is
+ * garbage collected.
+ * <p>
+ * Positions with castling rights are never probed. Instances are not safe for
+ * concurrent probes.
+ */
+public class SyzygyTablebase implements Closeable {
+    /** Win, loss and draw values returned by {@link #probeWdl(Game)}. */
+    public static final int LOSS = -2;
+    /** A loss that the 50-move rule turns into a draw. */
+    public static final int BLESSED_LOSS = -1;
+    public static final int DRAW = 0;
+    /** A win that the 50-move rule turns into a draw. */
+    public static final int CURSED_WIN = 1;
+    public static final int WIN = 2;
+
+    /** Size of a mapped region; tables smaller than this are mapped whole. */
+    public static final int DEFAULT_REGION_SIZE = 1 << 26;
+    /** Number of mapped regions kept open at once, across all tables. */
+    public static final int DEFAULT_MAX_REGIONS = 64;
+
+    static final String WDL_SUFFIX = ".rtbw";
+    static final String DTZ_SUFFIX = ".rtbz";
+    static final int[] WDL_MAGIC = { 0x71, 0xE8, 0x23, 0x5D };
+    static final int[] DTZ_MAGIC = { 0xD7, 0x66, 0x0C, 0xA5 };
+
+    // Table flags, per side (and per file for tables with pawns)
+    static final int FLAG_STM = 1;
+    static final int FLAG_MAPPED = 2;
+    static final int FLAG_WIN_PLIES = 4;
+    static final int FLAG_LOSS_PLIES = 8;
+    static final int FLAG_WIDE = 16;
+    static final int FLAG_SINGLE_VALUE = 128;
+
+    private static final int MAX_PIECES = 7;
+    private static final String PIECE_ORDER = "KQRBNP";
+
+    // Outcome of a probe, as in tbprobe
+    private static final int FAIL = 0;
+    private static final int OK = 1;
+    private static final int CHANGE_STM = -1;
+    private static final int ZEROING_BEST_MOVE = 2;
+
+    // Index tables for encoding a position, built once
+    static final int[] MAP_B1H1H7 = new int[64];
+    static final int[] MAP_A1D1D4 = new int[64];
+    static final int[][] MAP_KK = new int[10][64];
+    static final long[][] BINOMIAL = new long[MAX_PIECES][64];
+    static final int[] MAP_PAWNS = new int[64];
+    static final int[][] LEAD_PAWN_IDX = new int[6][64];
+    static final int[][] LEAD_PAWNS_SIZE = new int[6][4];
+    static final int KING_PAIRS;
+
+    static {
+        int code = 0;
+        for (int s = 0; s < 64; s++) {
+            if (offA1H8(s) < 0) {
+                MAP_B1H1H7[s] = code++;
+            }
+        }
+
+        // Squares below the a1-d4 diagonal first, the diagonal last
+        List<Integer> diagonal = new ArrayList<>();
+        code = 0;
+        for (int s = 0; s <= 27; s++) {
+            if (offA1H8(s) < 0 && file(s) <= 3) {
+                MAP_A1D1D4[s] = code++;
+            } else if (offA1H8(s) == 0 && file(s) <= 3) {
+                diagonal.add(s);
+            }
+        }
+        for (int s : diagonal) {
+            MAP_A1D1D4[s] = code++;
+        }
+
+        // The 462 placements of two kings with the first in the a1-d1-d4 triangle;
+        // with the first on the diagonal, the second is not above it
+        List<int[]> bothOnDiagonal = new ArrayList<>();
+        code = 0;
+        for (int idx = 0; idx < 10; idx++) {
+            for (int s1 = 0; s1 <= 27; s1++) {
+                if (MAP_A1D1D4[s1] != idx || (idx == 0 && s1 != 1)) {
+                    continue;
+                }
+                for (int s2 = 0; s2 < 64; s2++) {
+                    if (Math.max(Math.abs(file(s1) - file(s2)), Math.abs(rank(s1) - rank(s2))) <= 1) {
+                        continue;
+                    } else if (offA1H8(s1) == 0 && offA1H8(s2) > 0) {
+                        continue;
+                    } else if (offA1H8(s1) == 0 && offA1H8(s2) == 0) {
+                        bothOnDiagonal.add(new int[] { idx, s2 });
+                    } else {
+                        MAP_KK[idx][s2] = code++;
+                    }
+                }
+            }
+        }
+        for (int[] pair : bothOnDiagonal) {
+            MAP_KK[pair[0]][pair[1]] = code++;
+        }
+        KING_PAIRS = code;
+
+        BINOMIAL[0][0] = 1;
+        for (int n = 1; n < 64; n++) {
+            for (int k = 0; k < MAX_PIECES && k <= n; k++) {
+                BINOMIAL[k][n] = (k > 0 ? BINOMIAL[k - 1][n - 1] : 0) + (k < n ? BINOMIAL[k][n - 1] : 0);
+            }
+        }
+
+        // The leading pawn is the one with the highest MAP_PAWNS value: nearest
+        // the edge and, on the same file, the lowest
+        int availableSquares = 47;
+        for (int leadPawns = 1; leadPawns <= 5; leadPawns++) {
+            for (int f = 0; f <= 3; f++) {
+                int idx = 0;
+                for (int r = 1; r <= 6; r++) {
+                    int sq = r * 8 + f;
+                    if (leadPawns == 1) {
+                        MAP_PAWNS[sq] = availableSquares--;
+                        MAP_PAWNS[sq ^ 7] = availableSquares--;
+                    }
+                    LEAD_PAWN_IDX[leadPawns][sq] = idx;
+                    idx += BINOMIAL[leadPawns - 1][MAP_PAWNS[sq]];
+                }
+                LEAD_PAWNS_SIZE[leadPawns][f] = idx;
+            }
+        }
+    }
+
+    private final File directory;
+    private final int regionBits;
+    private final int maxRegions;
+    private final Map<String, Table> wdlTables = new HashMap<>();
+    private final Map<String, Table> dtzTables = new HashMap<>();
+    private final List<TableFile> files = new ArrayList<>();
+    private final LinkedHashMap<Long, ByteBuffer> regions;
+    private int maxPieces;
+
+    private SyzygyTablebase(File directory, int regionBits, int maxRegions) {
+        this.directory = directory;
+        this.regionBits = regionBits;
+        this.maxRegions = maxRegions;
+        this.regions = new LinkedHashMap<Long, ByteBuffer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ByteBuffer> eldest) {
+                return size() > SyzygyTablebase.this.maxRegions;
+            }
+        };
+    }
+
+    /**
+     * Lists the tables in a directory. No table is read until a position needs it.
+     *
+     * @param directory The directory holding {@code *.rtbw} and {@code *.rtbz} files
+     * @return The tablebase
+     * @throws IOException If the directory cannot be listed
+     */
+    public static SyzygyTablebase open(File directory) throws IOException {
+        return open(directory, DEFAULT_REGION_SIZE, DEFAULT_MAX_REGIONS);
+    }
+
+    static SyzygyTablebase open(File directory, int regionSize, int maxRegions) throws IOException {
+        if (Integer.bitCount(regionSize) != 1 || maxRegions < 1) {
+            throw new IllegalArgumentException("Bad region size or count: " + regionSize + ", " + maxRegions);
+        }
+        File[] tables = directory.listFiles((dir, name) -> name.endsWith(WDL_SUFFIX));
+        if (tables == null) {
+            throw new IOException("Cannot list " + directory);
+        }
+        SyzygyTablebase tablebase = new SyzygyTablebase(directory, Integer.numberOfTrailingZeros(regionSize),
+                maxRegions);
+        for (File table : tables) {
+            String name = table.getName();
+            tablebase.add(name.substring(0, name.length() - WDL_SUFFIX.length()));
+        }
+        return tablebase;
+    }
+
+    private void add(String code) {
+        if (!code.matches("K[QRBNP]*vK[QRBNP]*") || code.length() - 1 > MAX_PIECES) {
+            return;
+        }
+        Table wdl = new Table(code, false);
+        wdlTables.put(wdl.key, wdl);
+        wdlTables.put(wdl.key2, wdl);
+        Table dtz = new Table(code, true);
+        dtzTables.put(dtz.key, dtz);
+        dtzTables.put(dtz.key2, dtz);
+        maxPieces = Math.max(maxPieces, wdl.pieceCount);
+    }
+
+    /** Returns the number of pieces, kings included, of the largest table found. */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    /** Returns the number of distinct tables found. */
+    public int getTableCount() {
+        return (int) wdlTables.values().stream().distinct().count();
+    }
+
+    int getMappedRegionCount() {
+        synchronized (regions) {
+            return regions.size();
+        }
+    }
+
+    /**
+     * Probes the win/draw/loss value of a position for the side to move.
+     *
+     * @param game The game whose current position is probed
+     * @return One of {@link #WIN}, {@link #CURSED_WIN}, {@link #DRAW},
+     *         {@link #BLESSED_LOSS} or {@link #LOSS}, or null if the tables do
+     *         not cover the position
+     * @throws UncheckedIOException If a table cannot be read
+     */
+    public Integer probeWdl(Game game) {
+        Position pos = Position.of(game, maxPieces);
+        if (pos == null) {
+            return null;
+        }
+        int wdl = probeWdl(pos);
+        return pos.state == FAIL ? null : wdl;
+    }
+
+    /**
+     * Probes the distance to zeroing of a position: the number of plies until
+     * the next capture or pawn move with best play, positive if the side to move
+     * wins and negative if it loses. A cursed win or blessed loss counts 100
+     * plies more.
+     *
+     * @param game The game whose current position is probed
+     * @return The distance in plies, 0 for a draw, or null if the tables do not
+     *         cover the position
+     * @throws UncheckedIOException If a table cannot be read
+     */
+    public Integer probeDtz(Game game) {
+        Position pos = Position.of(game, maxPieces);
+        if (pos == null) {
+            return null;
+        }
+        int dtz = probeDtz(pos);
+        return pos.state == FAIL ? null : dtz;
+    }
+
+    /**
+     * Picks the move that keeps the best result with the fewest plies to the
+     * next capture or pawn move, or the most when losing. Wins the 50-move rule
+     * would turn into draws rank below those it does not.
+     *
+     * @param game The game to look up
+     * @return The move in UCI notation, or null if the tables do not cover the position
+     * @throws UncheckedIOException If a table cannot be read
+     */
+    public String pickMove(Game game) {
+        Position pos = Position.of(game, maxPieces);
+        if (pos == null) {
+            return null;
+        }
+        int cnt50 = game.getHalfMoveClock();
+        Move best = null;
+        int bestRank = Integer.MIN_VALUE;
+        int bestDtz = 0;
+        for (Move move : pos.legalMoves()) {
+            boolean zeroing = pos.isZeroing(move);
+            pos.play(move);
+            int dtz;
+            if (zeroing) {
+                dtz = dtzBeforeZeroing(-probeWdl(pos));
+            } else {
+                dtz = -probeDtz(pos);
+                dtz = dtz > 0 ? dtz + 1 : dtz < 0 ? dtz - 1 : dtz;
+            }
+            // A mating move counts as one ply
+            if (dtz == 2 && pos.inCheck() && pos.legalMoves().isEmpty()) {
+                dtz = 1;
+            }
+            pos.undo(move);
+            if (pos.state == FAIL) {
+                return null;
+            }
+            int rank = dtz > 0 ? (dtz + cnt50 <= 99 ? 1000 : 1000 - (dtz + cnt50))
+                    : dtz < 0 ? (-dtz * 2 + cnt50 < 100 ? -1000 : -1000 + (-dtz + cnt50))
+                    : 0;
+            // Equal ranks share a sign, so the lower distance is the faster win
+            // or the slower loss
+            if (rank > bestRank || (rank == bestRank && dtz < bestDtz)) {
+                best = move;
+                bestRank = rank;
+                bestDtz = dtz;
+            }
+        }
+        return best == null ? null : best.toUciNotation();
+    }
+
+    /**
+     * Probes the WDL table after trying every capture, since tables store
+     * "don't care" values where a capture decides the result.
+     */
+    private int probeWdl(Position pos) {
+        pos.state = OK;
+        return search(pos, false);
+    }
+
+    private int probeDtz(Position pos) {
+        pos.state = OK;
+        int wdl = search(pos, true);
+        if (pos.state == FAIL || wdl == DRAW) {
+            return 0;
+        }
+        if (pos.state == ZEROING_BEST_MOVE) {
+            return dtzBeforeZeroing(wdl);
+        }
+
+        int dtz = probeTable(pos, dtzTables, wdl);
+        if (pos.state == FAIL) {
+            return 0;
+        }
+        if (pos.state != CHANGE_STM) {
+            return (dtz + (wdl == BLESSED_LOSS || wdl == CURSED_WIN ? 100 : 0)) * Integer.signum(wdl);
+        }
+
+        // The table is stored for the other side to move: search one ply for
+        // the move with the best distance
+        int minDtz = 0xFFFF;
+        for (Move move : pos.legalMoves()) {
+            boolean zeroing = pos.isZeroing(move);
+            pos.play(move);
+            dtz = zeroing ? -dtzBeforeZeroing(search(pos, false)) : -probeDtz(pos);
+            if (dtz == 1 && pos.inCheck() && pos.legalMoves().isEmpty()) {
+                minDtz = 1;
+            }
+            if (!zeroing) {
+                dtz += Integer.signum(dtz);
+            }
+            if (dtz < minDtz && Integer.signum(dtz) == Integer.signum(wdl)) {
+                minDtz = dtz;
+            }
+            pos.undo(move);
+            if (pos.state == FAIL) {
+                return 0;
+            }
+        }
+        // No legal moves: mated
+        return minDtz == 0xFFFF ? -1 : minDtz;
+    }
+
+    private int search(Position pos, boolean checkZeroingMoves) {
+        int bestValue = LOSS;
+        List<Move> moves = pos.legalMoves();
+        int moveCount = 0;
+        for (Move move : moves) {
+            if (move.getCapturedPiece() == null
+                    && (!checkZeroingMoves || move.getMovedPiece().getType() != PieceType.PAWN)) {
+                continue;
+            }
+            moveCount++;
+            pos.play(move);
+            int value = -search(pos, false);
+            pos.undo(move);
+            if (pos.state == FAIL) {
+                return DRAW;
+            }
+            if (value > bestValue) {
+                bestValue = value;
+                if (value >= WIN) {
+                    pos.state = ZEROING_BEST_MOVE;
+                    return value;
+                }
+            }
+        }
+
+        // With every legal move searched the table is not needed, and may even
+        // be wrong, as tables ignore en passant
+        boolean noMoreMoves = moveCount > 0 && moveCount == moves.size();
+        int value;
+        if (noMoreMoves) {
+            value = bestValue;
+        } else {
+            value = probeTable(pos, wdlTables, DRAW);
+            if (pos.state == FAIL) {
+                return DRAW;
+            }
+        }
+        if (bestValue >= value) {
+            pos.state = bestValue > DRAW || noMoreMoves ? ZEROING_BEST_MOVE : OK;
+            return bestValue;
+        }
+        pos.state = OK;
+        return value;
+    }
+
+    private static int dtzBeforeZeroing(int wdl) {
+        switch (wdl) {
+            case WIN:
+                return 1;
+            case CURSED_WIN:
+                return 101;
+            case BLESSED_LOSS:
+                return -101;
+            case LOSS:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    private int probeTable(Position pos, Map<String, Table> tables, int wdl) {
+        int[] board = pos.pieceCodes();
+        String key = Position.materialKey(board);
+        if (key.equals("KvK")) {
+            return DRAW;
+        }
+        Table entry = tables.get(key);
+        if (entry == null || !load(entry)) {
+            pos.state = FAIL;
+            return 0;
+        }
+
+        // Tables hold the stronger side as white, and symmetric tables only
+        // white to move: otherwise swap the colors and mirror the ranks
+        boolean flip = !key.equals(entry.key) || (entry.key.equals(entry.key2) && pos.side == PieceColor.BLACK);
+        int flipColor = flip ? 8 : 0;
+        int flipSquares = flip ? 56 : 0;
+        int stm = (flip ? 1 : 0) ^ (pos.side == PieceColor.BLACK ? 1 : 0);
+
+        int[] squares = new int[MAX_PIECES];
+        int[] pieces = new int[MAX_PIECES];
+        int size = 0;
+        int leadPawnsCnt = 0;
+        long leadPawns = 0;
+        int tbFile = 0;
+
+        // Tables with pawns are split by the file of the leading pawn
+        if (entry.hasPawns) {
+            int pawn = entry.get(0, 0).pieces[0] ^ flipColor;
+            for (int s = 0; s < 64; s++) {
+                if (board[s] == pawn) {
+                    squares[size++] = s ^ flipSquares;
+                    leadPawns |= 1L << s;
+                }
+            }
+            leadPawnsCnt = size;
+            int lead = 0;
+            for (int i = 1; i < leadPawnsCnt; i++) {
+                if (MAP_PAWNS[squares[i]] > MAP_PAWNS[squares[lead]]) {
+                    lead = i;
+                }
+            }
+            swap(squares, 0, lead);
+            tbFile = file(squares[0]);
+            if (tbFile > 3) {
+                tbFile = file(squares[0] ^ 7);
+            }
+        }
+
+        // DTZ tables hold one side to move only
+        if (entry.dtz && (entry.get(stm, tbFile).flags & FLAG_STM) != stm
+                && !(entry.key.equals(entry.key2) && !entry.hasPawns)) {
+            pos.state = CHANGE_STM;
+            return 0;
+        }
+
+        for (int s = 0; s < 64; s++) {
+            if (board[s] != 0 && (leadPawns & (1L << s)) == 0) {
+                squares[size] = s ^ flipSquares;
+                pieces[size++] = board[s] ^ flipColor;
+            }
+        }
+
+        // Put the pieces in the order the table was encoded in
+        PairsData d = entry.get(stm, tbFile);
+        for (int i = leadPawnsCnt; i < size - 1; i++) {
+            for (int j = i + 1; j < size; j++) {
+                if (d.pieces[i] == pieces[j]) {
+                    swap(pieces, i, j);
+                    swap(squares, i, j);
+                    break;
+                }
+            }
+        }
+
+        // Mirror the lead piece onto files a-d
+        if (file(squares[0]) > 3) {
+            for (int i = 0; i < size; i++) {
+                squares[i] ^= 7;
+            }
+        }
+
+        long idx;
+        if (entry.hasPawns) {
+            idx = LEAD_PAWN_IDX[leadPawnsCnt][squares[0]];
+            sortBy(squares, 1, leadPawnsCnt, MAP_PAWNS);
+            for (int i = 1; i < leadPawnsCnt; i++) {
+                idx += BINOMIAL[i][MAP_PAWNS[squares[i]]];
+            }
+        } else {
+            // Without pawns, also mirror the lead piece onto ranks 1-4 and
+            // below the a1-h8 diagonal
+            if (rank(squares[0]) > 3) {
+                for (int i = 0; i < size; i++) {
+                    squares[i] ^= 56;
+                }
+            }
+            for (int i = 0; i < d.groupLen[0]; i++) {
+                if (offA1H8(squares[i]) == 0) {
+                    continue;
+                }
+                if (offA1H8(squares[i]) > 0) {
+                    for (int j = i; j < size; j++) {
+                        squares[j] = ((squares[j] >> 3) | (squares[j] << 3)) & 63;
+                    }
+                }
+                break;
+            }
+
+            if (entry.hasUniquePieces) {
+                // Three unique pieces, kings included, are encoded together
+                int adjust1 = squares[1] > squares[0] ? 1 : 0;
+                int adjust2 = (squares[2] > squares[0] ? 1 : 0) + (squares[2] > squares[1] ? 1 : 0);
+                if (offA1H8(squares[0]) != 0) {
+                    idx = (MAP_A1D1D4[squares[0]] * 63L + (squares[1] - adjust1)) * 62 + squares[2] - adjust2;
+                } else if (offA1H8(squares[1]) != 0) {
+                    idx = (6 * 63L + rank(squares[0]) * 28 + MAP_B1H1H7[squares[1]]) * 62 + squares[2] - adjust2;
+                } else if (offA1H8(squares[2]) != 0) {
+                    idx = 6 * 63 * 62 + 4 * 28 * 62 + rank(squares[0]) * 7 * 28
+                            + (rank(squares[1]) - adjust1) * 28 + MAP_B1H1H7[squares[2]];
+                } else {
+                    idx = 6 * 63 * 62 + 4 * 28 * 62 + 4 * 7 * 28 + rank(squares[0]) * 7 * 6
+                            + (rank(squares[1]) - adjust1) * 6 + (rank(squares[2]) - adjust2);
+                }
+            } else {
+                idx = MAP_KK[MAP_A1D1D4[squares[0]]][squares[1]];
+            }
+        }
+
+        // The remaining groups, each as a combination of the squares left over
+        idx *= d.groupIdx[0];
+        int groupStart = d.groupLen[0];
+        boolean remainingPawns = entry.hasPawns && entry.pawnCount[1] > 0;
+        for (int next = 1; d.groupLen[next] != 0; next++) {
+            Arrays.sort(squares, groupStart, groupStart + d.groupLen[next]);
+            long n = 0;
+            for (int i = 0; i < d.groupLen[next]; i++) {
+                int adjust = 0;
+                for (int j = 0; j < groupStart; j++) {
+                    if (squares[groupStart + i] > squares[j]) {
+                        adjust++;
+                    }
+                }
+                n += BINOMIAL[i + 1][squares[groupStart + i] - adjust - (remainingPawns ? 8 : 0)];
+            }
+            remainingPawns = false;
+            idx += n * d.groupIdx[next];
+            groupStart += d.groupLen[next];
+        }
+
+        int value = decompressPairs(entry.file, d, idx);
+        return entry.dtz ? mapDtz(entry, tbFile, value, wdl) : value - 2;
+    }
+
+    private static int mapDtz(Table entry, int tbFile, int value, int wdl) {
+        final int[] wdlMap = { 1, 3, 0, 2, 0 };
+        PairsData d = entry.get(0, tbFile);
+        if ((d.flags & FLAG_MAPPED) != 0) {
+            int idx = d.mapIdx[wdlMap[wdl + 2]] + value;
+            value = (d.flags & FLAG_WIDE) != 0 ? entry.file.u16(entry.map + 2L * idx)
+                    : entry.file.u8(entry.map + idx);
+        }
+        // Stored in moves unless flagged as plies
+        if ((wdl == WIN && (d.flags & FLAG_WIN_PLIES) == 0)
+                || (wdl == LOSS && (d.flags & FLAG_LOSS_PLIES) == 0)
+                || wdl == CURSED_WIN || wdl == BLESSED_LOSS) {
+            value *= 2;
+        }
+        return value + 1;
+    }
+
+    /**
+     * Reads the value at an index: blocks of canonical Huffman codes, each
+     * symbol standing for a run of values built by recursive pairing.
+     */
+    private static int decompressPairs(TableFile file, PairsData d, long idx) {
+        if ((d.flags & FLAG_SINGLE_VALUE) != 0) {
+            return d.minSymLen;
+        }
+
+        // The sparse index points near the value; walk the block lengths from there
+        long k = idx / d.span;
+        long block = file.u32(d.sparseIndex + 6 * k);
+        long offset = file.u16(d.sparseIndex + 6 * k + 4) + idx % d.span - d.span / 2;
+        while (offset < 0) {
+            offset += file.u16(d.blockLength + 2 * --block) + 1;
+        }
+        while (offset > file.u16(d.blockLength + 2 * block)) {
+            offset -= file.u16(d.blockLength + 2 * block++) + 1;
+        }
+
+        long ptr = d.data + block * d.sizeofBlock;
+        long buf64 = file.u64BigEndian(ptr);
+        ptr += 8;
+        int buf64Size = 64;
+        int sym;
+        while (true) {
+            int len = 0;
+            while (Long.compareUnsigned(buf64, d.base64[len]) < 0) {
+                len++;
+            }
+            sym = (int) ((buf64 - d.base64[len]) >>> (64 - len - d.minSymLen));
+            sym = (sym + file.u16(d.lowestSym + 2L * len)) & 0xFFFF;
+            if (offset < d.symlen[sym] + 1) {
+                break;
+            }
+            offset -= d.symlen[sym] + 1;
+            len += d.minSymLen;
+            buf64 <<= len;
+            buf64Size -= len;
+            if (buf64Size <= 32) {
+                buf64Size += 32;
+                buf64 |= file.u32BigEndian(ptr) << (64 - buf64Size);
+                ptr += 4;
+            }
+        }
+
+        while (d.symlen[sym] != 0) {
+            int left = left(file, d, sym);
+            if (offset < d.symlen[left] + 1) {
+                sym = left;
+            } else {
+                offset -= d.symlen[left] + 1;
+                sym = right(file, d, sym);
+            }
+        }
+        return left(file, d, sym);
+    }
+
+    private static int left(TableFile file, PairsData d, int sym) {
+        long at = d.btree + 3L * sym;
+        return ((file.u8(at + 1) & 0xF) << 8) | file.u8(at);
+    }
+
+    private static int right(TableFile file, PairsData d, int sym) {
+        long at = d.btree + 3L * sym;
+        return (file.u8(at + 2) << 4) | (file.u8(at + 1) >> 4);
+    }
+
+    /**
+     * Reads a table's header the first time it is probed.
+     *
+     * @return false if the table file is missing or unreadable
+     */
+    private boolean load(Table e) {
+        if (e.loaded || e.failed) {
+            return e.loaded;
+        }
+        File path = new File(directory, e.code + (e.dtz ? DTZ_SUFFIX : WDL_SUFFIX));
+        try {
+            if (!path.isFile()) {
+                throw new IOException("Missing " + path);
+            }
+            e.file = new TableFile(files.size(), path);
+            files.add(e.file);
+            int[] magic = e.dtz ? DTZ_MAGIC : WDL_MAGIC;
+            for (int i = 0; i < magic.length; i++) {
+                if (e.file.u8(i) != magic[i]) {
+                    throw new IOException("Not a Syzygy table: " + path);
+                }
+            }
+            readHeader(e, magic.length);
+            e.loaded = true;
+        } catch (IOException | UncheckedIOException | IndexOutOfBoundsException ex) {
+            System.err.println("Cannot read tablebase " + path + ": " + ex.getMessage());
+            e.failed = true;
+        }
+        return e.loaded;
+    }
+
+    private static void readHeader(Table e, long data) {
+        TableFile f = e.file;
+        int sides = !e.dtz && !e.key.equals(e.key2) ? 2 : 1;
+        int maxFile = e.hasPawns ? 3 : 0;
+        boolean pp = e.hasPawns && e.pawnCount[1] > 0;
+
+        data++; // Flags
+        for (int file = 0; file <= maxFile; file++) {
+            for (int i = 0; i < sides; i++) {
+                e.items[i][file] = new PairsData();
+            }
+            int order0 = f.u8(data);
+            int order1 = pp ? f.u8(data + 1) : 0xFF;
+            int[][] order = { { order0 & 0xF, order1 & 0xF }, { order0 >> 4, order1 >> 4 } };
+            data += pp ? 2 : 1;
+            for (int k = 0; k < e.pieceCount; k++, data++) {
+                int b = f.u8(data);
+                for (int i = 0; i < sides; i++) {
+                    e.items[i][file].pieces[k] = i == 1 ? b >> 4 : b & 0xF;
+                }
+            }
+            for (int i = 0; i < sides; i++) {
+                setGroups(e, e.items[i][file], order[i], file);
+            }
+        }
+        data += data & 1;
+
+        for (int file = 0; file <= maxFile; file++) {
+            for (int i = 0; i < sides; i++) {
+                data = setSizes(f, e.items[i][file], data);
+            }
+        }
+
+        if (e.dtz) {
+            e.map = data;
+            for (int file = 0; file <= maxFile; file++) {
+                PairsData d = e.items[0][file];
+                if ((d.flags & FLAG_MAPPED) == 0) {
+                    continue;
+                }
+                if ((d.flags & FLAG_WIDE) != 0) {
+                    data += data & 1;
+                    for (int i = 0; i < 4; i++) {
+                        d.mapIdx[i] = (int) ((data - e.map) / 2 + 1);
+                        data += 2L * f.u16(data) + 2;
+                    }
+                } else {
+                    for (int i = 0; i < 4; i++) {
+                        d.mapIdx[i] = (int) (data - e.map + 1);
+                        data += f.u8(data) + 1;
+                    }
+                }
+            }
+            data += data & 1;
+        }
+
+        for (int file = 0; file <= maxFile; file++) {
+            for (int i = 0; i < sides; i++) {
+                PairsData d = e.items[i][file];
+                d.sparseIndex = data;
+                data += d.sparseIndexSize * 6;
+            }
+        }
+        for (int file = 0; file <= maxFile; file++) {
+            for (int i = 0; i < sides; i++) {
+                PairsData d = e.items[i][file];
+                d.blockLength = data;
+                data += d.blockLengthSize * 2L;
+            }
+        }
+        for (int file = 0; file <= maxFile; file++) {
+            for (int i = 0; i < sides; i++) {
+                PairsData d = e.items[i][file];
+                data = (data + 0x3F) & ~0x3FL;
+                d.data = data;
+                data += d.numBlocks * d.sizeofBlock;
+            }
+        }
+    }
+
+    /**
+     * Splits the pieces into groups encoded together, and works out each
+     * group's factor in the index from the order the table stores them in.
+     */
+    private static void setGroups(Table e, PairsData d, int[] order, int file) {
+        int n = 0;
+        int firstLen = e.hasPawns ? 0 : e.hasUniquePieces ? 3 : 2;
+        d.groupLen[n] = 1;
+        for (int i = 1; i < e.pieceCount; i++) {
+            if (--firstLen > 0 || d.pieces[i] == d.pieces[i - 1]) {
+                d.groupLen[n]++;
+            } else {
+                d.groupLen[++n] = 1;
+            }
+        }
+        d.groupLen[++n] = 0;
+
+        boolean pp = e.hasPawns && e.pawnCount[1] > 0;
+        int next = pp ? 2 : 1;
+        int freeSquares = 64 - d.groupLen[0] - (pp ? d.groupLen[1] : 0);
+        long idx = 1;
+        for (int k = 0; next < n || k == order[0] || k == order[1]; k++) {
+            if (k == order[0]) {
+                d.groupIdx[0] = idx;
+                idx *= e.hasPawns ? LEAD_PAWNS_SIZE[d.groupLen[0]][file] : e.hasUniquePieces ? 31332 : 462;
+            } else if (k == order[1]) {
+                d.groupIdx[1] = idx;
+                idx *= BINOMIAL[d.groupLen[1]][48 - d.groupLen[0]];
+            } else {
+                d.groupIdx[next] = idx;
+                idx *= BINOMIAL[d.groupLen[next]][freeSquares];
+                freeSquares -= d.groupLen[next++];
+            }
+        }
+        d.groupIdx[n] = idx;
+    }
+
+    private static long setSizes(TableFile f, PairsData d, long data) {
+        d.flags = f.u8(data++);
+        if ((d.flags & FLAG_SINGLE_VALUE) != 0) {
+            d.minSymLen = f.u8(data++); // The single value
+            return data;
+        }
+
+        int groups = 0;
+        while (d.groupLen[groups] != 0) {
+            groups++;
+        }
+        long tbSize = d.groupIdx[groups];
+        d.sizeofBlock = 1L << f.u8(data++);
+        d.span = 1L << f.u8(data++);
+        d.sparseIndexSize = (tbSize + d.span - 1) / d.span;
+        int padding = f.u8(data++);
+        d.numBlocks = f.u32(data);
+        data += 4;
+        d.blockLengthSize = d.numBlocks + padding;
+        d.maxSymLen = f.u8(data++);
+        d.minSymLen = f.u8(data++);
+        d.lowestSym = data;
+
+        // Canonical Huffman: longer codes have lower values, so base64[len]
+        // is the lowest 64-bit padded code of each length
+        int lengths = d.maxSymLen - d.minSymLen + 1;
+        d.base64 = new long[lengths];
+        for (int i = lengths - 2; i >= 0; i--) {
+            d.base64[i] = (d.base64[i + 1] + f.u16(d.lowestSym + 2L * i) - f.u16(d.lowestSym + 2L * (i + 1))) / 2;
+        }
+        for (int i = 0; i < lengths; i++) {
+            int shift = 64 - i - d.minSymLen;
+            d.base64[i] = shift >= 64 ? 0 : d.base64[i] << shift;
+        }
+        data += lengths * 2L;
+
+        d.symlen = new int[f.u16(data)];
+        data += 2;
+        d.btree = data;
+        boolean[] visited = new boolean[d.symlen.length];
+        for (int sym = 0; sym < d.symlen.length; sym++) {
+            if (!visited[sym]) {
+                d.symlen[sym] = setSymlen(f, d, sym, visited);
+            }
+        }
+        return data + d.symlen.length * 3L + (d.symlen.length & 1);
+    }
+
+    /** Counts the values a symbol expands to, less one. */
+    private static int setSymlen(TableFile f, PairsData d, int sym, boolean[] visited) {
+        visited[sym] = true;
+        int right = right(f, d, sym);
+        if (right == 0xFFF) {
+            return 0;
+        }
+        int left = left(f, d, sym);
+        if (!visited[left]) {
+            d.symlen[left] = setSymlen(f, d, left, visited);
+        }
+        if (!visited[right]) {
+            d.symlen[right] = setSymlen(f, d, right, visited);
+        }
+        return d.symlen[left] + d.symlen[right] + 1;
+    }
+
+    /**
+     * Returns the region of a table file holding an offset, mapping it if it
+     * is not mapped yet.
+     */
+    private ByteBuffer region(TableFile file, long index) {
+        Long key = ((long) file.id << 32) | index;
+        synchronized (regions) {
+            ByteBuffer region = regions.get(key);
+            if (region == null) {
+                long start = index << regionBits;
+                long length = Math.min(file.size - start, 1L << regionBits);
+                try (FileChannel channel = FileChannel.open(file.path.toPath(), StandardOpenOption.READ)) {
+                    region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                regions.put(key, region);
+            }
+            return region;
+        }
+    }
+
+    private static int offA1H8(int sq) {
+        return rank(sq) - file(sq);
+    }
+
+    private static int file(int sq) {
+        return sq & 7;
+    }
+
+    private static int rank(int sq) {
+        return sq >> 3;
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int t = values[i];
+        values[i] = values[j];
+        values[j] = t;
+    }
+
+    /** Stable insertion sort of values[from, to) by their weight. */
+    private static void sortBy(int[] values, int from, int to, int[] weight) {
+        for (int i = from + 1; i < to; i++) {
+            int v = values[i];
+            int j = i - 1;
+            while (j >= from && weight[values[j]] > weight[v]) {
+                values[j + 1] = values[j];
+                j--;
+            }
+            values[j + 1] = v;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (regions) {
+            regions.clear();
+        }
+    }
+
+    /** A table file, read through the shared region cache. */
+    private final class TableFile {
+        final int id;
+        final File path;
+        final long size;
+
+        TableFile(int id, File path) {
+            this.id = id;
+            this.path = path;
+            this.size = path.length();
+        }
+
+        int u8(long offset) {
+            if (offset < 0 || offset >= size) {
+                throw new IndexOutOfBoundsException("Offset " + offset + " past the end of " + path);
+            }
+            ByteBuffer region = region(this, offset >>> regionBits);
+            return region.get((int) (offset & ((1L << regionBits) - 1))) & 0xFF;
+        }
+
+        int u16(long offset) {
+            return u8(offset) | u8(offset + 1) << 8;
+        }
+
+        long u32(long offset) {
+            return (u16(offset) | (long) u16(offset + 2) << 16);
+        }
+
+        long u32BigEndian(long offset) {
+            return (long) u8(offset) << 24 | u8(offset + 1) << 16 | u8(offset + 2) << 8 | u8(offset + 3);
+        }
+
+        long u64BigEndian(long offset) {
+            return u32BigEndian(offset) << 32 | u32BigEndian(offset + 4);
+        }
+    }
+
+    /** One table, WDL or DTZ, for a material balance and its color reverse. */
+    private static final class Table {
+        final String code;
+        final boolean dtz;
+        final String key;
+        final String key2;
+        final int pieceCount;
+        final boolean hasPawns;
+        final boolean hasUniquePieces;
+        // Pawns of the leading color, then of the other
+        final int[] pawnCount = new int[2];
+        final PairsData[][] items = new PairsData[2][4];
+        TableFile file;
+        long map;
+        boolean loaded;
+        boolean failed;
+
+        Table(String code, boolean dtz) {
+            this.code = code;
+            this.dtz = dtz;
+            String[] sides = code.split("v");
+            this.key = code;
+            this.key2 = sides[1] + "v" + sides[0];
+            this.pieceCount = code.length() - 1;
+            this.hasPawns = code.indexOf('P') >= 0;
+            boolean unique = false;
+            for (String side : sides) {
+                for (char piece : "QRBNP".toCharArray()) {
+                    if (side.indexOf(piece) >= 0 && side.indexOf(piece) == side.lastIndexOf(piece)) {
+                        unique = true;
+                    }
+                }
+            }
+            this.hasUniquePieces = unique;
+            // The side with fewer pawns leads, for better compression
+            int whitePawns = count(sides[0], 'P');
+            int blackPawns = count(sides[1], 'P');
+            boolean whiteLeads = blackPawns == 0 || (whitePawns > 0 && blackPawns >= whitePawns);
+            pawnCount[0] = whiteLeads ? whitePawns : blackPawns;
+            pawnCount[1] = whiteLeads ? blackPawns : whitePawns;
+        }
+
+        PairsData get(int stm, int file) {
+            return items[dtz ? 0 : stm % 2][hasPawns ? file : 0];
+        }
+
+        private static int count(String side, char piece) {
+            return (int) side.chars().filter(c -> c == piece).count();
+        }
+    }
+
+    /** Decoding state for one side and pawn file of a table. */
+    private static final class PairsData {
+        int flags;
+        long sizeofBlock;
+        long span;
+        long numBlocks;
+        int maxSymLen;
+        int minSymLen;
+        long lowestSym;
+        long btree;
+        long blockLength;
+        long blockLengthSize;
+        long sparseIndex;
+        long sparseIndexSize;
+        long data;
+        long[] base64;
+        int[] symlen;
+        final int[] pieces = new int[MAX_PIECES];
+        final long[] groupIdx = new long[MAX_PIECES + 1];
+        final int[] groupLen = new int[MAX_PIECES + 1];
+        final int[] mapIdx = new int[4];
+    }
+
+    /** A scratch copy of the probed position, with the state of the probe. */
+    private static final class Position {
+        final Board board;
+        final MoveValidator validator;
+        PieceColor side;
+        int state = OK;
+
+        private Position(Game copy) {
+            this.board = copy.getBoard();
+            this.validator = new MoveValidator(board);
+            this.side = copy.getCurrentTurn();
+        }
+
+        /** Returns a copy of the game's position, or null if it cannot be probed. */
+        static Position of(Game game, int maxPieces) {
+            String fen = game.getFen();
+            String[] fields = fen.split(" ");
+            if (!fields[2].equals("-")) {
+                return null;
+            }
+            Game copy = new Game();
+            copy.loadFromFen(fen);
+            Position pos = new Position(copy);
+            int pieces = 0;
+            for (int code : pos.pieceCodes()) {
+                pieces += code != 0 ? 1 : 0;
+            }
+            return pieces > maxPieces ? null : pos;
+        }
+
+        List<Move> legalMoves() {
+            return validator.getLegalMoves(side);
+        }
+
+        boolean isZeroing(Move move) {
+            return move.getCapturedPiece() != null || move.getMovedPiece().getType() == PieceType.PAWN;
+        }
+
+        boolean inCheck() {
+            return validator.isKingInCheck(side);
+        }
+
+        void play(Move move) {
+            board.movePiece(move);
+            side = side.opposite();
+        }
+
+        void undo(Move move) {
+            board.undoMove(move);
+            side = side.opposite();
+        }
+
+        /** Piece codes by square, a1 = 0: pawn to king 1-6, plus 8 for black. */
+        int[] pieceCodes() {
+            int[] codes = new int[64];
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    Piece piece = board.getPiece(x, y);
+                    if (piece != null) {
+                        codes[(7 - y) * 8 + x] = code(piece.getType())
+                                + (piece.getColor() == PieceColor.BLACK ? 8 : 0);
+                    }
+                }
+            }
+            return codes;
+        }
+
+        /** Returns the table name for the pieces, e.g. "KRPvKR" with White's first. */
+        static String materialKey(int[] codes) {
+            StringBuilder white = new StringBuilder();
+            StringBuilder black = new StringBuilder();
+            for (int i = 0; i < PIECE_ORDER.length(); i++) {
+                int code = 6 - i;
+                for (int c : codes) {
+                    if (c == code) {
+                        white.append(PIECE_ORDER.charAt(i));
+                    } else if (c == code + 8) {
+                        black.append(PIECE_ORDER.charAt(i));
+                    }
+                }
+            }
+            return white + "v" + black;
+        }
+
+        private static int code(PieceType type) {
+            switch (type) {
+                case PAWN:
+                    return 1;
+                case KNIGHT:
+                    return 2;
+                case BISHOP:
+                    return 3;
+                case ROOK:
+                    return 4;
+                case QUEEN:
+                    return 5;
+                default:
+                    return 6;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.chess.engine;
+
+import com.chess.core.PieceColor;
+
+/**
+ * Turns clock state into search limits for the engine.
+ * The remaining times sent to the engine are reduced by the measured move
+ * overhead (the time lost between sending {@code go} and receiving
+ * {@code bestmove} that the engine itself does not account for). A soft and a
+ * hard budget per move guard against engines that overrun their clock.
+ */
+public class TimeManager {
+    /** Assumed overhead before any search has been measured. */
+    static final long DEFAULT_OVERHEAD_MILLIS = 30;
+    /** Number of moves the remaining time is spread over in sudden death. */
+    static final int DEFAULT_MOVES_TO_GO = 30;
+    /** Samples whose last reported search time arrived longer before bestmove are skipped. */
+    static final long MAX_INFO_AGE_MILLIS = 50;
+    private static final long MIN_THINK_MILLIS = 10;
+
+    private double overheadMillis = DEFAULT_OVERHEAD_MILLIS;
+
+    /**
+     * Creates limits for a search by {@code side}.
+     *
+     * @param side           The side to move
+     * @param whiteMillis    White's remaining time
+     * @param blackMillis    Black's remaining time
+     * @param incrementMillis Increment per move for both sides
+     * @param movesToGo      Moves until the next time control, or 0 for sudden
+     *                       death
+     * @return Limits with the clock and a soft/hard budget set
+     */
+    public SearchLimits allocate(PieceColor side, long whiteMillis, long blackMillis, long incrementMillis,
+            int movesToGo) {
+        long overhead = getOverheadMillis();
+        long remaining = side == PieceColor.WHITE ? whiteMillis : blackMillis;
+        long usable = Math.max(MIN_THINK_MILLIS, remaining - overhead);
+
+        int spread = movesToGo > 0 ? Math.min(movesToGo, DEFAULT_MOVES_TO_GO) : DEFAULT_MOVES_TO_GO;
+        long soft = Math.min(usable / spread + incrementMillis * 3 / 4, usable / 2);
+        long hard = Math.min(soft * 4, usable / 3 + incrementMillis);
+        soft = Math.max(MIN_THINK_MILLIS, soft);
+        hard = Math.max(soft, hard);
+
+        return new SearchLimits()
+                .withClock(Math.max(1, whiteMillis - overhead), Math.max(1, blackMillis - overhead),
+                        incrementMillis, incrementMillis)
+                .withMovesToGo(movesToGo)
+                .withBudget(soft, hard);
+    }
+
+    /**
+     * Records a finished search so the overhead estimate can adapt. The sample
+     * is skipped unless the engine reported its search time shortly before
+     * {@code bestmove}: an engine that searched on without reporting, e.g. one
+     * that only prints a line per finished iteration, would have that time
+     * counted as overhead.
+     *
+     * @param wallMillis    Time from sending {@code go} to receiving
+     *                      {@code bestmove}
+     * @param engineMillis  Search time last reported by the engine, or -1 if
+     *                      it reported none
+     * @param infoAgeMillis How long before {@code bestmove} that report arrived
+     */
+    public synchronized void recordSearch(long wallMillis, long engineMillis, long infoAgeMillis) {
+        if (engineMillis < 0 || infoAgeMillis > MAX_INFO_AGE_MILLIS) {
+            return;
+        }
+        long overhead = Math.max(0, wallMillis - engineMillis);
+        overheadMillis = overheadMillis * 0.75 + overhead * 0.25;
+    }
+
+    public synchronized long getOverheadMillis() {
+        return Math.round(overheadMillis);
+    }
+}
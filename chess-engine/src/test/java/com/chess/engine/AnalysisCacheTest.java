@@ -0,0 +1,73 @@
+package com.chess.engine;
+
+import com.chess.core.PackedMove;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static CachedAnalysis analysis(int depth, int score, String... pv) {
+        int[] moves = new int[pv.length];
+        for (int i = 0; i < pv.length; i++) {
+            moves[i] = PackedMove.fromUci(pv[i]);
+        }
+        return new CachedAnalysis(depth, score, false, moves[0], moves);
+    }
+
+    @Test
+    void testLookupRespectsDepth() throws IOException {
+        try (AnalysisCache cache = AnalysisCache.open(tempDir.resolve("cache.bin").toFile())) {
+            cache.store(42L, analysis(12, 35, "e2e4", "e7e5"));
+
+            CachedAnalysis hit = cache.lookup(42L, 10);
+            assertNotNull(hit);
+            assertEquals(12, hit.getDepth());
+            assertEquals(35, hit.getScore());
+            assertEquals("e2e4", hit.toBestMove().getMove());
+            assertEquals("e7e5", hit.toBestMove().getPonderMove());
+
+            assertNull(cache.lookup(42L, 13), "A shallower result must not answer a deeper search");
+            assertNull(cache.lookup(7L, 1));
+        }
+    }
+
+    @Test
+    void testKeepsDeepestResultAcrossRestarts() throws IOException {
+        File file = tempDir.resolve("cache.bin").toFile();
+        try (AnalysisCache cache = AnalysisCache.open(file)) {
+            cache.store(1L, analysis(8, 10, "d2d4"));
+            cache.store(1L, analysis(14, -20, "c2c4", "e7e5"));
+            cache.store(1L, analysis(10, 99, "g1f3"));
+            cache.store(2L, analysis(5, 0, "e7e8q"));
+        }
+
+        try (AnalysisCache cache = AnalysisCache.open(file)) {
+            assertEquals(2, cache.size());
+            CachedAnalysis deepest = cache.lookup(1L, 0);
+            assertEquals(14, deepest.getDepth());
+            assertEquals(-20, deepest.getScore());
+            assertEquals("c2c4", PackedMove.toUci(deepest.getBestMove()));
+            assertEquals("e7e8q", cache.lookup(2L, 0).toBestMove().getMove());
+        }
+    }
+
+    @Test
+    void testGrowsBeyondInitialMapping() throws IOException {
+        try (AnalysisCache cache = AnalysisCache.open(tempDir.resolve("cache.bin").toFile())) {
+            for (long key = 1; key <= 20_000; key++) {
+                cache.store(key, analysis(1, (int) key, "e2e4"));
+            }
+            assertEquals(20_000, cache.size());
+            assertEquals(19_999, cache.lookup(19_999L, 1).getScore());
+        }
+    }
+}
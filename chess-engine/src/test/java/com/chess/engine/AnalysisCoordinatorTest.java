@@ -0,0 +1,213 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.chess.core.PackedMove;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCoordinatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * A hand-driven worker speaking the raw protocol.
+     */
+    private static class FakeWorker implements AutoCloseable {
+        final Socket socket;
+        final BufferedReader in;
+        final PrintWriter out;
+
+        FakeWorker(AnalysisCoordinator coordinator, int credit) throws Exception {
+            socket = new Socket("localhost", coordinator.getPort());
+            socket.setSoTimeout(5_000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true);
+            out.println("hello " + credit);
+            out.println("pull " + credit);
+        }
+
+        long nextJobId() throws Exception {
+            return Long.parseLong(AnalysisProtocol.parseJob(in.readLine())[0]);
+        }
+
+        @Override
+        public void close() throws Exception {
+            socket.close();
+        }
+    }
+
+    @Test
+    void testWorkerJvmsAnalyseEveryPosition() throws Exception {
+        File jar = TestEngines.buildJar(tempDir, TestEngines.FixedEngine.class);
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<Process> workers = new ArrayList<>();
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0)) {
+            coordinator.start();
+            for (int i = 0; i < 2; i++) {
+                workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        AnalysisWorker.class.getName(), "localhost", String.valueOf(coordinator.getPort()),
+                        jar.getPath(), "1").redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start());
+            }
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (coordinator.getWorkerCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, coordinator.getWorkerCount());
+            assertEquals(4, coordinator.getCapacity());
+
+            List<CompletableFuture<CachedAnalysis>> results = new ArrayList<>();
+            SearchLimits limits = new SearchLimits().withDepth(4);
+            for (int i = 0; i < 40; i++) {
+                results.add(coordinator.analyse("position startpos moves " + (i % 2 == 0 ? "f2f3" : "e2e4"), i,
+                        limits));
+            }
+            // Losing a worker midway must not lose any position
+            results.get(0).get(30, TimeUnit.SECONDS);
+            workers.get(0).destroyForcibly();
+
+            for (int i = 0; i < results.size(); i++) {
+                CachedAnalysis analysis = results.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals(4, analysis.getDepth());
+                assertEquals(i % 2 == 0 ? 400 : 30, analysis.getScore());
+                assertEquals("e2e4", PackedMove.toUci(analysis.getBestMove()));
+            }
+        } finally {
+            for (Process worker : workers) {
+                worker.destroyForcibly();
+            }
+        }
+    }
+
+    @Test
+    void testJobsOfLostWorkerAreRequeued() throws Exception {
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0)) {
+            coordinator.start();
+            CompletableFuture<CachedAnalysis> result = coordinator.analyse("position startpos", 0x1234L,
+                    new SearchLimits().withDepth(5));
+
+            long id;
+            try (FakeWorker lost = new FakeWorker(coordinator, 1)) {
+                id = lost.nextJobId();
+            }
+            try (FakeWorker worker = new FakeWorker(coordinator, 1)) {
+                assertEquals(id, worker.nextJobId());
+                worker.out.println("result " + id + " 5 cp 12 e2e4 e2e4 e7e5");
+
+                CachedAnalysis analysis = result.get(5, TimeUnit.SECONDS);
+                assertEquals(5, analysis.getDepth());
+                assertEquals(12, analysis.getScore());
+                assertEquals("e7e5", analysis.toBestMove().getPonderMove());
+            }
+        }
+    }
+
+    @Test
+    void testFailingJobIsRetriedThenGivenUp() throws Exception {
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0)) {
+            coordinator.start();
+            try (FakeWorker worker = new FakeWorker(coordinator, 1)) {
+                CompletableFuture<CachedAnalysis> result = coordinator.analyse("position startpos", 1,
+                        new SearchLimits().withDepth(5));
+                for (int attempt = 0; attempt < AnalysisCoordinator.MAX_ATTEMPTS; attempt++) {
+                    worker.out.println("error " + worker.nextJobId() + " engine crashed");
+                    worker.out.println("pull 1");
+                }
+
+                ExecutionException e = assertThrows(ExecutionException.class,
+                        () -> result.get(5, TimeUnit.SECONDS));
+                assertTrue(e.getCause().getMessage().contains("engine crashed"), e.getCause().getMessage());
+            }
+        }
+    }
+
+    @Test
+    void testSlowJobMovesToAnotherWorker() throws Exception {
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0)) {
+            coordinator.setJobTimeoutMillis(200);
+            coordinator.start();
+            try (FakeWorker slow = new FakeWorker(coordinator, 1)) {
+                CompletableFuture<CachedAnalysis> result = coordinator.analyse("position startpos", 1,
+                        new SearchLimits().withDepth(5));
+                long id = slow.nextJobId();
+
+                try (FakeWorker fast = new FakeWorker(coordinator, 1)) {
+                    assertEquals(id, fast.nextJobId());
+                    fast.out.println("result " + id + " 5 cp 7 d2d4");
+                    // The slow worker's late answer is ignored
+                    slow.out.println("result " + id + " 9 cp 99 e2e4");
+                    assertEquals(7, result.get(5, TimeUnit.SECONDS).getScore());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testWorkerThatStopsReadingHoldsUpNoOne() throws Exception {
+        try (AnalysisCoordinator coordinator = new AnalysisCoordinator(0)) {
+            coordinator.start();
+            // Far more than the network buffers of a worker that does not read
+            String position = "position startpos moves" + " e2e4 e7e5 g1f3 b8c6".repeat(3_000);
+            int jobs = 200;
+            List<CompletableFuture<CachedAnalysis>> results = new ArrayList<>();
+            for (int i = 0; i <= jobs; i++) {
+                results.add(coordinator.analyse(position, i, new SearchLimits().withDepth(5)));
+            }
+
+            try (Socket stalled = new Socket()) {
+                stalled.setReceiveBufferSize(4096);
+                stalled.connect(new InetSocketAddress("localhost", coordinator.getPort()));
+                PrintWriter out = new PrintWriter(stalled.getOutputStream(), true);
+                out.println("hello " + jobs);
+                out.println("pull " + jobs);
+                while (coordinator.getWorkerCount() == 0) {
+                    Thread.sleep(10);
+                }
+
+                try (FakeWorker worker = new FakeWorker(coordinator, 1)) {
+                    long id = worker.nextJobId();
+                    worker.out.println("result " + id + " 5 cp 3 e2e4");
+                    // Job ids count up from 1 in the order the jobs were queued
+                    assertEquals(3, results.get((int) id - 1).get(5, TimeUnit.SECONDS).getScore());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testProtocolRoundTrip() {
+        SearchLimits limits = new SearchLimits().withClock(1000, 2000, 10, 20).withMovesToGo(5);
+        String[] job = AnalysisProtocol.parseJob(
+                AnalysisProtocol.job(7, -1L, limits, "position startpos moves e2e4"));
+        assertEquals("7", job[0]);
+        assertEquals(-1L, Long.parseUnsignedLong(job[1], 16));
+        assertEquals(limits.toGoCommand(), SearchLimits.fromGoCommand(job[2]).toGoCommand());
+        assertEquals("position startpos moves e2e4", job[3]);
+
+        CachedAnalysis analysis = new CachedAnalysis(12, -3, true, PackedMove.fromUci("e7e8q"),
+                new int[] { PackedMove.fromUci("e7e8q") });
+        CachedAnalysis parsed = AnalysisProtocol.parseResult(AnalysisProtocol.result(7, analysis).split(" "));
+        assertEquals(12, parsed.getDepth());
+        assertEquals(-3, parsed.getScore());
+        assertTrue(parsed.isMateScore());
+        assertEquals(analysis.getBestMove(), parsed.getBestMove());
+        assertArrayEquals(analysis.getPv(), parsed.getPv());
+    }
+}
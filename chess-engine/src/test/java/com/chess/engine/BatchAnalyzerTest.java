@@ -0,0 +1,129 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchAnalyzerTest {
+
+    private static final String FOOLS_MATE = "[Event \"Fool\"]\n\n1. f3 e5 2. g4 Qh4# 0-1\n\n";
+    private static final String OPEN_GAME = "[Event \"Open\"]\n\n1. e4 e5 *\n\n";
+
+    @TempDir
+    Path tempDir;
+
+    private BatchAnalyzer.Summary analyse(File input, File output, File checkpoint) throws Exception {
+        File jar = TestEngines.buildJar(tempDir, TestEngines.FixedEngine.class);
+        try (EnginePool pool = new EnginePool(jar.getPath(), 2)) {
+            pool.start();
+            BatchAnalyzer analyzer = new BatchAnalyzer(pool, new SearchLimits().withDepth(4));
+            analyzer.setReportIntervalMillis(0);
+            analyzer.setLog(message -> {
+            });
+            return analyzer.run(input, output, checkpoint);
+        }
+    }
+
+    @Test
+    void testAnnotatesEvalsAndBlunders() throws Exception {
+        File input = tempDir.resolve("in.pgn").toFile();
+        File output = tempDir.resolve("out.pgn").toFile();
+        File checkpoint = tempDir.resolve("out.checkpoint").toFile();
+        Files.writeString(input.toPath(), FOOLS_MATE);
+
+        BatchAnalyzer.Summary summary = analyse(input, output, checkpoint);
+
+        String pgn = Files.readString(output.toPath(), StandardCharsets.UTF_8);
+        assertTrue(pgn.contains("[Event \"Fool\"]"), pgn);
+        // 1. f3 hands Black +4.00, which 1... e5 gives back
+        assertTrue(pgn.contains("1. f3?? {[%eval -4.00]} 1... e5?? {[%eval 0.30]}"), pgn);
+        // After mate nothing is searched
+        assertTrue(pgn.contains("2... Qh4#"), pgn);
+        assertFalse(pgn.contains("Qh4# {"), pgn);
+        assertEquals(1, summary.getGames());
+        assertEquals(4, summary.getPositions());
+        assertFalse(checkpoint.exists(), "A completed run removes its checkpoint");
+    }
+
+    @Test
+    void testStartsFromFen() throws Exception {
+        File input = tempDir.resolve("in.pgn").toFile();
+        File output = tempDir.resolve("out.pgn").toFile();
+        File checkpoint = tempDir.resolve("out.checkpoint").toFile();
+        Files.writeString(input.toPath(), "[Event \"Set up\"]\n[SetUp \"1\"]\n"
+                + "[FEN \"rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1\"]\n\n1... e5 2. Nf3 *\n\n");
+
+        BatchAnalyzer.Summary summary = analyse(input, output, checkpoint);
+
+        String pgn = Files.readString(output.toPath(), StandardCharsets.UTF_8);
+        assertTrue(pgn.contains("1... e5 {[%eval 0.30]} 2. Nf3 {[%eval -0.30]} *"), pgn);
+        assertEquals(3, summary.getPositions());
+    }
+
+    @Test
+    void testFailedPositionStopsRunBeforeItsGame() throws Exception {
+        File input = tempDir.resolve("in.pgn").toFile();
+        File output = tempDir.resolve("out.pgn").toFile();
+        File checkpoint = tempDir.resolve("out.checkpoint").toFile();
+        Files.writeString(input.toPath(), FOOLS_MATE + OPEN_GAME);
+        // Analyses Fool's mate, but never the open game
+        PositionAnalyser analyser = new PositionAnalyser() {
+            @Override
+            public CompletableFuture<CachedAnalysis> analyse(String position, long positionKey,
+                    SearchLimits limits) {
+                if (position.contains("e2e4")) {
+                    return CompletableFuture.failedFuture(new IOException("Engine crashed"));
+                }
+                return CompletableFuture.completedFuture(new CachedAnalysis(4, 30, false, 0, new int[0]));
+            }
+
+            @Override
+            public int getCapacity() {
+                return 1;
+            }
+        };
+        BatchAnalyzer analyzer = new BatchAnalyzer(analyser, new SearchLimits().withDepth(4));
+        analyzer.setReportIntervalMillis(0);
+        analyzer.setLog(message -> {
+        });
+
+        assertThrows(IOException.class, () -> analyzer.run(input, output, checkpoint));
+
+        String pgn = Files.readString(output.toPath(), StandardCharsets.UTF_8);
+        assertTrue(pgn.contains("[Event \"Fool\"]"), pgn);
+        assertFalse(pgn.contains("[Event \"Open\"]"), pgn);
+        assertTrue(Files.readString(checkpoint.toPath()).contains("games=1"));
+    }
+
+    @Test
+    void testResumesFromCheckpoint() throws Exception {
+        File input = tempDir.resolve("in.pgn").toFile();
+        File output = tempDir.resolve("out.pgn").toFile();
+        File checkpoint = tempDir.resolve("out.checkpoint").toFile();
+
+        Files.writeString(input.toPath(), FOOLS_MATE);
+        analyse(input, output, checkpoint);
+        String firstGame = Files.readString(output.toPath());
+
+        // Pretend the run was interrupted while writing the second game
+        Files.writeString(input.toPath(), FOOLS_MATE + OPEN_GAME);
+        Files.writeString(output.toPath(), firstGame + "[Event \"Op");
+        Files.writeString(checkpoint.toPath(), "games=1\noutputBytes=" + firstGame.length() + "\n");
+
+        BatchAnalyzer.Summary summary = analyse(input, output, checkpoint);
+
+        String pgn = Files.readString(output.toPath());
+        assertEquals(1, summary.getGames());
+        assertTrue(pgn.startsWith(firstGame), pgn);
+        assertTrue(pgn.substring(firstGame.length()).startsWith("[Event \"Open\"]"), pgn);
+        assertTrue(pgn.contains("1. e4 {[%eval -0.30]} 1... e5 {[%eval 0.30]} *"), pgn);
+    }
+}
@@ -0,0 +1,51 @@
+package com.chess.engine;
+
+import com.chess.core.PackedMove;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineInfoTest {
+
+    @Test
+    void testParsesFullInfoLine() {
+        EngineInfo info = EngineInfo.parse(
+                "info depth 12 seldepth 18 multipv 2 score cp -35 nodes 123456 nps 987654 hashfull 42 "
+                        + "tbhits 0 time 125 pv e2e4 e7e5 g1f3");
+
+        assertEquals(12, info.getDepth());
+        assertEquals(18, info.getSelDepth());
+        assertEquals(2, info.getMultiPv());
+        assertTrue(info.hasScore());
+        assertFalse(info.isMateScore());
+        assertEquals(-35, info.getScore());
+        assertEquals(123456, info.getNodes());
+        assertEquals(987654, info.getNps());
+        assertEquals(42, info.getHashFull());
+        assertEquals(125, info.getTimeMillis());
+        assertArrayEquals(new int[] { PackedMove.fromUci("e2e4"), PackedMove.fromUci("e7e5"),
+                PackedMove.fromUci("g1f3") }, info.getPv());
+        assertEquals("e2e4", PackedMove.toUci(info.getBestMove()));
+    }
+
+    @Test
+    void testParsesMateScoreWithBound() {
+        EngineInfo info = EngineInfo.parse("info depth 20 score mate -3 upperbound nodes 10 pv h7h8q");
+
+        assertTrue(info.isMateScore());
+        assertEquals(-3, info.getScore());
+        assertEquals(10, info.getNodes());
+        assertEquals("h7h8q", PackedMove.toUci(info.getBestMove()));
+    }
+
+    @Test
+    void testIgnoresUnknownKeysAndStrings() {
+        EngineInfo info = EngineInfo.parse("info currmove e2e4 currmovenumber 1 depth 7");
+        assertEquals(7, info.getDepth());
+        assertFalse(info.hasScore());
+        assertEquals(PackedMove.NONE, info.getBestMove());
+
+        EngineInfo text = EngineInfo.parse("info string depth 99 is not a field");
+        assertEquals(-1, text.getDepth());
+    }
+}
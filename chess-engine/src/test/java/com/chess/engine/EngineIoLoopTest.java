@@ -0,0 +1,153 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineIoLoopTest {
+
+    @Test
+    void testFramesLinesAndReportsClose() throws Exception {
+        byte[] output = "id name Test\r\nuciok\n\nbestmove e2e4 ponder e7e5".getBytes(StandardCharsets.UTF_8);
+        List<String> lines = new CopyOnWriteArrayList<>();
+        CountDownLatch closed = new CountDownLatch(1);
+
+        try (EngineIoLoop loop = new EngineIoLoop()) {
+            loop.register(new ByteArrayInputStream(output), new ByteArrayOutputStream(), () -> false,
+                    handler(lines, closed));
+
+            assertTrue(closed.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("id name Test", "uciok", "", "bestmove e2e4 ponder e7e5"), lines);
+            assertEquals(0, loop.getConnectionCount());
+        }
+    }
+
+    @Test
+    void testLinesSplitAcrossReadsAreJoined() throws Exception {
+        PipedOutputStream engineOut = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(engineOut);
+        List<String> lines = new CopyOnWriteArrayList<>();
+        CountDownLatch closed = new CountDownLatch(1);
+
+        try (EngineIoLoop loop = new EngineIoLoop()) {
+            loop.register(in, new ByteArrayOutputStream(), () -> true, handler(lines, closed));
+
+            engineOut.write("info depth 1 sc".getBytes(StandardCharsets.UTF_8));
+            engineOut.flush();
+            Thread.sleep(20);
+            engineOut.write("ore cp 20\nreadyok\n".getBytes(StandardCharsets.UTF_8));
+            engineOut.flush();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (lines.size() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(List.of("info depth 1 score cp 20", "readyok"), lines);
+        }
+    }
+
+    @Test
+    void testSendIsWrittenInOrder() throws Exception {
+        ByteArrayOutputStream engineIn = new ByteArrayOutputStream();
+
+        try (EngineIoLoop loop = new EngineIoLoop()) {
+            EngineIoLoop.Connection connection = loop.register(new ByteArrayInputStream(new byte[0]), engineIn,
+                    () -> true, handler(new CopyOnWriteArrayList<>(), new CountDownLatch(1)));
+            connection.send("uci");
+            connection.send("isready");
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (engineIn.size() < 12 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals("uci\nisready\n", engineIn.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testEngineNotReadingItsInputDoesNotStallOutput() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        OutputStream stuck = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+        PipedOutputStream engineOut = new PipedOutputStream();
+        PipedInputStream in = new PipedInputStream(engineOut);
+        List<String> lines = new CopyOnWriteArrayList<>();
+
+        try (EngineIoLoop loop = new EngineIoLoop()) {
+            EngineIoLoop.Connection connection = loop.register(in, stuck, () -> true,
+                    handler(lines, new CountDownLatch(1)));
+            long start = System.nanoTime();
+            connection.send("go infinite");
+            connection.send("stop");
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+            engineOut.write("info depth 1\n".getBytes(StandardCharsets.UTF_8));
+            engineOut.flush();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (lines.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(List.of("info depth 1"), lines);
+        } finally {
+            unblock.countDown();
+        }
+    }
+
+    @Test
+    void testThreadCountStaysFlat() throws Exception {
+        try (EngineIoLoop loop = new EngineIoLoop()) {
+            int threads = Thread.activeCount();
+            List<ByteArrayOutputStream> inputs = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                ByteArrayOutputStream engineIn = new ByteArrayOutputStream();
+                inputs.add(engineIn);
+                loop.register(new PipedInputStream(new PipedOutputStream()), engineIn, () -> true,
+                        handler(new CopyOnWriteArrayList<>(), new CountDownLatch(1))).send("isready");
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (inputs.stream().anyMatch(engineIn -> engineIn.size() == 0) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            for (ByteArrayOutputStream engineIn : inputs) {
+                assertEquals("isready\n", engineIn.toString(StandardCharsets.UTF_8));
+            }
+            // Threads of earlier tests may still be winding down, but none were added
+            assertTrue(Thread.activeCount() <= threads, Thread.activeCount() + " threads, " + threads + " before");
+        }
+    }
+
+    private static EngineIoLoop.LineHandler handler(List<String> lines, CountDownLatch closed) {
+        return new EngineIoLoop.LineHandler() {
+            @Override
+            public void onLine(String line) {
+                lines.add(line);
+            }
+
+            @Override
+            public void onClosed() {
+                closed.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnginePoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testMissingJarFailsWaitingRequests() {
+        String missing = tempDir.resolve("typo.jar").toString();
+        try (EnginePool pool = new EnginePool(missing, 2)) {
+            pool.start();
+            // Waits for the engines instead of failing at once
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> pool.search("position startpos", new SearchLimits().withDepth(1))
+                            .get(30, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, error.getCause());
+            // The engine's own complaint, read after it exited
+            assertTrue(error.getCause().getMessage().contains("typo.jar"), error.getCause().getMessage());
+
+            // Later requests fail too
+            error = assertThrows(ExecutionException.class, () -> pool.acquire().get(30, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, error.getCause());
+        }
+    }
+
+    @Test
+    void testServesRequests() throws Exception {
+        String jar = TestEngines.buildJar(tempDir, TestEngines.FixedEngine.class).getPath();
+        try (EnginePool pool = new EnginePool(jar, 1)) {
+            pool.start();
+            BestMove first = pool.search("position startpos", new SearchLimits().withDepth(4)).get(30, TimeUnit.SECONDS);
+            BestMove second = pool.search("position startpos moves e2e4", new SearchLimits().withDepth(4))
+                    .get(30, TimeUnit.SECONDS);
+            assertEquals("e2e4", first.getMove());
+            assertEquals("e2e4", second.getMove());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EngineServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EngineService engine;
+
+    /**
+     * Starts a {@link TestEngines.WaitingEngine} and waits for its handshake.
+     */
+    private EngineService start() throws Exception {
+        engine = new EngineService();
+        engine.setEcho(false);
+        engine.startEngine(TestEngines.buildJar(tempDir, TestEngines.WaitingEngine.class).getPath());
+        engine.isReady().get(30, TimeUnit.SECONDS);
+        return engine;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine != null) {
+            engine.stopEngine();
+        }
+    }
+
+    private static SearchLimits depth(int depth) {
+        return new SearchLimits().withDepth(depth);
+    }
+
+    private static SearchLimits infinite() {
+        return new SearchLimits().withInfinite(true);
+    }
+
+    @Test
+    void testSearchesQueueAndRunBackToBack() throws Exception {
+        EngineService engine = start();
+        CompletableFuture<BestMove> first = engine.search("position startpos", depth(1));
+        CompletableFuture<BestMove> second = engine.search("position startpos moves e2e4", depth(1));
+        CompletableFuture<BestMove> third = engine.search("position startpos moves e2e4 e7e5", depth(1));
+
+        assertEquals("g1f3", third.get(10, TimeUnit.SECONDS).getMove());
+        assertEquals("e2e4", first.getNow(null).getMove());
+        assertEquals("e7e5", second.getNow(null).getMove());
+        assertEquals("position startpos moves e2e4 e7e5", engine.getLastPosition());
+    }
+
+    @Test
+    void testCancellingStopsTheSearchAndDropsItsResult() throws Exception {
+        EngineService engine = start();
+        CompletableFuture<BestMove> running = engine.search("position startpos", infinite());
+        CompletableFuture<BestMove> queued = engine.search("position startpos moves e2e4", depth(1));
+
+        // The queued search only starts once "stop" made the engine answer
+        running.cancel(false);
+        assertEquals("e7e5", queued.get(10, TimeUnit.SECONDS).getMove());
+        assertTrue(running.isCancelled());
+    }
+
+    @Test
+    void testStaleResultDoesNotReachTheNextSearch() throws Exception {
+        EngineService engine = start();
+        CompletableFuture<BestMove> old = engine.search("position startpos", infinite());
+        engine.cancelSearch();
+        // Sent while the engine is still answering the cancelled search with h2h3
+        CompletableFuture<BestMove> next = engine.search("position startpos moves e2e4 e7e5", depth(1));
+
+        assertEquals("g1f3", next.get(10, TimeUnit.SECONDS).getMove());
+        assertThrows(CancellationException.class, () -> old.getNow(null));
+    }
+
+    @Test
+    void testIsReadyCompletesOnReadyok() throws Exception {
+        EngineService engine = start();
+        // The engine answers isready even while it searches
+        CompletableFuture<BestMove> search = engine.search("position startpos", infinite());
+        CompletableFuture<Void> first = engine.isReady();
+        CompletableFuture<Void> second = engine.isReady();
+        second.get(10, TimeUnit.SECONDS);
+        assertTrue(first.isDone());
+        assertFalse(search.isDone());
+
+        engine.stopEngine();
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> engine.isReady().get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertTrue(search.isCancelled());
+    }
+
+    @Test
+    void testTimeoutStopsTheSearch() throws Exception {
+        EngineService engine = start();
+        CompletableFuture<BestMove> slow = engine.search("position startpos", infinite(), 200);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> slow.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        // The engine was told to stop, so it is free for the next search
+        assertEquals("e7e5", engine.search("position startpos moves e2e4", depth(1))
+                .get(10, TimeUnit.SECONDS).getMove());
+    }
+
+    @Test
+    void testPonderHitTurnsThePonderSearchIntoTheMove() throws Exception {
+        EngineService engine = start();
+        CompletableFuture<BestMove> ponder = engine.ponder("position startpos moves e2e4 e7e5", "e7e5", depth(5));
+        assertEquals("e7e5", engine.getPonderMove());
+        engine.isReady().get(10, TimeUnit.SECONDS);
+        assertFalse(ponder.isDone());
+
+        assertTrue(engine.ponderHit());
+        assertEquals("g1f3", ponder.get(10, TimeUnit.SECONDS).getMove());
+        assertNull(engine.getPonderMove());
+        assertFalse(engine.ponderHit());
+    }
+
+    @Test
+    void testPonderMissDiscardsThePonderSearch() throws Exception {
+        EngineService engine = start();
+        CompletableFuture<BestMove> ponder = engine.ponder("position startpos moves e2e4 e7e5", "e7e5", depth(5));
+        // The opponent played something else
+        engine.cancelSearch();
+        assertNull(engine.getPonderMove());
+        assertFalse(engine.ponderHit());
+
+        CompletableFuture<BestMove> search = engine.search("position startpos moves e2e4 c7c5", depth(5));
+        assertEquals("g1f3", search.get(10, TimeUnit.SECONDS).getMove());
+        assertTrue(ponder.isCancelled());
+    }
+
+    @Test
+    void testSharedMovesCountsCommonPrefix() {
+        assertEquals(2, EngineService.sharedMoves("position startpos moves e2e4 e7e5",
+                "position startpos moves e2e4 e7e5 g1f3"));
+        assertEquals(1, EngineService.sharedMoves("position startpos moves e2e4 e7e5",
+                "position startpos moves e2e4 c7c5"));
+        assertEquals(0, EngineService.sharedMoves("position startpos", "position startpos moves d2d4"));
+    }
+
+    @Test
+    void testSharedMovesRejectsDifferentRoots() {
+        assertEquals(-1, EngineService.sharedMoves(null, "position startpos"));
+        assertEquals(-1, EngineService.sharedMoves("position fen 8/8/8/8/8/8/8/K1k5 w - - 0 1",
+                "position startpos"));
+        // A longer move must not match its prefix
+        assertEquals(0, EngineService.sharedMoves("position startpos moves e7e8",
+                "position startpos moves e7e8q"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InProcessEngineTest {
+
+    /** Minimal engine, packaged into a jar by the test. */
+    public static class EchoEngine {
+        public static void main(String[] args) throws Exception {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("uci")) {
+                    System.out.println("uciok");
+                } else if (line.equals("isready")) {
+                    System.out.println("readyok");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEngineTalksThroughPipes(@TempDir Path dir) throws Exception {
+        File jar = TestEngines.buildJar(dir, EchoEngine.class);
+        InProcessEngine engine = InProcessEngine.start(jar.getPath());
+        try {
+            OutputStream toEngine = engine.getOutputStream();
+            BufferedReader fromEngine = new BufferedReader(
+                    new InputStreamReader(engine.getInputStream(), StandardCharsets.UTF_8));
+
+            toEngine.write("uci\nisready\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals("uciok", fromEngine.readLine());
+            assertEquals("readyok", fromEngine.readLine());
+            assertTrue(engine.isAlive());
+        } finally {
+            engine.stop();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (engine.isAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(engine.isAlive(), "Closing the input must end the engine");
+    }
+
+    @Test
+    void testJarWithoutMainClassIsRejected(@TempDir Path dir) throws Exception {
+        File jar = dir.resolve("empty.jar").toFile();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("readme.txt"));
+        }
+
+        assertThrows(java.io.IOException.class, () -> InProcessEngine.start(jar.getPath()));
+    }
+}
@@ -0,0 +1,94 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.chess.core.Game;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSprtStopsMatchEarly() throws Exception {
+        File jar = TestEngines.buildJar(tempDir, TestEngines.ScriptedEngine.class);
+        EngineConfig strong = new EngineConfig("Strong", jar.getPath()).withOption("Strong", "true");
+        EngineConfig weak = new EngineConfig("Weak", jar.getPath()).withOption("Strong", "false");
+        File pgn = tempDir.resolve("match.pgn").toFile();
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+        MatchRunner runner = new MatchRunner(strong, weak, Collections.emptyList());
+        runner.setConcurrency(2);
+        runner.setMaxGames(100);
+        runner.setSprt(new Sprt(0, 200, 0.05, 0.05));
+        runner.setPgnOutput(pgn);
+        runner.setLog(log::add);
+        MatchRunner.Result result = runner.run();
+
+        assertEquals(Sprt.Decision.ACCEPT_H1, result.getDecision());
+        MatchScore score = result.getScore();
+        assertEquals(0, score.getLosses());
+        assertEquals(0, score.getDraws());
+        assertTrue(score.getGames() < 20, "Stopped after " + score.getGames() + " games");
+
+        String games = Files.readString(pgn.toPath());
+        assertTrue(games.contains("1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7 {White mates} 1-0"), games);
+        assertTrue(games.contains("1. f3 e5 2. g4 Qh4 {Black mates} 0-1"), games);
+        assertTrue(log.get(log.size() - 1).startsWith("Finished: Strong vs Weak"), log.toString());
+    }
+
+    @Test
+    void testIllegalMoveLoses() throws Exception {
+        File jar = TestEngines.buildJar(tempDir, TestEngines.ScriptedEngine.class);
+        EngineConfig strong = new EngineConfig("Strong", jar.getPath()).withOption("Strong", "true");
+        EngineConfig weak = new EngineConfig("Weak", jar.getPath());
+        // Without the e2 pawn the strong engine's first move as White is illegal
+        List<String> openings = Collections.singletonList(
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPP1PPP/RNBQKBNR w KQkq - 0 1");
+        List<String> log = Collections.synchronizedList(new ArrayList<>());
+
+        MatchRunner runner = new MatchRunner(strong, weak, openings);
+        runner.setMaxGames(2);
+        runner.setLog(log::add);
+        MatchRunner.Result result = runner.run();
+
+        assertEquals(1, result.getScore().getWins(), log.toString());
+        assertEquals(1, result.getScore().getLosses());
+        assertNull(result.getDecision());
+        assertTrue(log.contains("Game 1 (Strong vs Weak): 0-1 {White makes an illegal move: e2e4}"), log.toString());
+    }
+
+    @Test
+    void testBareKingsAreDrawn() throws Exception {
+        File jar = TestEngines.buildJar(tempDir, TestEngines.ScriptedEngine.class);
+        EngineConfig engine = new EngineConfig("Scripted", jar.getPath());
+
+        MatchRunner runner = new MatchRunner(engine, engine, Collections.singletonList("4k3/8/8/8/8/8/8/4K3 w - -"));
+        runner.setMaxGames(2);
+        runner.setLog(line -> {
+        });
+
+        assertEquals(2, runner.run().getScore().getDraws());
+    }
+
+    @Test
+    void testInsufficientMaterial() {
+        Game game = new Game();
+        game.loadFromFen("4k3/8/8/8/8/8/8/4KN2 w - - 0 1");
+        assertTrue(MatchRunner.isInsufficientMaterial(game));
+        game.loadFromFen("4k3/8/8/8/8/8/8/3NKN2 w - - 0 1");
+        assertFalse(MatchRunner.isInsufficientMaterial(game));
+        game.loadFromFen("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+        assertFalse(MatchRunner.isInsufficientMaterial(game));
+    }
+}
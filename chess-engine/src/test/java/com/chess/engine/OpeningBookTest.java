@@ -0,0 +1,72 @@
+package com.chess.engine;
+
+import com.chess.core.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpeningBookTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Game play(String... uciMoves) {
+        Game game = new Game();
+        for (String move : uciMoves) {
+            assertTrue(game.makeMoveFromUCI(move), "Move should be legal: " + move);
+        }
+        return game;
+    }
+
+    private File writeBook(Game... games) throws IOException {
+        OpeningBookWriter writer = new OpeningBookWriter(OpeningBook.DEFAULT_MAX_PLY);
+        for (Game g : games) {
+            writer.addGame(g);
+        }
+        File file = tempDir.resolve("book.bin").toFile();
+        writer.write(file);
+        return file;
+    }
+
+    @Test
+    void testPicksBookMoveForKnownPosition() throws IOException {
+        File file = writeBook(play("e2e4", "e7e5", "g1f3"), play("e2e4", "c7c5"));
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            assertEquals("e2e4", book.pickMove(new Game()));
+            assertEquals("g1f3", book.pickMove(play("e2e4", "e7e5")));
+            assertNull(book.pickMove(play("d2d4")), "Unknown positions are out of book");
+
+            String reply = book.pickMove(play("e2e4"));
+            assertTrue("e7e5".equals(reply) || "c7c5".equals(reply), "Unexpected reply: " + reply);
+        }
+    }
+
+    @Test
+    void testMaxPlyLimitsBookDepth() throws IOException {
+        File file = writeBook(play("e2e4", "e7e5", "g1f3"));
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            book.setMaxPly(2);
+            assertEquals("e7e5", book.pickMove(play("e2e4")));
+            assertNull(book.pickMove(play("e2e4", "e7e5")), "Book should not be used past the depth limit");
+        }
+    }
+
+    @Test
+    void testCastlingIsStoredAsKingTakesRook() throws IOException {
+        Game game = play("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6", "e1g1");
+        File file = writeBook(game);
+
+        try (OpeningBook book = OpeningBook.open(file)) {
+            Game beforeCastling = play("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6");
+            assertEquals("e1g1", book.pickMove(beforeCastling));
+            assertTrue(beforeCastling.makeMoveFromUCI(book.pickMove(beforeCastling)));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.chess.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SprtTest {
+
+    @Test
+    void testEloFromScore() {
+        assertEquals(0, new MatchScore(10, 20, 10).getElo(), 1e-9);
+        assertEquals(191, MatchScore.eloFromScore(0.75), 0.5);
+        assertEquals(0.75, MatchScore.scoreFromElo(MatchScore.eloFromScore(0.75)), 1e-9);
+        assertEquals(Double.POSITIVE_INFINITY, new MatchScore(3, 0, 0).getElo());
+
+        // More games narrow the error bars
+        MatchScore few = new MatchScore(30, 40, 30);
+        MatchScore many = new MatchScore(300, 400, 300);
+        assertTrue(many.getEloError() < few.getEloError());
+        assertEquals(few.getEloError() / Math.sqrt(10), many.getEloError(), 0.5);
+    }
+
+    @Test
+    void testDecisions() {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(-2.94, sprt.getLowerBound(), 0.01);
+        assertEquals(2.94, sprt.getUpperBound(), 0.01);
+
+        assertEquals(0, sprt.llr(new MatchScore(0, 0, 0)));
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(new MatchScore(110, 200, 100)));
+        // +35 Elo over 4000 games is far beyond elo1, an even score far below it
+        assertEquals(Sprt.Decision.ACCEPT_H1, sprt.decide(new MatchScore(1200, 2000, 800)));
+        assertEquals(Sprt.Decision.ACCEPT_H0, sprt.decide(new MatchScore(1000, 2000, 1000)));
+    }
+
+    @Test
+    void testOneSidedResultsNeedEnoughGames() {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        // A handful of straight wins is not yet proof of +10 Elo
+        assertEquals(Sprt.Decision.CONTINUE, sprt.decide(new MatchScore(5, 0, 0)));
+        assertTrue(sprt.llr(new MatchScore(50, 0, 0)) > sprt.llr(new MatchScore(5, 0, 0)));
+        assertEquals(Sprt.Decision.ACCEPT_H1, sprt.decide(new MatchScore(500, 0, 0)));
+    }
+}
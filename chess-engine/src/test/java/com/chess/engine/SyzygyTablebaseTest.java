@@ -0,0 +1,269 @@
+package com.chess.engine;
+
+import com.chess.core.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyzygyTablebaseTest {
+
+    // Index of Qb1 Ke3 kh8 in the KQvK table, worked out by hand from the format
+    private static final int MARKED_INDEX = (19 * 62) + 61;
+    private static final int KQVK_SIZE = 31332;
+
+    @TempDir
+    Path tempDir;
+
+    private static Game position(String fen) {
+        Game game = new Game();
+        game.loadFromFen(fen);
+        return game;
+    }
+
+    /** Little-endian table bytes, as the generator writes them. */
+    private static final class TableBytes extends ByteArrayOutputStream {
+        TableBytes u8(int... values) {
+            for (int v : values) {
+                write(v);
+            }
+            return this;
+        }
+
+        TableBytes u16(int value) {
+            return u8(value & 0xFF, (value >> 8) & 0xFF);
+        }
+
+        TableBytes u32(int value) {
+            return u16(value & 0xFFFF).u16(value >>> 16);
+        }
+
+        TableBytes align(int alignment) {
+            while (size() % alignment != 0) {
+                write(0);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Writes KQvK tables. White to move is won throughout; Black to move is lost,
+     * either as a single value or Huffman coded with one drawn position at
+     * {@link #MARKED_INDEX}.
+     */
+    private void writeKQvK(boolean compressed) throws IOException {
+        TableBytes wdl = new TableBytes();
+        wdl.u8(0x71, 0xE8, 0x23, 0x5D);
+        wdl.u8(0x01); // Split: KQvK and KvKQ
+        wdl.u8(0x00); // Group order
+        wdl.u8(0x55, 0x66, 0xEE); // Q, K, k for either side to move
+        wdl.align(2);
+        wdl.u8(0x80, 4); // White to move: win
+        if (!compressed) {
+            wdl.u8(0x80, 0); // Black to move: loss
+        } else {
+            writeCompressedSide(wdl);
+        }
+        Files.write(tempDir.resolve("KQvK.rtbw"), wdl.toByteArray());
+
+        TableBytes dtz = new TableBytes();
+        dtz.u8(0xD7, 0x66, 0x0C, 0xA5);
+        dtz.u8(0x01);
+        dtz.u8(0x00);
+        dtz.u8(0x55, 0x66, 0xEE);
+        dtz.align(2);
+        dtz.u8(0x80, 9); // White to move, 9 moves to zeroing
+        Files.write(tempDir.resolve("KQvK.rtbz"), dtz.toByteArray());
+    }
+
+    /**
+     * Codes: "1" is two losses, "00" one loss, "01" one draw. Blocks are 64
+     * bytes, and the sparse index has an entry every 1024 values.
+     */
+    private static void writeCompressedSide(TableBytes out) {
+        List<Integer> blockValues = new ArrayList<>();
+        List<StringBuilder> blockBits = new ArrayList<>();
+        StringBuilder bits = new StringBuilder();
+        int values = 0;
+        for (int idx = 0; idx < KQVK_SIZE;) {
+            String code;
+            int count;
+            if (idx == MARKED_INDEX) {
+                code = "01";
+                count = 1;
+            } else if (idx + 1 < KQVK_SIZE && idx + 1 != MARKED_INDEX) {
+                code = "1";
+                count = 2;
+            } else {
+                code = "00";
+                count = 1;
+            }
+            if (bits.length() + code.length() > 512) {
+                blockBits.add(bits);
+                blockValues.add(values);
+                bits = new StringBuilder();
+                values = 0;
+            }
+            bits.append(code);
+            values += count;
+            idx += count;
+        }
+        blockBits.add(bits);
+        blockValues.add(values);
+
+        out.u8(0x00); // Flags
+        out.u8(6, 10, 0); // Block size 2^6, span 2^10, no padding
+        out.u32(blockBits.size());
+        out.u8(2, 1); // Longest and shortest code
+        out.u16(2).u16(0); // Lowest symbol of length 1 and 2
+        out.u16(3); // Symbols
+        out.u8(0x00, 0xF0, 0xFF); // 0: loss
+        out.u8(0x02, 0xF0, 0xFF); // 1: draw
+        out.u8(0x00, 0x00, 0x00); // 2: pair of symbol 0
+        out.u8(0x00); // Odd symbol count
+
+        // Sparse index: block and offset of every 1024th value plus 512
+        for (int k = 0; k * 1024 < KQVK_SIZE; k++) {
+            int target = k * 1024 + 512;
+            int block = 0;
+            while (target >= blockValues.get(block)) {
+                target -= blockValues.get(block++);
+            }
+            out.u32(block).u16(target);
+        }
+        for (int count : blockValues) {
+            out.u16(count - 1);
+        }
+        out.align(64);
+        for (StringBuilder block : blockBits) {
+            byte[] data = new byte[64];
+            for (int i = 0; i < block.length(); i++) {
+                if (block.charAt(i) == '1') {
+                    data[i / 8] |= (byte) (0x80 >> (i % 8));
+                }
+            }
+            out.write(data, 0, data.length);
+        }
+        out.u8(new int[16]); // Read-ahead past the last block
+    }
+
+    @Test
+    void testIndexTablesMatchTheTableFormat() {
+        assertEquals(462, SyzygyTablebase.KING_PAIRS);
+        assertEquals(47, SyzygyTablebase.MAP_PAWNS[8], "a2 leads every other pawn");
+        assertEquals(46, SyzygyTablebase.MAP_PAWNS[15]);
+        assertEquals(10, SyzygyTablebase.BINOMIAL[2][5]);
+        assertEquals(6, SyzygyTablebase.MAP_A1D1D4[0], "a1 is on the diagonal, coded after the triangle");
+    }
+
+    @Test
+    void testProbesWdlForEitherSideAndColor() throws IOException {
+        writeKQvK(false);
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(tempDir.toFile())) {
+            assertEquals(1, tablebase.getTableCount());
+            assertEquals(3, tablebase.getMaxPieces());
+            assertEquals(SyzygyTablebase.WIN, tablebase.probeWdl(position("k7/8/1K6/8/8/8/8/2Q5 w - - 0 1")));
+            assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(position("k7/8/1K6/8/8/8/8/2Q5 b - - 0 1")));
+            // Black holds the queen: read from the same table with the colors swapped
+            assertEquals(SyzygyTablebase.WIN, tablebase.probeWdl(position("2q5/8/8/8/8/1k6/8/K7 b - - 0 1")));
+            assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(position("2q5/8/8/8/8/1k6/8/K7 w - - 0 1")));
+        }
+    }
+
+    @Test
+    void testCapturingTheQueenIsADraw() throws IOException {
+        writeKQvK(false);
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(tempDir.toFile())) {
+            assertEquals(SyzygyTablebase.DRAW, tablebase.probeWdl(position("k7/Q7/8/8/8/8/8/7K b - - 0 1")));
+            assertEquals(0, tablebase.probeDtz(position("k7/Q7/8/8/8/8/8/7K b - - 0 1")));
+        }
+    }
+
+    @Test
+    void testProbesDtzFromEitherSide() throws IOException {
+        writeKQvK(false);
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(tempDir.toFile())) {
+            // Stored in moves: 9 moves to zeroing is 18 plies, plus the move into the table
+            assertEquals(19, tablebase.probeDtz(position("k7/8/1K6/8/8/8/8/2Q5 w - - 0 1")));
+            // Black to move is not stored: one ply further from the White side
+            assertEquals(-20, tablebase.probeDtz(position("k7/8/1K6/8/8/8/8/2Q5 b - - 0 1")));
+        }
+    }
+
+    @Test
+    void testPicksTheMateOverKeepingTheWin() throws IOException {
+        writeKQvK(false);
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(tempDir.toFile())) {
+            assertEquals("c1c8", tablebase.pickMove(position("k7/8/1K6/8/8/8/8/2Q5 w - - 0 1")));
+        }
+    }
+
+    @Test
+    void testDoesNotHangTheQueen() throws IOException {
+        writeKQvK(false);
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(tempDir.toFile())) {
+            // Every queen move keeps the win except those next to the black king
+            Game game = position("8/8/8/8/3k4/8/4Q3/K7 w - - 0 1");
+            String move = tablebase.pickMove(game);
+            assertNotNull(move);
+            assertTrue(game.makeMoveFromUCI(move), "Picked move should be legal: " + move);
+            assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(game), "Black should still be lost after " + move);
+        }
+    }
+
+    @Test
+    void testPositionsOutsideTheTablesAreNotProbed() throws IOException {
+        writeKQvK(false);
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(tempDir.toFile())) {
+            assertNull(tablebase.probeWdl(position("k7/8/1K6/8/8/8/8/2R5 w - - 0 1")), "No KRvK table");
+            assertNull(tablebase.pickMove(position("k7/8/1K6/8/8/8/8/2R5 w - - 0 1")));
+            assertNull(tablebase.probeWdl(position("k7/8/1K6/8/8/8/8/1RQ5 w - - 0 1")), "More pieces than any table");
+            assertNull(tablebase.probeWdl(position("r3k3/8/8/8/8/8/8/2Q1K3 w q - 0 1")), "Castling rights");
+            assertNull(tablebase.pickMove(new Game()));
+        }
+    }
+
+    @Test
+    void testDecodesACompressedTable() throws IOException {
+        writeKQvK(true);
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(tempDir.toFile())) {
+            assertEquals(SyzygyTablebase.DRAW, tablebase.probeWdl(position("7k/8/8/8/8/4K3/8/1Q6 b - - 0 1")));
+            assertEquals(SyzygyTablebase.DRAW, tablebase.probeWdl(position("k7/8/8/8/8/3K4/8/6Q1 b - - 0 1")),
+                    "Mirrored onto the same index");
+            assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(position("7k/8/8/8/8/5K2/8/1Q6 b - - 0 1")));
+            assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(position("k7/8/1K6/8/8/8/8/2Q5 b - - 0 1")));
+            assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(position("k7/8/8/8/8/2Q5/8/7K b - - 0 1")));
+        }
+    }
+
+    @Test
+    void testMappedRegionsStayWithinTheCap() throws IOException {
+        writeKQvK(true);
+        File dir = tempDir.toFile();
+
+        try (SyzygyTablebase tablebase = SyzygyTablebase.open(dir, 64, 2)) {
+            assertEquals(0, tablebase.getMappedRegionCount(), "Nothing is mapped before the first probe");
+            assertEquals(SyzygyTablebase.DRAW, tablebase.probeWdl(position("7k/8/8/8/8/4K3/8/1Q6 b - - 0 1")));
+            assertEquals(SyzygyTablebase.LOSS, tablebase.probeWdl(position("k7/8/8/8/8/2Q5/8/7K b - - 0 1")));
+            assertEquals(19, tablebase.probeDtz(position("k7/8/1K6/8/8/8/8/2Q5 w - - 0 1")));
+            assertEquals(2, tablebase.getMappedRegionCount());
+            // Evicted regions are mapped again when needed
+            assertEquals(SyzygyTablebase.DRAW, tablebase.probeWdl(position("7k/8/8/8/8/4K3/8/1Q6 b - - 0 1")));
+        }
+    }
+}
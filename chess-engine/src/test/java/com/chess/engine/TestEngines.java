@@ -0,0 +1,159 @@
+package com.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Scripted UCI engines for tests, packaged into jars on demand.
+ */
+final class TestEngines {
+
+    private TestEngines() {
+        // Utility class
+    }
+
+    /**
+     * Answers every search at once with e2e4 and a score of 30 centipawns for
+     * the side to move, except after 1. f3, which it scores 400 for Black.
+     */
+    public static class FixedEngine {
+        public static void main(String[] args) throws Exception {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            String position = "";
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("uci")) {
+                    System.out.println("id name Fixed");
+                    System.out.println("uciok");
+                } else if (line.equals("isready")) {
+                    System.out.println("readyok");
+                } else if (line.startsWith("position")) {
+                    position = line;
+                } else if (line.startsWith("go")) {
+                    int score = position.endsWith("moves f2f3") ? 400 : 30;
+                    System.out.println("info depth 4 score cp " + score + " time 1 pv e2e4");
+                    System.out.println("bestmove e2e4");
+                } else if (line.equals("quit")) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays a fixed line depending on its color and its "Strong" option. The
+     * strong engine mates the weak one in every game: with White by 4. Qxf7#,
+     * with Black by 2... Qh4#. Gives up with "bestmove 0000" off the script.
+     */
+    public static class ScriptedEngine {
+        private static final String[] STRONG_WHITE = { "e2e4", "f1c4", "d1h5", "h5f7" };
+        private static final String[] WEAK_BLACK = { "e7e5", "b8c6", "g8f6" };
+        private static final String[] WEAK_WHITE = { "f2f3", "g2g4" };
+        private static final String[] STRONG_BLACK = { "e7e5", "d8h4" };
+
+        public static void main(String[] args) throws Exception {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            boolean strong = false;
+            int plies = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("uci")) {
+                    System.out.println("id name Scripted");
+                    System.out.println("option name Strong type check default false");
+                    System.out.println("uciok");
+                } else if (line.equals("isready")) {
+                    System.out.println("readyok");
+                } else if (line.startsWith("setoption name Strong value ")) {
+                    strong = line.endsWith("true");
+                } else if (line.startsWith("position")) {
+                    int moves = line.indexOf(" moves ");
+                    plies = moves < 0 ? 0 : line.substring(moves + 7).split(" ").length;
+                } else if (line.startsWith("go")) {
+                    boolean white = plies % 2 == 0;
+                    String[] script = white ? (strong ? STRONG_WHITE : WEAK_WHITE)
+                            : (strong ? STRONG_BLACK : WEAK_BLACK);
+                    int index = plies / 2;
+                    System.out.println("bestmove " + (index < script.length ? script[index] : "0000"));
+                } else if (line.equals("quit")) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers a depth-limited "go" at once, but searches "go infinite" until
+     * "stop" and "go ponder" until "stop" or "ponderhit". Its move depends only
+     * on the number of moves in the position: e2e4, e7e5, g1f3, b8c6, then
+     * a2a3. A stopped search answers h2h3, so a stale result is easy to spot.
+     */
+    public static class WaitingEngine {
+        private static final String[] MOVES = { "e2e4", "e7e5", "g1f3", "b8c6" };
+
+        public static void main(String[] args) throws Exception {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+            int plies = 0;
+            String pending = null;
+            boolean infinite = false;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("uci")) {
+                    System.out.println("id name Waiting");
+                    System.out.println("uciok");
+                } else if (line.equals("isready")) {
+                    System.out.println("readyok");
+                } else if (line.startsWith("position")) {
+                    int moves = line.indexOf(" moves ");
+                    plies = moves < 0 ? 0 : line.substring(moves + 7).split(" ").length;
+                } else if (line.startsWith("go")) {
+                    String move = plies < MOVES.length ? MOVES[plies] : "a2a3";
+                    infinite = line.contains("infinite");
+                    if (infinite || line.contains("ponder")) {
+                        pending = move;
+                    } else {
+                        answer(move);
+                    }
+                } else if (line.equals("ponderhit") && pending != null && !infinite) {
+                    answer(pending);
+                    pending = null;
+                } else if (line.equals("stop") && pending != null) {
+                    answer("h2h3");
+                    pending = null;
+                } else if (line.equals("quit")) {
+                    return;
+                }
+            }
+        }
+
+        private static void answer(String move) {
+            System.out.println("info depth 1 score cp 10 time 1 pv " + move);
+            System.out.println("bestmove " + move);
+        }
+    }
+
+    /**
+     * Writes an executable jar containing only the given main class.
+     */
+    static File buildJar(Path dir, Class<?> mainClass) throws Exception {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass.getName());
+        String entry = mainClass.getName().replace('.', '/') + ".class";
+
+        File jar = dir.resolve(mainClass.getSimpleName() + ".jar").toFile();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest);
+                InputStream classFile = mainClass.getClassLoader().getResourceAsStream(entry)) {
+            out.putNextEntry(new JarEntry(entry));
+            classFile.transferTo(out);
+        }
+        return jar;
+    }
+}
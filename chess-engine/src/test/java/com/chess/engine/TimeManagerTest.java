@@ -0,0 +1,54 @@
+package com.chess.engine;
+
+import com.chess.core.PieceColor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeManagerTest {
+
+    @Test
+    void testAllocateSendsClockMinusOverhead() {
+        TimeManager timeManager = new TimeManager();
+        long overhead = timeManager.getOverheadMillis();
+
+        SearchLimits limits = timeManager.allocate(PieceColor.WHITE, 60_000, 50_000, 2_000, 0);
+
+        assertEquals("go wtime " + (60_000 - overhead) + " btime " + (50_000 - overhead) + " winc 2000 binc 2000",
+                limits.toGoCommand());
+    }
+
+    @Test
+    void testBudgetStaysWithinRemainingTime() {
+        TimeManager timeManager = new TimeManager();
+
+        SearchLimits limits = timeManager.allocate(PieceColor.BLACK, 60_000, 3_000, 0, 0);
+
+        assertTrue(limits.getSoftLimitMillis() > 0);
+        assertTrue(limits.getSoftLimitMillis() <= limits.getHardLimitMillis());
+        assertTrue(limits.getHardLimitMillis() < 3_000, "Hard limit must leave time on Black's clock");
+    }
+
+    @Test
+    void testOverheadAdaptsToMeasuredSearches() {
+        TimeManager timeManager = new TimeManager();
+        for (int i = 0; i < 20; i++) {
+            timeManager.recordSearch(1_200, 1_000, 0);
+        }
+        assertEquals(200, timeManager.getOverheadMillis(), 1);
+    }
+
+    @Test
+    void testSearchingOnWithoutReportingIsNotOverhead() {
+        TimeManager timeManager = new TimeManager();
+        for (int i = 0; i < 20; i++) {
+            timeManager.recordSearch(1_200, 1_000, 0);
+        }
+        // The last info is seconds old, or there was none
+        for (int i = 0; i < 20; i++) {
+            timeManager.recordSearch(5_000, 1_000, 4_000);
+            timeManager.recordSearch(800, -1, 800);
+        }
+        assertEquals(200, timeManager.getOverheadMillis(), 1);
+    }
+}
@@ -0,0 +1,91 @@
+package com.chess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A connection to a {@link GameServer}. {@link #call(String)} sends a command
+ * and waits for its answer; {@link #send(String)} and {@link #receive()} let
+ * a caller pipeline many commands and read the answers in the same order.
+ * Not thread-safe.
+ */
+public class GameClient implements Closeable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+
+    /**
+     * @param host The server's host
+     * @param port The server's port
+     * @throws IOException If the connection cannot be made
+     */
+    public GameClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a command and waits for its answer.
+     *
+     * @param command The command, e.g. "move 1 e2e4"
+     * @return The answer without the leading "ok"
+     * @throws IOException              If the connection breaks
+     * @throws IllegalArgumentException If the server rejects the command
+     */
+    public String call(String command) throws IOException {
+        send(command);
+        flush();
+        return receive();
+    }
+
+    /**
+     * Queues a command; it is sent on the next {@link #flush()}.
+     */
+    public void send(String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Reads the answer to the oldest command not yet answered.
+     *
+     * @return The answer without the leading "ok"
+     * @throws IOException              If the connection breaks
+     * @throws IllegalArgumentException If the server rejected the command
+     */
+    public String receive() throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            throw new EOFException("Server closed the connection");
+        }
+        if (line.equals(GameProtocol.OK)) {
+            return "";
+        }
+        if (line.startsWith(GameProtocol.OK + " ")) {
+            return line.substring(GameProtocol.OK.length() + 1);
+        }
+        if (line.startsWith(GameProtocol.ERR + " ")) {
+            throw new IllegalArgumentException(line.substring(GameProtocol.ERR.length() + 1));
+        }
+        throw new IOException("Bad reply: " + line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
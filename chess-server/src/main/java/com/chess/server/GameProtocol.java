@@ -0,0 +1,48 @@
+package com.chess.server;
+
+/**
+ * The line-based protocol of a {@link GameServer}. The client sends one
+ * command per line and receives exactly one reply line per command, in the
+ * order the commands were sent, so a client may send many commands without
+ * waiting for their replies.
+ *
+ * Commands:
+ * <pre>
+ * new [&lt;base ms&gt; &lt;increment ms&gt;]   starts a game, untimed without times
+ * move &lt;id&gt; &lt;uci&gt;                  plays a move for the side to move
+ * status &lt;id&gt;                      result and, if timed, both clocks
+ * legal &lt;id&gt;                       legal moves of the side to move
+ * fen &lt;id&gt;                         the current position
+ * close &lt;id&gt;                       ends the game and forgets it
+ * stats                            number of games hosted
+ * </pre>
+ *
+ * Replies are {@code ok} followed by the answer, or {@code err} followed by
+ * a message. A status is the result ("*" while the game goes on) followed by
+ * the remaining milliseconds of White and Black if the game is timed, so
+ * {@code move} answers e.g. {@code ok * 179630 180000}.
+ */
+final class GameProtocol {
+    static final String NEW = "new";
+    static final String MOVE = "move";
+    static final String STATUS = "status";
+    static final String LEGAL = "legal";
+    static final String FEN = "fen";
+    static final String CLOSE = "close";
+    static final String STATS = "stats";
+
+    static final String OK = "ok";
+    static final String ERR = "err";
+
+    private GameProtocol() {
+        // Utility class
+    }
+
+    static String ok(String answer) {
+        return answer.isEmpty() ? OK : OK + " " + answer;
+    }
+
+    static String err(String message) {
+        return ERR + " " + message.replace('\n', ' ');
+    }
+}
@@ -0,0 +1,298 @@
+package com.chess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.chess.core.Move;
+
+/**
+ * Serves games to clients over TCP, see {@link GameProtocol}. Each connection
+ * has a thread that only reads commands and hands them to the game's session,
+ * so a client pipelining commands for many games keeps all of the server's
+ * threads busy. Replies are queued when the session has answered, still in the
+ * order the commands arrived, and written by the connection's own writer
+ * thread: a slow client never holds up a session. A client that lets
+ * {@value #MAX_PENDING_REPLIES} replies pile up is disconnected.
+ *
+ * Typical use:
+ *
+ * <pre>
+ * java -jar chess-server.jar 9191
+ * java -cp chess-server.jar com.chess.server.LoadGenerator localhost 9191 8 100 40
+ * </pre>
+ */
+public class GameServer implements Closeable {
+    /** Replies queued for one client before it is dropped as not reading. */
+    static final int MAX_PENDING_REPLIES = 4096;
+
+    /** Queued after the last reply; stops the writer. */
+    private static final String END_OF_REPLIES = new String("end of replies");
+
+    private final int requestedPort;
+    private final SessionManager sessions;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextClientId = new AtomicInteger(1);
+    private ServerSocket server;
+
+    /**
+     * @param port     The TCP port to listen on, or 0 for any free port
+     * @param sessions The games to serve
+     */
+    public GameServer(int port, SessionManager sessions) {
+        this.requestedPort = port;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Starts accepting clients.
+     *
+     * @throws IOException If the port cannot be opened
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = new ServerSocket(requestedPort);
+        Thread acceptor = new Thread(this::acceptClients, "game-server-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port clients connect to.
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getLocalPort() : requestedPort;
+    }
+
+    /**
+     * Stops accepting clients and disconnects the connected ones. The games
+     * themselves stay with the {@link SessionManager}.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closeQuietly(server);
+        }
+        for (Socket client : clients) {
+            closeQuietly(client);
+        }
+    }
+
+    private void acceptClients() {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                // Closed
+                return;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                clients.add(socket);
+                Thread reader = new Thread(() -> serve(socket), "game-client-" + nextClientId.getAndIncrement());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                clients.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        BlockingQueue<String> replies = new ArrayBlockingQueue<>(MAX_PENDING_REPLIES);
+        Thread writer = new Thread(() -> writeReplies(socket, replies), Thread.currentThread().getName() + "-writer");
+        writer.setDaemon(true);
+        writer.start();
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            // Completes once every reply so far has been queued
+            CompletableFuture<Void> queued = CompletableFuture.completedFuture(null);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                CompletableFuture<String> reply = handle(line);
+                queued = queued.thenCompose(v -> reply).thenAccept(r -> queue(replies, r, socket));
+            }
+            queued.join();
+        } catch (IOException | CompletionException e) {
+            // Disconnected
+        } finally {
+            if (!replies.offer(END_OF_REPLIES)) {
+                // The client stopped reading; nothing more will be written
+                closeQuietly(socket);
+                writer.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes a client's replies as they are queued, flushing whenever the
+     * queue runs empty, and closes the connection after the last one.
+     */
+    private void writeReplies(Socket socket, BlockingQueue<String> replies) {
+        try {
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = replies.take()) != END_OF_REPLIES) {
+                out.write(line);
+                out.write('\n');
+                if (replies.isEmpty()) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            // Disconnected, or dropped for not reading
+        } finally {
+            clients.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Runs one command.
+     *
+     * @return A future completed with the reply line; it never fails
+     */
+    CompletableFuture<String> handle(String line) {
+        CompletableFuture<String> answer;
+        try {
+            answer = dispatch(line.trim().split("\\s+"));
+        } catch (RuntimeException e) {
+            answer = CompletableFuture.failedFuture(e);
+        }
+        return answer.handle((result, error) -> {
+            if (error == null) {
+                return GameProtocol.ok(result);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return GameProtocol.err(cause instanceof IllegalArgumentException ? cause.getMessage() : cause.toString());
+        });
+    }
+
+    private CompletableFuture<String> dispatch(String[] tokens) {
+        switch (tokens[0]) {
+            case GameProtocol.NEW: {
+                long base = tokens.length > 1 ? parseLong(tokens[1]) : 0;
+                long increment = tokens.length > 2 ? parseLong(tokens[2]) : 0;
+                return CompletableFuture.completedFuture(String.valueOf(sessions.create(base, increment).getId()));
+            }
+            case GameProtocol.MOVE:
+                if (tokens.length < 3) {
+                    throw new IllegalArgumentException("Usage: move <id> <uci>");
+                }
+                return session(tokens).move(tokens[2]);
+            case GameProtocol.STATUS:
+                return session(tokens).status();
+            case GameProtocol.LEGAL:
+                return session(tokens).call(game -> {
+                    List<Move> moves = game.getLegalMoves();
+                    StringBuilder sb = new StringBuilder();
+                    for (Move move : moves) {
+                        if (sb.length() > 0) {
+                            sb.append(' ');
+                        }
+                        sb.append(move.toUciNotation());
+                    }
+                    return sb.toString();
+                });
+            case GameProtocol.FEN:
+                return session(tokens).call(game -> game.getFen());
+            case GameProtocol.CLOSE:
+                if (!sessions.remove(gameId(tokens))) {
+                    throw new IllegalArgumentException("No game " + tokens[1]);
+                }
+                return CompletableFuture.completedFuture("");
+            case GameProtocol.STATS:
+                return CompletableFuture.completedFuture("games " + sessions.size());
+            default:
+                throw new IllegalArgumentException("Unknown command " + tokens[0]);
+        }
+    }
+
+    private GameSession session(String[] tokens) {
+        return sessions.get(gameId(tokens));
+    }
+
+    private static long gameId(String[] tokens) {
+        if (tokens.length < 2) {
+            throw new IllegalArgumentException("Missing game id");
+        }
+        return parseLong(tokens[1]);
+    }
+
+    private static long parseLong(String token) {
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + token);
+        }
+    }
+
+    private static void queue(BlockingQueue<String> replies, String line, Socket socket) {
+        if (!replies.offer(line)) {
+            // The client does not read its replies; the reader notices the closed connection
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: GameServer <port> [threads] [spectator port]");
+            System.exit(2);
+        }
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SessionManager sessions = new SessionManager(threads);
+        SpectatorHub hub = null;
+        if (args.length > 2) {
+            hub = new SpectatorHub(Integer.parseInt(args[2]));
+            hub.start();
+            sessions.setSpectatorHub(hub);
+            System.err.println("Watchers connect on port " + hub.getPort());
+        }
+        SpectatorHub spectators = hub;
+        GameServer server = new GameServer(Integer.parseInt(args[0]), sessions);
+        server.start();
+        System.err.println("Serving games on port " + server.getPort() + " with " + threads + " threads");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            sessions.close();
+            if (spectators != null) {
+                spectators.close();
+            }
+        }));
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,167 @@
+package com.chess.server;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import com.chess.core.ChessClock;
+import com.chess.core.Game;
+import com.chess.core.GameState;
+import com.chess.core.Move;
+import com.chess.core.PackedMove;
+import com.chess.core.PieceColor;
+import com.chess.core.TimingWheel;
+
+/**
+ * One game hosted by a {@link SessionManager}. {@link Game} is not thread-safe,
+ * so every access goes through {@link #call(Function)}, which runs on the
+ * session's own {@link SerialExecutor}: requests for one game are applied one
+ * at a time and in order, while different games proceed in parallel.
+ *
+ * If the manager has a {@link SpectatorHub}, every move and the result are
+ * published to it.
+ */
+public class GameSession {
+    private final long id;
+    private final Game game = new Game();
+    private final SerialExecutor executor;
+    private final ChessClock clock;
+    private final SpectatorHub spectators;
+
+    // Confined to the executor; termination is set once the game is over
+    private String result = "*";
+    private String termination;
+
+    /**
+     * @param id              The session id
+     * @param pool            The pool shared by all sessions
+     * @param baseMillis      Starting time per side, or 0 for an untimed game
+     * @param incrementMillis Fischer increment per move
+     * @param wheel           The timing wheel keeping the clocks' deadlines
+     * @param spectators      The hub watchers follow the game on, or null
+     */
+    GameSession(long id, Executor pool, long baseMillis, long incrementMillis, TimingWheel wheel,
+            SpectatorHub spectators) {
+        this.id = id;
+        this.executor = new SerialExecutor(pool);
+        this.spectators = spectators;
+        if (spectators != null) {
+            long millis = baseMillis > 0 ? baseMillis : -1;
+            spectators.open(id, game.getFen(), millis, millis);
+        }
+        if (baseMillis > 0) {
+            clock = new ChessClock(baseMillis, incrementMillis, ChessClock.IncrementMode.FISCHER);
+            clock.setTimingWheel(wheel);
+            clock.setCallbackExecutor(executor);
+            clock.setOnTimeExpired(this::flagged);
+            clock.start(PieceColor.WHITE);
+        } else {
+            clock = null;
+        }
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Runs an action on the game, confined to this session.
+     *
+     * @param action Reads or changes the game; must not keep a reference to it
+     * @return A future completed with the action's result, or failed with its
+     *         exception
+     */
+    public <T> CompletableFuture<T> call(Function<Game, T> action) {
+        return CompletableFuture.supplyAsync(() -> action.apply(game), executor);
+    }
+
+    /**
+     * Plays a move.
+     *
+     * @param uci The move in UCI notation, e.g. "e2e4" or "e7e8q"
+     * @return A future completed with the status after the move, see
+     *         {@link #status()}; it fails with {@link IllegalArgumentException} if
+     *         the move is illegal or the game is over
+     */
+    public CompletableFuture<String> move(String uci) {
+        return CompletableFuture.supplyAsync(() -> {
+            PieceColor mover = game.getCurrentTurn();
+            if (termination == null && clock != null && clock.isExpired(mover)) {
+                // The flag fell, but its callback is still queued behind this move
+                flagged(mover);
+            }
+            if (termination != null) {
+                throw new IllegalArgumentException("Game " + id + " is over: " + result + " by " + termination);
+            }
+            if (PackedMove.fromUci(uci) == PackedMove.NONE || !game.makeMoveFromUCI(uci)) {
+                throw new IllegalArgumentException("Illegal move " + uci);
+            }
+            GameState state = game.getGameState();
+            if (clock != null && state == GameState.IN_PROGRESS) {
+                clock.switchTurn();
+            }
+            broadcast();
+            if (state == GameState.CHECKMATE) {
+                end(game.getCurrentTurn() == PieceColor.WHITE ? "0-1" : "1-0", "checkmate");
+            } else if (state == GameState.STALEMATE) {
+                end("1/2-1/2", "stalemate");
+            }
+            return describe();
+        }, executor);
+    }
+
+    /**
+     * Returns the result, "*" while the game goes on, and the remaining time of
+     * both sides if the game is timed.
+     */
+    public CompletableFuture<String> status() {
+        return CompletableFuture.supplyAsync(this::describe, executor);
+    }
+
+    private String describe() {
+        if (clock == null) {
+            return result;
+        }
+        return result + " " + clock.getRemainingTimeMillis(PieceColor.WHITE) + " "
+                + clock.getRemainingTimeMillis(PieceColor.BLACK);
+    }
+
+    private void broadcast() {
+        if (spectators == null) {
+            return;
+        }
+        List<Move> history = game.getMoveHistory();
+        PieceColor mover = game.getCurrentTurn().opposite();
+        spectators.publish(id, PackedMove.of(history.get(history.size() - 1)),
+                clock != null ? clock.getRemainingTimeMillis(mover) : -1, game.getFen());
+    }
+
+    /**
+     * Stops the clock; the session accepts no more moves.
+     */
+    void close() {
+        executor.execute(() -> {
+            if (termination == null) {
+                end("*", "closed");
+            }
+        });
+    }
+
+    private void flagged(PieceColor color) {
+        if (termination == null) {
+            end(color == PieceColor.WHITE ? "0-1" : "1-0", "time forfeit");
+        }
+    }
+
+    private void end(String result, String termination) {
+        this.result = result;
+        this.termination = termination;
+        if (clock != null) {
+            clock.stop();
+        }
+        if (spectators != null) {
+            spectators.end(id, result);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.chess.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import com.chess.core.Board;
+import com.chess.core.Game;
+import com.chess.core.Move;
+import com.chess.core.PackedMove;
+import com.chess.core.PieceColor;
+
+/**
+ * One side of a two-player game over a LAN, see {@link LanProtocol}. One
+ * peer hosts and picks its color, the other joins and plays the other color.
+ *
+ * Moves travel as 13-byte frames with both clocks piggybacked, and each side
+ * checks every move against its own copy of the game with
+ * {@link Game#makeMove(Move)}, so a peer cannot play an illegal move or move
+ * out of turn. When the connection breaks, the joining peer reconnects and
+ * the host accepts it again; both then compare the length and hash of their
+ * move lists, and the peer that is ahead syncs the moves the other missed.
+ * If the lists differ, the longer one wins, or the host's if they are as
+ * long. Sync frames are only accepted in that window, between the peer's
+ * hello and its first regular move.
+ *
+ * Callbacks are delivered through the executor set with
+ * {@link #setCallbackExecutor(Executor)}, e.g. {@code Platform::runLater}.
+ */
+public class LanPeer implements Closeable {
+    static final long RECONNECT_DELAY_MILLIS = 1_000;
+
+    /**
+     * Receives what the remote player does.
+     */
+    public interface Listener {
+        /**
+         * The remote player moved; the move has been checked to be legal.
+         *
+         * @param packedMove  The move, see {@link PackedMove} and {@link LanPeer#toMove}
+         * @param whiteMillis White's remaining time as the mover sees it, or -1 if untimed
+         * @param blackMillis Black's remaining time as the mover sees it, or -1 if untimed
+         */
+        void moveReceived(int packedMove, long whiteMillis, long blackMillis);
+
+        /**
+         * The remote player's game replaced this one; its moves follow.
+         */
+        default void gameReset() {
+        }
+
+        /**
+         * The connection was made or lost.
+         */
+        default void connectionChanged(boolean connected) {
+        }
+    }
+
+    private final ServerSocket server;
+    private final String host;
+    private final int port;
+    private final Thread thread;
+    private volatile Socket socket;
+    private volatile boolean closed;
+    private volatile Listener listener;
+    private volatile Executor callbackExecutor = Runnable::run;
+
+    // Guarded by this
+    private final Game game = new Game();
+    private PieceColor localColor;
+    private int[] moves = new int[128];
+    /** hashes[i] is the hash of the first i moves. */
+    private long[] hashes = new long[129];
+    private int ply;
+    private long whiteMillis = -1;
+    private long blackMillis = -1;
+    private DataOutputStream out;
+
+    private LanPeer(ServerSocket server, String host, int port, PieceColor localColor) {
+        this.server = server;
+        this.host = host;
+        this.port = port;
+        this.localColor = localColor;
+        hashes[0] = LanProtocol.EMPTY_HASH;
+        thread = new Thread(server != null ? this::acceptPeers : this::connectToHost, "lan-peer");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Waits for the other player to join.
+     *
+     * @param port  The TCP port to listen on, or 0 for any free port
+     * @param color The color the host plays
+     * @throws IOException If the port cannot be opened
+     */
+    public static LanPeer host(int port, PieceColor color) throws IOException {
+        LanPeer peer = new LanPeer(new ServerSocket(port), null, port, color);
+        peer.thread.start();
+        return peer;
+    }
+
+    /**
+     * Joins a hosted game, retrying until the host answers. The color is the
+     * opposite of the host's and known once connected.
+     *
+     * @param host The host's address
+     * @param port The host's port
+     */
+    public static LanPeer join(String host, int port) {
+        LanPeer peer = new LanPeer(null, host, port, null);
+        peer.thread.start();
+        return peer;
+    }
+
+    /**
+     * Turns a packed move into a move on the given board, as accepted by
+     * {@link Game#makeMove(Move)}.
+     */
+    public static Move toMove(int packedMove, Board board) {
+        return PackedMove.toMove(packedMove, board);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the executor that runs the callbacks. By default they run on the
+     * peer's network thread.
+     *
+     * @param executor The executor, e.g. {@code Platform::runLater} for a JavaFX UI
+     */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
+    /**
+     * Returns the port the host listens on.
+     */
+    public int getPort() {
+        return server != null ? server.getLocalPort() : port;
+    }
+
+    /**
+     * Returns the color played on this side, or null while a joining peer has
+     * not reached the host yet.
+     */
+    public synchronized PieceColor getLocalColor() {
+        return localColor;
+    }
+
+    public boolean isConnected() {
+        Socket current = socket;
+        return current != null && !current.isClosed();
+    }
+
+    public synchronized int getPly() {
+        return ply;
+    }
+
+    public synchronized String getFen() {
+        return game.getFen();
+    }
+
+    /**
+     * Plays a move of the local player and sends it. Moves made while the
+     * connection is down are sent on reconnecting.
+     *
+     * @param move        The move, e.g. the last move of the local game
+     * @param whiteMillis White's remaining time after the move, or -1 if untimed
+     * @param blackMillis Black's remaining time after the move, or -1 if untimed
+     * @throws IllegalStateException    If it is not the local player's turn
+     * @throws IllegalArgumentException If the move is illegal
+     */
+    public synchronized void sendMove(Move move, long whiteMillis, long blackMillis) {
+        if (localColor == null || game.getCurrentTurn() != localColor) {
+            throw new IllegalStateException("Not the local player's turn");
+        }
+        int packed = PackedMove.of(move);
+        apply(packed, whiteMillis, blackMillis);
+        if (out != null) {
+            try {
+                LanProtocol.writeMove(out, LanProtocol.MOVE, ply, packed, whiteMillis, blackMillis);
+                out.flush();
+            } catch (IOException e) {
+                // The reader notices the broken connection; the move goes out on reconnecting
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    /**
+     * Starts the game again on both sides.
+     */
+    public synchronized void newGame() {
+        reset();
+        if (out != null) {
+            try {
+                out.writeByte(LanProtocol.RESET);
+                out.flush();
+            } catch (IOException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly(server);
+        closeQuietly(socket);
+        thread.interrupt();
+    }
+
+    /**
+     * Drops the connection as a network failure would.
+     */
+    void dropConnection() {
+        closeQuietly(socket);
+    }
+
+    private void acceptPeers() {
+        while (!closed) {
+            try {
+                play(server.accept());
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void connectToHost() {
+        while (!closed) {
+            try {
+                play(new Socket(host, port));
+            } catch (IOException e) {
+                // Not reachable yet
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                // Woken by close
+            }
+        }
+    }
+
+    /**
+     * Exchanges frames until the connection breaks.
+     */
+    private void play(Socket connected) {
+        socket = connected;
+        DataOutputStream output = null;
+        try {
+            connected.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connected.getInputStream()));
+            output = new DataOutputStream(new BufferedOutputStream(connected.getOutputStream()));
+            synchronized (this) {
+                out = output;
+                LanProtocol.writeHello(out, colorCode(localColor), ply, hashes[ply]);
+                out.flush();
+            }
+            notifyConnection(true);
+            byte[] frame = new byte[Math.max(LanProtocol.HELLO_LENGTH, LanProtocol.MOVE_LENGTH) - 1];
+            ByteBuffer fields = ByteBuffer.wrap(frame);
+            // Open from the peer's hello until its first move, while it brings us up to date
+            boolean resyncing = false;
+            while (true) {
+                int type = in.readUnsignedByte();
+                if (type == LanProtocol.HELLO) {
+                    in.readFully(frame, 0, LanProtocol.HELLO_LENGTH - 1);
+                    if (frame[0] != LanProtocol.VERSION) {
+                        throw new IOException("Unsupported protocol version " + frame[0]);
+                    }
+                    hello(frame[1] & 0xFF, fields.getShort(2) & 0xFFFF, fields.getLong(4));
+                    resyncing = true;
+                } else if (type == LanProtocol.MOVE || type == LanProtocol.SYNC) {
+                    boolean sync = type == LanProtocol.SYNC;
+                    if (sync && !resyncing) {
+                        throw new IOException("Sync outside a resync");
+                    }
+                    in.readFully(frame, 0, LanProtocol.MOVE_LENGTH - 1);
+                    received(fields.getShort(0) & 0xFFFF, fields.getShort(2) & 0xFFFF, fields.getInt(4),
+                            fields.getInt(8), sync);
+                    resyncing &= sync;
+                } else if (type == LanProtocol.RESET) {
+                    synchronized (this) {
+                        reset();
+                    }
+                    deliver(Listener::gameReset);
+                } else {
+                    throw new IOException("Unknown frame type " + type);
+                }
+            }
+        } catch (IOException e) {
+            if (!closed && !connected.isClosed()) {
+                System.err.println("LAN connection lost: " + e.getMessage());
+            }
+        } finally {
+            synchronized (this) {
+                if (out == output) {
+                    out = null;
+                }
+            }
+            closeQuietly(connected);
+            notifyConnection(false);
+        }
+    }
+
+    /**
+     * Brings the peer up to date after connecting.
+     */
+    private synchronized void hello(int peerColor, int peerPly, long peerHash) throws IOException {
+        if (localColor == null) {
+            if (peerColor == LanProtocol.UNKNOWN_COLOR) {
+                throw new IOException("Neither side has a color");
+            }
+            localColor = peerColor == 0 ? PieceColor.BLACK : PieceColor.WHITE;
+        } else if (peerColor == colorCode(localColor)) {
+            throw new IOException("Both sides play " + localColor);
+        }
+        if (peerPly <= ply && hashes[peerPly] == peerHash) {
+            // The peer's moves are the start of ours
+            sendMoves(peerPly);
+        } else if (peerPly < ply || (peerPly == ply && server != null)) {
+            out.writeByte(LanProtocol.RESET);
+            sendMoves(0);
+        }
+        // Otherwise the peer is ahead and sends what we miss
+        out.flush();
+    }
+
+    private void sendMoves(int from) throws IOException {
+        for (int i = from; i < ply; i++) {
+            // Only the clocks of the last move matter to the peer
+            LanProtocol.writeMove(out, LanProtocol.SYNC, i + 1, moves[i], whiteMillis, blackMillis);
+        }
+    }
+
+    private void received(int movePly, int packed, int white, int black, boolean sync) throws IOException {
+        synchronized (this) {
+            if (movePly != ply + 1) {
+                // Reconnecting resynchronises
+                throw new IOException("Expected ply " + (ply + 1) + " but got " + movePly);
+            }
+            if (!sync && game.getCurrentTurn() == localColor) {
+                throw new IOException("Move " + PackedMove.toUci(packed) + " out of turn");
+            }
+            try {
+                apply(packed, white, black);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+        deliver(l -> l.moveReceived(packed, white, black));
+    }
+
+    /**
+     * Plays a move on the local copy of the game. Must hold the lock.
+     *
+     * @throws IllegalArgumentException If the move is illegal
+     */
+    private void apply(int packed, long white, long black) {
+        if (!game.makeMove(toMove(packed, game.getBoard()))) {
+            throw new IllegalArgumentException("Illegal move " + PackedMove.toUci(packed));
+        }
+        if (ply == moves.length) {
+            moves = Arrays.copyOf(moves, ply * 2);
+            hashes = Arrays.copyOf(hashes, ply * 2 + 1);
+        }
+        moves[ply] = packed;
+        hashes[ply + 1] = LanProtocol.hash(hashes[ply], packed);
+        ply++;
+        whiteMillis = white;
+        blackMillis = black;
+    }
+
+    /**
+     * Clears the local copy of the game. Must hold the lock.
+     */
+    private void reset() {
+        game.reset();
+        ply = 0;
+        whiteMillis = -1;
+        blackMillis = -1;
+    }
+
+    private void notifyConnection(boolean connected) {
+        if (!closed) {
+            deliver(l -> l.connectionChanged(connected));
+        }
+    }
+
+    private void deliver(Consumer<Listener> event) {
+        Listener current = listener;
+        if (current != null) {
+            callbackExecutor.execute(() -> event.accept(current));
+        }
+    }
+
+    private static int colorCode(PieceColor color) {
+        return color == null ? LanProtocol.UNKNOWN_COLOR : color == PieceColor.WHITE ? 0 : 1;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
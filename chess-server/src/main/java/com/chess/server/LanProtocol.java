@@ -0,0 +1,69 @@
+package com.chess.server;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The binary frames two {@link LanPeer}s exchange. Every frame has a fixed
+ * size given by its first byte, so a frame is read with one
+ * {@code readFully} and no parsing. Numbers are big-endian.
+ *
+ * <pre>
+ * hello  1 | version u8 | color u8 | ply u16 | hash i64              13 bytes
+ * move   2 | ply u16 | move u16 | white i32 | black i32            13 bytes
+ * reset  3                                                          1 byte
+ * sync   4 | as move                                                13 bytes
+ * </pre>
+ *
+ * Both peers send a hello on every (re)connection: the sender's color (0
+ * White, 1 Black, 255 not yet known), the number of plies it has and the
+ * hash of its move list. A move carries the ply it makes, a
+ * {@link com.chess.core.PackedMove}, and both clocks as the mover sees them
+ * after the move, in milliseconds or -1 if untimed. A reset tells the peer to
+ * clear its game. Sync frames carry the moves a peer missed while
+ * disconnected, or all moves after a reset; unlike a move, they may be moves
+ * of either side.
+ */
+final class LanProtocol {
+    static final byte HELLO = 1;
+    static final byte MOVE = 2;
+    static final byte RESET = 3;
+    static final byte SYNC = 4;
+
+    static final int VERSION = 1;
+    static final int HELLO_LENGTH = 13;
+    static final int MOVE_LENGTH = 13;
+    static final int UNKNOWN_COLOR = 255;
+    /** The hash of an empty move list. */
+    static final long EMPTY_HASH = 0xCBF29CE484222325L;
+
+    private LanProtocol() {
+        // Utility class
+    }
+
+    static void writeHello(DataOutputStream out, int color, int ply, long hash) throws IOException {
+        out.writeByte(HELLO);
+        out.writeByte(VERSION);
+        out.writeByte(color);
+        out.writeShort(ply);
+        out.writeLong(hash);
+    }
+
+    static void writeMove(DataOutputStream out, byte type, int ply, int packedMove, long whiteMillis,
+            long blackMillis) throws IOException {
+        out.writeByte(type);
+        out.writeShort(ply);
+        out.writeShort(packedMove);
+        out.writeInt((int) Math.min(Integer.MAX_VALUE, whiteMillis));
+        out.writeInt((int) Math.min(Integer.MAX_VALUE, blackMillis));
+    }
+
+    /**
+     * Extends the hash of a move list by one move (64-bit FNV-1a over the two
+     * bytes of each packed move).
+     */
+    static long hash(long hash, int packedMove) {
+        hash = (hash ^ ((packedMove >>> 8) & 0xFF)) * 0x100000001B3L;
+        return (hash ^ (packedMove & 0xFF)) * 0x100000001B3L;
+    }
+}
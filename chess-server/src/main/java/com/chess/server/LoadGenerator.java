@@ -0,0 +1,222 @@
+package com.chess.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many games against a {@link GameServer} at once and measures how
+ * quickly it answers. Each connection hosts a number of timed games and plays
+ * random legal moves in all of them in rounds: one pipelined batch of
+ * {@code legal} commands, then one of {@code move} commands. The latency of a
+ * command is the time from queuing it to reading its reply, so it includes
+ * waiting behind the other commands of its batch, as a busy client would.
+ */
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private long seed = 1;
+
+    /**
+     * The outcome of a run.
+     */
+    public static class Report {
+        private final long commands;
+        private final long errors;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Report(long errors, long elapsedNanos, long[] sortedLatencies) {
+            this.commands = sortedLatencies.length;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public long getCommands() {
+            return commands;
+        }
+
+        /**
+         * Returns the number of commands the server rejected.
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns the latency below which the given fraction of commands were
+         * answered, in nanoseconds.
+         *
+         * @param fraction E.g. 0.99 for the 99th percentile
+         */
+        public long getLatencyNanos(double fraction) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))];
+        }
+
+        public double getCommandsPerSecond() {
+            return elapsedNanos > 0 ? commands * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d commands, %d errors in %.2f s: %.0f/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    commands, errors, elapsedNanos / 1e9, getCommandsPerSecond(), getLatencyNanos(0.5) / 1e6,
+                    getLatencyNanos(0.99) / 1e6, getLatencyNanos(1.0) / 1e6);
+        }
+    }
+
+    /**
+     * @param host The server's host
+     * @param port The server's port
+     */
+    public LoadGenerator(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sets the seed of the random move choice, so runs can be repeated.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Plays the games and waits for all of them to finish.
+     *
+     * @param connections Concurrent connections
+     * @param games       Games per connection
+     * @param moves       Plies per game; games that end earlier stop there
+     * @return The latencies and throughput
+     * @throws IOException If a connection fails
+     */
+    public Report run(int connections, int games, int moves) throws IOException, InterruptedException {
+        ExecutorService threads = Executors.newFixedThreadPool(connections);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                Random random = new Random(seed + i);
+                results.add(threads.submit(() -> play(games, moves, random)));
+            }
+            List<long[]> latencies = new ArrayList<>();
+            for (Future<long[]> result : results) {
+                latencies.add(result.get());
+            }
+            long elapsed = System.nanoTime() - start;
+
+            // The last element of each connection's array is its error count
+            int total = 0;
+            long errors = 0;
+            for (long[] connection : latencies) {
+                total += connection.length - 1;
+                errors += connection[connection.length - 1];
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (long[] connection : latencies) {
+                System.arraycopy(connection, 0, all, offset, connection.length - 1);
+                offset += connection.length - 1;
+            }
+            Arrays.sort(all);
+            return new Report(errors, elapsed, all);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays the games of one connection.
+     *
+     * @return The latency of every command, followed by the number of errors
+     */
+    private long[] play(int games, int moves, Random random) throws IOException {
+        long[] latencies = new long[games * (2 * moves + 2) + 1];
+        int count = 0;
+        long errors = 0;
+        try (GameClient client = new GameClient(host, port)) {
+            List<String> active = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                // Long enough that no game is decided by the clock
+                active.add(client.call(GameProtocol.NEW + " 600000 0"));
+            }
+            List<String> all = new ArrayList<>(active);
+            long[] sent = new long[games];
+            for (int ply = 0; ply < moves && !active.isEmpty(); ply++) {
+                for (int i = 0; i < active.size(); i++) {
+                    sent[i] = System.nanoTime();
+                    client.send(GameProtocol.LEGAL + " " + active.get(i));
+                }
+                client.flush();
+                String[] choice = new String[active.size()];
+                for (int i = 0; i < active.size(); i++) {
+                    try {
+                        String[] legal = client.receive().split(" ");
+                        choice[i] = legal[random.nextInt(legal.length)];
+                    } catch (IllegalArgumentException e) {
+                        errors++;
+                    }
+                    latencies[count++] = System.nanoTime() - sent[i];
+                }
+
+                for (int i = 0; i < active.size(); i++) {
+                    sent[i] = System.nanoTime();
+                    client.send(GameProtocol.MOVE + " " + active.get(i) + " " + choice[i]);
+                }
+                client.flush();
+                List<String> going = new ArrayList<>();
+                for (int i = 0; i < active.size(); i++) {
+                    try {
+                        if (client.receive().startsWith("*")) {
+                            going.add(active.get(i));
+                        }
+                    } catch (IllegalArgumentException e) {
+                        errors++;
+                    }
+                    latencies[count++] = System.nanoTime() - sent[i];
+                }
+                active = going;
+            }
+            for (String id : all) {
+                client.send(GameProtocol.CLOSE + " " + id);
+            }
+            client.flush();
+            for (int i = 0; i < all.size(); i++) {
+                client.receive();
+            }
+        }
+        long[] result = Arrays.copyOf(latencies, count + 1);
+        result[count] = errors;
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: LoadGenerator <host> <port> [connections] [games] [moves]");
+            System.exit(2);
+        }
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int games = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int moves = args.length > 4 ? Integer.parseInt(args[4]) : 40;
+        LoadGenerator generator = new LoadGenerator(args[0], Integer.parseInt(args[1]));
+        System.out.println(connections + " connections x " + games + " games x " + moves + " plies");
+        System.out.println(generator.run(connections, games, moves));
+    }
+}
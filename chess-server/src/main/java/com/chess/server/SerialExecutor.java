@@ -0,0 +1,56 @@
+package com.chess.server;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks one at a time, in submission order, on a shared pool. Everything
+ * submitted to one instance is confined to it as if to a single thread, but
+ * no thread is held while it has nothing to do, so thousands of instances can
+ * share a pool sized to the CPU count.
+ */
+public final class SerialExecutor implements Executor {
+    /** Tasks run per turn on the pool before yielding to other instances. */
+    private static final int BATCH = 64;
+
+    private final Executor pool;
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private boolean scheduled;
+
+    public SerialExecutor(Executor pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (tasks) {
+            tasks.add(task);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        pool.execute(this::drain);
+    }
+
+    private void drain() {
+        for (int i = 0; i < BATCH; i++) {
+            Runnable task;
+            synchronized (tasks) {
+                task = tasks.poll();
+                if (task == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Task failed: " + e);
+            }
+        }
+        // Give other instances a turn; the remaining tasks keep their order
+        pool.execute(this::drain);
+    }
+}
@@ -0,0 +1,116 @@
+package com.chess.server;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.chess.core.TimingWheel;
+
+/**
+ * Hosts any number of {@link GameSession}s. All sessions share one small pool
+ * of threads, sized to the CPU count, and one {@link TimingWheel} for their
+ * clocks, so an idle game costs memory but no thread and no timer of its own.
+ * Games can be watched through a {@link SpectatorHub}.
+ */
+public class SessionManager implements Closeable {
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService pool;
+    private final TimingWheel wheel;
+    private volatile SpectatorHub spectators;
+
+    /**
+     * Creates a manager with one thread per available processor.
+     */
+    public SessionManager() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads Threads shared by all games
+     */
+    public SessionManager(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "game-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publishes the games created from now on to watchers.
+     *
+     * @param hub The hub, or null to stop publishing new games
+     */
+    public void setSpectatorHub(SpectatorHub hub) {
+        this.spectators = hub;
+    }
+
+    /**
+     * Starts a game; a timed game's clock starts running for White at once.
+     *
+     * @param baseMillis      Starting time per side, or 0 for an untimed game
+     * @param incrementMillis Fischer increment per move
+     * @return The new session
+     * @throws IllegalArgumentException If a time is negative
+     */
+    public GameSession create(long baseMillis, long incrementMillis) {
+        if (baseMillis < 0 || incrementMillis < 0) {
+            throw new IllegalArgumentException("Negative time " + baseMillis + " + " + incrementMillis);
+        }
+        GameSession session = new GameSession(nextId.getAndIncrement(), pool, baseMillis, incrementMillis, wheel,
+                spectators);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Returns a session.
+     *
+     * @throws IllegalArgumentException If there is no such session
+     */
+    public GameSession get(long id) {
+        GameSession session = sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("No game " + id);
+        }
+        return session;
+    }
+
+    /**
+     * Ends a game and forgets it.
+     *
+     * @return false if there was no such session
+     */
+    public boolean remove(long id) {
+        GameSession session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        session.close();
+        return true;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Ends all games and stops the threads.
+     */
+    @Override
+    public void close() {
+        for (Long id : sessions.keySet()) {
+            remove(id);
+        }
+        wheel.close();
+        pool.shutdown();
+    }
+}
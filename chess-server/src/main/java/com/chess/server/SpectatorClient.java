@@ -0,0 +1,147 @@
+package com.chess.server;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import com.chess.core.Game;
+import com.chess.core.PackedMove;
+import com.chess.core.PieceColor;
+
+/**
+ * Watches one game on a {@link SpectatorHub}, replaying its frames into a
+ * local {@link Game}. Not thread-safe.
+ */
+public class SpectatorClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final Game game = new Game();
+    private int ply;
+    private long whiteMillis = -1;
+    private long blackMillis = -1;
+    private String result;
+    private int snapshots;
+
+    /**
+     * @param host   The hub's host
+     * @param port   The hub's port
+     * @param gameId The game to watch
+     * @throws IOException If the connection cannot be made
+     */
+    public SpectatorClient(String host, int port, long gameId) throws IOException {
+        this(new Socket(host, port), gameId);
+    }
+
+    SpectatorClient(Socket socket, long gameId) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        new DataOutputStream(socket.getOutputStream()).writeLong(gameId);
+    }
+
+    /**
+     * Waits for the next frame and applies it.
+     *
+     * @return The frame type, e.g. {@link SpectatorProtocol#MOVE}
+     * @throws java.io.EOFException If the hub closed the connection, as it does
+     *                              after the end of the game or for an unknown game
+     * @throws IOException          If the frame does not fit the position
+     */
+    public int read() throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case SpectatorProtocol.MOVE: {
+                ply = in.readUnsignedShort();
+                int move = in.readUnsignedShort();
+                int clock = in.readInt();
+                PieceColor mover = game.getCurrentTurn();
+                if (!game.makeMoveFromUCI(PackedMove.toUci(move))) {
+                    throw new IOException("Illegal move " + PackedMove.toUci(move) + " at ply " + ply);
+                }
+                if (mover == PieceColor.WHITE) {
+                    whiteMillis = clock;
+                } else {
+                    blackMillis = clock;
+                }
+                break;
+            }
+            case SpectatorProtocol.SNAPSHOT: {
+                ply = in.readUnsignedShort();
+                whiteMillis = in.readInt();
+                blackMillis = in.readInt();
+                byte[] fen = new byte[in.readUnsignedShort()];
+                in.readFully(fen);
+                game.loadFromFen(new String(fen, StandardCharsets.US_ASCII));
+                snapshots++;
+                break;
+            }
+            case SpectatorProtocol.END:
+                result = SpectatorProtocol.RESULTS[in.readUnsignedByte()];
+                break;
+            default:
+                throw new IOException("Unknown frame type " + type);
+        }
+        return type;
+    }
+
+    /**
+     * Reads frames until the game ends.
+     *
+     * @return The result
+     */
+    public String readToEnd() throws IOException {
+        while (result == null) {
+            read();
+        }
+        return result;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * Returns the ply of the last move, modulo 65536.
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Returns the time White had left after its last move, or -1 if untimed.
+     */
+    public long getWhiteMillis() {
+        return whiteMillis;
+    }
+
+    /**
+     * Returns the time Black had left after its last move, or -1 if untimed.
+     */
+    public long getBlackMillis() {
+        return blackMillis;
+    }
+
+    /**
+     * Returns the result, or null while the game goes on.
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the number of snapshots received, one on subscribing and one
+     * each time this watcher fell too far behind.
+     */
+    public int getSnapshots() {
+        return snapshots;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,454 @@
+package com.chess.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the moves of hosted games to any number of watchers, see
+ * {@link SpectatorProtocol}. One thread serves all watchers of all games with
+ * non-blocking channels.
+ *
+ * Each move is encoded once, into a fixed-size ring of recent frames per
+ * watched game, and every watcher only keeps its position in that ring.
+ * Publishing a move is therefore the same small amount of work however many
+ * watch, and a watcher that was busy receives everything it missed in one
+ * write. A watcher whose network cannot keep up holds nothing back: once the
+ * ring has moved on past its position, it is sent a snapshot of the current
+ * position instead of the moves it missed.
+ *
+ * Games are announced with {@link #open}, {@link #publish} and {@link #end},
+ * which may be called from any thread; calls for one game must be made in
+ * order, e.g. from its {@link GameSession}.
+ */
+public class SpectatorHub implements Closeable {
+    /** Bytes of recent frames kept per watched game; about 1800 moves. */
+    static final int DEFAULT_BACKLOG_BYTES = 16 * 1024;
+
+    private final int requestedPort;
+    private final int backlogBytes;
+    private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong snapshotsSent = new AtomicLong();
+    private ServerSocketChannel server;
+    private Selector selector;
+    private volatile boolean closed;
+
+    // Confined to the hub thread
+    private final Map<Long, Feed> feeds = new HashMap<>();
+    private final List<Feed> dirty = new ArrayList<>();
+    private final byte[] frame = new byte[SpectatorProtocol.MOVE_LENGTH];
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+
+    /**
+     * The recent frames of one game and the watchers reading them.
+     */
+    private static final class Feed {
+        final long gameId;
+        final List<Subscriber> subscribers = new ArrayList<>();
+        /** Only while watched; a new watcher starts from a snapshot anyway. */
+        byte[] log;
+        /** Bytes ever appended; the ring holds the last log.length of them. */
+        long written;
+        int ply;
+        boolean whiteToMove;
+        long whiteMillis;
+        long blackMillis;
+        String fen;
+        String result;
+        boolean dirty;
+
+        Feed(long gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    /**
+     * One watcher: its position in its feed, and whatever part of a write the
+     * network did not take yet.
+     */
+    private static final class Subscriber {
+        final SocketChannel channel;
+        final ByteBuffer request = ByteBuffer.allocate(Long.BYTES);
+        SelectionKey key;
+        Feed feed;
+        long cursor;
+        ByteBuffer carry;
+
+        Subscriber(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * @param port The TCP port watchers connect to, or 0 for any free port
+     */
+    public SpectatorHub(int port) {
+        this(port, DEFAULT_BACKLOG_BYTES);
+    }
+
+    /**
+     * @param port         The TCP port watchers connect to, or 0 for any free port
+     * @param backlogBytes Bytes of recent frames kept per game
+     */
+    SpectatorHub(int port, int backlogBytes) {
+        this.requestedPort = port;
+        this.backlogBytes = backlogBytes;
+    }
+
+    /**
+     * Starts accepting watchers.
+     *
+     * @throws IOException If the port cannot be opened
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(requestedPort));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        Thread thread = new Thread(this::run, "spectator-hub");
+        thread.setDaemon(true);
+        thread.start();
+        // Games opened before the start are waiting in the queue
+        selector.wakeup();
+    }
+
+    /**
+     * Returns the port watchers connect to.
+     */
+    public synchronized int getPort() {
+        return server != null ? server.socket().getLocalPort() : requestedPort;
+    }
+
+    /**
+     * Returns the number of watchers subscribed to a game.
+     */
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    /**
+     * Returns the number of snapshots sent, on subscribing or to watchers that
+     * fell behind.
+     */
+    public long getSnapshotsSent() {
+        return snapshotsSent.get();
+    }
+
+    /**
+     * Makes a game available to watchers.
+     *
+     * @param gameId      The game
+     * @param fen         Its position
+     * @param whiteMillis White's remaining time, or -1 if untimed
+     * @param blackMillis Black's remaining time, or -1 if untimed
+     */
+    public void open(long gameId, String fen, long whiteMillis, long blackMillis) {
+        submit(() -> {
+            Feed feed = new Feed(gameId);
+            feed.fen = fen;
+            feed.whiteToMove = fen.split(" ")[1].equals("w");
+            feed.whiteMillis = whiteMillis;
+            feed.blackMillis = blackMillis;
+            feeds.put(gameId, feed);
+        });
+    }
+
+    /**
+     * Sends a move to the game's watchers.
+     *
+     * @param gameId      The game
+     * @param packedMove  The move, see {@link com.chess.core.PackedMove}
+     * @param clockMillis The mover's remaining time after the move, or -1 if untimed
+     * @param fen         The position after the move, for watchers that need a snapshot
+     */
+    public void publish(long gameId, int packedMove, long clockMillis, String fen) {
+        submit(() -> {
+            Feed feed = feeds.get(gameId);
+            if (feed == null || feed.result != null) {
+                return;
+            }
+            feed.ply++;
+            if (feed.whiteToMove) {
+                feed.whiteMillis = clockMillis;
+            } else {
+                feed.blackMillis = clockMillis;
+            }
+            feed.whiteToMove = !feed.whiteToMove;
+            feed.fen = fen;
+            SpectatorProtocol.putMove(frame, feed.ply, packedMove, clockMillis);
+            append(feed, frame, SpectatorProtocol.MOVE_LENGTH);
+        });
+    }
+
+    /**
+     * Sends the result to the game's watchers and disconnects them once they
+     * have received everything.
+     *
+     * @param gameId The game
+     * @param result One of {@link SpectatorProtocol#RESULTS}, "*" if abandoned
+     */
+    public void end(long gameId, String result) {
+        submit(() -> {
+            Feed feed = feeds.get(gameId);
+            if (feed == null || feed.result != null) {
+                return;
+            }
+            feed.result = result;
+            SpectatorProtocol.putEnd(frame, result);
+            append(feed, frame, SpectatorProtocol.END_LENGTH);
+            if (feed.subscribers.isEmpty()) {
+                feeds.remove(gameId);
+            }
+        });
+    }
+
+    /**
+     * Disconnects all watchers and stops the hub.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+    }
+
+    private void submit(Runnable event) {
+        events.add(event);
+        // One wake-up per loop of the hub, however many moves arrive meanwhile
+        if (wakeUpPending.compareAndSet(false, true)) {
+            Selector current;
+            synchronized (this) {
+                current = selector;
+            }
+            if (current != null) {
+                current.wakeup();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeUpPending.set(false);
+                Runnable event;
+                while ((event = events.poll()) != null) {
+                    event.run();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Subscriber subscriber = (Subscriber) key.attachment();
+                        if (key.isReadable()) {
+                            read(subscriber);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(subscriber);
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+                for (Feed feed : dirty) {
+                    feed.dirty = false;
+                    // Backwards, as a failed watcher removes itself
+                    for (int i = feed.subscribers.size() - 1; i >= 0; i--) {
+                        Subscriber subscriber = feed.subscribers.get(i);
+                        if (subscriber.carry == null) {
+                            flush(subscriber);
+                        }
+                    }
+                }
+                dirty.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("Spectator hub failed: " + e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+            subscribers.set(0);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Subscriber subscriber = new Subscriber(channel);
+        subscriber.key = channel.register(selector, SelectionKey.OP_READ, subscriber);
+    }
+
+    private void read(Subscriber subscriber) {
+        try {
+            if (subscriber.feed == null) {
+                if (subscriber.channel.read(subscriber.request) < 0) {
+                    drop(subscriber);
+                } else if (!subscriber.request.hasRemaining()) {
+                    subscribe(subscriber, subscriber.request.getLong(0));
+                }
+                return;
+            }
+            // Watchers have nothing to say; reading only notices them leave
+            discard.clear();
+            if (subscriber.channel.read(discard) < 0) {
+                drop(subscriber);
+            }
+        } catch (IOException e) {
+            drop(subscriber);
+        }
+    }
+
+    private void subscribe(Subscriber subscriber, long gameId) {
+        Feed feed = feeds.get(gameId);
+        if (feed == null) {
+            drop(subscriber);
+            return;
+        }
+        if (feed.log == null) {
+            feed.log = new byte[backlogBytes];
+        }
+        subscriber.feed = feed;
+        feed.subscribers.add(subscriber);
+        subscribers.incrementAndGet();
+        sendSnapshot(subscriber);
+        flush(subscriber);
+    }
+
+    /**
+     * Appends a frame to a game's ring.
+     */
+    private void append(Feed feed, byte[] bytes, int length) {
+        if (feed.log == null) {
+            return;
+        }
+        int position = (int) (feed.written % feed.log.length);
+        int first = Math.min(length, feed.log.length - position);
+        System.arraycopy(bytes, 0, feed.log, position, first);
+        System.arraycopy(bytes, first, feed.log, 0, length - first);
+        feed.written += length;
+        if (!feed.dirty) {
+            feed.dirty = true;
+            dirty.add(feed);
+        }
+    }
+
+    /**
+     * Replaces whatever a watcher has not been sent with the current position,
+     * followed by the result if the game is over.
+     */
+    private void sendSnapshot(Subscriber subscriber) {
+        Feed feed = subscriber.feed;
+        ByteBuffer snapshot = SpectatorProtocol.snapshot(feed.ply, feed.whiteMillis, feed.blackMillis, feed.fen);
+        if (feed.result != null) {
+            byte[] end = new byte[SpectatorProtocol.END_LENGTH];
+            SpectatorProtocol.putEnd(end, feed.result);
+            snapshot = ByteBuffer.allocate(snapshot.position() + end.length).put(snapshot.flip()).put(end);
+        }
+        subscriber.carry = snapshot.flip();
+        subscriber.cursor = feed.written;
+        snapshotsSent.incrementAndGet();
+    }
+
+    /**
+     * Writes as much of what a watcher has not received as the network takes,
+     * and waits for the channel to become writable if that is not all.
+     */
+    private void flush(Subscriber subscriber) {
+        Feed feed = subscriber.feed;
+        try {
+            while (true) {
+                if (subscriber.carry != null) {
+                    subscriber.channel.write(subscriber.carry);
+                    if (subscriber.carry.hasRemaining()) {
+                        subscriber.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    subscriber.carry = null;
+                }
+                long behind = feed.written - subscriber.cursor;
+                if (behind == 0) {
+                    break;
+                }
+                if (behind > feed.log.length) {
+                    // The moves it missed are gone from the ring
+                    sendSnapshot(subscriber);
+                    continue;
+                }
+                int from = (int) (subscriber.cursor % feed.log.length);
+                int first = (int) Math.min(behind, feed.log.length - from);
+                ByteBuffer head = ByteBuffer.wrap(feed.log, from, first);
+                ByteBuffer tail = ByteBuffer.wrap(feed.log, 0, (int) behind - first);
+                subscriber.channel.write(new ByteBuffer[] { head, tail });
+                subscriber.cursor = feed.written;
+                if (head.hasRemaining() || tail.hasRemaining()) {
+                    // Kept aside, as the ring may overwrite it before the network is ready
+                    subscriber.carry = ByteBuffer.allocate(head.remaining() + tail.remaining()).put(head).put(tail).flip();
+                }
+            }
+            subscriber.key.interestOps(SelectionKey.OP_READ);
+            if (feed.result != null) {
+                drop(subscriber);
+            }
+        } catch (IOException e) {
+            drop(subscriber);
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        subscriber.key.cancel();
+        closeQuietly(subscriber.channel);
+        Feed feed = subscriber.feed;
+        if (feed == null) {
+            return;
+        }
+        subscriber.feed = null;
+        feed.subscribers.remove(subscriber);
+        subscribers.decrementAndGet();
+        if (feed.subscribers.isEmpty()) {
+            feed.log = null;
+            if (feed.result != null) {
+                feeds.remove(feed.gameId);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.chess.server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary frames a {@link SpectatorHub} sends to its watchers. A watcher
+ * connects and sends the game id as 8 bytes; from then on it only reads. All
+ * numbers are big-endian.
+ *
+ * <pre>
+ * move      1 | ply u16 | move u16 | clock i32       9 bytes
+ * snapshot  2 | ply u16 | white i32 | black i32 | length u16 | FEN (ASCII)
+ * end       3 | result u8
+ * </pre>
+ *
+ * A move is a {@link com.chess.core.PackedMove}; its ply counts from 1 for
+ * the first move of the game, modulo 65536, and its clock is the mover's
+ * remaining time in milliseconds after the move, or -1 in an untimed game.
+ * A snapshot replaces everything the watcher knew; it is sent on
+ * subscribing and whenever the watcher fell too far behind to be sent the
+ * moves it missed. The end result is one of {@link #RESULTS}.
+ */
+final class SpectatorProtocol {
+    static final byte MOVE = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte END = 3;
+
+    static final int MOVE_LENGTH = 9;
+    static final int END_LENGTH = 2;
+
+    /** Results by their code in an end frame. */
+    static final String[] RESULTS = { "*", "1-0", "0-1", "1/2-1/2" };
+
+    private SpectatorProtocol() {
+        // Utility class
+    }
+
+    static void putMove(byte[] frame, int ply, int packedMove, long clockMillis) {
+        frame[0] = MOVE;
+        frame[1] = (byte) (ply >>> 8);
+        frame[2] = (byte) ply;
+        frame[3] = (byte) (packedMove >>> 8);
+        frame[4] = (byte) packedMove;
+        int clock = (int) Math.min(Integer.MAX_VALUE, clockMillis);
+        frame[5] = (byte) (clock >>> 24);
+        frame[6] = (byte) (clock >>> 16);
+        frame[7] = (byte) (clock >>> 8);
+        frame[8] = (byte) clock;
+    }
+
+    static ByteBuffer snapshot(int ply, long whiteMillis, long blackMillis, String fen) {
+        byte[] text = fen.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer frame = ByteBuffer.allocate(13 + text.length);
+        frame.put(SNAPSHOT).putShort((short) ply)
+                .putInt((int) Math.min(Integer.MAX_VALUE, whiteMillis))
+                .putInt((int) Math.min(Integer.MAX_VALUE, blackMillis))
+                .putShort((short) text.length).put(text);
+        return frame;
+    }
+
+    static void putEnd(byte[] frame, String result) {
+        frame[0] = END;
+        frame[1] = (byte) resultCode(result);
+    }
+
+    static int resultCode(String result) {
+        for (int i = 0; i < RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown result " + result);
+    }
+}
@@ -0,0 +1,138 @@
+package com.chess.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+
+    private SessionManager sessions;
+    private GameServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sessions = new SessionManager(2);
+        server = new GameServer(0, sessions);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        sessions.close();
+    }
+
+    @Test
+    void testPlaysAGameToMate() throws Exception {
+        try (GameClient client = new GameClient("localhost", server.getPort())) {
+            String id = client.call("new");
+            List<String> legal = Arrays.asList(client.call("legal " + id).split(" "));
+            assertEquals(20, legal.size());
+            assertTrue(legal.contains("e2e4"));
+
+            assertEquals("*", client.call("move " + id + " f2f3"));
+            assertEquals("*", client.call("move " + id + " e7e5"));
+            assertEquals("*", client.call("move " + id + " g2g4"));
+            assertEquals("0-1", client.call("move " + id + " d8h4"));
+            assertEquals("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3", client.call("fen " + id));
+
+            IllegalArgumentException over = assertThrows(IllegalArgumentException.class,
+                    () -> client.call("move " + id + " a2a3"));
+            assertTrue(over.getMessage().contains("over"), over.getMessage());
+            assertEquals("games 1", client.call("stats"));
+            assertEquals("", client.call("close " + id));
+            assertEquals("games 0", client.call("stats"));
+        }
+    }
+
+    @Test
+    void testRejectsBadCommandsAndKeepsServing() throws Exception {
+        try (GameClient client = new GameClient("localhost", server.getPort())) {
+            String id = client.call("new 60000 1000");
+            // Pipelined: the replies come back in order, errors included
+            client.send("move " + id + " e2e5");
+            client.send("move 999 e2e4");
+            client.send("dance");
+            client.send("move " + id + " e2e4");
+            client.flush();
+            assertThrows(IllegalArgumentException.class, client::receive);
+            assertThrows(IllegalArgumentException.class, client::receive);
+            assertThrows(IllegalArgumentException.class, client::receive);
+
+            String[] status = client.receive().split(" ");
+            assertEquals("*", status[0]);
+            // White was credited the increment, Black's clock is running
+            long white = Long.parseLong(status[1]);
+            assertTrue(white > 60_000 && white <= 61_000, "White has " + white);
+            assertTrue(Long.parseLong(status[2]) <= 60_000);
+        }
+    }
+
+    @Test
+    void testMoveAfterTheFlagFellIsRejected() throws Exception {
+        GameSession session = sessions.create(50, 0);
+        // Holds the session until White's time is up, with the move queued ahead of the flag
+        CompletableFuture<Void> busy = session.call(game -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        CompletableFuture<String> move = session.move("e2e4");
+        busy.get(5, TimeUnit.SECONDS);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> move.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        assertTrue(error.getCause().getMessage().contains("time forfeit"), error.getCause().getMessage());
+        assertEquals("0-1", session.status().get(5, TimeUnit.SECONDS).split(" ")[0]);
+        assertEquals(0, (int) session.call(game -> game.getMoveHistory().size()).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClientThatDoesNotReadIsDropped() throws Exception {
+        try (GameClient client = new GameClient("localhost", server.getPort());
+                Socket stalled = new Socket()) {
+            String id = client.call("new");
+            stalled.setReceiveBufferSize(4096);
+            stalled.connect(new InetSocketAddress("localhost", server.getPort()));
+            Writer out = new OutputStreamWriter(stalled.getOutputStream(), StandardCharsets.US_ASCII);
+            // Asks for far more replies than the network buffers and the queue hold, reading none
+            assertThrows(IOException.class, () -> {
+                for (int i = 0; i < 2_000_000; i++) {
+                    out.write("fen " + id + "\n");
+                }
+                out.flush();
+            });
+            // The sessions were never held up by the stalled writes
+            assertEquals("*", client.call("move " + id + " e2e4"));
+        }
+    }
+
+    @Test
+    void testLoadGeneratorPlaysManyGamesWithoutErrors() throws Exception {
+        LoadGenerator generator = new LoadGenerator("localhost", server.getPort());
+        LoadGenerator.Report report = generator.run(4, 25, 20);
+
+        assertEquals(0, report.getErrors());
+        // Every game lasts the 20 plies unless it ends earlier
+        assertTrue(report.getCommands() > 4 * 25 * 2 * 10, report.toString());
+        assertTrue(report.getLatencyNanos(0.5) <= report.getLatencyNanos(0.99));
+        assertEquals(0, sessions.size());
+    }
+}
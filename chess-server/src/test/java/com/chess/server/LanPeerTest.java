@@ -0,0 +1,168 @@
+package com.chess.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.chess.core.Game;
+import com.chess.core.PackedMove;
+import com.chess.core.PieceColor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LanPeerTest {
+
+    /**
+     * Collects what a peer receives.
+     */
+    private static class Received implements LanPeer.Listener {
+        final BlockingQueue<long[]> moves = new LinkedBlockingQueue<>();
+
+        @Override
+        public void moveReceived(int packedMove, long whiteMillis, long blackMillis) {
+            moves.add(new long[] { packedMove, whiteMillis, blackMillis });
+        }
+
+        long[] next() throws InterruptedException {
+            long[] move = moves.poll(5, TimeUnit.SECONDS);
+            assertNotNull(move, "No move received");
+            return move;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Plays a move on a local game and sends it, as the UI does.
+     */
+    private static void play(LanPeer peer, Game game, String uci, long white, long black) {
+        assertTrue(game.makeMoveFromUCI(uci));
+        peer.sendMove(game.getMoveHistory().get(game.getMoveHistory().size() - 1), white, black);
+    }
+
+    @Test
+    void testMovesAndClocksTravelBothWays() throws Exception {
+        try (LanPeer host = LanPeer.host(0, PieceColor.BLACK); LanPeer guest = LanPeer.join("localhost", host.getPort())) {
+            Received atHost = new Received();
+            Received atGuest = new Received();
+            host.setListener(atHost);
+            guest.setListener(atGuest);
+            await(() -> guest.getLocalColor() != null);
+            assertEquals(PieceColor.WHITE, guest.getLocalColor());
+
+            Game game = new Game();
+            play(guest, game, "e2e4", 59_000, 60_000);
+            long[] received = atHost.next();
+            assertEquals(PackedMove.fromUci("e2e4"), received[0]);
+            assertEquals(59_000, received[1]);
+            assertEquals(60_000, received[2]);
+
+            assertThrows(IllegalStateException.class, () -> guest.sendMove(
+                    LanPeer.toMove(PackedMove.fromUci("d2d4"), game.getBoard()), 59_000, 60_000));
+            play(host, game, "e7e5", 59_000, 58_500);
+            assertEquals(PackedMove.fromUci("e7e5"), atGuest.next()[0]);
+            assertEquals(game.getFen(), host.getFen());
+            assertEquals(game.getFen(), guest.getFen());
+        }
+    }
+
+    @Test
+    void testIllegalMovesAreRejected() throws Exception {
+        try (LanPeer host = LanPeer.host(0, PieceColor.WHITE)) {
+            Game game = new Game();
+            assertThrows(IllegalArgumentException.class,
+                    () -> host.sendMove(LanPeer.toMove(PackedMove.fromUci("e2e5"), game.getBoard()), -1, -1));
+            assertEquals(0, host.getPly());
+        }
+    }
+
+    @Test
+    void testReconnectSendsTheMovesMissed() throws Exception {
+        try (LanPeer host = LanPeer.host(0, PieceColor.WHITE); LanPeer guest = LanPeer.join("localhost", host.getPort())) {
+            Received atGuest = new Received();
+            guest.setListener(atGuest);
+            await(() -> guest.getLocalColor() != null);
+
+            Game hostGame = new Game();
+            play(host, hostGame, "d2d4", -1, -1);
+            atGuest.next();
+            guest.dropConnection();
+            await(() -> !host.isConnected());
+
+            // Played while the connection is down, synced once the guest is back
+            Game guestGame = new Game();
+            assertTrue(guestGame.makeMoveFromUCI("d2d4"));
+            play(guest, guestGame, "d7d5", -1, -1);
+            await(() -> host.getPly() == 2);
+            assertTrue(hostGame.makeMoveFromUCI("d7d5"));
+
+            play(host, hostGame, "c2c4", -1, -1);
+            assertEquals(PackedMove.fromUci("c2c4"), atGuest.next()[0]);
+            assertEquals(hostGame.getFen(), guest.getFen());
+        }
+    }
+
+    @Test
+    void testSyncIsOnlyAcceptedWhileResyncing() throws Exception {
+        try (LanPeer host = LanPeer.host(0, PieceColor.WHITE);
+                Socket socket = new Socket("localhost", host.getPort())) {
+            // Buffered so each frame goes out whole, before the host can hang up
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            LanProtocol.writeHello(out, 1, 0, 0);
+            // Catching up after the hello: White's move arrives as a sync
+            LanProtocol.writeMove(out, LanProtocol.SYNC, 1, PackedMove.fromUci("e2e4"), -1, -1);
+            LanProtocol.writeMove(out, LanProtocol.MOVE, 2, PackedMove.fromUci("e7e5"), -1, -1);
+            out.flush();
+            await(() -> host.getPly() == 2);
+
+            // A sync in the middle of the game would let Black play White's moves
+            LanProtocol.writeMove(out, LanProtocol.SYNC, 3, PackedMove.fromUci("g1f3"), -1, -1);
+            out.flush();
+            await(() -> !host.isConnected());
+            assertEquals(2, host.getPly());
+        }
+    }
+
+    @Test
+    void testRoundTripTakesMilliseconds() throws Exception {
+        try (LanPeer host = LanPeer.host(0, PieceColor.WHITE); LanPeer guest = LanPeer.join("localhost", host.getPort())) {
+            Received atHost = new Received();
+            Game guestGame = new Game();
+            // The guest answers every move at once
+            guest.setListener((packed, white, black) -> {
+                guestGame.makeMove(LanPeer.toMove(packed, guestGame.getBoard()));
+                String reply = guestGame.getBoard().getPiece(6, 0) != null ? "g8f6" : "f6g8";
+                play(guest, guestGame, reply, -1, -1);
+            });
+            host.setListener(atHost);
+            await(() -> guest.getLocalColor() != null);
+
+            Game hostGame = new Game();
+            long[] roundTrips = new long[100];
+            for (int i = 0; i < roundTrips.length; i++) {
+                long start = System.nanoTime();
+                play(host, hostGame, i % 2 == 0 ? "g1f3" : "f3g1", -1, -1);
+                long[] reply = atHost.next();
+                roundTrips[i] = System.nanoTime() - start;
+                hostGame.makeMove(LanPeer.toMove((int) reply[0], hostGame.getBoard()));
+            }
+            Arrays.sort(roundTrips);
+            long median = TimeUnit.NANOSECONDS.toMillis(roundTrips[roundTrips.length / 2]);
+            assertTrue(median < 20, "Median round trip " + median + " ms");
+            assertEquals(hostGame.getFen(), guest.getFen());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.chess.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.chess.core.Game;
+import com.chess.core.PackedMove;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectatorHubTest {
+
+    private static void awaitSubscribers(SpectatorHub hub, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (hub.getSubscriberCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, hub.getSubscriberCount());
+    }
+
+    @Test
+    void testEveryWatcherFollowsTheGame() throws Exception {
+        try (SpectatorHub hub = new SpectatorHub(0); SessionManager sessions = new SessionManager(2)) {
+            hub.start();
+            sessions.setSpectatorHub(hub);
+            GameSession session = sessions.create(60_000, 0);
+            List<SpectatorClient> watchers = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                watchers.add(new SpectatorClient("localhost", hub.getPort(), session.getId()));
+            }
+            awaitSubscribers(hub, 50);
+
+            for (String move : new String[] { "f2f3", "e7e5", "g2g4" }) {
+                assertTrue(session.move(move).get().startsWith("* "));
+            }
+            assertTrue(session.move("d8h4").get().startsWith("0-1"));
+            String fen = session.call(Game::getFen).get();
+
+            for (SpectatorClient watcher : watchers) {
+                assertEquals("0-1", watcher.readToEnd());
+                assertEquals(fen, watcher.getGame().getFen());
+                assertEquals(4, watcher.getPly());
+                assertEquals(1, watcher.getSnapshots());
+                assertTrue(watcher.getWhiteMillis() > 59_000 && watcher.getWhiteMillis() <= 60_000);
+                watcher.close();
+            }
+        }
+    }
+
+    @Test
+    void testWatcherThatFallsBehindIsSentASnapshot() throws Exception {
+        // A ring of a few moves, and a watcher that does not read while they are played
+        try (SpectatorHub hub = new SpectatorHub(0, 64)) {
+            hub.start();
+            Game game = new Game();
+            hub.open(7, game.getFen(), -1, -1);
+            Socket socket = new Socket();
+            socket.setReceiveBufferSize(1024);
+            socket.connect(new InetSocketAddress("localhost", hub.getPort()));
+            try (SpectatorClient watcher = new SpectatorClient(socket, 7)) {
+                awaitSubscribers(hub, 1);
+
+                String[] shuffle = { "g1f3", "g8f6", "f3g1", "f6g8" };
+                for (int i = 0; i < 20_000; i++) {
+                    String move = shuffle[i % shuffle.length];
+                    assertTrue(game.makeMoveFromUCI(move));
+                    hub.publish(7, PackedMove.fromUci(move), -1, game.getFen());
+                }
+                hub.end(7, "*");
+
+                assertEquals("*", watcher.readToEnd());
+                assertEquals(game.getFen(), watcher.getGame().getFen());
+                assertTrue(watcher.getSnapshots() >= 2, "Snapshots: " + watcher.getSnapshots());
+                assertEquals(watcher.getSnapshots(), hub.getSnapshotsSent());
+            }
+        }
+    }
+}
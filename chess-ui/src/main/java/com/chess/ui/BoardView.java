@@ -4,6 +4,7 @@ import com.chess.core.Board;
 import com.chess.core.Game;
 import com.chess.core.Move;
 import com.chess.core.Piece;
+import com.chess.core.PieceColor;
 import javafx.animation.TranslateTransition;
 import javafx.scene.control.Label;
 import javafx.scene.layout.ColumnConstraints;
@@ -14,6 +15,7 @@ import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 public class BoardView extends GridPane {
     private final Game game;
@@ -22,6 +24,12 @@ public class BoardView extends GridPane {
     private int selectedX = -1;
     private int selectedY = -1;
     private Runnable onMoveMade;
+    private Runnable onMovePlayed;
+    // In a network game only the local player's pieces move, and only at the latest position
+    private PieceColor playableColor;
+    private boolean inputEnabled = true;
+    // The side that may queue moves while the other side is to move, or null
+    private Supplier<PieceColor> premoveColor;
 
     private boolean highlightLastMove = true;
     private boolean isFlipped = false;
@@ -42,6 +50,62 @@ public class BoardView extends GridPane {
         this.onMoveMade = onMoveMade;
     }
 
+    /**
+     * Sets a callback run as soon as a move is made on the board, before it is
+     * animated; {@link #setOnMoveMade(Runnable)} runs once the animation ends.
+     */
+    public void setOnMovePlayed(Runnable onMovePlayed) {
+        this.onMovePlayed = onMovePlayed;
+    }
+
+    /**
+     * Restricts moves to one side at the latest position, or lifts the
+     * restriction if null.
+     */
+    public void setPlayableColor(PieceColor playableColor) {
+        this.playableColor = playableColor;
+    }
+
+    public void setInputEnabled(boolean inputEnabled) {
+        this.inputEnabled = inputEnabled;
+        if (!inputEnabled) {
+            clearSelection();
+        }
+    }
+
+    /**
+     * Lets the player queue moves during the opponent's turn. The supplier
+     * gives the player's color, or null when premoves are off, e.g. when one
+     * person plays both sides.
+     */
+    public void setPremoveColor(Supplier<PieceColor> premoveColor) {
+        this.premoveColor = premoveColor;
+    }
+
+    /**
+     * Plays the first queued premove right after the opponent's move, without
+     * animating it, and runs the move callbacks as for a move made by hand. An
+     * illegal premove clears the queue.
+     *
+     * @return Whether a premove was played
+     */
+    public boolean playPremove() {
+        if (game.getPremoves().isEmpty()) {
+            return false;
+        }
+        selectedX = -1;
+        selectedY = -1;
+        if (game.playPremove() == null) {
+            refresh();
+            return false;
+        }
+        if (onMovePlayed != null) {
+            onMovePlayed.run();
+        }
+        resetSelectionAndRefresh();
+        return true;
+    }
+
     public void setHighlightLastMove(boolean highlight) {
         this.highlightLastMove = highlight;
     }
@@ -144,11 +208,74 @@ public class BoardView extends GridPane {
         add(label, col, row);
     }
 
+    private boolean canMove(Piece p) {
+        if (p == null || p.getColor() != game.getCurrentTurn() || !inputEnabled) {
+            return false;
+        }
+        return playableColor == null || (p.getColor() == playableColor
+                && game.getCurrentMoveIndex() == game.getMoveHistory().size() - 1);
+    }
+
+    /**
+     * Returns the color queuing premoves now, or null if clicks make moves.
+     */
+    private PieceColor premovingColor() {
+        if (premoveColor == null || !inputEnabled
+                || game.getCurrentMoveIndex() != game.getMoveHistory().size() - 1) {
+            return null;
+        }
+        PieceColor color = premoveColor.get();
+        return color != null && color != game.getCurrentTurn() ? color : null;
+    }
+
+    /**
+     * Returns the piece of the given color on a square once the queued
+     * premoves are played, or null.
+     */
+    private Piece premovedPiece(int x, int y, PieceColor color) {
+        Piece p = game.getBoard().getPiece(x, y);
+        for (Move m : game.getPremoves()) {
+            if (m.getStartX() == x && m.getStartY() == y) {
+                p = null;
+            } else if (m.getEndX() == x && m.getEndY() == y) {
+                p = m.getMovedPiece();
+            }
+        }
+        return p != null && p.getColor() == color ? p : null;
+    }
+
+    private void handlePremoveClick(int x, int y, PieceColor color) {
+        if (selectedX == -1) {
+            if (premovedPiece(x, y, color) != null) {
+                selectedX = x;
+                selectedY = y;
+                refresh();
+                highlightSquare(x, y, "selected");
+            } else if (!game.getPremoves().isEmpty()) {
+                // Clicking elsewhere cancels the queue
+                game.clearPremoves();
+                refresh();
+            }
+        } else {
+            if (x != selectedX || y != selectedY) {
+                game.addPremove(new Move(selectedX, selectedY, x, y, premovedPiece(selectedX, selectedY, color), null));
+            }
+            selectedX = -1;
+            selectedY = -1;
+            refresh();
+        }
+    }
+
     private void handleSquareClick(int x, int y) {
+        PieceColor premover = premovingColor();
+        if (premover != null) {
+            handlePremoveClick(x, y, premover);
+            return;
+        }
         if (selectedX == -1) {
             // Select piece
             Piece p = game.getBoard().getPiece(x, y);
-            if (p != null && p.getColor() == game.getCurrentTurn()) {
+            if (canMove(p)) {
                 selectedX = x;
                 selectedY = y;
                 highlightLegalMoves(x, y);
@@ -158,6 +285,9 @@ public class BoardView extends GridPane {
             Move move = new Move(selectedX, selectedY, x, y, game.getBoard().getPiece(selectedX, selectedY),
                     game.getBoard().getPiece(x, y));
             if (game.makeMove(move)) {
+                if (onMovePlayed != null) {
+                    onMovePlayed.run();
+                }
                 // Animate
                 StackPane sourceSquare = squares[selectedX][selectedY];
 
@@ -196,7 +326,7 @@ public class BoardView extends GridPane {
             } else {
                 // Deselect or select new piece
                 Piece p = game.getBoard().getPiece(x, y);
-                if (p != null && p.getColor() == game.getCurrentTurn()) {
+                if (canMove(p)) {
                     selectedX = x;
                     selectedY = y;
                     refresh(); // Clear previous highlights
@@ -254,6 +384,11 @@ public class BoardView extends GridPane {
                 highlightSquare(last.getEndX(), last.getEndY(), "highlight-move-target");
             }
         }
+
+        for (Move m : game.getPremoves()) {
+            highlightSquare(m.getStartX(), m.getStartY(), "premove");
+            highlightSquare(m.getEndX(), m.getEndY(), "premove");
+        }
     }
 
     private void highlightSquare(int x, int y, String styleClass) {
@@ -0,0 +1,1272 @@
+package com.chess.ui;
+
+import javafx.application.Application;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Menu;
+import javafx.scene.control.MenuBar;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
+import javafx.scene.layout.BorderPane;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import com.chess.core.Game;
+import com.chess.core.ChessClock;
+
+public class ChessApp extends Application {
+
+    private com.chess.engine.EngineService engineService = new com.chess.engine.EngineService();
+    private String enginePath = "Serendipity.jar";
+    private boolean isEngineEnabled = false;
+    private com.chess.core.PieceColor engineColor = com.chess.core.PieceColor.BLACK;
+
+    private String engineDifficulty = "Easy";
+    private boolean isPonderEnabled = false;
+    private ChessClock chessClock = null;
+    private int clockIncrementSeconds = 0;
+    // Time control of the last new game, reused for network games
+    private NewGameSettings lastSettings = null;
+    // Set while playing over the LAN; the opponent's moves arrive through it
+    private com.chess.server.LanPeer lanPeer = null;
+    private static final int DEFAULT_LAN_PORT = 7777;
+    // Every move goes to the journal so a crash does not lose the game
+    private com.chess.core.GameJournal journal = null;
+    private long journalGameId = -1;
+
+    private com.chess.engine.OpeningBook openingBook = null;
+    private int bookDepthPlies = com.chess.engine.OpeningBook.DEFAULT_MAX_PLY;
+    private com.chess.engine.SyzygyTablebase tablebase = null;
+    private com.chess.engine.AnalysisCache analysisCache = null;
+    private java.util.function.Consumer<String> onEngineMove;
+    // The search whose result may still be played; anything else is stale
+    private java.util.concurrent.CompletableFuture<com.chess.engine.BestMove> currentSearch;
+    // Extra time an engine gets beyond its budget before the search is abandoned
+    private static final long ENGINE_TIMEOUT_GRACE_MILLIS = 5000;
+
+    /**
+     * Returns the default engine directory based on the operating system.
+     * Linux/macOS: ~/.chess/engines/
+     * Windows: %USERPROFILE%\.chess\engines\
+     * 
+     * @return the default engine directory File object
+     */
+    private java.io.File getDefaultEngineDirectory() {
+        String userHome = System.getProperty("user.home");
+        String osName = System.getProperty("os.name").toLowerCase();
+
+        if (osName.contains("win")) {
+            return new java.io.File(userHome, ".chess\\engines");
+        } else {
+            return new java.io.File(userHome, ".chess/engines");
+        }
+    }
+
+    /**
+     * Returns the default engine path based on the operating system.
+     * Linux/macOS: ~/.chess/engines/Serendipity.jar
+     * Windows: %USERPROFILE%\.chess\engines\Serendipity.jar
+     * 
+     * @return the default engine path, or null if it doesn't exist
+     */
+    private String getDefaultEnginePath() {
+        java.io.File engineFile = new java.io.File(getDefaultEngineDirectory(), "Serendipity.jar");
+
+        if (engineFile.exists() && engineFile.isFile()) {
+            return engineFile.getAbsolutePath();
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the default opening book location based on the operating system.
+     * Linux/macOS: ~/.chess/books/book.bin
+     * Windows: %USERPROFILE%\.chess\books\book.bin
+     * 
+     * @return the default opening book File object
+     */
+    private java.io.File getDefaultBookFile() {
+        java.io.File chessDir = getDefaultEngineDirectory().getParentFile();
+        return new java.io.File(new java.io.File(chessDir, "books"), "book.bin");
+    }
+
+    /**
+     * Returns the default analysis cache location based on the operating system.
+     * Linux/macOS: ~/.chess/cache/analysis.bin
+     * Windows: %USERPROFILE%\.chess\cache\analysis.bin
+     * 
+     * @return the default analysis cache File object
+     */
+    private java.io.File getDefaultAnalysisCacheFile() {
+        java.io.File chessDir = getDefaultEngineDirectory().getParentFile();
+        return new java.io.File(new java.io.File(chessDir, "cache"), "analysis.bin");
+    }
+
+    /**
+     * Returns the default game journal location based on the operating system.
+     * Linux/macOS: ~/.chess/games.journal
+     * Windows: %USERPROFILE%\.chess\games.journal
+     * 
+     * @return the default game journal File object
+     */
+    private java.io.File getDefaultJournalFile() {
+        return new java.io.File(getDefaultEngineDirectory().getParentFile(), "games.journal");
+    }
+
+    /**
+     * Returns the default Syzygy tablebase directory based on the operating
+     * system.
+     * Linux/macOS: ~/.chess/syzygy/
+     * Windows: %USERPROFILE%\.chess\syzygy\
+     * 
+     * @return the default tablebase directory File object
+     */
+    private java.io.File getDefaultTablebaseDirectory() {
+        return new java.io.File(getDefaultEngineDirectory().getParentFile(), "syzygy");
+    }
+
+    /**
+     * Checks whether a directory contains Syzygy WDL tables (*.rtbw).
+     * 
+     * @param dir the directory to check
+     * @return true if at least one WDL table is present
+     */
+    private boolean containsTablebases(java.io.File dir) {
+        java.io.File[] tables = dir.listFiles((d, name) -> name.endsWith(".rtbw"));
+        return tables != null && tables.length > 0;
+    }
+
+    /**
+     * Opens a directory of Syzygy tablebases, replacing any open tables. The
+     * app answers positions the tables cover itself; the engine is pointed at
+     * the same directory so it probes them during its own search.
+     * 
+     * @param dir the tablebase directory
+     */
+    private void useTablebases(java.io.File dir) {
+        engineService.setOption("SyzygyPath", dir.getAbsolutePath());
+        try {
+            com.chess.engine.SyzygyTablebase tables = com.chess.engine.SyzygyTablebase.open(dir);
+            if (tablebase != null) {
+                tablebase.close();
+            }
+            tablebase = tables;
+            System.out.println("Using Syzygy tablebases: " + dir.getAbsolutePath() + " ("
+                    + tables.getTableCount() + " tables, up to " + tables.getMaxPieces() + " pieces)");
+        } catch (java.io.IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Opens the opening book at the given location, replacing any open book.
+     * 
+     * @param bookFile the book file to open
+     * @return true if the book was opened, false otherwise
+     */
+    private boolean openBook(java.io.File bookFile) {
+        try {
+            com.chess.engine.OpeningBook book = com.chess.engine.OpeningBook.open(bookFile);
+            book.setMaxPly(bookDepthPlies);
+            if (openingBook != null) {
+                openingBook.close();
+            }
+            openingBook = book;
+            System.out.println("Opened opening book: " + bookFile.getAbsolutePath());
+            return true;
+        } catch (java.io.IOException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Copies the selected engine JAR to the default engine location.
+     * Creates the directory structure if it doesn't exist.
+     * 
+     * @param sourceJar the source JAR file to copy
+     * @return true if copy was successful, false otherwise
+     */
+    private boolean copyEngineToDefaultLocation(java.io.File sourceJar) {
+        try {
+            java.io.File engineDir = getDefaultEngineDirectory();
+
+            // Create directory if it doesn't exist
+            if (!engineDir.exists()) {
+                engineDir.mkdirs();
+            }
+
+            // Destination file
+            java.io.File destFile = new java.io.File(engineDir, "Serendipity.jar");
+
+            // Copy the file
+            java.nio.file.Files.copy(
+                    sourceJar.toPath(),
+                    destFile.toPath(),
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+
+            System.out.println("Copied engine to: " + destFile.getAbsolutePath());
+            return true;
+        } catch (java.io.IOException ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public void start(Stage primaryStage) {
+        // Check for default engine location
+        String defaultEnginePath = getDefaultEnginePath();
+        if (defaultEnginePath != null) {
+            enginePath = defaultEnginePath;
+            System.out.println("Found engine at default location: " + enginePath);
+        }
+
+        java.io.File tablebaseDir = getDefaultTablebaseDirectory();
+        if (containsTablebases(tablebaseDir)) {
+            useTablebases(tablebaseDir);
+        }
+
+        // Engine callbacks arrive on its I/O thread; the board may only be touched on the FX thread
+        engineService.setCallbackExecutor(javafx.application.Platform::runLater);
+
+        java.io.File defaultBook = getDefaultBookFile();
+        if (defaultBook.isFile()) {
+            openBook(defaultBook);
+        }
+
+        java.io.File cacheFile = getDefaultAnalysisCacheFile();
+        try {
+            cacheFile.getParentFile().mkdirs();
+            analysisCache = com.chess.engine.AnalysisCache.open(cacheFile);
+            engineService.setAnalysisCache(analysisCache);
+        } catch (java.io.IOException ex) {
+            System.err.println("Analysis cache unavailable: " + ex.getMessage());
+        }
+
+        java.io.File journalFile = getDefaultJournalFile();
+        try {
+            journalFile.getParentFile().mkdirs();
+            journal = new com.chess.core.GameJournal(journalFile.toPath());
+        } catch (java.io.IOException ex) {
+            System.err.println("Game journal unavailable: " + ex.getMessage());
+        }
+
+        BorderPane root = new BorderPane();
+
+        Game game = new Game();
+
+        // Create views first
+        BoardView boardView = new BoardView(game);
+        boardView.setAlignment(Pos.CENTER);
+
+        SidebarView sidebarView = new SidebarView(game);
+
+        // Define callbacks
+        Runnable refreshAll = () -> {
+            boardView.refresh();
+            sidebarView.refresh();
+
+            com.chess.core.GameState state = game.getGameState();
+            if (state != com.chess.core.GameState.IN_PROGRESS) {
+                // Stop clock if game is over
+                if (chessClock != null) {
+                    chessClock.stop();
+                }
+                journalEndGame();
+
+                String title = state == com.chess.core.GameState.CHECKMATE ? "Checkmate!" : "Stalemate";
+                String content = "";
+                if (state == com.chess.core.GameState.CHECKMATE) {
+                    String winner = game.getCurrentTurn() == com.chess.core.PieceColor.WHITE ? "Black" : "White";
+                    content = winner + " wins by Checkmate!";
+                } else {
+                    content = "Game drawn by Stalemate.";
+                }
+
+                // Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                // alert.setTitle(title);
+                // alert.setHeaderText(null);
+                // alert.setContentText(content);
+                // alert.showAndWait();
+            }
+        };
+
+        Runnable onSidebarNavigate = () -> {
+            // Results of a search on the old position must not be applied
+            cancelEngineMove();
+            boardView.clearSelection();
+            boardView.setHighlightLastMove(false);
+            boardView.refresh();
+            // Pause clock during navigation; a network game's clock keeps running
+            if (chessClock != null && lanPeer == null) {
+                chessClock.pause();
+            }
+            // SidebarView refreshes itself
+        };
+
+        // Engine callback, shared by engine searches and opening book moves
+        onEngineMove = moveStr -> {
+            System.out.println("Engine played: " + moveStr);
+            boolean moved = game.makeMoveFromUCI(moveStr);
+            if (moved) {
+                refreshAll.run();
+                // Switch clock to opponent's turn (same as user move callback)
+                if (chessClock != null && game.getGameState() == com.chess.core.GameState.IN_PROGRESS) {
+                    chessClock.switchTurn();
+                }
+                // After the switch, so the journaled clock includes the increment
+                journalMove(game);
+                // Check for game over or other logic here
+                // A queued reply goes out in the same pulse, before the clock has run
+                boardView.playPremove();
+            } else {
+                System.err.println("Engine made illegal move: " + moveStr);
+            }
+        };
+
+        // Network play: the opponent's moves are checked by the peer and again by the game
+        Runnable leaveLanGame = () -> {
+            if (lanPeer != null) {
+                lanPeer.close();
+                lanPeer = null;
+                boardView.setPlayableColor(null);
+                boardView.setInputEnabled(true);
+            }
+        };
+
+        java.util.function.Consumer<com.chess.server.LanPeer> startLanGame = peer -> {
+            leaveLanGame.run();
+            cancelEngineMove();
+            isEngineEnabled = false;
+            journalEndGame();
+            game.reset();
+            boardView.clearSelection();
+            resetClock(lastSettings, sidebarView);
+            refreshAll.run();
+
+            lanPeer = peer;
+            com.chess.core.PieceColor hostColor = peer.getLocalColor();
+            boardView.setPlayableColor(hostColor);
+            // A joining player learns its color from the host
+            boardView.setInputEnabled(hostColor != null);
+            boardView.setFlipped(hostColor == com.chess.core.PieceColor.BLACK);
+
+            peer.setCallbackExecutor(javafx.application.Platform::runLater);
+            peer.setListener(new com.chess.server.LanPeer.Listener() {
+                @Override
+                public void moveReceived(int packedMove, long whiteMillis, long blackMillis) {
+                    if (lanPeer != peer) {
+                        return;
+                    }
+                    game.goToLastMove();
+                    if (!game.makeMove(com.chess.server.LanPeer.toMove(packedMove, game.getBoard()))) {
+                        System.err.println("Opponent's move does not fit the board: "
+                                + com.chess.core.PackedMove.toUci(packedMove));
+                        return;
+                    }
+                    if (chessClock != null) {
+                        if (game.getGameState() == com.chess.core.GameState.IN_PROGRESS) {
+                            chessClock.switchTurn();
+                        }
+                        // The opponent's clock is the reference for both sides
+                        if (whiteMillis >= 0 && blackMillis >= 0) {
+                            chessClock.setRemainingTimeMillis(com.chess.core.PieceColor.WHITE, whiteMillis);
+                            chessClock.setRemainingTimeMillis(com.chess.core.PieceColor.BLACK, blackMillis);
+                        }
+                    }
+                    journalMove(game);
+                    boardView.clearSelection();
+                    boardView.setHighlightLastMove(true);
+                    refreshAll.run();
+                    boardView.playPremove();
+                }
+
+                @Override
+                public void gameReset() {
+                    if (lanPeer == peer) {
+                        journalEndGame();
+                        game.reset();
+                        boardView.clearSelection();
+                        refreshAll.run();
+                    }
+                }
+
+                @Override
+                public void connectionChanged(boolean connected) {
+                    if (lanPeer != peer) {
+                        return;
+                    }
+                    com.chess.core.PieceColor color = peer.getLocalColor();
+                    if (connected && color != null) {
+                        boardView.setPlayableColor(color);
+                        boardView.setInputEnabled(true);
+                        boardView.setFlipped(color == com.chess.core.PieceColor.BLACK);
+                        sidebarView.setStatusText("Connected, playing " + (color == com.chess.core.PieceColor.WHITE
+                                ? "White" : "Black"));
+                    } else if (!connected) {
+                        sidebarView.setStatusText("Connection lost, waiting for the opponent...");
+                    }
+                }
+            });
+        };
+
+        // Set callbacks
+        boardView.setOnMovePlayed(() -> {
+            // Switch clock to opponent's turn as soon as the move is made, not after the animation
+            if (chessClock != null && game.getGameState() == com.chess.core.GameState.IN_PROGRESS) {
+                chessClock.switchTurn();
+            }
+            journalMove(game);
+            if (lanPeer != null) {
+                com.chess.core.Move last = game.getMoveHistory().get(game.getCurrentMoveIndex());
+                try {
+                    lanPeer.sendMove(last, clockMillisOrNone(com.chess.core.PieceColor.WHITE),
+                            clockMillisOrNone(com.chess.core.PieceColor.BLACK));
+                } catch (IllegalStateException | IllegalArgumentException ex) {
+                    System.err.println("LAN move not sent: " + ex.getMessage());
+                }
+            }
+        });
+        boardView.setOnMoveMade(() -> {
+            refreshAll.run();
+            if (isEngineEnabled && game.getCurrentTurn() == engineColor) {
+                triggerEngine(game);
+            }
+        });
+        // Premoves are for the side playing the engine or the network opponent
+        boardView.setPremoveColor(() -> lanPeer != null ? lanPeer.getLocalColor()
+                : isEngineEnabled ? engineColor.opposite() : null);
+        sidebarView.setOnNavigate(onSidebarNavigate);
+
+        root.setCenter(boardView);
+        root.setRight(sidebarView);
+
+        MenuBar menuBar = new MenuBar();
+
+        // File Menu
+        Menu fileMenu = new Menu("File");
+        MenuItem newGameItem = new MenuItem("New Game");
+        MenuItem openItem = new MenuItem("Open PGN");
+        MenuItem saveItem = new MenuItem("Save PGN");
+        MenuItem exitItem = new MenuItem("Exit");
+
+        fileMenu.getItems().addAll(newGameItem, new SeparatorMenuItem(), openItem, saveItem, new SeparatorMenuItem(),
+                exitItem);
+
+        // Move Menu
+        Menu moveMenu = new Menu("Move");
+        MenuItem previousMoveItem = new MenuItem("Previous Move");
+        MenuItem nextMoveItem = new MenuItem("Next Move");
+        MenuItem firstMoveItem = new MenuItem("First Move");
+        MenuItem lastMoveItem = new MenuItem("Last Move");
+
+        moveMenu.getItems().addAll(previousMoveItem, nextMoveItem, new SeparatorMenuItem(), firstMoveItem,
+                lastMoveItem);
+
+        // Engine Menu
+        Menu engineMenu = new Menu("Engine");
+        MenuItem loadEngineItem = new MenuItem("Load Engine JAR...");
+        MenuItem loadBookItem = new MenuItem("Load Opening Book...");
+        MenuItem bookDepthItem = new MenuItem("Opening Book Depth...");
+        MenuItem tablebaseItem = new MenuItem("Set Tablebase Folder...");
+        MenuItem startEngineItem = new MenuItem("Start Engine");
+        MenuItem stopEngineItem = new MenuItem("Stop Engine");
+        javafx.scene.control.CheckMenuItem ponderItem = new javafx.scene.control.CheckMenuItem(
+                "Think on Opponent's Time");
+        javafx.scene.control.CheckMenuItem inProcessItem = new javafx.scene.control.CheckMenuItem(
+                "Run Engine In-Process");
+        javafx.scene.control.CheckMenuItem playWhiteItem = new javafx.scene.control.CheckMenuItem(
+                "Play as White (Engine Black)");
+        javafx.scene.control.CheckMenuItem playBlackItem = new javafx.scene.control.CheckMenuItem(
+                "Play as Black (Engine White)");
+
+        playWhiteItem.setSelected(true);
+
+        playWhiteItem.setOnAction(e -> {
+            playBlackItem.setSelected(false);
+            engineColor = com.chess.core.PieceColor.BLACK;
+            isEngineEnabled = startEngineItem.isDisable(); // If engine started, enable play
+            if (isEngineEnabled && game.getCurrentTurn() == engineColor) {
+                triggerEngine(game);
+            }
+        });
+
+        playBlackItem.setOnAction(e -> {
+            playWhiteItem.setSelected(false);
+            engineColor = com.chess.core.PieceColor.WHITE;
+            isEngineEnabled = startEngineItem.isDisable();
+            if (isEngineEnabled && game.getCurrentTurn() == engineColor) {
+                triggerEngine(game);
+            }
+        });
+
+        engineMenu.getItems().addAll(loadEngineItem, loadBookItem, bookDepthItem, tablebaseItem, new SeparatorMenuItem(), startEngineItem, stopEngineItem,
+                new SeparatorMenuItem(), playWhiteItem, playBlackItem, new SeparatorMenuItem(), ponderItem,
+                inProcessItem);
+
+        // Loading the engine into this JVM skips JVM startup; only possible if the
+        // app itself runs with the Vector API module. Off by default, as an engine
+        // calling System.exit would close the app
+        inProcessItem.setDisable(!com.chess.engine.InProcessEngine.isSupported());
+        engineService.setPreferInProcess(false);
+        inProcessItem.setOnAction(e -> engineService.setPreferInProcess(inProcessItem.isSelected()));
+
+        ponderItem.setOnAction(e -> {
+            isPonderEnabled = ponderItem.isSelected();
+            if (!isPonderEnabled && engineService.getPonderMove() != null) {
+                cancelEngineMove();
+            }
+            engineService.setOption("Ponder", String.valueOf(isPonderEnabled));
+        });
+
+        // Network Menu
+        Menu networkMenu = new Menu("Network");
+        MenuItem hostLanItem = new MenuItem("Host LAN Game...");
+        MenuItem joinLanItem = new MenuItem("Join LAN Game...");
+        MenuItem leaveLanItem = new MenuItem("Leave LAN Game");
+
+        networkMenu.getItems().addAll(hostLanItem, joinLanItem, new SeparatorMenuItem(), leaveLanItem);
+
+        hostLanItem.setOnAction(e -> {
+            javafx.scene.control.ChoiceDialog<String> dialog = new javafx.scene.control.ChoiceDialog<>("White",
+                    "White", "Black");
+            dialog.setTitle("Host LAN Game");
+            dialog.setHeaderText(null);
+            dialog.setContentText("Play as:");
+            java.util.Optional<String> choice = dialog.showAndWait();
+            if (choice.isEmpty()) {
+                return;
+            }
+            com.chess.core.PieceColor color = choice.get().equals("White") ? com.chess.core.PieceColor.WHITE
+                    : com.chess.core.PieceColor.BLACK;
+            try {
+                com.chess.server.LanPeer peer = com.chess.server.LanPeer.host(DEFAULT_LAN_PORT, color);
+                startLanGame.accept(peer);
+                sidebarView.setStatusText("Waiting for an opponent on port " + peer.getPort());
+            } catch (java.io.IOException ex) {
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Network Error");
+                alert.setHeaderText(null);
+                alert.setContentText("Failed to open port " + DEFAULT_LAN_PORT + ": " + ex.getMessage());
+                alert.showAndWait();
+            }
+        });
+
+        joinLanItem.setOnAction(e -> {
+            javafx.scene.control.TextInputDialog dialog = new javafx.scene.control.TextInputDialog(
+                    "localhost:" + DEFAULT_LAN_PORT);
+            dialog.setTitle("Join LAN Game");
+            dialog.setHeaderText(null);
+            dialog.setContentText("Host (address:port):");
+            java.util.Optional<String> address = dialog.showAndWait();
+            if (address.isEmpty() || address.get().isBlank()) {
+                return;
+            }
+            String text = address.get().trim();
+            int colon = text.lastIndexOf(':');
+            String host = colon > 0 ? text.substring(0, colon) : text;
+            int port = DEFAULT_LAN_PORT;
+            if (colon > 0) {
+                try {
+                    port = Integer.parseInt(text.substring(colon + 1));
+                } catch (NumberFormatException ex) {
+                    sidebarView.setStatusText("Bad port: " + text.substring(colon + 1));
+                    return;
+                }
+            }
+            startLanGame.accept(com.chess.server.LanPeer.join(host, port));
+            sidebarView.setStatusText("Connecting to " + host + ":" + port + "...");
+        });
+
+        leaveLanItem.setOnAction(e -> {
+            leaveLanGame.run();
+            refreshAll.run();
+        });
+
+        // Help Menu
+        Menu helpMenu = new Menu("Help");
+        MenuItem aboutItem = new MenuItem("About");
+        MenuItem githubItem = new MenuItem("GitHub Page");
+
+        helpMenu.getItems().addAll(aboutItem, new SeparatorMenuItem(), githubItem);
+
+        menuBar.getMenus().addAll(fileMenu, moveMenu, engineMenu, networkMenu, helpMenu);
+
+        // Actions
+        newGameItem.setOnAction(e -> {
+            boolean engineAvailable = getDefaultEnginePath() != null || new java.io.File(enginePath).exists();
+            NewGameDialog dialog = new NewGameDialog(engineAvailable);
+            java.util.Optional<NewGameSettings> result = dialog.showAndWait();
+
+            result.ifPresent(settings -> {
+                leaveLanGame.run();
+                journalEndGame();
+                cancelEngineMove();
+                engineService.newGame();
+                game.reset();
+                refreshAll.run();
+
+                lastSettings = settings;
+                resetClock(settings, sidebarView);
+
+                if (settings.isVsComputer()) {
+                    isEngineEnabled = true;
+                    engineDifficulty = settings.getDifficulty();
+                    // Disable start engine menu item since we are auto-starting
+                    startEngineItem.setDisable(true);
+                    stopEngineItem.setDisable(false);
+
+                    // Ensure engine is running
+                    if (!engineService.isRunning()) {
+                        try {
+                            // Use default path if available, otherwise current enginePath
+                            String path = getDefaultEnginePath();
+                            if (path == null)
+                                path = enginePath;
+
+                            engineService.startEngine(path);
+                        } catch (java.io.IOException ex) {
+                            ex.printStackTrace();
+                            Alert alert = new Alert(Alert.AlertType.ERROR);
+                            alert.setTitle("Engine Error");
+                            alert.setHeaderText(null);
+                            alert.setContentText("Failed to start engine: " + ex.getMessage());
+                            alert.showAndWait();
+                            return; // Stop here
+                        }
+                    }
+
+                    if (settings.isPlayAsWhite()) {
+                        engineColor = com.chess.core.PieceColor.BLACK;
+                        playWhiteItem.setSelected(true);
+                        playBlackItem.setSelected(false);
+                    } else {
+                        engineColor = com.chess.core.PieceColor.WHITE;
+                        playWhiteItem.setSelected(false);
+                        playBlackItem.setSelected(true);
+                    }
+
+                    if (game.getCurrentTurn() == engineColor) {
+                        triggerEngine(game);
+                    }
+                } else {
+                    // Human vs Human
+                    isEngineEnabled = false;
+                }
+
+                // If playing as Black, flip the board.
+                boardView.clearSelection();
+                if (!settings.isPlayAsWhite()) {
+                    boardView.setFlipped(true);
+                } else {
+                    boardView.setFlipped(false);
+                }
+            });
+        });
+
+        openItem.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PGN Files", "*.pgn"));
+            java.io.File file = fileChooser.showOpenDialog(primaryStage);
+            if (file != null) {
+                try {
+                    java.util.List<String> moves = com.chess.core.PGNService.loadGame(file);
+                    cancelEngineMove();
+                    engineService.newGame();
+                    journalEndGame();
+                    boolean success = game.loadFromPGN(moves);
+                    if (success) {
+                        refreshAll.run();
+                        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                        alert.setTitle("PGN Loaded");
+                        alert.setHeaderText(null);
+                        alert.setContentText("Successfully loaded " + moves.size() + " moves.");
+                        alert.showAndWait();
+                    } else {
+                        Alert alert = new Alert(Alert.AlertType.ERROR);
+                        alert.setTitle("Load Error");
+                        alert.setHeaderText(null);
+                        alert.setContentText(
+                                "Failed to load PGN file. The file may be corrupted or contain invalid moves.");
+                        alert.showAndWait();
+                    }
+                } catch (java.io.IOException ex) {
+                    ex.printStackTrace();
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setTitle("File Error");
+                    alert.setHeaderText(null);
+                    alert.setContentText("Error reading PGN file: " + ex.getMessage());
+                    alert.showAndWait();
+                }
+            }
+        });
+
+        saveItem.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PGN Files", "*.pgn"));
+            java.io.File file = fileChooser.showSaveDialog(primaryStage);
+            if (file != null) {
+                try {
+                    com.chess.core.PGNService.saveGame(game, file);
+                } catch (java.io.IOException ex) {
+                    ex.printStackTrace();
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setTitle("File Error");
+                    alert.setHeaderText(null);
+                    alert.setContentText("Error saving PGN file: " + ex.getMessage());
+                    alert.showAndWait();
+                }
+            }
+        });
+
+        previousMoveItem.setOnAction(e -> {
+            boardView.clearSelection();
+            boardView.setHighlightLastMove(false);
+            cancelEngineMove();
+            game.previousMove();
+            refreshAll.run();
+        });
+
+        nextMoveItem.setOnAction(e -> {
+            boardView.clearSelection();
+            boardView.setHighlightLastMove(false);
+            cancelEngineMove();
+            game.nextMove();
+            refreshAll.run();
+        });
+
+        firstMoveItem.setOnAction(e -> {
+            boardView.clearSelection();
+            boardView.setHighlightLastMove(false);
+            cancelEngineMove();
+            game.goToFirstMove();
+            refreshAll.run();
+        });
+
+        lastMoveItem.setOnAction(e -> {
+            boardView.clearSelection();
+            boardView.setHighlightLastMove(false);
+            cancelEngineMove();
+            game.goToLastMove();
+            refreshAll.run();
+        });
+
+        loadEngineItem.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JAR Files", "*.jar"));
+            java.io.File file = fileChooser.showOpenDialog(primaryStage);
+            if (file != null) {
+                // Copy the JAR to default location
+                boolean copied = copyEngineToDefaultLocation(file);
+
+                if (copied) {
+                    // Update engine path to the default location
+                    enginePath = getDefaultEnginePath();
+
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Engine Loaded");
+                    alert.setHeaderText(null);
+                    alert.setContentText("Engine JAR has been copied to default location:\n" + enginePath
+                            + "\n\nThe engine will be automatically loaded on future launches.");
+                    alert.showAndWait();
+                } else {
+                    // If copy failed, use the original path
+                    enginePath = file.getAbsolutePath();
+
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("Copy Failed");
+                    alert.setHeaderText(null);
+                    alert.setContentText(
+                            "Failed to copy engine to default location.\nUsing selected path: " + enginePath);
+                    alert.showAndWait();
+                }
+            }
+        });
+
+        loadBookItem.setOnAction(e -> {
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Polyglot Books", "*.bin"));
+            java.io.File file = fileChooser.showOpenDialog(primaryStage);
+            if (file != null) {
+                // Remember the book by copying it next to the engines
+                java.io.File destFile = getDefaultBookFile();
+                try {
+                    destFile.getParentFile().mkdirs();
+                    if (openingBook != null) {
+                        openingBook.close();
+                        openingBook = null;
+                    }
+                    java.nio.file.Files.copy(file.toPath(), destFile.toPath(),
+                            java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+                } catch (java.io.IOException ex) {
+                    ex.printStackTrace();
+                    destFile = file;
+                }
+
+                if (!openBook(destFile)) {
+                    Alert alert = new Alert(Alert.AlertType.ERROR);
+                    alert.setTitle("Book Error");
+                    alert.setHeaderText(null);
+                    alert.setContentText("Failed to open opening book: " + file.getAbsolutePath());
+                    alert.showAndWait();
+                }
+            }
+        });
+
+        bookDepthItem.setOnAction(e -> {
+            javafx.scene.control.TextInputDialog dialog = new javafx.scene.control.TextInputDialog(
+                    String.valueOf(bookDepthPlies));
+            dialog.setTitle("Opening Book Depth");
+            dialog.setHeaderText(null);
+            dialog.setContentText("Plies to play from the book:");
+            java.util.Optional<String> depth = dialog.showAndWait();
+            if (depth.isEmpty()) {
+                return;
+            }
+            try {
+                int plies = Integer.parseInt(depth.get().trim());
+                if (plies < 0) {
+                    throw new NumberFormatException();
+                }
+                bookDepthPlies = plies;
+                if (openingBook != null) {
+                    openingBook.setMaxPly(plies);
+                }
+            } catch (NumberFormatException ex) {
+                sidebarView.setStatusText("Bad book depth: " + depth.get());
+            }
+        });
+
+        tablebaseItem.setOnAction(e -> {
+            javafx.stage.DirectoryChooser directoryChooser = new javafx.stage.DirectoryChooser();
+            java.io.File dir = directoryChooser.showDialog(primaryStage);
+            if (dir != null) {
+                if (containsTablebases(dir)) {
+                    useTablebases(dir);
+                } else {
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("No Tablebases");
+                    alert.setHeaderText(null);
+                    alert.setContentText("No Syzygy tables (*.rtbw) were found in:\n" + dir.getAbsolutePath());
+                    alert.showAndWait();
+                }
+            }
+        });
+
+        startEngineItem.setOnAction(e -> {
+            try {
+                engineService.startEngine(enginePath);
+                isEngineEnabled = true;
+                startEngineItem.setDisable(true);
+                stopEngineItem.setDisable(false);
+                if (game.getCurrentTurn() == engineColor) {
+                    triggerEngine(game);
+                }
+            } catch (java.io.IOException ex) {
+                ex.printStackTrace();
+                Alert alert = new Alert(Alert.AlertType.ERROR);
+                alert.setTitle("Engine Error");
+                alert.setHeaderText(null);
+                alert.setContentText("Failed to start engine: " + ex.getMessage());
+                alert.showAndWait();
+            }
+        });
+
+        stopEngineItem.setOnAction(e -> {
+            engineService.stopEngine();
+            isEngineEnabled = false;
+            startEngineItem.setDisable(false);
+            stopEngineItem.setDisable(true);
+        });
+        stopEngineItem.setDisable(true);
+
+        aboutItem.setOnAction(e -> {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION);
+            alert.setTitle("About");
+            alert.setHeaderText(null);
+            alert.setContentText(
+                    "Chessigy\nVersion 0.1\n\nCreated by Joel Ewing\n\nHorsey chess piece icons created by cham, michael1241");
+
+            // Use custom icon
+            try {
+                Image icon = new Image(getClass().getResourceAsStream("/com/chess/icon/icon_64.png"));
+                alert.setGraphic(new ImageView(icon));
+                // Also set the window icon for the alert stage
+                Stage alertStage = (Stage) alert.getDialogPane().getScene().getWindow();
+                alertStage.getIcons().add(icon);
+            } catch (Exception ex) {
+                System.err.println("Failed to load about dialog icon: " + ex.getMessage());
+            }
+
+            alert.showAndWait();
+        });
+
+        githubItem.setOnAction(e -> getHostServices().showDocument("https://github.com/joelewing/chessigy"));
+
+        // Pick up the game the last session left unfinished, e.g. because it crashed
+        if (journal != null && !journal.getRecoveredGames().isEmpty()) {
+            java.util.List<com.chess.core.GameJournal.RecoveredGame> recovered = journal.getRecoveredGames();
+            com.chess.core.GameJournal.RecoveredGame last = recovered.get(recovered.size() - 1);
+            for (com.chess.core.GameJournal.RecoveredGame other : recovered) {
+                if (other != last) {
+                    journal.endGame(other.getId());
+                }
+            }
+            if (last.getStartFen() != null) {
+                game.loadFromFen(last.getStartFen());
+            }
+            for (com.chess.core.Move move : last.getGame().getMoveHistory()) {
+                game.makeMove(move);
+            }
+            journalGameId = last.getId();
+
+            com.chess.core.GameJournal.Setup setup = last.getSetup();
+            com.chess.core.ChessClock.IncrementMode mode = setup.getIncrementMode();
+            lastSettings = new NewGameSettings(setup.getEngineColor() != null,
+                    setup.getEngineColor() != com.chess.core.PieceColor.WHITE,
+                    setup.getEngineLevel() != null ? setup.getEngineLevel() : engineDifficulty, setup.isTimed(),
+                    (int) (setup.getBaseMillis() / 60_000), (int) (setup.getIncrementMillis() / 1000),
+                    mode == com.chess.core.ChessClock.IncrementMode.BRONSTEIN ? "Bronstein"
+                            : mode == com.chess.core.ChessClock.IncrementMode.DELAY ? "Delay" : "Fischer");
+            if (setup.isTimed() && last.getWhiteMillis() >= 0 && last.getBlackMillis() >= 0) {
+                resetClock(lastSettings, sidebarView);
+                chessClock.setRemainingTimeMillis(com.chess.core.PieceColor.WHITE, last.getWhiteMillis());
+                chessClock.setRemainingTimeMillis(com.chess.core.PieceColor.BLACK, last.getBlackMillis());
+                chessClock.start(game.getCurrentTurn());
+            }
+            boardView.setFlipped(!lastSettings.isPlayAsWhite());
+            refreshAll.run();
+            sidebarView.setStatusText("Resumed the unfinished game");
+
+            if (lastSettings.isVsComputer()) {
+                engineColor = setup.getEngineColor();
+                engineDifficulty = lastSettings.getDifficulty();
+                playWhiteItem.setSelected(engineColor == com.chess.core.PieceColor.BLACK);
+                playBlackItem.setSelected(engineColor == com.chess.core.PieceColor.WHITE);
+                try {
+                    if (!engineService.isRunning()) {
+                        String path = getDefaultEnginePath();
+                        engineService.startEngine(path != null ? path : enginePath);
+                    }
+                    isEngineEnabled = true;
+                    startEngineItem.setDisable(true);
+                    stopEngineItem.setDisable(false);
+                    if (game.getCurrentTurn() == engineColor) {
+                        triggerEngine(game);
+                    }
+                } catch (java.io.IOException ex) {
+                    ex.printStackTrace();
+                    sidebarView.setStatusText("Resumed the unfinished game, but the engine failed to start");
+                }
+            }
+        }
+
+        exitItem.setOnAction(e -> {
+            leaveLanGame.run();
+            closeJournal();
+            engineService.stopEngine();
+            javafx.application.Platform.exit();
+        });
+
+        root.setTop(menuBar);
+
+        Scene scene = new Scene(root, 1100, 800);
+
+        // Load CSS
+        scene.getStylesheets().add(getClass().getResource("styles.css").toExternalForm());
+
+        // Configure stage properties BEFORE setting scene to help window manager
+        primaryStage.setTitle("Chessigy");
+        primaryStage.setResizable(false);
+
+        // Set explicit size constraints to reinforce non-resizable state
+        primaryStage.setMinWidth(1100);
+        primaryStage.setMinHeight(800);
+        primaryStage.setMaxWidth(1100);
+        primaryStage.setMaxHeight(800);
+
+        // Set App Icons
+        try {
+            primaryStage.getIcons().addAll(
+                    new javafx.scene.image.Image(getClass().getResourceAsStream("/com/chess/icon/icon_16.png")),
+                    new javafx.scene.image.Image(getClass().getResourceAsStream("/com/chess/icon/icon_32.png")),
+                    new javafx.scene.image.Image(getClass().getResourceAsStream("/com/chess/icon/icon_64.png")),
+                    new javafx.scene.image.Image(getClass().getResourceAsStream("/com/chess/icon/icon_128.png")),
+                    new javafx.scene.image.Image(getClass().getResourceAsStream("/com/chess/icon/icon_256.png")),
+                    new javafx.scene.image.Image(getClass().getResourceAsStream("/com/chess/icon/icon_512.png")));
+        } catch (Exception e) {
+            System.err.println("Failed to load app icons: " + e.getMessage());
+        }
+
+        primaryStage.setScene(scene);
+        primaryStage.show();
+
+        primaryStage.setOnCloseRequest(e -> {
+            leaveLanGame.run();
+            closeJournal();
+            engineService.stopEngine();
+            if (analysisCache != null) {
+                try {
+                    analysisCache.close();
+                } catch (java.io.IOException ex) {
+                    ex.printStackTrace();
+                }
+            }
+            if (tablebase != null) {
+                tablebase.close();
+            }
+        });
+    }
+
+    private void triggerEngine(Game game) {
+        // If the engine was pondering, either continue on a hit or discard the
+        // ponder search before starting a new one
+        String ponderMove = engineService.getPonderMove();
+        if (ponderMove != null) {
+            int lastIndex = game.getCurrentMoveIndex();
+            String lastMove = lastIndex >= 0 ? game.getMoveHistory().get(lastIndex).toUciNotation() : null;
+            if (ponderMove.equals(lastMove) && engineService.ponderHit()) {
+                System.out.println("Ponder hit: " + ponderMove);
+                return;
+            }
+            cancelEngineMove();
+        }
+
+        // Answer tablebase positions and book moves without contacting the engine
+        if (tablebase != null) {
+            String tablebaseMove = null;
+            try {
+                tablebaseMove = tablebase.pickMove(game);
+            } catch (java.io.UncheckedIOException ex) {
+                ex.printStackTrace();
+            }
+            if (tablebaseMove != null) {
+                System.out.println("Tablebase move: " + tablebaseMove);
+                playSearchResult(game, java.util.concurrent.CompletableFuture
+                        .completedFuture(new com.chess.engine.BestMove(tablebaseMove, null)));
+                return;
+            }
+        }
+        if (openingBook != null) {
+            String bookMove = openingBook.pickMove(game);
+            if (bookMove != null) {
+                System.out.println("Book move: " + bookMove);
+                // Goes the same way as a search result, so New Game or navigation drops it
+                playSearchResult(game, java.util.concurrent.CompletableFuture
+                        .completedFuture(new com.chess.engine.BestMove(bookMove, null)));
+                return;
+            }
+        }
+
+        // Sent as start position plus moves so the engine can reuse its hash;
+        // depth-limited searches may be answered from the analysis cache
+        com.chess.engine.SearchLimits limits = buildSearchLimits();
+        long budget = Math.max(limits.getHardLimitMillis(), limits.getMoveTimeMillis());
+        if (budget > 0) {
+            playSearchResult(game, engineService.search(game, limits, budget + ENGINE_TIMEOUT_GRACE_MILLIS));
+        } else {
+            playSearchResult(game, engineService.search(game, limits));
+        }
+    }
+
+    /**
+     * Cancels the engine's search, and drops any engine or book move that is
+     * still waiting to be played.
+     */
+    private void cancelEngineMove() {
+        currentSearch = null;
+        engineService.cancelSearch();
+    }
+
+    /**
+     * Plays the engine's move once the search completes, unless the search was
+     * replaced or cancelled in the meantime.
+     * 
+     * @param game   the current game
+     * @param search the pending search
+     */
+    private void playSearchResult(Game game,
+            java.util.concurrent.CompletableFuture<com.chess.engine.BestMove> search) {
+        currentSearch = search;
+        search.whenComplete((bestMove, error) -> javafx.application.Platform.runLater(() -> {
+            if (search != currentSearch) {
+                return;
+            }
+            currentSearch = null;
+            if (error != null) {
+                if (!search.isCancelled()) {
+                    System.err.println("Engine search failed: " + error);
+                }
+                return;
+            }
+            if (game.getCurrentTurn() != engineColor) {
+                return;
+            }
+            onEngineMove.accept(bestMove.getMove());
+            startPondering(game, bestMove.getPonderMove());
+        }));
+    }
+
+    /**
+     * Starts pondering on the engine's expected reply while the player thinks.
+     * 
+     * @param game       the current game, with the engine's move already played
+     * @param ponderMove the reply the engine expects, or null
+     */
+    private void startPondering(Game game, String ponderMove) {
+        if (!isPonderEnabled || !isEngineEnabled || ponderMove == null
+                || game.getCurrentTurn() == engineColor
+                || game.getGameState() != com.chess.core.GameState.IN_PROGRESS) {
+            return;
+        }
+        String position = game.getUciPosition();
+        position += (game.getCurrentMoveIndex() >= 0 ? " " : " moves ") + ponderMove;
+        playSearchResult(game, engineService.ponder(position, ponderMove, buildSearchLimits()));
+    }
+
+    private com.chess.engine.SearchLimits buildSearchLimits() {
+        com.chess.engine.SearchLimits limits = new com.chess.engine.SearchLimits();
+        if (chessClock != null) {
+            // Timed game: let the engine budget its own clock
+            limits = engineService.getTimeManager().allocate(engineColor,
+                    clockMillis(com.chess.core.PieceColor.WHITE), clockMillis(com.chess.core.PieceColor.BLACK),
+                    clockIncrementSeconds * 1000L, 0);
+        }
+
+        if ("Easy".equals(engineDifficulty)) {
+            limits.withDepth(2);
+        } else if ("Medium".equals(engineDifficulty)) {
+            limits.withDepth(6);
+        } else if (chessClock == null) {
+            limits.withMoveTime("Hard".equals(engineDifficulty) ? 3000 : 2000);
+        }
+
+        return limits;
+    }
+
+    /**
+     * Replaces the clock with a new one for the given time control, started
+     * for White, or removes it if the game is untimed.
+     */
+    private void resetClock(NewGameSettings settings, SidebarView sidebarView) {
+        // Stop and clear any existing clock
+        if (chessClock != null) {
+            chessClock.stop();
+            chessClock = null;
+            sidebarView.setClock(null);
+        }
+
+        // Create clock if time limit is enabled
+        if (settings != null && settings.isUseTimeLimit()) {
+            ChessClock.IncrementMode incrementMode = "Bronstein".equals(settings.getClockType())
+                    ? ChessClock.IncrementMode.BRONSTEIN
+                    : "Delay".equals(settings.getClockType())
+                            ? ChessClock.IncrementMode.DELAY
+                            : ChessClock.IncrementMode.FISCHER;
+            chessClock = new ChessClock(settings.getTimeMinutes() * 60_000L,
+                    settings.getIncrementSeconds() * 1000L, incrementMode);
+            clockIncrementSeconds = settings.getIncrementSeconds();
+            sidebarView.setClock(chessClock);
+
+            // Set up clock callbacks
+            chessClock.setCallbackExecutor(javafx.application.Platform::runLater);
+            chessClock.setOnTimeUpdate(() -> {
+                sidebarView.updateClockDisplay();
+            });
+
+            ChessClock clock = chessClock;
+            chessClock.setOnTimeExpired(expiredColor -> {
+                clock.stop();
+                journalEndGame();
+                String winner = expiredColor == com.chess.core.PieceColor.WHITE ? "Black" : "White";
+                sidebarView.setStatusText("TIME OUT! " + winner + " wins!");
+            });
+
+            // Start clock for White (first player)
+            chessClock.start(com.chess.core.PieceColor.WHITE);
+        }
+    }
+
+    /**
+     * Records the move just made in the journal, starting a journal entry for
+     * the game first if it has none yet.
+     */
+    private void journalMove(Game game) {
+        int ply = game.getCurrentMoveIndex() + 1;
+        if (journal == null || ply == 0) {
+            return;
+        }
+        java.util.List<com.chess.core.Move> history = game.getMoveHistory();
+        if (journalGameId < 0) {
+            journalGameId = journal.startGame(game.getStartFen(), journalSetup(), -1, -1);
+            // Moves from before the journal entry, e.g. from a loaded PGN
+            for (int i = 0; i < ply - 1; i++) {
+                journal.recordMove(journalGameId, i + 1, com.chess.core.PackedMove.of(history.get(i)), -1, -1);
+            }
+        }
+        journal.recordMove(journalGameId, ply, com.chess.core.PackedMove.of(history.get(ply - 1)),
+                clockMillisOrNone(com.chess.core.PieceColor.WHITE), clockMillisOrNone(com.chess.core.PieceColor.BLACK));
+    }
+
+    /**
+     * Marks the journaled game as over, so it is not resumed and the next move
+     * starts a new entry.
+     */
+    private void journalEndGame() {
+        if (journal != null && journalGameId >= 0) {
+            journal.endGame(journalGameId);
+        }
+        journalGameId = -1;
+    }
+
+    /**
+     * Returns how the current game is played, so a recovered game resumes with
+     * the same opponent and time control.
+     */
+    private com.chess.core.GameJournal.Setup journalSetup() {
+        com.chess.core.PieceColor engine = isEngineEnabled && lanPeer == null ? engineColor : null;
+        String level = engine != null ? engineDifficulty : null;
+        if (chessClock == null || lastSettings == null || !lastSettings.isUseTimeLimit()) {
+            return new com.chess.core.GameJournal.Setup(engine, level, -1, 0,
+                    com.chess.core.ChessClock.IncrementMode.FISCHER);
+        }
+        return new com.chess.core.GameJournal.Setup(engine, level, lastSettings.getTimeMinutes() * 60_000L,
+                chessClock.getIncrementMillis(), chessClock.getIncrementMode());
+    }
+
+    /**
+     * Closes the journal, leaving the game in progress in it so the next start
+     * resumes it.
+     */
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (java.io.IOException ex) {
+            System.err.println("Failed to close game journal: " + ex.getMessage());
+        }
+        journal = null;
+    }
+
+    /**
+     * Returns a side's remaining time to send to a network opponent, or -1 if
+     * the game is untimed.
+     */
+    private long clockMillisOrNone(com.chess.core.PieceColor color) {
+        return chessClock != null ? chessClock.getRemainingTimeMillis(color) : -1;
+    }
+
+    private long clockMillis(com.chess.core.PieceColor color) {
+        return chessClock.getRemainingTimeMillis(color);
+    }
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
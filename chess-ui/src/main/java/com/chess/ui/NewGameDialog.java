@@ -131,8 +131,32 @@ public class NewGameDialog extends Dialog<NewGameSettings> {
 
         timeSettingsGrid.add(minutesLabel, 0, 1);
         timeSettingsGrid.add(minutesSpinner, 1, 1);
+        // Increment Per Move
+        Label incrementLabel = new Label("Increment (Seconds)");
+        Spinner<Integer> incrementSpinner = new Spinner<>();
+        incrementSpinner.getStyleClass().add("flat-spinner");
+        incrementSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(0, 60, 0));
+        incrementSpinner.setEditable(true);
+        incrementSpinner.setMaxWidth(Double.MAX_VALUE);
+
+        timeSettingsGrid.add(incrementLabel, 0, 2);
+        timeSettingsGrid.add(incrementSpinner, 1, 2);
+
+        // Increment Type
+        Label clockTypeLabel = new Label("Increment Type");
+        ComboBox<String> clockTypeCombo = new ComboBox<>();
+        clockTypeCombo.getStyleClass().add("flat-combo");
+        clockTypeCombo.getItems().addAll("Fischer", "Bronstein", "Delay");
+        clockTypeCombo.setValue("Fischer");
+        clockTypeCombo.setMaxWidth(Double.MAX_VALUE);
+
+        timeSettingsGrid.add(clockTypeLabel, 0, 3);
+        timeSettingsGrid.add(clockTypeCombo, 1, 3);
+
         // Enable/Disable time settings based on toggle
         minutesSpinner.disableProperty().bind(useTimeLimitToggle.selectedProperty().not());
+        incrementSpinner.disableProperty().bind(useTimeLimitToggle.selectedProperty().not());
+        clockTypeCombo.disableProperty().bind(useTimeLimitToggle.selectedProperty().not());
 
         timeLimitBox.getChildren().addAll(timeLimitHeader, timeSettingsGrid);
 
@@ -183,8 +207,8 @@ public class NewGameDialog extends Dialog<NewGameSettings> {
                         difficultyCombo.getValue(),
                         useTimeLimitToggle.isSelected(),
                         minutesSpinner.getValue(),
-                        0,
-                        "standard");
+                        incrementSpinner.getValue(),
+                        clockTypeCombo.getValue());
             }
             return null;
         });
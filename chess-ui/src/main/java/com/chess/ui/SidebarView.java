@@ -142,6 +142,14 @@ public class SidebarView extends VBox {
             if (i == game.getCurrentMoveIndex()) {
                 moveStr.getStyleClass().add("current-move");
             }
+            // Clicking a move jumps straight to the position after it
+            int ply = i + 1;
+            moveStr.setOnMouseClicked(e -> {
+                game.goToPly(ply);
+                if (onNavigate != null)
+                    onNavigate.run();
+                refresh();
+            });
             currentLine.getChildren().add(moveStr);
         }
 